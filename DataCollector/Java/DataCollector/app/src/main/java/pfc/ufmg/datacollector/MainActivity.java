@@ -2,63 +2,132 @@ package pfc.ufmg.datacollector;
 
 import android.Manifest;
 import android.app.AlertDialog;
+import android.content.ComponentName;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
+import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
+import android.os.IBinder;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.provider.OpenableColumns;
 import android.util.Log;
-import android.view.WindowManager;
+import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.RequiresApi;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 
-import java.time.LocalDateTime;
-
+import pfc.ufmg.datacollector.data.DataCollectionService;
 import pfc.ufmg.datacollector.data.LogDataManager;
+import pfc.ufmg.datacollector.data.RecordingRecovery;
+import pfc.ufmg.datacollector.data.RecordingReplayer;
+import pfc.ufmg.datacollector.data.SegmentCompression;
+import pfc.ufmg.datacollector.data.SessionManifest;
+import pfc.ufmg.datacollector.data.SensorPipeline;
 import pfc.ufmg.datacollector.sensors.AccelerometerDataCollector;
 import pfc.ufmg.datacollector.sensors.GnssDataCollector;
 import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.EstimatorConfig;
+import pfc.ufmg.datacollector.calculations.EstimatorFanOut;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final String TAG = "MainActivity";
     private static final int PERMISSIONS_REQUEST_CODE = 99;
-    private static final int SAMPLE_INTERVAL_MS = 100; // 10 Hz
 
     // Views
     private TextView tv_lat, tv_lon, tv_altitude, tv_accuracy, tv_speed, tv_timestamp;
     private TextView tv_satellites, tv_course, tv_fix;
     private TextView tv_accel_x, tv_accel_y, tv_accel_z;
     private TextView tv_attitude;
+    // Variantes do estimador, uma linha cada (rótulo com os limiares e última atitude)
+    private TextView tv_attitude_variants;
+    private String[] variantLabels = new String[0];
+    private String[] variantResults = new String[0];
+    // Painel de diagnóstico (métricas do pipeline), aberto ao tocar no título
+    private TextView tv_metrics_title, tv_metrics;
     private TextView tv_log_status, tv_record_count;
     private Button btn_start_log, btn_stop_log;
 
-    // Coletores de dados
-    private GnssDataCollector gnssCollector;
-    private AccelerometerDataCollector accelerometerCollector;
-    private LogDataManager logDataManager;
+    // Coleta, gravação e estimação rodam no serviço em primeiro plano; null enquanto desconectado
+    private DataCollectionService collectionService;
+    // Sessões interrompidas são procuradas uma vez, na primeira conexão com o serviço
+    private boolean recoveryChecked = false;
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            collectionService = ((DataCollectionService.LocalBinder) binder).getService();
+            setupVariants(collectionService.getEstimatorVariants());
+            collectionService.setClient(pipelineListener, attitudeListener, variantListener);
+            if (!collectionService.isAccelerometerAvailable()) {
+                Toast.makeText(MainActivity.this, "Acelerômetro não disponível", Toast.LENGTH_SHORT).show();
+            }
+            if (!recoveryChecked && !collectionService.isLogging()) {
+                recoveryChecked = true;
+                collectionService.recoverInterruptedSessions(MainActivity.this::offerRecovery);
+            }
+            updateLogButtonsState();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            collectionService = null;
+            updateLogButtonsState();
+        }
+    };
+
+    private final SensorPipeline.PipelineListener pipelineListener = new SensorPipeline.PipelineListener() {
+        @Override
+        public void onDisplaySnapshot(SensorPipeline.DisplaySnapshot snapshot) {
+            displaySnapshot(snapshot);
+        }
+
+        @Override
+        public void onLoggingStateChanged(boolean started) {
+            updateLogButtonsState();
+            if (started) {
+                Toast.makeText(MainActivity.this, "Salvando em: " + LogDataManager.getLogDirectory(),
+                        Toast.LENGTH_LONG).show();
+            }
+        }
+    };
+
+    // Chamado na thread do pipeline
+    private final AttitudeEstimator.AttitudeUpdateListener attitudeListener = result ->
+            runOnUiThread(() -> {
+                tv_attitude.setText(result.toString());
+                Log.d(TAG, "Atitude atualizada: " + result.toString());
+            });
 
-    // Handler para coleta uniforme
-    private Handler handler = new Handler();
-    private Runnable dataCollectorRunnable;
+    // Chamado na thread do pipeline
+    private final EstimatorFanOut.VariantUpdateListener variantListener = (variant, result) ->
+            runOnUiThread(() -> {
+                if (variant < variantResults.length) {
+                    variantResults[variant] = result.toString();
+                    showVariants();
+                }
+            });
 
-    // Cache dos últimos dados
-    private GnssDataCollector.GnssData lastGnssData;
-    private AccelerometerDataCollector.AccelerometerData lastAccelData;
+    // Reprodução de arquivo em andamento (cancelada ao sair ou ao escolher outro arquivo)
+    private RecordingReplayer replayer;
 
     private boolean SavingAndUsingData = false;
 
@@ -67,14 +136,10 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        //Manter a tela sempre ligada
-        getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
-
         readFromFile();
 
         //starting app
         initializeViews();
-        initializeCollectors();
         setupLogButtons();
 
         if (checkPermissions()) {
@@ -128,49 +193,85 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void readFile(Uri uri) {
+        // Cancela uma reprodução anterior que ainda esteja rodando
+        if (replayer != null) {
+            replayer.cancel();
+        }
 
-        try (InputStream inputStream = getContentResolver().openInputStream(uri);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-
-            StringBuilder conteudo = new StringBuilder();
-            String linha = reader.readLine();
-            AttitudeEstimator attitudeEstimator = new AttitudeEstimator();
-            attitudeEstimator.reset();
-            attitudeEstimator.setUpdateListener(new AttitudeEstimator.AttitudeUpdateListener() {
-                @Override
-                public void onAttitudeUpdate(AttitudeEstimator.AttitudeResult result) {
-                    runOnUiThread(() -> {
-                        tv_attitude.setText(result.toString());
-                        Log.d(TAG, "Atitude atualizada: " + result.toString());
-                    });
-                }
-            });
-            while ((linha = reader.readLine()) != null) {
-                // Processa os dados para estimação de atitude
-                String[] data = linha.split(",");
-                AttitudeEstimator.SensorData sensorData = new AttitudeEstimator.SensorData(
-                        Double.parseDouble(data[1]),
-                        Double.parseDouble(data[2]),
-                        Double.parseDouble(data[3]),
-                        Integer.parseInt(data[4]),
-                        Double.parseDouble(data[5]),
-                        Double.parseDouble(data[6]),
-                        Double.parseDouble(data[7]),
-                        Double.parseDouble(data[8])
-                );
-                attitudeEstimator.processSample(sensorData);
-                conteudo.append(linha).append("\n");
+        AttitudeEstimator attitudeEstimator = new AttitudeEstimator(Log::i);
+        attitudeEstimator.setUpdateListener(new AttitudeEstimator.AttitudeUpdateListener() {
+            @Override
+            public void onAttitudeUpdate(AttitudeEstimator.AttitudeResult result) {
+                runOnUiThread(() -> tv_attitude.setText(result.toString()));
+                Log.d(TAG, "Atitude atualizada: " + result.toString());
             }
+        });
 
-            Log.d(TAG, "Conteúdo do arquivo:\n" + conteudo);
-            Toast.makeText(this, "Arquivo lido com sucesso!", Toast.LENGTH_SHORT).show();
+        RecordingReplayer currentReplayer = new RecordingReplayer(attitudeEstimator);
+        currentReplayer.setProgressListener((records, fraction) -> runOnUiThread(() ->
+                tv_log_status.setText("Reproduzindo: " + Math.round(fraction * 100) + "% ("
+                        + records + " amostras)")));
+        replayer = currentReplayer;
+        String fileName = getDisplayName(uri);
+
+        // Reprodução fora da thread de UI
+        new Thread(() -> {
+            try {
+                long start = SystemClock.elapsedRealtime();
+                int records = replay(currentReplayer, uri, fileName);
+                long elapsed = SystemClock.elapsedRealtime() - start;
+                Log.i(TAG, "Reprodução: " + records + " amostras em " + elapsed + " ms");
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Erro ao ler o arquivo!", Toast.LENGTH_SHORT).show();
+                runOnUiThread(() -> {
+                    updateLogButtonsState();
+                    if (!currentReplayer.isCancelled()) {
+                        Toast.makeText(this, "Arquivo lido com sucesso! " + records + " amostras",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Erro ao ler o arquivo", e);
+                runOnUiThread(() -> {
+                    updateLogButtonsState();
+                    Toast.makeText(this, "Erro ao ler o arquivo!", Toast.LENGTH_SHORT).show();
+                });
+            }
+        }, "RecordingReplay").start();
+    }
+
+    /**
+     * Reproduz o arquivo escolhido conforme o tipo:
+     * manifesto de sessão (segmentos lidos da pasta de gravações), segmento .gz ou gravação simples
+     */
+    private int replay(RecordingReplayer replayer, Uri uri, String fileName) throws IOException {
+        if (fileName != null && fileName.endsWith(SessionManifest.EXTENSION)) {
+            // O manifesto referencia os segmentos pelo nome, na mesma pasta
+            return replayer.run(new File(LogDataManager.getLogDirectory(), fileName));
+        }
+        if (fileName != null && fileName.endsWith(SegmentCompression.EXTENSION)) {
+            try (InputStream input = new GZIPInputStream(getContentResolver().openInputStream(uri))) {
+                return replayer.run(input);
+            }
+        }
+        try (ParcelFileDescriptor descriptor = getContentResolver().openFileDescriptor(uri, "r");
+             FileInputStream input = new FileInputStream(descriptor.getFileDescriptor())) {
+            return replayer.run(input.getChannel());
         }
     }
 
+    /**
+     * Nome do arquivo escolhido no seletor (null se o provedor não informar)
+     */
+    private String getDisplayName(Uri uri) {
+        try (Cursor cursor = getContentResolver().query(uri,
+                new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                return cursor.getString(0);
+            }
+        }
+        return uri.getLastPathSegment();
+    }
+
     private void initializeViews() {
         tv_lat = findViewById(R.id.tv_lat);
         tv_lon = findViewById(R.id.tv_lon);
@@ -189,38 +290,40 @@ public class MainActivity extends AppCompatActivity {
         btn_start_log = findViewById(R.id.btn_start_log);
         btn_stop_log = findViewById(R.id.btn_stop_log);
         tv_attitude = findViewById(R.id.tv_attitude);
+        tv_attitude_variants = findViewById(R.id.tv_attitude_variants);
+        tv_metrics_title = findViewById(R.id.tv_metrics_title);
+        tv_metrics = findViewById(R.id.tv_metrics);
+        tv_metrics_title.setOnClickListener(v -> tv_metrics.setVisibility(
+                tv_metrics.getVisibility() == View.VISIBLE ? View.GONE : View.VISIBLE));
     }
 
-    private void initializeCollectors() {
-        // Inicializa o coletor GNSS com callback
-        gnssCollector = new GnssDataCollector(this, new GnssDataCollector.GnssDataListener() {
-            @Override
-            public void onGnssDataUpdated(GnssDataCollector.GnssData data) {
-                lastGnssData = data;
-            }
-        });
-
-        // Inicializa o coletor de acelerômetro com callback
-        accelerometerCollector = new AccelerometerDataCollector(this,
-                new AccelerometerDataCollector.AccelerometerDataListener() {
-                    @Override
-                    public void onAccelerometerDataUpdated(AccelerometerDataCollector.AccelerometerData data) {
-                        lastAccelData = data;
-                    }
-                });
+    /**
+     * Rótulos das variantes (limiares que diferem do algoritmo original ficam visíveis lado a lado)
+     */
+    private void setupVariants(List<EstimatorConfig> variants) {
+        if (variants.size() != variantLabels.length) {
+            variantResults = new String[variants.size()];
+        }
+        variantLabels = new String[variants.size()];
+        for (int i = 0; i < variants.size(); i++) {
+            EstimatorConfig config = variants.get(i);
+            variantLabels[i] = String.format(Locale.US, "AHIGH %.2f, ALOW %.2f, VLOW %.0f, N %d",
+                    config.getAhigh(), config.getAlow(), config.getVlow(), config.getNaccelGrav());
+        }
+        tv_attitude_variants.setVisibility(variants.isEmpty() ? View.GONE : View.VISIBLE);
+        showVariants();
+    }
 
-        // Inicializa o gerenciador de logs
-        logDataManager = new LogDataManager(this);
-        // Configura listener para atualização de atitude
-        logDataManager.setAttitudeUpdateListener(new AttitudeEstimator.AttitudeUpdateListener() {
-            @Override
-            public void onAttitudeUpdate(AttitudeEstimator.AttitudeResult result) {
-                runOnUiThread(() -> {
-                    tv_attitude.setText(result.toString());
-                    Log.d(TAG, "Atitude atualizada: " + result.toString());
-                });
+    private void showVariants() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < variantLabels.length; i++) {
+            if (i > 0) {
+                text.append('\n');
             }
-        });
+            text.append(variantLabels[i]).append(": ")
+                    .append(variantResults[i] != null ? variantResults[i] : "aguardando");
+        }
+        tv_attitude_variants.setText(text);
     }
 
     private void setupLogButtons() {
@@ -234,86 +337,95 @@ public class MainActivity extends AppCompatActivity {
         if(!SavingAndUsingData)
             return;
 
-        if (logDataManager.startLogging()) {
-            updateLogButtonsState();
-            Toast.makeText(this, "Salvando em: " + LogDataManager.getLogDirectory(),
-                    Toast.LENGTH_LONG).show();
+        // O resultado chega em onLoggingStateChanged
+        if (collectionService != null) {
+            collectionService.startLogging();
         }
     }
 
     private void stopLogging() {
-        logDataManager.stopLogging();
-        updateLogButtonsState();
+        if (collectionService != null) {
+            collectionService.stopLogging();
+        }
+    }
+
+    /**
+     * Oferece retomar a sessão interrompida mais recente; as mais antigas são encerradas
+     */
+    private void offerRecovery(List<RecordingRecovery.Result> sessions) {
+        if (sessions.isEmpty() || collectionService == null || isFinishing()) {
+            return;
+        }
+        for (int i = 0; i < sessions.size() - 1; i++) {
+            collectionService.closeRecoveredSession(sessions.get(i));
+        }
+        RecordingRecovery.Result latest = sessions.get(sessions.size() - 1);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Gravação interrompida");
+        builder.setMessage("A sessão " + latest.baseName + " foi interrompida com "
+                + latest.totalRecords + " registros salvos. Deseja retomar a gravação?");
+        builder.setPositiveButton("Retomar", (dialog, which) -> {
+            if (collectionService != null) {
+                SavingAndUsingData = true;
+                collectionService.resumeSession(latest);
+            }
+        });
+        builder.setNegativeButton("Encerrar", (dialog, which) -> {
+            if (collectionService != null) {
+                collectionService.closeRecoveredSession(latest);
+            }
+        });
+        builder.setCancelable(false);
+        builder.create().show();
     }
 
     private void updateLogButtonsState() {
-        boolean isLogging = logDataManager.isLogging();
-        btn_start_log.setEnabled(!isLogging);
+        boolean connected = collectionService != null;
+        boolean isLogging = connected && collectionService.isLogging();
+        btn_start_log.setEnabled(connected && !isLogging);
         btn_stop_log.setEnabled(isLogging);
 
         if (isLogging) {
-            tv_log_status.setText("Gravando: " + logDataManager.getCurrentFileName());
+            tv_log_status.setText("Gravando: " + collectionService.getCurrentFileName());
         } else {
             tv_log_status.setText("Não está gravando");
             tv_record_count.setText("0 registros");
         }
     }
 
-    @RequiresApi(api = Build.VERSION_CODES.N)
+    /**
+     * Inicia (ou mantém) o serviço de coleta; a conexão é feita em onStart
+     */
     private void startDataCollection() {
-        // Inicia coleta GNSS
-        boolean gnssStarted = gnssCollector.start();
-        if (!gnssStarted) {
-            Toast.makeText(this, "Falha ao iniciar GNSS", Toast.LENGTH_SHORT).show();
-        }
-
-        // Inicia acelerômetro
-        boolean accelStarted = accelerometerCollector.start();
-        if (!accelStarted) {
-            Toast.makeText(this, "Acelerômetro não disponível", Toast.LENGTH_SHORT).show();
-        }
-
-        // Inicia coleta uniforme de dados (5 Hz)
-        startUniformDataCollection();
-    }
-
-    private void startUniformDataCollection() {
-        dataCollectorRunnable = new Runnable() {
-            @Override
-            public void run() {
-                collectAndDisplayData();
-                handler.postDelayed(this, SAMPLE_INTERVAL_MS);
-            }
-        };
-        handler.post(dataCollectorRunnable);
+        ContextCompat.startForegroundService(this, new Intent(this, DataCollectionService.class));
     }
 
-    private void collectAndDisplayData() {
-        String timeString = String.valueOf(LocalDateTime.now());
-        tv_timestamp.setText(timeString);
+    /**
+     * Atualiza a tela com um snapshot publicado pelo pipeline
+     */
+    private void displaySnapshot(SensorPipeline.DisplaySnapshot snapshot) {
+        tv_timestamp.setText(snapshot.timestamp);
 
         // Atualiza dados GNSS
-        if (lastGnssData != null && gnssCollector.hasLocation()) {
-            updateGnssDisplay(lastGnssData);
+        if (snapshot.gnssData != null && collectionService != null && collectionService.hasLocation()) {
+            updateGnssDisplay(snapshot.gnssData);
         } else {
             clearGnssDisplay();
         }
 
         // Atualiza dados do acelerômetro
-        if (lastAccelData != null) {
-            updateAccelerometerDisplay(lastAccelData);
+        if (snapshot.accelData != null) {
+            updateAccelerometerDisplay(snapshot.accelData);
         }
 
-        if(this.SavingAndUsingData) {
-            // Salva no arquivo CSV se estiver logando
-            if (logDataManager.isLogging()) {
-                logDataManager.logData(lastGnssData, lastAccelData);
-                tv_record_count.setText(logDataManager.getRecordCount() + " registros");
-            }
+        if (snapshot.logging) {
+            tv_record_count.setText(snapshot.recordCount + " registros");
         }
 
-        // Log para debug
-        logCollectedData(timeString);
+        if (snapshot.metrics != null && tv_metrics.getVisibility() == View.VISIBLE) {
+            tv_metrics.setText(snapshot.metrics.toString());
+        }
     }
 
     private void updateGnssDisplay(GnssDataCollector.GnssData data) {
@@ -354,41 +466,6 @@ public class MainActivity extends AppCompatActivity {
         tv_accel_z.setText(String.format("%.3f", data.z));
     }
 
-    private void logCollectedData(String timeString) {
-        StringBuilder logBuilder = new StringBuilder("DATA: Time=").append(timeString);
-
-        if (lastGnssData != null) {
-            logBuilder.append(" | Lat=").append(lastGnssData.latitude)
-                    .append(" | Lon=").append(lastGnssData.longitude);
-        }
-
-        if (lastAccelData != null) {
-            logBuilder.append(" | AccX=").append(lastAccelData.x)
-                    .append(" | AccY=").append(lastAccelData.y)
-                    .append(" | AccZ=").append(lastAccelData.z);
-        }
-
-        Log.d(TAG, logBuilder.toString());
-    }
-
-    private void stopAllCollectors() {
-        if (handler != null && dataCollectorRunnable != null) {
-            handler.removeCallbacks(dataCollectorRunnable);
-        }
-
-        if (gnssCollector != null) {
-            gnssCollector.stop();
-        }
-
-        if (accelerometerCollector != null) {
-            accelerometerCollector.stop();
-        }
-
-        if (logDataManager != null && logDataManager.isLogging()) {
-            logDataManager.stopLogging();
-        }
-    }
-
     private boolean checkPermissions() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             // Android 13+
@@ -409,7 +486,8 @@ public class MainActivity extends AppCompatActivity {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             requestPermissions(new String[]{
                     Manifest.permission.ACCESS_FINE_LOCATION,
-                    Manifest.permission.READ_MEDIA_IMAGES
+                    Manifest.permission.READ_MEDIA_IMAGES,
+                    Manifest.permission.POST_NOTIFICATIONS
             }, PERMISSIONS_REQUEST_CODE);
         } else {
             requestPermissions(new String[]{
@@ -421,12 +499,24 @@ public class MainActivity extends AppCompatActivity {
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
-        stopAllCollectors();
+    protected void onStart() {
+        super.onStart();
+        // Sem BIND_AUTO_CREATE: conecta quando o serviço for iniciado
+        bindService(new Intent(this, DataCollectionService.class), serviceConnection, 0);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // A gravação continua no serviço com a tela desligada; sem gravação o serviço para
+        // ao perder o cliente e volta a coletar em onResume
+        if (collectionService != null) {
+            collectionService.setClient(null, null, null);
+            collectionService = null;
+        }
+        unbindService(serviceConnection);
     }
 
-    @RequiresApi(api = Build.VERSION_CODES.N)
     @Override
     protected void onResume() {
         super.onResume();
@@ -438,10 +528,11 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        stopAllCollectors();
+        if (replayer != null) {
+            replayer.cancel();
+        }
     }
 
-    @RequiresApi(api = Build.VERSION_CODES.N)
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
                                            @NonNull int[] grantResults) {
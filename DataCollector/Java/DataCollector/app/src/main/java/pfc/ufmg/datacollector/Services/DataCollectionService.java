@@ -0,0 +1,310 @@
+package pfc.ufmg.datacollector.data;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Build;
+import android.os.IBinder;
+import android.os.PowerManager;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.List;
+
+import pfc.ufmg.datacollector.MainActivity;
+import pfc.ufmg.datacollector.R;
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.EstimatorConfig;
+import pfc.ufmg.datacollector.calculations.EstimatorFanOut;
+import pfc.ufmg.datacollector.sensors.AccelerometerDataCollector;
+import pfc.ufmg.datacollector.sensors.GnssDataCollector;
+
+/**
+ * Serviço em primeiro plano dono da coleta: coletores, LogDataManager (com o estimador) e SensorPipeline
+ * Continua gravando com a tela desligada ou sem a activity; a activity se conecta (bind) apenas
+ * para exibir os dados e comandar a gravação
+ */
+public class DataCollectionService extends Service implements SensorPipeline.PipelineListener {
+
+    private static final String TAG = "DataCollectionService";
+    public static final String ACTION_STOP = "pfc.ufmg.datacollector.action.STOP_COLLECTION";
+
+    private static final String CHANNEL_ID = "coleta";
+    private static final int NOTIFICATION_ID = 1;
+
+    private static final double ACCEL_OUTPUT_RATE_HZ = AttitudeEstimator.FS;
+    private static final int ACCEL_FILTER_TAPS = 64;
+    // Lotes da FIFO do sensor: o processador acorda ~1 vez por segundo para o acelerômetro
+    private static final int ACCEL_MAX_REPORT_LATENCY_US = 1_000_000;
+    // Formato das gravações (o binário pode ser convertido com RecordingConverter)
+    private static final LogDataManager.LogFormat LOG_FORMAT = LogDataManager.LogFormat.CSV;
+    // Variantes do estimador exibidas ao lado do primário: limiares de evento e de repouso
+    // acima e abaixo dos padrões, sobre o mesmo filtro
+    private static final List<EstimatorConfig> ESTIMATOR_VARIANTS = Arrays.asList(
+            EstimatorConfig.builder().setAhigh(0.09).build(),
+            EstimatorConfig.builder().setAhigh(0.16).build(),
+            EstimatorConfig.builder().setAlow(0.05).setNaccelGrav(100).build());
+
+    private final IBinder binder = new LocalBinder();
+
+    private GnssDataCollector gnssCollector;
+    private AccelerometerDataCollector accelerometerCollector;
+    private LogDataManager logDataManager;
+    private SensorPipeline sensorPipeline;
+    private PowerManager.WakeLock wakeLock;
+    private boolean collecting = false;
+    // Gravação pedida e ainda não confirmada pelo pipeline (acessado na thread principal)
+    private boolean loggingRequested = false;
+
+    // Activity conectada (acessado na thread principal)
+    private SensorPipeline.PipelineListener client;
+    private volatile AttitudeEstimator.AttitudeUpdateListener attitudeClient;
+    private volatile EstimatorFanOut.VariantUpdateListener variantClient;
+
+    public class LocalBinder extends Binder {
+        public DataCollectionService getService() {
+            return DataCollectionService.this;
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        logDataManager = new LogDataManager(this);
+        logDataManager.setLogFormat(LOG_FORMAT);
+        // Um suporte por aparelho: a próxima gravação começa com a atitude da anterior
+        logDataManager.setMountProfileKey(Build.MANUFACTURER + "_" + Build.MODEL);
+        // Chamado na thread do pipeline
+        logDataManager.setAttitudeUpdateListener(result -> {
+            AttitudeEstimator.AttitudeUpdateListener current = attitudeClient;
+            if (current != null) {
+                current.onAttitudeUpdate(result);
+            }
+        });
+        logDataManager.setEstimatorVariants(ESTIMATOR_VARIANTS);
+        logDataManager.setVariantUpdateListener((variant, result) -> {
+            EstimatorFanOut.VariantUpdateListener current = variantClient;
+            if (current != null) {
+                current.onVariantUpdate(variant, result);
+            }
+        });
+
+        sensorPipeline = new SensorPipeline(logDataManager, this);
+        sensorPipeline.setDisplayEnabled(false);
+
+        gnssCollector = new GnssDataCollector(this, data -> sensorPipeline.onGnssData(data));
+
+        // Grava direto na fila do pipeline
+        accelerometerCollector = new AccelerometerDataCollector(this, sensorPipeline.getAccelRing());
+        // Anti-aliasing do fluxo completo do sensor para a taxa do estimador
+        accelerometerCollector.enableDecimation(ACCEL_OUTPUT_RATE_HZ, ACCEL_FILTER_TAPS);
+        accelerometerCollector.setMaxReportLatency(ACCEL_MAX_REPORT_LATENCY_US);
+        sensorPipeline.setSensorCpuTimeSource(accelerometerCollector::getCpuTimeNanos);
+
+        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "DataCollector:coleta");
+        wakeLock.setReferenceCounted(false);
+
+        createNotificationChannel();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            stopCollection();
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        // Chamado de novo a cada retorno da activity; mantém o texto se já estiver gravando
+        Notification notification = buildNotification(statusText(logDataManager.isLogging()));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+        startCollection();
+        // Sem restart automático: a sessão interrompida é recuperada pelo journal quando a activity abrir
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        stopCollection();
+        super.onDestroy();
+    }
+
+    /**
+     * Conecta a activity para receber snapshots, a atitude e a das variantes; null desconecta
+     * Sem cliente os snapshots de exibição não são gerados, e sem gravação o serviço para
+     */
+    public void setClient(SensorPipeline.PipelineListener listener,
+                          AttitudeEstimator.AttitudeUpdateListener attitudeListener,
+                          EstimatorFanOut.VariantUpdateListener variantListener) {
+        client = listener;
+        attitudeClient = attitudeListener;
+        variantClient = variantListener;
+        sensorPipeline.setDisplayEnabled(listener != null);
+        stopIfIdle();
+    }
+
+    public void startLogging() {
+        loggingRequested = true;
+        sensorPipeline.startLogging();
+    }
+
+    public void stopLogging() {
+        sensorPipeline.stopLogging();
+    }
+
+    /**
+     * Repara sessões que ficaram abertas por uma parada inesperada do app
+     * O resultado chega na thread principal
+     */
+    public void recoverInterruptedSessions(SensorPipeline.RecoveryListener listener) {
+        sensorPipeline.recoverInterruptedSessions(listener);
+    }
+
+    public void resumeSession(RecordingRecovery.Result recovered) {
+        loggingRequested = true;
+        sensorPipeline.resumeLogging(recovered);
+    }
+
+    public void closeRecoveredSession(RecordingRecovery.Result recovered) {
+        logDataManager.closeRecoveredSession(recovered);
+    }
+
+    public boolean isLogging() {
+        return logDataManager.isLogging();
+    }
+
+    public String getCurrentFileName() {
+        return logDataManager.getCurrentFileName();
+    }
+
+    /**
+     * Configurações das variantes do estimador, na ordem dos índices
+     */
+    public List<EstimatorConfig> getEstimatorVariants() {
+        return logDataManager.getEstimatorVariants();
+    }
+
+    public boolean hasLocation() {
+        return gnssCollector.hasLocation();
+    }
+
+    public boolean isAccelerometerAvailable() {
+        return accelerometerCollector.isAvailable();
+    }
+
+    private void startCollection() {
+        if (collecting) {
+            return;
+        }
+        collecting = true;
+
+        sensorPipeline.start();
+        if (!gnssCollector.start()) {
+            Log.e(TAG, "Falha ao iniciar GNSS");
+        }
+        if (!accelerometerCollector.start()) {
+            Log.e(TAG, "Acelerômetro não disponível");
+        }
+        Log.i(TAG, "Coleta iniciada");
+    }
+
+    private void stopCollection() {
+        if (!collecting) {
+            return;
+        }
+        collecting = false;
+
+        gnssCollector.stop();
+        accelerometerCollector.stop();
+        // Encerra a gravação em andamento na thread do pipeline
+        sensorPipeline.stop();
+        releaseWakeLock();
+        Log.i(TAG, "Coleta parada");
+    }
+
+    /**
+     * Sem activity conectada e sem gravação não há por que manter GNSS e acelerômetro ligados
+     */
+    private void stopIfIdle() {
+        if (client == null && !loggingRequested && !logDataManager.isLogging()) {
+            stopCollection();
+            stopSelf();
+        }
+    }
+
+    private void releaseWakeLock() {
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+    }
+
+    @Override
+    public void onDisplaySnapshot(SensorPipeline.DisplaySnapshot snapshot) {
+        if (client != null) {
+            client.onDisplaySnapshot(snapshot);
+        }
+    }
+
+    @Override
+    public void onLoggingStateChanged(boolean started) {
+        loggingRequested = false;
+        // CPU ativa com a tela desligada só durante a gravação; fora dela o acelerômetro entrega em lotes
+        if (started) {
+            wakeLock.acquire();
+        } else {
+            releaseWakeLock();
+        }
+        updateNotification(statusText(started));
+        if (client != null) {
+            client.onLoggingStateChanged(started);
+        }
+        stopIfIdle();
+    }
+
+    private String statusText(boolean logging) {
+        return logging ? "Gravando: " + logDataManager.getCurrentFileName() : "Coletando dados";
+    }
+
+    private void createNotificationChannel() {
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Coleta de dados",
+                NotificationManager.IMPORTANCE_LOW);
+        getSystemService(NotificationManager.class).createNotificationChannel(channel);
+    }
+
+    private Notification buildNotification(String text) {
+        PendingIntent openIntent = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class), PendingIntent.FLAG_IMMUTABLE);
+        PendingIntent stopIntent = PendingIntent.getService(this, 1,
+                new Intent(this, DataCollectionService.class).setAction(ACTION_STOP),
+                PendingIntent.FLAG_IMMUTABLE);
+
+        return new Notification.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText(text)
+                .setContentIntent(openIntent)
+                .addAction(new Notification.Action.Builder(null, "Parar", stopIntent).build())
+                .setOngoing(true)
+                .build();
+    }
+
+    private void updateNotification(String text) {
+        getSystemService(NotificationManager.class).notify(NOTIFICATION_ID, buildNotification(text));
+    }
+}
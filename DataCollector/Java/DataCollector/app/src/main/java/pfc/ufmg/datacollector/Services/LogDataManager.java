@@ -2,38 +2,113 @@ package pfc.ufmg.datacollector.data;
 
 import android.content.Context;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.widget.Toast;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
 
 import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
-import pfc.ufmg.datacollector.sensors.AccelerometerDataCollector;
-import pfc.ufmg.datacollector.sensors.GnssDataCollector;
+import pfc.ufmg.datacollector.calculations.EstimatorConfig;
+import pfc.ufmg.datacollector.calculations.EstimatorFanOut;
+import pfc.ufmg.datacollector.metrics.PipelineMetrics;
 
 public class LogDataManager {
 
     private static final String TAG = "LogDataManager";
-    private static final String CSV_HEADER = "contreg,eixox,eixoy,eixoz,gps_fix,gps_speed,gps_direction,gps_alt,gps_rtc\n";
+    // Sufixo do arquivo de métricas gravado ao lado de cada gravação
+    private static final String METRICS_SUFFIX = ".metrics.csv";
+    // Sufixo do arquivo com as atualizações das variantes do estimador
+    private static final String VARIANTS_SUFFIX = ".variants.csv";
+
+    // Gravação em lotes: ~100 registros por escrita a 20 Hz
+    private static final int DEFAULT_BATCH_RECORDS = 200;
+    private static final long DEFAULT_BATCH_DELAY_MS = 5000;
+
+    // Taxa de amostragem registrada no cabeçalho do formato binário
+    private static final double DEFAULT_SAMPLE_RATE_HZ = 20.0;
+
+    // Rotação de segmentos: o que vier primeiro (~15 min de CSV a 20 Hz ficam perto de 1 MB)
+    private static final long DEFAULT_MAX_SEGMENT_BYTES = 8L * 1024 * 1024;
+    private static final double DEFAULT_MAX_SEGMENT_SECONDS = 15 * 60;
+
+    // Checkpoint no journal a cada 200 registros (10 s a 20 Hz): no máximo isso é examinado na recuperação
+    private static final int CHECKPOINT_INTERVAL_RECORDS = 200;
+
+    // Pasta privada com o estado do estimador por sessão e os perfis de montagem
+    private static final String ESTIMATOR_STATE_DIRECTORY = "estimador";
+
+    /**
+     * Formato do arquivo de gravação
+     */
+    public enum LogFormat {
+        CSV,
+        BINARY
+    }
+
     private AttitudeEstimator attitudeEstimator;
+    // Primário e variantes com outros limiares, sobre o mesmo filtro (sem variantes por padrão)
+    private EstimatorFanOut estimatorFanOut;
+    private EstimatorFanOut.VariantUpdateListener variantUpdateListener;
+    // Uma linha por atualização de variante (aberto enquanto grava, se houver variantes)
+    private Writer variantsWriter;
+    // Tempo da sessão da amostra em processamento, gravado nas linhas das variantes
+    private double currentSessionTime = 0;
     private final Context context;
-    private FileWriter fileWriter;
+    private final EstimatorStateStore estimatorStateStore;
+    // Perfil de montagem (aparelho/veículo) usado para iniciar o estimador; null desativa
+    private String mountProfileKey;
+    private SegmentedRecordingWriter recordingWriter;
+    private final BinaryLogFormat.Record binaryRecord = new BinaryLogFormat.Record();
+    private LogFormat logFormat = LogFormat.CSV;
+    private double sampleRateHz = DEFAULT_SAMPLE_RATE_HZ;
+    private int batchRecords = DEFAULT_BATCH_RECORDS;
+    private long batchDelayMs = DEFAULT_BATCH_DELAY_MS;
+    private BatchedCsvWriter.SyncPolicy syncPolicy = BatchedCsvWriter.SyncPolicy.PER_BATCH;
+    private long maxSegmentBytes = DEFAULT_MAX_SEGMENT_BYTES;
+    private double maxSegmentSeconds = DEFAULT_MAX_SEGMENT_SECONDS;
+    // Thread de baixa prioridade que comprime os segmentos fechados (criada no primeiro uso)
+    private ExecutorService compressionExecutor;
+    private final CsvRecordFormatter csvFormatter = new CsvRecordFormatter();
+    // Amostra reutilizada a cada registro (o estimador não guarda referência)
+    private final AttitudeEstimator.SensorData sensorData =
+            new AttitudeEstimator.SensorData(0, 0, 0, 0, 0, 0, 0, 0);
+    // Manifesto da sessão em gravação (ou da última gravada)
     private File currentFile;
-    private boolean isLogging = false;
-    private int recordCount = 0;
-    private SimpleDateFormat dateFormat;
-    private long lastTimestamp = 0;
-    private long firstTimestamp = 0;
+    // Métricas do pipeline (opcional) e o arquivo com um snapshot por intervalo
+    private PipelineMetrics metrics;
+    private Writer metricsWriter;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Lidos pela thread de UI enquanto a thread do pipeline grava
+    private volatile boolean isLogging = false;
+    private volatile int recordCount = 0;
+    // Instante (na grade do pipeline) do início da sessão; definido na primeira amostra gravada
+    private double firstSampleTime = 0;
+    private boolean awaitingFirstSample = true;
+    // Tempo da sessão na primeira amostra (diferente de zero ao retomar uma sessão interrompida)
+    private double sessionTimeOffset = 0;
 
     public LogDataManager(Context context) {
         this.context = context;
-        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault());
-        this.attitudeEstimator = new AttitudeEstimator();
+        this.attitudeEstimator = new AttitudeEstimator(Log::i);
+        setEstimatorVariants(Collections.emptyList());
+        this.estimatorStateStore = new EstimatorStateStore(
+                new File(context.getFilesDir(), ESTIMATOR_STATE_DIRECTORY));
     }
     /**
      * Define o listener para atualizações de atitude
@@ -43,41 +118,162 @@ public class LogDataManager {
     }
 
     /**
-     * Inicia o logging criando um novo arquivo CSV
+     * Define as variantes do estimador: mesmas etapas de filtro do primário, outros limiares
+     * (AHIGH, ALOW, VLOW, NACCEL_GRAV); vale a partir do próximo startLogging
+     * As variantes começam do zero a cada sessão (só o estado do primário é salvo)
+     * @throws IllegalArgumentException se alguma variante tem outro pré-processamento
+     */
+    public void setEstimatorVariants(List<EstimatorConfig> variants) {
+        EstimatorFanOut fanOut = new EstimatorFanOut(attitudeEstimator, variants);
+        fanOut.setVariantUpdateListener(this::onVariantUpdate);
+        // Solta as variantes anteriores do primário (só depois de validar as novas)
+        if (estimatorFanOut != null) {
+            estimatorFanOut.close();
+        }
+        estimatorFanOut = fanOut;
+    }
+
+    /**
+     * Configurações das variantes, na ordem dos índices passados ao listener
+     */
+    public List<EstimatorConfig> getEstimatorVariants() {
+        List<EstimatorConfig> variants = new ArrayList<>();
+        for (int i = 0; i < estimatorFanOut.getVariantCount(); i++) {
+            variants.add(estimatorFanOut.getVariant(i).getConfig());
+        }
+        return variants;
+    }
+
+    /**
+     * Define o listener para atualizações de atitude das variantes
+     */
+    public void setVariantUpdateListener(EstimatorFanOut.VariantUpdateListener listener) {
+        this.variantUpdateListener = listener;
+    }
+
+    /**
+     * Métricas onde registrar as latências de escrita e do estimador
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Configura a gravação em lotes; vale a partir do próximo startLogging
+     * @param batchRecords registros por lote
+     * @param batchDelayMs tempo máximo que um registro fica só em memória
+     * @param syncPolicy política de fsync
+     */
+    public void setWriteBatching(int batchRecords, long batchDelayMs,
+                                 BatchedCsvWriter.SyncPolicy syncPolicy) {
+        this.batchRecords = batchRecords;
+        this.batchDelayMs = batchDelayMs;
+        this.syncPolicy = syncPolicy;
+    }
+
+    /**
+     * Configura as casas decimais de cada coluna do CSV
+     */
+    public void setColumnPrecision(int accelDecimals, int speedDecimals, int headingDecimals,
+                                   int altitudeDecimals, int rtcDecimals) {
+        csvFormatter.setPrecision(accelDecimals, speedDecimals, headingDecimals,
+                altitudeDecimals, rtcDecimals);
+    }
+
+    /**
+     * Configura a rotação de segmentos; vale a partir do próximo startLogging
+     * @param maxSegmentBytes tamanho máximo de um segmento (0 = sem limite)
+     * @param maxSegmentSeconds duração máxima de um segmento (0 = sem limite)
+     */
+    public void setSegmentation(long maxSegmentBytes, double maxSegmentSeconds) {
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentSeconds = maxSegmentSeconds;
+    }
+
+    /**
+     * Define o perfil de montagem (ex.: modelo do aparelho e veículo) salvo ao parar a gravação
+     * e usado para iniciar a próxima já com a atitude; null desativa
+     */
+    public void setMountProfileKey(String mountProfileKey) {
+        this.mountProfileKey = mountProfileKey;
+    }
+
+    /**
+     * Define o formato dos próximos arquivos de gravação
+     */
+    public void setLogFormat(LogFormat logFormat) {
+        this.logFormat = logFormat;
+    }
+
+    /**
+     * Define a taxa de amostragem registrada no cabeçalho do formato binário
+     */
+    public void setSampleRateHz(double sampleRateHz) {
+        this.sampleRateHz = sampleRateHz;
+    }
+
+    /**
+     * Inicia o logging criando uma nova sessão segmentada (CSV ou binária)
      * @return true se iniciou com sucesso, false caso contrário
      */
     //@Override
     public boolean startLogging() {
+        return startLogging(null);
+    }
+
+    /**
+     * Retoma uma sessão interrompida (reparada por recoverInterruptedSessions) num novo segmento
+     * A numeração dos registros e o tempo da sessão continuam de onde pararam
+     * @return true se retomou com sucesso, false caso contrário
+     */
+    public boolean resumeLogging(RecordingRecovery.Result recovered) {
+        return startLogging(recovered);
+    }
+
+    private boolean startLogging(RecordingRecovery.Result recovered) {
         if (isLogging) {
             Log.w(TAG, "Logging já está ativo");
             return false;
         }
 
         try {
-            // Cria o arquivo CSV
-            currentFile = createCsvFile();
-            fileWriter = new FileWriter(currentFile, true);
+            if (recovered == null) {
+                // Cria o primeiro segmento (com cabeçalho, no CSV), o manifesto e o journal da sessão
+                recordingWriter = new SegmentedRecordingWriter(getLogDirectoryFile(), createSessionName(),
+                        logFormat == LogFormat.BINARY
+                                ? SegmentedRecordingWriter.Format.BINARY : SegmentedRecordingWriter.Format.CSV,
+                        sampleRateHz, maxSegmentBytes, maxSegmentSeconds,
+                        batchRecords, batchDelayMs, syncPolicy, getCompressionExecutor());
+                sessionTimeOffset = 0;
+            } else {
+                recordingWriter = SegmentedRecordingWriter.resume(recovered, sampleRateHz,
+                        maxSegmentBytes, maxSegmentSeconds, batchRecords, batchDelayMs, syncPolicy,
+                        getCompressionExecutor());
+                sessionTimeOffset = recovered.sessionSecondsAt(SystemClock.elapsedRealtimeNanos());
+            }
+            currentFile = recordingWriter.getManifestFile();
 
-            // Escreve o cabeçalho
-            fileWriter.write(CSV_HEADER);
-            fileWriter.flush();
+            if (metrics != null) {
+                openMetricsFile();
+            }
+            if (estimatorFanOut.getVariantCount() > 0) {
+                openVariantsFile();
+            }
 
             isLogging = true;
-            recordCount = 0;
+            recordCount = recordingWriter.getRecordCount();
+            awaitingFirstSample = true;
 
-            // Reseta o estimador de atitude
-            attitudeEstimator.reset();
+            // Estado salvo da sessão retomada, perfil de montagem ou estimador do zero
+            initializeEstimator(recovered);
 
             Log.i(TAG, "Logging iniciado: " + currentFile.getAbsolutePath());
-            Toast.makeText(context, "Gravação iniciada: " + currentFile.getName(),
-                    Toast.LENGTH_SHORT).show();
-
-            firstTimestamp = System.currentTimeMillis();
+            showToast("Gravação iniciada: " + currentFile.getName(), Toast.LENGTH_SHORT);
             return true;
 
         } catch (IOException e) {
             Log.e(TAG, "Erro ao iniciar logging", e);
-            Toast.makeText(context, "Erro ao criar arquivo de log", Toast.LENGTH_SHORT).show();
+            showToast("Erro ao criar arquivo de log", Toast.LENGTH_SHORT);
             return false;
         }
     }
@@ -90,18 +286,20 @@ public class LogDataManager {
             return;
         }
 
+        isLogging = false;
+        closeMetricsFile();
+        closeVariantsFile();
         try {
-            if (fileWriter != null) {
-                fileWriter.flush();
-                fileWriter.close();
-            }
-
-            isLogging = false;
+            // Grava o lote pendente, faz fsync conforme a política e agenda a compressão
+            recordingWriter.close();
+            // Sessão encerrada não é mais retomada: o perfil de montagem serve à próxima
+            estimatorStateStore.deleteSession(recordingWriter.getBaseName());
+            saveMountProfile();
+            Log.i(TAG, "Segmentos: " + recordingWriter.getSegmentCount()
+                    + ", falhas de compressão: " + recordingWriter.getCompressionFailures());
 
             Log.i(TAG, "Logging parado. Total de registros: " + recordCount);
-            Toast.makeText(context,
-                    "Gravação finalizada: " + recordCount + " registros salvos",
-                    Toast.LENGTH_LONG).show();
+            showToast("Gravação finalizada: " + recordCount + " registros salvos", Toast.LENGTH_LONG);
 
         } catch (IOException e) {
             Log.e(TAG, "Erro ao parar logging", e);
@@ -109,107 +307,314 @@ public class LogDataManager {
     }
 
     /**
-     * Loga os dados coletados no arquivo CSV e processa para estimação de atitude
+     * Grava uma amostra alinhada pelo SensorPipeline e processa para estimação de atitude
+     * As amostras chegam na grade uniforme de sampleRateHz; gps_rtc passa a ser o instante
+     * do último fix (e não o da linha), contado a partir da primeira amostra gravada
+     * @param timestampNanos instante da amostra no relógio monotônico (coluna t_mono_ns)
+     * @param timeSeconds instante da amostra na grade
+     * @param sample amostra alinhada (reutilizada pelo chamador)
+     * @param hasGnss se algum fix já foi recebido
      */
-    public void logData(GnssDataCollector.GnssData gnssData,
-                        AccelerometerDataCollector.AccelerometerData accelData) {
-        if (!isLogging || fileWriter == null) {
+    public void logSample(long timestampNanos, double timeSeconds, AttitudeEstimator.SensorData sample,
+                          boolean hasGnss) {
+        if (!isLogging || recordingWriter == null) {
             return;
         }
 
         try {
-            long timestamp = System.currentTimeMillis();
+            if (awaitingFirstSample) {
+                firstSampleTime = timeSeconds - sessionTimeOffset;
+                awaitingFirstSample = false;
+            }
+            double rtcTime = hasGnss ? sample.gpsRtc - firstSampleTime : 0;
+
+            long writeStart = System.nanoTime();
+            if (recordingWriter.getFormat() == SegmentedRecordingWriter.Format.BINARY) {
+                binaryRecord.contreg = recordCount;
+                binaryRecord.hasAccel = true;
+                binaryRecord.accelX = sample.accelX;
+                binaryRecord.accelY = sample.accelY;
+                binaryRecord.accelZ = sample.accelZ;
+                binaryRecord.hasGnss = hasGnss;
+                binaryRecord.gpsFix = sample.gpsFix;
+                binaryRecord.gpsSpeed = sample.gpsSpeed;
+                binaryRecord.gpsDirection = sample.gpsDirection;
+                binaryRecord.gpsAlt = sample.gpsAlt;
+                binaryRecord.gpsRtc = rtcTime;
+                binaryRecord.monotonicNanos = timestampNanos;
+                recordingWriter.binary().write(binaryRecord);
+            } else {
+                csvFormatter.write(recordingWriter.csv(), recordCount, true, sample.accelX, sample.accelY, sample.accelZ,
+                        hasGnss, sample.gpsFix, sample.gpsSpeed, sample.gpsDirection, sample.gpsAlt, rtcTime,
+                        timestampNanos);
+            }
+            // Fecha o segmento ao atingir o limite de tamanho ou duração
+            recordingWriter.endRecord();
+            boolean checkpoint = (recordCount + 1) % CHECKPOINT_INTERVAL_RECORDS == 0;
+            if (checkpoint) {
+                // Torna o gravado durável e registra a posição no journal
+                recordingWriter.checkpoint(SystemClock.elapsedRealtimeNanos(), timeSeconds - firstSampleTime);
+            }
+            long estimateStart = System.nanoTime();
 
-            //Não é possivel fazer logs com uma frequência menor que 50ms
-            if(timestamp - lastTimestamp < 50){
+            recordCount++;
+
+            // Processa os dados para estimação de atitude (mesmo rtc gravado no arquivo)
+            sensorData.accelX = sample.accelX;
+            sensorData.accelY = sample.accelY;
+            sensorData.accelZ = sample.accelZ;
+            sensorData.gpsFix = hasGnss ? sample.gpsFix : 0;
+            sensorData.gpsSpeed = hasGnss ? sample.gpsSpeed : 0;
+            sensorData.gpsDirection = hasGnss ? sample.gpsDirection : 0;
+            sensorData.gpsAlt = hasGnss ? sample.gpsAlt : 0;
+            sensorData.gpsRtc = rtcTime;
+            currentSessionTime = timeSeconds - firstSampleTime;
+            estimatorFanOut.processSample(sensorData);
+            if (checkpoint) {
+                saveEstimatorState();
+            }
+            if (metrics != null) {
+                metrics.record(PipelineMetrics.Stage.WRITE, estimateStart - writeStart);
+                metrics.record(PipelineMetrics.Stage.ESTIMATE, System.nanoTime() - estimateStart);
+            }
+
+            // Log a cada 50 registros
+            if (recordCount % 50 == 0) {
+                Log.d(TAG, "Registros salvos: " + recordCount);
+            }
+
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao escrever dados no arquivo", e);
+            stopLogging();
+        }
+    }
+
+    /**
+     * Prepara o estimador para a sessão: retomada continua do estado salvo no último checkpoint
+     * (as amostras gravadas depois dele não passam pelo estimador); nova sessão parte do perfil
+     * de montagem, se houver
+     */
+    private void initializeEstimator(RecordingRecovery.Result recovered) {
+        // Variantes não podem estar à frente do filtro do primário
+        estimatorFanOut.resetVariants();
+        try {
+            if (recovered != null && estimatorStateStore.restoreSession(recovered.baseName, attitudeEstimator)) {
                 return;
             }
+        } catch (IOException e) {
+            Log.e(TAG, "Estado do estimador descartado", e);
+        }
+        try {
+            if (mountProfileKey != null && estimatorStateStore.warmStart(mountProfileKey, attitudeEstimator)) {
+                return;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Perfil de montagem descartado", e);
+        }
+        attitudeEstimator.reset();
+    }
 
-            String datetime = dateFormat.format(new Date(timestamp));
+    /**
+     * Salva o estado do estimador junto do checkpoint; uma falha não interrompe a gravação
+     */
+    private void saveEstimatorState() {
+        try {
+            estimatorStateStore.saveSession(recordingWriter.getBaseName(), attitudeEstimator);
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao salvar estado do estimador", e);
+        }
+    }
 
-            StringBuilder csvLine = new StringBuilder();
-            csvLine.append(recordCount).append(",");
+    private void saveMountProfile() {
+        if (mountProfileKey == null) {
+            return;
+        }
+        try {
+            if (estimatorStateStore.saveProfile(mountProfileKey, attitudeEstimator.getCurrentResult())) {
+                Log.i(TAG, "Perfil de montagem salvo: " + mountProfileKey);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao salvar perfil de montagem", e);
+        }
+    }
 
-            double rtcTime = ((double)timestamp - (double)firstTimestamp) /1000.0;
+    /**
+     * Repara as sessões que ficaram abertas (app morto durante a gravação)
+     * Chamar na thread de gravação, sem gravação em andamento; cada reparo lê só o fim do último segmento
+     * @return sessões reparadas, da mais antiga para a mais recente
+     */
+    public List<RecordingRecovery.Result> recoverInterruptedSessions() {
+        List<RecordingRecovery.Result> sessions = new ArrayList<>();
+        if (isLogging) {
+            return sessions;
+        }
+        for (File journal : RecordingRecovery.findInterrupted(new File(getLogDirectory()))) {
+            try {
+                RecordingRecovery.Result result = RecordingRecovery.recover(journal);
+                Log.i(TAG, "Sessão recuperada: " + result.manifestFile.getName() + ", " + result.totalRecords
+                        + " registros, " + result.truncatedBytes + " bytes descartados");
+                sessions.add(result);
+            } catch (IOException e) {
+                Log.e(TAG, "Erro ao recuperar " + journal.getName(), e);
+            }
+        }
+        return sessions;
+    }
 
-            // Dados do acelerômetro
-            double accelX = 0, accelY = 0, accelZ = 0;
-            if (accelData != null) {
-                accelX = accelData.x;
-                accelY = accelData.y;
-                accelZ = accelData.z;
-                csvLine.append(accelX).append(",");
-                csvLine.append(accelY).append(",");
-                csvLine.append(accelZ).append(",");
-            } else {
-                csvLine.append(",,,");
-            }
-
-            // Dados GNSS
-            int gpsFix = 0;
-            double gpsSpeed = 0, gpsDirection = 0, gpsAlt = 0;
-            if (gnssData != null) {
-                gpsFix = gnssData.hasFix ? 3 : 0;
-                gpsSpeed = gnssData.hasSpeed ? gnssData.speed : 0;
-                gpsDirection = gnssData.bearing;
-                gpsAlt = gnssData.hasAltitude ? gnssData.altitude : 0;
-
-                csvLine.append(gpsFix).append(",");
-                csvLine.append(gpsSpeed).append(",");
-                csvLine.append(gpsDirection).append(",");
-                csvLine.append(gpsAlt).append(",");
-                csvLine.append(rtcTime);
-            } else {
-                csvLine.append(" , , , ,");
-                csvLine.append(rtcTime);
+    /**
+     * Encerra uma sessão recuperada sem retomá-la (compressão em segundo plano)
+     */
+    public void closeRecoveredSession(RecordingRecovery.Result recovered) {
+        getCompressionExecutor().execute(() -> {
+            estimatorStateStore.deleteSession(recovered.baseName);
+            try {
+                RecordingRecovery.close(recovered);
+            } catch (IOException e) {
+                Log.e(TAG, "Erro ao encerrar " + recovered.manifestFile.getName(), e);
             }
+        });
+    }
+
+    // Usado pela thread de gravação e pela principal
+    private synchronized ExecutorService getCompressionExecutor() {
+        if (compressionExecutor == null) {
+            compressionExecutor = SegmentCompression.newBackgroundExecutor();
+        }
+        return compressionExecutor;
+    }
 
-            csvLine.append("\n");
+    /**
+     * Grava um snapshot de métricas no arquivo ao lado da gravação
+     * Falhas só desativam o arquivo de métricas; a gravação continua
+     */
+    public void logMetrics(PipelineMetrics.Snapshot snapshot) {
+        if (!isLogging || metricsWriter == null) {
+            return;
+        }
+        try {
+            metricsWriter.write(snapshot.toCsvRow());
+            // Uma linha por intervalo: o arquivo fica completo mesmo se o app morrer
+            metricsWriter.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao gravar métricas", e);
+            closeMetricsFile();
+        }
+    }
 
-            fileWriter.write(csvLine.toString());
-            fileWriter.flush();
+    private void openMetricsFile() {
+        String name = currentFile.getName();
+        int dot = name.lastIndexOf('.');
+        File metricsFile = new File(currentFile.getParentFile(),
+                (dot > 0 ? name.substring(0, dot) : name) + METRICS_SUFFIX);
+        try {
+            metricsWriter = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(metricsFile), StandardCharsets.US_ASCII));
+            metricsWriter.write(PipelineMetrics.Snapshot.csvHeader());
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao criar arquivo de métricas", e);
+            closeMetricsFile();
+        }
+    }
 
-            recordCount++;
+    /**
+     * Grava a atualização de uma variante e repassa ao listener (thread do pipeline)
+     */
+    private void onVariantUpdate(int variant, AttitudeEstimator.AttitudeResult result) {
+        if (variantsWriter != null) {
+            EstimatorConfig config = estimatorFanOut.getVariant(variant).getConfig();
+            try {
+                variantsWriter.write(String.format(Locale.US, "%.3f,%d,%.2f,%.3f,%.3f,%d,%s,%s,%s\n",
+                        currentSessionTime, variant, config.getVlow(), config.getAhigh(), config.getAlow(),
+                        config.getNaccelGrav(), formatAngle(result.phiAvailable, result.phiDegrees),
+                        formatAngle(result.thetaAvailable, result.thetaDegrees),
+                        formatAngle(result.psiAvailable, result.psiDegrees)));
+                // Poucas linhas por sessão: o arquivo fica completo mesmo se o app morrer
+                variantsWriter.flush();
+            } catch (IOException e) {
+                Log.e(TAG, "Erro ao gravar variantes", e);
+                closeVariantsFile();
+            }
+        }
+        Log.i(TAG, "Variante " + variant + ": " + result);
+        EstimatorFanOut.VariantUpdateListener listener = variantUpdateListener;
+        if (listener != null) {
+            listener.onVariantUpdate(variant, result);
+        }
+    }
 
-            // Processa os dados para estimação de atitude
-            AttitudeEstimator.SensorData sensorData = new AttitudeEstimator.SensorData(
-                    accelX, accelY, accelZ,
-                    gpsFix, gpsSpeed, gpsDirection, gpsAlt, rtcTime
-            );
-            attitudeEstimator.processSample(sensorData);
+    private static String formatAngle(boolean available, double degrees) {
+        return available ? String.format(Locale.US, "%.3f", degrees) : "";
+    }
 
-            // Log a cada 50 registros
-            if (recordCount % 50 == 0) {
-                Log.d(TAG, "Registros salvos: " + recordCount);
+    private void openVariantsFile() {
+        String name = currentFile.getName();
+        int dot = name.lastIndexOf('.');
+        File variantsFile = new File(currentFile.getParentFile(),
+                (dot > 0 ? name.substring(0, dot) : name) + VARIANTS_SUFFIX);
+        try {
+            variantsWriter = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(variantsFile, true), StandardCharsets.US_ASCII));
+            if (variantsFile.length() == 0) {
+                variantsWriter.write("t_s,variant,vlow,ahigh,alow,naccel_grav,phi_deg,theta_deg,psi_deg\n");
             }
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao criar arquivo de variantes", e);
+            closeVariantsFile();
+        }
+    }
 
-            lastTimestamp = timestamp;
+    private void closeVariantsFile() {
+        if (variantsWriter == null) {
+            return;
+        }
+        try {
+            variantsWriter.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao fechar arquivo de variantes", e);
+        }
+        variantsWriter = null;
+    }
 
+    private void closeMetricsFile() {
+        if (metricsWriter == null) {
+            return;
+        }
+        try {
+            metricsWriter.close();
         } catch (IOException e) {
-            Log.e(TAG, "Erro ao escrever dados no CSV", e);
-            stopLogging();
+            Log.e(TAG, "Erro ao fechar arquivo de métricas", e);
         }
+        metricsWriter = null;
+    }
+
+    /**
+     * Exibe um Toast na thread de UI (o logging roda na thread do SensorPipeline)
+     */
+    private void showToast(String message, int duration) {
+        mainHandler.post(() -> Toast.makeText(context, message, duration).show());
     }
 
     /**
-     * Cria um novo arquivo CSV com timestamp no nome
+     * Pasta das gravações, criada se não existir
      */
-    private File createCsvFile() {
+    private File getLogDirectoryFile() {
         // Pasta Documents para fácil acesso
-        File documentsDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOCUMENTS);
-        File appDir = new File(documentsDir, "DataCollector");
+        File appDir = new File(getLogDirectory());
 
         // Cria a pasta se não existir
         if (!appDir.exists()) {
             appDir.mkdirs();
         }
+        return appDir;
+    }
 
-        // Nome do arquivo com timestamp
+    /**
+     * Nome base de uma nova sessão, com timestamp (segmentos e manifesto derivam dele)
+     */
+    private String createSessionName() {
         String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
                 .format(new Date());
-        String filename = "data_" + timestamp + ".csv";
-
-        return new File(appDir, filename);
+        return "data_" + timestamp;
     }
 
     /**
@@ -0,0 +1,394 @@
+package pfc.ufmg.datacollector.data;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.TimestampAligner;
+import pfc.ufmg.datacollector.metrics.PipelineMetrics;
+import pfc.ufmg.datacollector.sensors.AccelerometerDataCollector;
+import pfc.ufmg.datacollector.sensors.DeadlineScheduler;
+import pfc.ufmg.datacollector.sensors.GnssDataCollector;
+import pfc.ufmg.datacollector.sensors.SpscSampleRing;
+
+/**
+ * Pipeline de sensores em thread dedicada
+ * O acelerômetro chega por uma SpscSampleRing, drenada em lotes a cada DRAIN_INTERVAL_MS
+ * (ou BACKGROUND_DRAIN_INTERVAL_MS com a exibição desligada, quando ninguém vê os dados),
+ * em prazos absolutos do relógio monotônico (DeadlineScheduler): o trabalho do tick não atrasa os seguintes
+ * Alinha acelerômetro e GNSS pelos timestamps de hardware numa grade uniforme na taxa do
+ * estimador, grava e estima fora da thread de UI, publicando para a UI apenas snapshots
+ * de exibição com taxa limitada
+ * Mede a própria execução em PipelineMetrics: um snapshot por METRICS_INTERVAL_MS vai para a
+ * exibição e para o arquivo de métricas da gravação
+ */
+public class SensorPipeline {
+
+    private static final String TAG = "SensorPipeline";
+    private static final int DISPLAY_INTERVAL_MS = 200; // 5 Hz
+    private static final int DRAIN_INTERVAL_MS = 20;
+    // Sem tela o sensor entrega em lotes; drenar mais vezes só acordaria o processador à toa
+    private static final int BACKGROUND_DRAIN_INTERVAL_MS = 1000;
+    private static final int METRICS_INTERVAL_MS = 1000;
+    // ~1 s do sensor sem decimação entre a thread do sensor e a do pipeline
+    private static final int ACCEL_RING_CAPACITY = 4096;
+    // Leituras do acelerômetro em espera durante a latência do GNSS (folga para o sensor sem decimação)
+    private static final int ALIGNER_ACCEL_CAPACITY = 1024;
+
+    private final LogDataManager logDataManager;
+    private final PipelineListener listener;
+    private volatile boolean displayEnabled = true;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread thread;
+    // Escrito na thread principal, lido também nas threads do pipeline e do callback GNSS
+    private volatile Handler handler;
+    // Desligado por stop: o tick em andamento não se agenda de novo
+    private volatile boolean running = false;
+    private Runnable drainRunnable;
+    private long nextDisplayMillis;
+    private long nextMetricsMillis;
+    // Prazos dos ticks em SystemClock.elapsedRealtimeNanos (usado apenas na thread do pipeline)
+    private final DeadlineScheduler tickScheduler =
+            new DeadlineScheduler(DRAIN_INTERVAL_MS * 1_000_000L);
+
+    private final SpscSampleRing accelRing = new SpscSampleRing(ACCEL_RING_CAPACITY);
+
+    // Usado apenas na thread do pipeline
+    private final TimestampAligner aligner = new TimestampAligner(AttitudeEstimator.FS,
+            TimestampAligner.DEFAULT_GNSS_LATENCY_NANOS, ALIGNER_ACCEL_CAPACITY);
+
+    // Último fix recebido, apenas para exibição (escrito pela thread do callback)
+    private volatile GnssDataCollector.GnssData lastGnssData;
+
+    // Usados apenas na thread do pipeline
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private PipelineMetrics.Snapshot lastMetrics;
+    private LongSupplier sensorCpuTime;
+
+    // Última leitura do acelerômetro drenada, apenas para exibição (thread do pipeline)
+    private boolean hasAccel = false;
+    private long lastAccelTimestamp;
+    private float lastAccelX;
+    private float lastAccelY;
+    private float lastAccelZ;
+
+    // Consumidor único da fila, sem alocação por lote
+    private final SpscSampleRing.SampleConsumer accelConsumer = (timestampNanos, x, y, z) -> {
+        aligner.addAccel(timestampNanos, x, y, z);
+        hasAccel = true;
+        lastAccelTimestamp = timestampNanos;
+        lastAccelX = x;
+        lastAccelY = y;
+        lastAccelZ = z;
+    };
+
+    /**
+     * Callbacks entregues na thread de UI
+     */
+    public interface PipelineListener {
+        void onDisplaySnapshot(DisplaySnapshot snapshot);
+
+        void onLoggingStateChanged(boolean started);
+    }
+
+    /**
+     * Resultado da recuperação de sessões interrompidas, entregue na thread principal
+     */
+    public interface RecoveryListener {
+        void onSessionsRecovered(List<RecordingRecovery.Result> sessions);
+    }
+
+    /**
+     * Dados para exibição de um instante da coleta
+     */
+    public static class DisplaySnapshot {
+        public final String timestamp;
+        public final GnssDataCollector.GnssData gnssData;
+        public final AccelerometerDataCollector.AccelerometerData accelData;
+        public final boolean logging;
+        public final int recordCount;
+        // Último snapshot de métricas (null até o primeiro)
+        public final PipelineMetrics.Snapshot metrics;
+
+        DisplaySnapshot(String timestamp, GnssDataCollector.GnssData gnssData,
+                        AccelerometerDataCollector.AccelerometerData accelData,
+                        boolean logging, int recordCount, PipelineMetrics.Snapshot metrics) {
+            this.timestamp = timestamp;
+            this.gnssData = gnssData;
+            this.accelData = accelData;
+            this.logging = logging;
+            this.recordCount = recordCount;
+            this.metrics = metrics;
+        }
+    }
+
+    public SensorPipeline(LogDataManager logDataManager, PipelineListener listener) {
+        this.logDataManager = logDataManager;
+        this.listener = listener;
+        logDataManager.setSampleRateHz(AttitudeEstimator.FS);
+        logDataManager.setMetrics(metrics);
+        aligner.setListener((index, timestampNanos, timeSeconds, sample, hasGnss) -> {
+            if (logDataManager.isLogging()) {
+                logDataManager.logSample(timestampNanos, timeSeconds, sample, hasGnss);
+            }
+        });
+    }
+
+    /**
+     * Fonte do tempo de CPU da thread do sensor, lida a cada snapshot de métricas
+     * Deve ser configurada antes de start()
+     */
+    public void setSensorCpuTimeSource(LongSupplier sensorCpuTime) {
+        this.sensorCpuTime = sensorCpuTime;
+    }
+
+    /**
+     * Liga ou desliga a publicação de snapshots; desligada, a fila é drenada com menos frequência
+     */
+    public void setDisplayEnabled(boolean enabled) {
+        displayEnabled = enabled;
+    }
+
+    /**
+     * Encaminha o fix para o alinhamento na thread do pipeline
+     */
+    public void onGnssData(GnssDataCollector.GnssData data) {
+        lastGnssData = data;
+        Handler pipelineHandler = handler;
+        if (pipelineHandler != null) {
+            pipelineHandler.post(() -> aligner.addGnss(data.elapsedRealtimeNanos, data.hasFix ? 3 : 0,
+                    data.hasSpeed ? data.speed : 0, data.bearing,
+                    data.hasAltitude ? data.altitude : 0));
+        }
+    }
+
+    /**
+     * Fila em que o coletor do acelerômetro grava as leituras
+     */
+    public SpscSampleRing getAccelRing() {
+        return accelRing;
+    }
+
+    /**
+     * Inicia a thread do pipeline e a publicação periódica para exibição
+     */
+    public void start() {
+        if (thread != null) {
+            return;
+        }
+
+        // Prioridade um pouco acima do padrão para não atrasar o alinhamento e a gravação
+        thread = new HandlerThread(TAG,
+                Process.THREAD_PRIORITY_DEFAULT + Process.THREAD_PRIORITY_MORE_FAVORABLE);
+        thread.start();
+        Handler pipelineHandler = new Handler(thread.getLooper());
+        handler = pipelineHandler;
+        running = true;
+
+        pipelineHandler.post(() -> {
+            // Leituras acumuladas antes do início não entram na grade
+            accelRing.drain((timestampNanos, x, y, z) -> { });
+            aligner.reset();
+            // O primeiro tick inicia a grade de prazos
+            tickScheduler.stop();
+        });
+        nextDisplayMillis = 0;
+        nextMetricsMillis = SystemClock.uptimeMillis() + METRICS_INTERVAL_MS;
+        drainRunnable = new Runnable() {
+            @Override
+            public void run() {
+                if (!running) {
+                    return;
+                }
+                long start = System.nanoTime();
+                long tickNanos = SystemClock.elapsedRealtimeNanos();
+                if (!tickScheduler.isStarted()) {
+                    tickScheduler.start(tickNanos);
+                } else {
+                    long missedBefore = tickScheduler.getMissedCount();
+                    metrics.record(PipelineMetrics.Stage.TICK_JITTER, Math.max(0, tickScheduler.onTick(tickNanos)));
+                    metrics.add(PipelineMetrics.Counter.MISSED_TICKS, tickScheduler.getMissedCount() - missedBefore);
+                }
+
+                if (accelRing.drain(accelConsumer) > 0) {
+                    metrics.record(PipelineMetrics.Stage.BATCH, System.nanoTime() - start);
+                }
+
+                long now = SystemClock.uptimeMillis();
+                if (now >= nextMetricsMillis) {
+                    nextMetricsMillis = now + METRICS_INTERVAL_MS;
+                    takeMetricsSnapshot();
+                }
+                if (displayEnabled && now >= nextDisplayMillis) {
+                    nextDisplayMillis = now + DISPLAY_INTERVAL_MS;
+                    publishSnapshot();
+                }
+
+                // O próximo prazo é absoluto: só a espera restante vai para o postDelayed
+                long intervalNanos = (displayEnabled ? DRAIN_INTERVAL_MS : BACKGROUND_DRAIN_INTERVAL_MS) * 1_000_000L;
+                long nowNanos = SystemClock.elapsedRealtimeNanos();
+                if (intervalNanos != tickScheduler.getPeriodNanos()) {
+                    tickScheduler.setPeriod(intervalNanos, nowNanos);
+                }
+                if (running) {
+                    pipelineHandler.postDelayed(this, tickScheduler.delayMillis(nowNanos));
+                }
+            }
+        };
+        pipelineHandler.post(drainRunnable);
+        Log.i(TAG, "Pipeline iniciado");
+    }
+
+    /**
+     * Para a amostragem, encerra a gravação em andamento e finaliza a thread
+     */
+    public void stop() {
+        if (thread == null) {
+            return;
+        }
+
+        running = false;
+        Handler pipelineHandler = handler;
+        pipelineHandler.removeCallbacks(drainRunnable);
+        pipelineHandler.post(() -> {
+            accelRing.drain(accelConsumer);
+            if (logDataManager.isLogging()) {
+                // Fecha o arquivo de métricas com o intervalo parcial
+                takeMetricsSnapshot();
+                logDataManager.stopLogging();
+                notifyLoggingState(false);
+            }
+            Log.i(TAG, "Alinhamento: " + aligner.getSampleCount() + " amostras, acelerômetro descartado: "
+                    + aligner.getDroppedAccelCount() + ", lacunas: " + aligner.getGapSampleCount()
+                    + ", GNSS descartado: " + aligner.getDroppedGnssCount()
+                    + ", GNSS atrasado: " + aligner.getLateGnssCount());
+            Log.i(TAG, "Fila do acelerômetro: " + accelRing.getOfferedCount() + " leituras, estouro: "
+                    + accelRing.getOverflowCount());
+        });
+        thread.quitSafely();
+        thread = null;
+        handler = null;
+        Log.i(TAG, "Pipeline parado");
+    }
+
+    /**
+     * Inicia a gravação na thread do pipeline
+     */
+    public void startLogging() {
+        Handler pipelineHandler = handler;
+        if (pipelineHandler == null) {
+            return;
+        }
+        pipelineHandler.post(() -> notifyLoggingState(logDataManager.startLogging()));
+    }
+
+    /**
+     * Retoma uma sessão interrompida na thread do pipeline
+     */
+    public void resumeLogging(RecordingRecovery.Result recovered) {
+        Handler pipelineHandler = handler;
+        if (pipelineHandler == null) {
+            return;
+        }
+        pipelineHandler.post(() -> notifyLoggingState(logDataManager.resumeLogging(recovered)));
+    }
+
+    /**
+     * Repara as sessões interrompidas na thread do pipeline (serializado com o início da gravação)
+     */
+    public void recoverInterruptedSessions(RecoveryListener recoveryListener) {
+        Handler pipelineHandler = handler;
+        if (pipelineHandler == null) {
+            return;
+        }
+        pipelineHandler.post(() -> {
+            List<RecordingRecovery.Result> sessions = logDataManager.recoverInterruptedSessions();
+            mainHandler.post(() -> recoveryListener.onSessionsRecovered(sessions));
+        });
+    }
+
+    /**
+     * Para a gravação na thread do pipeline
+     */
+    public void stopLogging() {
+        Handler pipelineHandler = handler;
+        if (pipelineHandler == null) {
+            return;
+        }
+        pipelineHandler.post(() -> {
+            if (logDataManager.isLogging()) {
+                takeMetricsSnapshot();
+            }
+            logDataManager.stopLogging();
+            notifyLoggingState(false);
+        });
+    }
+
+    /**
+     * Atualiza contadores e CPU e fecha o intervalo de métricas; grava a linha se estiver gravando
+     */
+    private void takeMetricsSnapshot() {
+        metrics.set(PipelineMetrics.Counter.RING_OVERFLOW, accelRing.getOverflowCount());
+        metrics.set(PipelineMetrics.Counter.ACCEL_DROPPED, aligner.getDroppedAccelCount());
+        metrics.set(PipelineMetrics.Counter.ACCEL_DUPLICATE, aligner.getDuplicateAccelCount());
+        metrics.set(PipelineMetrics.Counter.GNSS_DROPPED, aligner.getDroppedGnssCount());
+        metrics.set(PipelineMetrics.Counter.GNSS_DUPLICATE, aligner.getDuplicateGnssCount());
+        metrics.set(PipelineMetrics.Counter.GNSS_LATE, aligner.getLateGnssCount());
+        metrics.set(PipelineMetrics.Counter.GAP_SAMPLES, aligner.getGapSampleCount());
+        metrics.setCpuTimeNanos(PipelineMetrics.CpuThread.PIPELINE, Debug.threadCpuTimeNanos());
+        if (sensorCpuTime != null) {
+            metrics.setCpuTimeNanos(PipelineMetrics.CpuThread.SENSOR, sensorCpuTime.getAsLong());
+        }
+
+        lastMetrics = metrics.snapshot(SystemClock.elapsedRealtimeNanos() / 1e9);
+        if (logDataManager.isLogging()) {
+            logDataManager.logMetrics(lastMetrics);
+        }
+    }
+
+    /**
+     * Publica os últimos dados recebidos para exibição
+     */
+    private void publishSnapshot() {
+        String timeString = String.valueOf(LocalDateTime.now());
+        AccelerometerDataCollector.AccelerometerData accelData = hasAccel
+                ? new AccelerometerDataCollector.AccelerometerData(lastAccelX, lastAccelY, lastAccelZ,
+                        lastAccelTimestamp)
+                : null;
+        DisplaySnapshot snapshot = new DisplaySnapshot(timeString, lastGnssData, accelData,
+                logDataManager.isLogging(), logDataManager.getRecordCount(), lastMetrics);
+        mainHandler.post(() -> listener.onDisplaySnapshot(snapshot));
+        logCollectedData(snapshot);
+    }
+
+    private void notifyLoggingState(boolean started) {
+        mainHandler.post(() -> listener.onLoggingStateChanged(started));
+    }
+
+    private void logCollectedData(DisplaySnapshot snapshot) {
+        StringBuilder logBuilder = new StringBuilder("DATA: Time=").append(snapshot.timestamp);
+
+        if (snapshot.gnssData != null) {
+            logBuilder.append(" | Lat=").append(snapshot.gnssData.latitude)
+                    .append(" | Lon=").append(snapshot.gnssData.longitude);
+        }
+
+        if (snapshot.accelData != null) {
+            logBuilder.append(" | AccX=").append(snapshot.accelData.x)
+                    .append(" | AccY=").append(snapshot.accelData.y)
+                    .append(" | AccZ=").append(snapshot.accelData.z);
+        }
+
+        Log.d(TAG, logBuilder.toString());
+    }
+}
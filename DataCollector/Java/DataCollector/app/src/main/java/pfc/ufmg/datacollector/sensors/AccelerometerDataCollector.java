@@ -5,24 +5,46 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
 import android.util.Log;
 
+import pfc.ufmg.datacollector.calculations.DecimatingFirFilter;
+
+/**
+ * Coleta do acelerômetro em thread própria
+ * Cada leitura (decimada, se habilitado) é gravada na SpscSampleRing do pipeline,
+ * sem alocação nem bloqueio no callback do sensor
+ */
 public class AccelerometerDataCollector implements SensorEventListener {
 
     private static final String TAG = "AccelerometerCollector";
+    // Fração da FIFO do sensor ocupada até a entrega de um lote (margem contra perda)
+    private static final double FIFO_FILL_FRACTION = 0.5;
+    // Eventos entre leituras do tempo de CPU da thread do sensor
+    private static final int CPU_SAMPLE_EVENTS = 256;
 
     private final SensorManager sensorManager;
     private final Sensor accelerometer;
-    private final AccelerometerDataListener dataListener;
+    private final SpscSampleRing sampleRing;
+    private HandlerThread sensorThread;
 
-    private float accelX = 0;
-    private float accelY = 0;
-    private float accelZ = 0;
-    private long lastTimestamp = 0;
+    // Latência máxima de entrega pedida ao sensor (0 = sem batching)
+    private int maxReportLatencyUs = 0;
+    private int reportLatencyUs = 0;
 
-    public interface AccelerometerDataListener {
-        void onAccelerometerDataUpdated(AccelerometerData data);
-    }
+    // Tempo de CPU da thread do sensor (escrito nela, lido pelo pipeline)
+    private volatile long cpuTimeNanos = 0;
+    private int eventsSinceCpuSample = 0;
+
+    // Filtro anti-aliasing com decimação (opcional)
+    private double decimationOutputRate = 0;
+    private int decimationTaps = 0;
+    private DecimatingFirFilter decimator;
+    // Atraso do filtro descontado do timestamp das amostras decimadas
+    private long decimatorDelayNanos = 0;
 
     public static class AccelerometerData {
         public float x;
@@ -38,26 +60,71 @@ public class AccelerometerDataCollector implements SensorEventListener {
         }
     }
 
-    public AccelerometerDataCollector(Context context, AccelerometerDataListener listener) {
-        this.dataListener = listener;
+    /**
+     * @param sampleRing fila para o pipeline; esta classe é a única produtora
+     */
+    public AccelerometerDataCollector(Context context, SpscSampleRing sampleRing) {
+        this.sampleRing = sampleRing;
         this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
         this.accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
     }
 
+    /**
+     * Filtra e decima o fluxo completo do sensor para outputRateHz antes de gravar na fila
+     * Deve ser chamado antes de start()
+     */
+    public void enableDecimation(double outputRateHz, int taps) {
+        this.decimationOutputRate = outputRateHz;
+        this.decimationTaps = taps;
+    }
+
+    /**
+     * Permite ao sensor acumular eventos na FIFO do hub por até maxReportLatencyUs antes de
+     * acordar o processador; os timestamps continuam os de hardware
+     * Limitado pelo tamanho da FIFO. Deve ser chamado antes de start()
+     */
+    public void setMaxReportLatency(int maxReportLatencyUs) {
+        this.maxReportLatencyUs = maxReportLatencyUs;
+    }
+
+    /** Latência de entrega efetivamente usada no último start() (us) */
+    public int getReportLatencyUs() {
+        return reportLatencyUs;
+    }
+
     public boolean start() {
         if (accelerometer == null) {
             Log.e(TAG, "Acelerômetro não disponível neste dispositivo");
             return false;
         }
 
+        decimator = null;
+        if (decimationOutputRate > 0 && accelerometer.getMinDelay() > 0) {
+            // Com SENSOR_DELAY_FASTEST a taxa nominal é a de menor atraso do sensor
+            double inputRate = 1e6 / accelerometer.getMinDelay();
+            int decimation = DecimatingFirFilter.decimationFor(inputRate, decimationOutputRate);
+            decimator = DecimatingFirFilter.forDecimation(decimationTaps, decimation);
+            decimatorDelayNanos = Math.round(decimator.getGroupDelaySamples() * 1e9 / inputRate);
+            Log.i(TAG, String.format("Decimação %.1f Hz -> %.1f Hz (fator %d, %d coeficientes)",
+                    inputRate, inputRate / decimation, decimation, decimationTaps));
+        }
+
+        reportLatencyUs = batchingLatencyUs();
+
+        // Callbacks fora da thread de UI
+        sensorThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_URGENT_DISPLAY);
+        sensorThread.start();
         boolean registered = sensorManager.registerListener(
                 this,
                 accelerometer,
-                SensorManager.SENSOR_DELAY_FASTEST
+                SensorManager.SENSOR_DELAY_FASTEST,
+                reportLatencyUs,
+                new Handler(sensorThread.getLooper())
         );
 
         if (registered) {
-            Log.i(TAG, "Acelerômetro iniciado com sucesso");
+            Log.i(TAG, "Acelerômetro iniciado com sucesso (latência de entrega " + reportLatencyUs + " us, FIFO "
+                    + accelerometer.getFifoMaxEventCount() + " eventos)");
         } else {
             Log.e(TAG, "Falha ao registrar listener do acelerômetro");
         }
@@ -65,21 +132,46 @@ public class AccelerometerDataCollector implements SensorEventListener {
         return registered;
     }
 
+    /**
+     * Latência pedida limitada ao tempo que a FIFO do sensor leva para encher na taxa máxima
+     */
+    private int batchingLatencyUs() {
+        int fifo = accelerometer.getFifoMaxEventCount();
+        if (maxReportLatencyUs <= 0 || fifo <= 0) {
+            return 0;
+        }
+        if (accelerometer.getMinDelay() <= 0) {
+            return maxReportLatencyUs;
+        }
+        long fifoSpanUs = (long) fifo * accelerometer.getMinDelay();
+        return (int) Math.min(maxReportLatencyUs, Math.round(fifoSpanUs * FIFO_FILL_FRACTION));
+    }
+
     public void stop() {
         sensorManager.unregisterListener(this);
+        if (sensorThread != null) {
+            sensorThread.quitSafely();
+            sensorThread = null;
+        }
         Log.i(TAG, "Acelerômetro parado");
     }
 
     @Override
     public void onSensorChanged(SensorEvent event) {
+        if (++eventsSinceCpuSample >= CPU_SAMPLE_EVENTS) {
+            eventsSinceCpuSample = 0;
+            cpuTimeNanos = Debug.threadCpuTimeNanos();
+        }
         if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            accelX = event.values[0];
-            accelY = event.values[1];
-            accelZ = event.values[2];
-            lastTimestamp = event.timestamp;
-
-            if (dataListener != null) {
-                dataListener.onAccelerometerDataUpdated(getCurrentData());
+            if (decimator != null) {
+                // Só entrega quando uma amostra decimada fica pronta
+                if (!decimator.add(event.values[0], event.values[1], event.values[2])) {
+                    return;
+                }
+                sampleRing.offer(event.timestamp - decimatorDelayNanos,
+                        (float) decimator.x(), (float) decimator.y(), (float) decimator.z());
+            } else {
+                sampleRing.offer(event.timestamp, event.values[0], event.values[1], event.values[2]);
             }
         }
     }
@@ -89,8 +181,11 @@ public class AccelerometerDataCollector implements SensorEventListener {
         Log.d(TAG, "Precisão do sensor alterada: " + accuracy);
     }
 
-    public AccelerometerData getCurrentData() {
-        return new AccelerometerData(accelX, accelY, accelZ, lastTimestamp);
+    /**
+     * Tempo de CPU acumulado da thread do sensor (atualizado a cada CPU_SAMPLE_EVENTS eventos)
+     */
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos;
     }
 
     public boolean isAvailable() {
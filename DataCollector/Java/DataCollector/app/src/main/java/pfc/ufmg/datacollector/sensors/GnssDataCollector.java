@@ -45,6 +45,9 @@ public class GnssDataCollector {
         public boolean hasSpeed;
         public boolean hasFix;
         public long timestamp;
+        // Instante da medição no relógio de SystemClock.elapsedRealtimeNanos
+        // (o mesmo dos timestamps do acelerômetro)
+        public long elapsedRealtimeNanos;
 
         public GnssData(Location location, int satelliteCount) {
             if (location != null) {
@@ -55,6 +58,7 @@ public class GnssDataCollector {
                 this.satelliteCount = satelliteCount;
                 this.hasFix = location.hasAccuracy();
                 this.timestamp = location.getTime();
+                this.elapsedRealtimeNanos = location.getElapsedRealtimeNanos();
 
                 this.hasAltitude = location.hasAltitude();
                 if (hasAltitude) {
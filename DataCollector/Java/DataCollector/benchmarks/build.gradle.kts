@@ -0,0 +1,41 @@
+plugins {
+    java
+}
+
+// Benchmarks JMH dos caminhos críticos do :core
+// Uso: ./gradlew :benchmarks:jmh
+//      ./gradlew :benchmarks:jmh -PjmhArgs="AttitudeEstimatorBenchmark -f 1 -wi 3 -i 5"
+// O profiler de alocação (-prof gc) está sempre ativo; os resultados ficam em
+// build/reports/jmh/results.json
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    implementation(project(":core"))
+    // Gravações de "Casos de Teste" e percurso sintético
+    implementation(testFixtures(project(":core")))
+    implementation(libs.jmh.core)
+    annotationProcessor(libs.jmh.generator.annprocess)
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Executa os benchmarks JMH com -prof gc"
+    dependsOn(tasks.named("classes"))
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    // As gravações são localizadas a partir do diretório de trabalho
+    workingDir = projectDir
+
+    val resultFile = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    val extraArgs = (project.findProperty("jmhArgs") as String?)
+        ?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+    doFirst { resultFile.parentFile.mkdirs() }
+    args = listOf("-prof", "gc", "-rf", "json", "-rff", resultFile.absolutePath) + extraArgs
+}
@@ -0,0 +1,93 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por amostra de AttitudeEstimator.processSample
+ * Cada operação processa uma amostra; ao fim da entrada o estimador é resetado e a entrada recomeça
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AttitudeEstimatorBenchmark {
+
+    // 1 hora a 20 Hz
+    static final int SYNTHETIC_SAMPLES = 20 * 60 * 60;
+
+    /**
+     * recordings: todas as gravações de "Casos de Teste" em sequência
+     * synthetic: percurso sintético de 1 hora
+     */
+    @Param({"recordings", "synthetic"})
+    public String input;
+
+    /**
+     * Filtro passa-baixas (EstimatorConfig.FilterType); com BUTTERWORTH o atraso GPS é automático
+     */
+    @Param({"FIR", "BUTTERWORTH"})
+    public String filter;
+
+    private AttitudeEstimator.SensorData[] samples;
+    private AttitudeEstimator estimator;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        samples = loadInput(input);
+        estimator = new AttitudeEstimator(configFor(filter));
+        index = 0;
+    }
+
+    @Benchmark
+    public AttitudeEstimator processSample() {
+        estimator.processSample(samples[index]);
+        if (++index == samples.length) {
+            index = 0;
+            estimator.reset();
+        }
+        return estimator;
+    }
+
+    static EstimatorConfig configFor(String filter) {
+        EstimatorConfig.FilterType type = EstimatorConfig.FilterType.valueOf(filter);
+        if (type == EstimatorConfig.DEFAULT_FILTER_TYPE) {
+            return EstimatorConfig.DEFAULT;
+        }
+        return EstimatorConfig.builder()
+                .setFilterType(type)
+                .build();
+    }
+
+    static AttitudeEstimator.SensorData[] loadInput(String input) throws IOException {
+        List<AttitudeEstimator.SensorData> data;
+        if ("synthetic".equals(input)) {
+            data = Recordings.syntheticDrive(SYNTHETIC_SAMPLES);
+        } else {
+            data = new ArrayList<>();
+            for (File file : Recordings.files()) {
+                data.addAll(Recordings.load(file));
+            }
+        }
+        return data.toArray(new AttitudeEstimator.SensorData[0]);
+    }
+}
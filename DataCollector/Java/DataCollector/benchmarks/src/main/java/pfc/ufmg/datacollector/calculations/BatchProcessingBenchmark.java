@@ -0,0 +1,85 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reprocessamento de uma entrada inteira: processSample por amostra contra processSamples em colunas
+ * Cada operação reseta o estimador e processa todas as amostras
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchProcessingBenchmark {
+
+    /**
+     * Ver AttitudeEstimatorBenchmark.input
+     */
+    @Param({"recordings", "synthetic"})
+    public String input;
+
+    private AttitudeEstimator.SensorData[] samples;
+    private double[] accelX, accelY, accelZ, gpsSpeed, gpsDirection, gpsAlt, gpsRtc;
+    private int[] gpsFix;
+    private AttitudeEstimator estimator;
+    private AttitudeEstimator.AttitudeTrace trace;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        samples = AttitudeEstimatorBenchmark.loadInput(input);
+        int n = samples.length;
+        accelX = new double[n];
+        accelY = new double[n];
+        accelZ = new double[n];
+        gpsFix = new int[n];
+        gpsSpeed = new double[n];
+        gpsDirection = new double[n];
+        gpsAlt = new double[n];
+        gpsRtc = new double[n];
+        for (int i = 0; i < n; i++) {
+            accelX[i] = samples[i].accelX;
+            accelY[i] = samples[i].accelY;
+            accelZ[i] = samples[i].accelZ;
+            gpsFix[i] = samples[i].gpsFix;
+            gpsSpeed[i] = samples[i].gpsSpeed;
+            gpsDirection[i] = samples[i].gpsDirection;
+            gpsAlt[i] = samples[i].gpsAlt;
+            gpsRtc[i] = samples[i].gpsRtc;
+        }
+        estimator = new AttitudeEstimator();
+        trace = new AttitudeEstimator.AttitudeTrace(n);
+    }
+
+    @Benchmark
+    public AttitudeEstimator perSample() {
+        estimator.reset();
+        for (AttitudeEstimator.SensorData sample : samples) {
+            estimator.processSample(sample);
+        }
+        return estimator;
+    }
+
+    @Benchmark
+    public AttitudeEstimator.AttitudeTrace batch() {
+        estimator.reset();
+        estimator.processSamples(accelX, accelY, accelZ, gpsFix, gpsSpeed, gpsDirection, gpsAlt, gpsRtc,
+                0, accelX.length, trace, 0);
+        return trace;
+    }
+}
@@ -0,0 +1,99 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * N configurações sobre a mesma entrada: EstimatorFanOut (um front-end) contra N + 1 estimadores isolados
+ * Cada operação reseta os estimadores e processa todas as amostras
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EstimatorFanOutBenchmark {
+
+    /**
+     * Ver AttitudeEstimatorBenchmark.input
+     */
+    @Param({"recordings", "synthetic"})
+    public String input;
+
+    /**
+     * Variantes além do estimador primário
+     */
+    @Param({"0", "4", "16"})
+    public int variants;
+
+    /**
+     * Ver AttitudeEstimatorBenchmark.filter
+     */
+    @Param({"FIR", "BUTTERWORTH"})
+    public String filter;
+
+    private AttitudeEstimator.SensorData[] samples;
+    private EstimatorFanOut fanOut;
+    private AttitudeEstimator[] separate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        samples = AttitudeEstimatorBenchmark.loadInput(input);
+        EstimatorConfig base = AttitudeEstimatorBenchmark.configFor(filter);
+        List<EstimatorConfig> configs = new ArrayList<>();
+        for (int i = 0; i < variants; i++) {
+            // Limiares em torno dos padrões
+            configs.add(EstimatorConfig.builder()
+                    .setFilterType(base.getFilterType())
+                    .setGpsFilterDelay(base.getGpsFilterDelay())
+                    .setAhigh(base.getAhigh() * (0.75 + 0.1 * (i % 6)))
+                    .setAlow(base.getAlow() * (0.75 + 0.1 * (i / 6 % 6)))
+                    .setVlow(base.getVlow() + i % 3 * 5)
+                    .build());
+        }
+        fanOut = new EstimatorFanOut(new AttitudeEstimator(base), configs);
+        separate = new AttitudeEstimator[variants + 1];
+        separate[0] = new AttitudeEstimator(base);
+        for (int i = 0; i < variants; i++) {
+            separate[i + 1] = new AttitudeEstimator(configs.get(i));
+        }
+    }
+
+    @Benchmark
+    public EstimatorFanOut fanOut() {
+        fanOut.reset();
+        for (AttitudeEstimator.SensorData sample : samples) {
+            fanOut.processSample(sample);
+        }
+        return fanOut;
+    }
+
+    @Benchmark
+    public AttitudeEstimator[] separate() {
+        for (AttitudeEstimator estimator : separate) {
+            estimator.reset();
+        }
+        for (AttitudeEstimator.SensorData sample : samples) {
+            for (AttitudeEstimator estimator : separate) {
+                estimator.processSample(sample);
+            }
+        }
+        return separate;
+    }
+}
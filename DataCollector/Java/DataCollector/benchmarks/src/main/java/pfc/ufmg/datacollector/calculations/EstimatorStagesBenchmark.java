@@ -0,0 +1,67 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Etapas do estimador isoladas: saída do filtro passa-baixas (FIR padrão), verificação de
+ * estacionariedade e estimação de yaw
+ * O estado é preparado com o percurso sintético e as etapas são chamadas repetidamente sobre ele
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EstimatorStagesBenchmark {
+
+    private AttitudeEstimator estimator;
+
+    /**
+     * Avança o percurso sintético até um evento com a janela de 10 s cheia,
+     * de modo que estimateYaw processe a janela completa
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        estimator = new AttitudeEstimator();
+        List<AttitudeEstimator.SensorData> drive =
+                Recordings.syntheticDrive(AttitudeEstimatorBenchmark.SYNTHETIC_SAMPLES);
+        for (AttitudeEstimator.SensorData sample : drive) {
+            estimator.processSample(sample);
+            if (estimator.isEventWindowFull()) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Percurso sintético sem evento com janela cheia");
+    }
+
+    @Benchmark
+    public AttitudeEstimator applyFilter() {
+        estimator.applyFilter();
+        return estimator;
+    }
+
+    @Benchmark
+    public double calculateStdDev() {
+        return estimator.calculateStdDev();
+    }
+
+    @Benchmark
+    public AttitudeEstimator estimateYaw() {
+        estimator.estimateYaw();
+        return estimator;
+    }
+}
@@ -0,0 +1,62 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por amostra do filtro passa-baixas isolado (add + output), FIR de 64 coeficientes
+ * contra Butterworth de 4ª ordem com os parâmetros padrão
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LowPassFilterBenchmark {
+
+    @Param({"FIR", "BUTTERWORTH"})
+    public String filter;
+
+    private LowPassFilter lowPassFilter;
+    private double[] accel;
+    private final double[] out = new double[3];
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lowPassFilter = AttitudeEstimatorBenchmark.configFor(filter).createFilter();
+        List<AttitudeEstimator.SensorData> drive = Recordings.syntheticDrive(20 * 60 * 10);
+        accel = new double[drive.size() * 3];
+        for (int i = 0; i < drive.size(); i++) {
+            accel[3 * i] = drive.get(i).accelX / 9.8;
+            accel[3 * i + 1] = drive.get(i).accelY / 9.8;
+            accel[3 * i + 2] = drive.get(i).accelZ / 9.8;
+        }
+        index = 0;
+    }
+
+    @Benchmark
+    public double[] filterSample() {
+        lowPassFilter.add(accel[index], accel[index + 1], accel[index + 2]);
+        lowPassFilter.output(out);
+        index += 3;
+        if (index == accel.length) {
+            index = 0;
+        }
+        return out;
+    }
+}
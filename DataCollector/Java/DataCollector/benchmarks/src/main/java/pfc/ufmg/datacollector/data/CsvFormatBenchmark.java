@@ -0,0 +1,109 @@
+package pfc.ufmg.datacollector.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.Recordings;
+
+/**
+ * Custo por registro da formatação de linhas CSV como em LogDataManager.logData
+ * formatRow usa o caminho atual (CsvRecordFormatter + BatchedCsvWriter, gravando no
+ * dispositivo nulo); formatRowLegacy reproduz a montagem original com StringBuilder e
+ * append(double), sem a escrita no arquivo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CsvFormatBenchmark {
+
+    @Param({"recordings", "synthetic"})
+    public String input;
+
+    private AttitudeEstimator.SensorData[] samples;
+    private int index;
+
+    private final CsvRecordFormatter formatter = new CsvRecordFormatter();
+    private BatchedCsvWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<AttitudeEstimator.SensorData> data;
+        if ("synthetic".equals(input)) {
+            data = Recordings.syntheticDrive(20 * 60 * 60);
+        } else {
+            data = new ArrayList<>();
+            for (File file : Recordings.files()) {
+                data.addAll(Recordings.load(file));
+            }
+        }
+        samples = data.toArray(new AttitudeEstimator.SensorData[0]);
+        writer = new BatchedCsvWriter(nullDevice(), 64 * 1024, 200, 5000,
+                BatchedCsvWriter.SyncPolicy.NONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writer.close();
+    }
+
+    @Benchmark
+    public BatchedCsvWriter formatRow() throws IOException {
+        AttitudeEstimator.SensorData s = next();
+        formatter.write(writer, index, true, s.accelX, s.accelY, s.accelZ,
+                true, s.gpsFix, s.gpsSpeed, s.gpsDirection, s.gpsAlt, s.gpsRtc, 50_000_000L * index);
+        return writer;
+    }
+
+    @Benchmark
+    public String formatRowLegacy() {
+        AttitudeEstimator.SensorData s = next();
+        StringBuilder csvLine = new StringBuilder();
+        csvLine.append(index).append(",");
+        csvLine.append(s.accelX).append(",");
+        csvLine.append(s.accelY).append(",");
+        csvLine.append(s.accelZ).append(",");
+        csvLine.append(s.gpsFix).append(",");
+        csvLine.append(s.gpsSpeed).append(",");
+        csvLine.append(s.gpsDirection).append(",");
+        csvLine.append(s.gpsAlt).append(",");
+        csvLine.append(s.gpsRtc);
+        csvLine.append("\n");
+        return csvLine.toString();
+    }
+
+    private AttitudeEstimator.SensorData next() {
+        if (++index == samples.length) {
+            index = 0;
+        }
+        return samples[index];
+    }
+
+    /**
+     * Destino que descarta os bytes, para medir só a formatação e o buffer
+     */
+    static File nullDevice() {
+        boolean windows = System.getProperty("os.name", "").startsWith("Windows");
+        return new File(windows ? "NUL" : "/dev/null");
+    }
+}
@@ -0,0 +1,132 @@
+package pfc.ufmg.datacollector.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.Recordings;
+
+/**
+ * Custo por registro da leitura de uma gravação de 1 hora a 20 Hz
+ * A entrada repete as linhas das gravações de "Casos de Teste" (texto real com precisão total)
+ * parseLegacy reproduz MainActivity.readFile original (split + parseDouble + SensorData por linha);
+ * replayCsv e replayBinary usam o RecordingReplayer com um estimador que só consome os valores
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordingParseBenchmark {
+
+    private static final int ROWS = 20 * 60 * 60;
+
+    private File directory;
+    private File csv;
+    private File binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("pfc-bench").toFile();
+        csv = new File(directory, "drive.csv");
+        binary = new File(directory, "drive" + BinaryLogFormat.FILE_EXTENSION);
+
+        List<File> recordings = Recordings.files();
+        try (PrintWriter out = new PrintWriter(csv, "US-ASCII")) {
+            out.print(RecordingConverter.CSV_HEADER);
+            int row = 0;
+            while (row < ROWS) {
+                for (File file : recordings) {
+                    List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+                    for (int i = 1; i < lines.size() && row < ROWS; i++, row++) {
+                        String line = lines.get(i);
+                        out.print(row + line.substring(line.indexOf(',')) + "\n");
+                    }
+                }
+            }
+        }
+        RecordingConverter.csvToBinary(csv, binary, 20.0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        csv.delete();
+        binary.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parseLegacy(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(csv), StandardCharsets.UTF_8))) {
+            String linha = reader.readLine();
+            while ((linha = reader.readLine()) != null) {
+                String[] data = linha.split(",");
+                blackhole.consume(new AttitudeEstimator.SensorData(
+                        Double.parseDouble(data[1]),
+                        Double.parseDouble(data[2]),
+                        Double.parseDouble(data[3]),
+                        Integer.parseInt(data[4]),
+                        Double.parseDouble(data[5]),
+                        Double.parseDouble(data[6]),
+                        Double.parseDouble(data[7]),
+                        Double.parseDouble(data[8])
+                ));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public double replayCsv() throws IOException {
+        SinkEstimator sink = new SinkEstimator();
+        new RecordingReplayer(sink).run(csv);
+        return sink.sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public double replayBinary() throws IOException {
+        SinkEstimator sink = new SinkEstimator();
+        new RecordingReplayer(sink).run(binary);
+        return sink.sum;
+    }
+
+    /**
+     * Estimador que apenas acumula os valores recebidos, para isolar o custo da leitura
+     */
+    static final class SinkEstimator extends AttitudeEstimator {
+        double sum;
+
+        @Override
+        public void processSample(SensorData data) {
+            sum += data.accelX + data.accelY + data.accelZ + data.gpsFix
+                    + data.gpsSpeed + data.gpsDirection + data.gpsAlt + data.gpsRtc;
+        }
+    }
+}
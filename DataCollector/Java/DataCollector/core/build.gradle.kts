@@ -0,0 +1,30 @@
+plugins {
+    `java-library`
+    `java-test-fixtures`
+}
+
+// Estimação de atitude e filtros em Java puro (sem Android), para rodar em JUnit,
+// benchmarks e processamento em lote no desktop
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// Calibração dos parâmetros do estimador (ParameterSweep)
+// Uso: ./gradlew :core:sweep -PsweepArgs="<diretório com ground_truth.csv> [configurações] [semente]"
+tasks.register<JavaExec>("sweep") {
+    group = "application"
+    description = "Busca aleatória de parâmetros do AttitudeEstimator sobre gravações com atitude conhecida"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("pfc.ufmg.datacollector.data.ParameterSweep")
+    args = (project.findProperty("sweepArgs") as String?)
+        ?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
@@ -0,0 +1,1103 @@
+package pfc.ufmg.datacollector.calculations;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Classe para estimação de atitude (phi, theta, psi) a partir de dados de acelerômetro e GPS
+ * Conversão do algoritmo MATLAB attitude_estimation_v7_gimbal_lock
+ * Versão com processamento em tempo real
+ */
+public class AttitudeEstimator {
+
+    private static final String TAG = "AttitudeEstimator";
+
+    // Constantes
+    private static final double G_EARTH = 9.8; // Aceleração da gravidade
+    public static final double FS = 20.0; // Frequência de amostragem
+    private static final double MAX_DURATION_EVENT = 10.0; // Duração máxima do evento (s)
+    // Amostras por bloco em processSamples
+    private static final int BATCH_BLOCK = 256;
+    // Diferença máxima entre a gravidade do perfil de montagem e a medida para manter o yaw do perfil
+    private static final double MOUNT_PROFILE_TOLERANCE = Math.toRadians(5.0);
+
+    // Formato do estado salvo por saveState ("PFCE" e versão)
+    private static final int STATE_MAGIC = 0x45434650;
+    // Versão 2: tipo e ordem do filtro na configuração e histórico do LowPassFilter
+    // Versão 3: colunas calculadas na inserção do accelBuffer e do gpsBuffer
+    private static final int STATE_VERSION = 3;
+
+    // Parâmetros ajustáveis (ver EstimatorConfig)
+    private final EstimatorConfig config;
+    private final int filterOrder;
+    private final double fc; // Frequência de corte
+    private final double gpsFilterDelay; // Já resolvido quando derivado do filtro
+    private final double vlow; // Velocidade mínima GPS (km/h)
+    private final double ahigh; // Limite superior de aceleração (g)
+    private final double alow; // Limite inferior de desvio padrão
+    private final int naccelGrav;
+
+    // Colunas da linha de atraso GPS
+    private static final int DELAY_FIX = 0;
+    private static final int DELAY_SPEED = 1;
+    private static final int DELAY_DIRECTION = 2;
+    private static final int DELAY_ALT = 3;
+    private static final int DELAY_RTC = 4;
+
+    // Colunas do accelBuffer além da aceleração filtrada (0 a 2): componentes de
+    // w = Rtheta' * Rphi' * (am - gA) usadas pelo yaw, calculadas quando a amostra entra
+    private static final int ACCEL_W_X = 3;
+    private static final int ACCEL_W_Y = 4;
+    private static final int ACCEL_COLUMNS = 5;
+
+    // Colunas do gpsBuffer além de rtc, velocidade, rumo, altitude e nsamp (0 a 4), calculadas
+    // quando o ponto entra: velocidade no plano (m/s) e, para o par formado com o ponto
+    // anterior, v = Rpsi * aGps (aceleração GPS no referencial do rumo, em g)
+    private static final int GPS_VEL_X = 5;
+    private static final int GPS_VEL_Y = 6;
+    private static final int GPS_ACCEL_X = 7;
+    private static final int GPS_ACCEL_Y = 8;
+    private static final int GPS_COLUMNS = 9;
+
+    // Resultados atuais
+    private double phiA = 1234;
+    private double thetaA = 1234;
+    private double psiA = 1234;
+
+    // Front-end: filtro, estatísticas da janela e linha de atraso GPS
+    // É o próprio estimador, ou o primário de um EstimatorFanOut quando este é uma variante
+    private final AttitudeEstimator frontEnd;
+    // Variantes que seguem este front-end (processSamples não as alimenta)
+    private int followers = 0;
+    // Desvio padrão da janela na amostra atual (NaN = ainda não calculado), compartilhado com as variantes
+    private double windowStdDev = Double.NaN;
+
+    // Buffers (janelas deslizantes circulares)
+    private LowPassFilter lowPassFilter;
+    private WindowedStatistics filterStats;
+    private double[][] accelBufferGrav;
+    private RingBuffer accelBuffer;
+    private RingBuffer gpsBuffer;
+
+    // Vetores de trabalho pré-alocados (nenhuma alocação por amostra)
+    private final double[] accelF = new double[3];
+    // Saídas do filtro de um bloco de processSamples (alocado no primeiro uso)
+    private double[] blockFiltered;
+
+    // Contadores
+    private int accelBufferGravCont = 0;
+    private int accelBufferCont = 0;
+    private int gpsBufferCont = 0;
+    private int gpsNsamp = 0;
+    private int currentSample = 0;
+
+    // Estado
+    private boolean event = false;
+    private double maxAccelDev = 0;
+    private int posMaxAccelDev = 1;
+    private final double[] gA = {0, 0, 1}; // Vetor gravidade normalizado
+    // Atitude vinda de um perfil de montagem, ainda não confirmada pelas amostras em repouso
+    private boolean attitudeProvisional = false;
+
+    // Senos e cossenos de phi e theta, calculados quando roll/pitch são estimados
+    private double cosPhi, sinPhi, cosTheta, sinTheta;
+
+    // Linha de atraso GPS: últimas gpsFilterDelaySamples + 1 amostras
+    private int gpsFilterDelaySamples;
+    private RingBuffer gpsDelayLine;
+
+    // Listener para notificar mudanças
+    private AttitudeUpdateListener updateListener;
+    // Notificações emitidas (marca FLAG_UPDATE em processSamples)
+    private long updateCount = 0;
+
+    // Destino das mensagens de log (null = sem log)
+    private final EstimatorLogger logger;
+
+    /**
+     * Interface para callback de atualização
+     */
+    public interface AttitudeUpdateListener {
+        void onAttitudeUpdate(AttitudeResult result);
+    }
+
+    /**
+     * Classe para armazenar dados dos sensores
+     */
+    public static class SensorData {
+        public double accelX;
+        public double accelY;
+        public double accelZ;
+        public int gpsFix;
+        public double gpsSpeed;
+        public double gpsDirection;
+        public double gpsAlt;
+        public double gpsRtc;
+
+        public SensorData(double accelX, double accelY, double accelZ,
+                          int gpsFix, double gpsSpeed, double gpsDirection,
+                          double gpsAlt, double gpsRtc) {
+            this.accelX = accelX;
+            this.accelY = accelY;
+            this.accelZ = accelZ;
+            this.gpsFix = gpsFix;
+            this.gpsSpeed = gpsSpeed;
+            this.gpsDirection = gpsDirection;
+            this.gpsAlt = gpsAlt;
+            this.gpsRtc = gpsRtc;
+        }
+    }
+
+    /**
+     * Classe para retornar resultados
+     */
+    public static class AttitudeResult {
+        public double phiDegrees;
+        public double thetaDegrees;
+        public double psiDegrees;
+        public double phiRadians;
+        public double thetaRadians;
+        public double psiRadians;
+        public boolean phiAvailable;
+        public boolean thetaAvailable;
+        public boolean psiAvailable;
+
+        AttitudeResult(double phi, double theta, double psi) {
+            this.phiRadians = phi;
+            this.thetaRadians = theta;
+            this.psiRadians = psi;
+            this.phiDegrees = phi != 1234 ? Math.toDegrees(phi) : 0;
+            this.thetaDegrees = theta != 1234 ? Math.toDegrees(theta) : 0;
+            this.psiDegrees = psi != 1234 ? Math.toDegrees(psi) : 0;
+            this.phiAvailable = phi != 1234;
+            this.thetaAvailable = theta != 1234;
+            this.psiAvailable = psi != 1234;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            if (phiAvailable) {
+                sb.append(String.format("Phi: %.2f°", phiDegrees));
+            }
+            if (thetaAvailable) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(String.format("Theta: %.2f°", thetaDegrees));
+            }
+            if (psiAvailable) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(String.format("Psi: %.2f°", psiDegrees));
+            }
+            return sb.length() > 0 ? sb.toString() : "Nenhum ângulo disponível";
+        }
+    }
+
+    /**
+     * Saída por amostra de processSamples, em colunas pré-alocadas
+     * Ângulos em radianos, 1234 quando ainda não estimados (como no estado do estimador)
+     */
+    public static final class AttitudeTrace {
+        /** Evento de aceleração em andamento após a amostra */
+        public static final byte FLAG_EVENT = 1;
+        /** A amostra gerou notificação ao listener (atitude estimada ou reestimada) */
+        public static final byte FLAG_UPDATE = 2;
+
+        public final double[] phi;
+        public final double[] theta;
+        public final double[] psi;
+        public final byte[] flags;
+
+        public AttitudeTrace(int capacity) {
+            phi = new double[capacity];
+            theta = new double[capacity];
+            psi = new double[capacity];
+            flags = new byte[capacity];
+        }
+
+        public int capacity() {
+            return flags.length;
+        }
+
+        /**
+         * Resultado da amostra i, como getCurrentResult logo após processá-la
+         */
+        public AttitudeResult get(int i) {
+            return new AttitudeResult(phi[i], theta[i], psi[i]);
+        }
+    }
+
+    /**
+     * Construtor sem log, com os parâmetros padrão
+     */
+    public AttitudeEstimator() {
+        this(EstimatorConfig.DEFAULT, null);
+    }
+
+    /**
+     * Construtor com os parâmetros padrão
+     * @param logger destino das mensagens de log (no app, Log::i)
+     */
+    public AttitudeEstimator(EstimatorLogger logger) {
+        this(EstimatorConfig.DEFAULT, logger);
+    }
+
+    /**
+     * Construtor sem log
+     */
+    public AttitudeEstimator(EstimatorConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * Construtor
+     * @param config parâmetros do algoritmo
+     * @param logger destino das mensagens de log (null = sem log)
+     */
+    public AttitudeEstimator(EstimatorConfig config, EstimatorLogger logger) {
+        this(config, logger, null);
+    }
+
+    /**
+     * Construtor de uma variante de EstimatorFanOut
+     * @param frontEnd estimador cujo filtro, estatísticas e linha de atraso GPS são reaproveitados
+     * (null = front-end próprio); precisa ter o mesmo pré-processamento (EstimatorConfig.sharesFrontEnd)
+     */
+    AttitudeEstimator(EstimatorConfig config, EstimatorLogger logger, AttitudeEstimator frontEnd) {
+        if (frontEnd != null && !config.sharesFrontEnd(frontEnd.config)) {
+            throw new IllegalArgumentException("Pré-processamento diferente do front-end: " + config);
+        }
+        this.frontEnd = frontEnd != null ? frontEnd : this;
+        if (frontEnd != null) {
+            frontEnd.followers++;
+        }
+        this.config = config;
+        this.filterOrder = config.getFilterOrder();
+        this.fc = config.getFc();
+        this.gpsFilterDelay = config.getEffectiveGpsFilterDelay();
+        this.vlow = config.getVlow();
+        this.ahigh = config.getAhigh();
+        this.alow = config.getAlow();
+        this.naccelGrav = config.getNaccelGrav();
+        this.logger = logger;
+        gpsFilterDelaySamples = (int) Math.ceil(gpsFilterDelay / (1.0 / FS));
+        initializeBuffers();
+        log("AttitudeEstimator inicializado");
+    }
+
+    public EstimatorConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Define o listener para atualizações
+     */
+    public void setUpdateListener(AttitudeUpdateListener listener) {
+        this.updateListener = listener;
+    }
+
+    /**
+     * Inicializa buffers
+     */
+    private void initializeBuffers() {
+        if (frontEnd == this) {
+            lowPassFilter = config.createFilter();
+            filterStats = new WindowedStatistics(filterOrder + 1, 3);
+            gpsDelayLine = new RingBuffer(gpsFilterDelaySamples + 1, 5);
+        } else {
+            lowPassFilter = frontEnd.lowPassFilter;
+            filterStats = frontEnd.filterStats;
+            gpsDelayLine = frontEnd.gpsDelayLine;
+        }
+        accelBufferGrav = new double[naccelGrav][3];
+
+        int naccel = (int) Math.ceil(MAX_DURATION_EVENT / (1.0 / FS));
+        accelBuffer = new RingBuffer(naccel, ACCEL_COLUMNS);
+
+        int ngps = (int) Math.ceil((gpsFilterDelay + MAX_DURATION_EVENT) / 1.0) + 1;
+        gpsBuffer = new RingBuffer(ngps, GPS_COLUMNS);
+    }
+
+    /**
+     * Processa uma nova amostra de dados dos sensores
+     * Este método deve ser chamado toda vez que novos dados forem coletados
+     */
+    public void processSample(SensorData data) {
+        requireOwnFrontEnd();
+        // Adiciona à linha de atraso GPS
+        pushGpsDelayLine(data.gpsFix, data.gpsSpeed, data.gpsDirection, data.gpsAlt, data.gpsRtc);
+
+        // Atualiza o filtro e as estatísticas da janela
+        double accelX = data.accelX / G_EARTH;
+        double accelY = data.accelY / G_EARTH;
+        double accelZ = data.accelZ / G_EARTH;
+        lowPassFilter.add(accelX, accelY, accelZ);
+        filterStats.add(accelX, accelY, accelZ);
+        windowStdDev = Double.NaN;
+
+        // Aguarda inicialização do filtro
+        if (currentSample <= filterOrder) {
+            currentSample++;
+            return;
+        }
+
+        // Filtragem passa-baixas
+        applyFilter();
+
+        processFilteredSample();
+    }
+
+    /**
+     * Processa um bloco de amostras em colunas (gravações, análise offline)
+     * Resultado idêntico a chamar processSample para cada amostra, sem um objeto por amostra:
+     * em cada bloco o filtro roda primeiro sobre todas as amostras e depois a detecção de
+     * repouso, de eventos e a coleta GPS; o listener continua sendo notificado
+     * @param offset primeira amostra das colunas de entrada
+     * @param length número de amostras
+     * @param out atitude e flags após cada amostra, gravadas a partir de outOffset
+     * @throws IllegalArgumentException se alguma coluna ou a saída não comportar o intervalo
+     * @throws IllegalStateException numa variante ou num primário com variantes de EstimatorFanOut
+     * (as variantes acompanham o front-end amostra a amostra: usar EstimatorFanOut.processSample)
+     */
+    public void processSamples(double[] accelX, double[] accelY, double[] accelZ, int[] gpsFix,
+                               double[] gpsSpeed, double[] gpsDirection, double[] gpsAlt, double[] gpsRtc,
+                               int offset, int length, AttitudeTrace out, int outOffset) {
+        int end = offset + length;
+        if (offset < 0 || length < 0 || outOffset < 0 || end > accelX.length || end > accelY.length
+                || end > accelZ.length || end > gpsFix.length || end > gpsSpeed.length
+                || end > gpsDirection.length || end > gpsAlt.length || end > gpsRtc.length
+                || outOffset + length > out.capacity()) {
+            throw new IllegalArgumentException("Intervalo inválido: offset=" + offset + ", length=" + length
+                    + ", outOffset=" + outOffset + ", saída=" + out.capacity());
+        }
+        requireOwnFrontEnd();
+        if (followers > 0) {
+            throw new IllegalStateException("Estimador com variantes: as amostras entram por EstimatorFanOut.processSample");
+        }
+        if (blockFiltered == null) {
+            blockFiltered = new double[BATCH_BLOCK * 3];
+        }
+        double[] filtered = blockFiltered;
+
+        for (int start = offset; start < end; start += BATCH_BLOCK) {
+            int count = Math.min(BATCH_BLOCK, end - start);
+
+            // Filtro do bloco inteiro; as amostras da inicialização só entram no histórico
+            int warmup = Math.max(0, Math.min(count, filterOrder + 1 - currentSample));
+            for (int i = 0; i < count; i++) {
+                int in = start + i;
+                lowPassFilter.add(accelX[in] / G_EARTH, accelY[in] / G_EARTH, accelZ[in] / G_EARTH);
+                if (i >= warmup) {
+                    lowPassFilter.output(accelF);
+                    filtered[3 * i] = accelF[0];
+                    filtered[3 * i + 1] = accelF[1];
+                    filtered[3 * i + 2] = accelF[2];
+                }
+            }
+
+            // Estatísticas da janela, repouso, eventos e GPS, amostra a amostra
+            for (int i = 0; i < count; i++) {
+                int in = start + i;
+                pushGpsDelayLine(gpsFix[in], gpsSpeed[in], gpsDirection[in], gpsAlt[in], gpsRtc[in]);
+                filterStats.add(accelX[in] / G_EARTH, accelY[in] / G_EARTH, accelZ[in] / G_EARTH);
+                windowStdDev = Double.NaN;
+
+                long updatesBefore = updateCount;
+                if (i < warmup) {
+                    currentSample++;
+                } else {
+                    accelF[0] = filtered[3 * i];
+                    accelF[1] = filtered[3 * i + 1];
+                    accelF[2] = filtered[3 * i + 2];
+                    processFilteredSample();
+                }
+
+                int o = outOffset + (in - offset);
+                out.phi[o] = phiA;
+                out.theta[o] = thetaA;
+                out.psi[o] = psiA;
+                out.flags[o] = (byte) ((event ? AttitudeTrace.FLAG_EVENT : 0)
+                        | (updateCount != updatesBefore ? AttitudeTrace.FLAG_UPDATE : 0));
+            }
+        }
+    }
+
+    /**
+     * Processa, numa variante, a amostra que o front-end acabou de receber
+     * Só as etapas após o filtro: a saída do filtro, o desvio padrão da janela e a amostra GPS
+     * atrasada vêm do front-end
+     * O contador de amostras é o do front-end (que já avançou): uma variante resetada ou criada
+     * com o front-end já inicializado não repete a inicialização do filtro nem o atraso GPS
+     */
+    void followFrontEnd() {
+        currentSample = frontEnd.currentSample - 1;
+        if (currentSample <= filterOrder) {
+            currentSample++;
+            return;
+        }
+        System.arraycopy(frontEnd.accelF, 0, accelF, 0, 3);
+        processFilteredSample();
+    }
+
+    /**
+     * Etapas após o filtro (accelF já calculado): roll/pitch, eventos e yaw, coleta GPS
+     */
+    private void processFilteredSample() {
+        // Estimação inicial de phi e theta (ou confirmação do perfil de montagem)
+        if (phiA == 1234 || thetaA == 1234 || attitudeProvisional) {
+            double accelDev = frontEnd.windowStdDev();
+
+            if (accelDev < alow) {
+                accelBufferGravCont++;
+                if (accelBufferGravCont <= naccelGrav) {
+                    System.arraycopy(accelF, 0, accelBufferGrav[accelBufferGravCont - 1], 0, 3);
+                }
+            } else {
+                accelBufferGravCont = 0;
+            }
+
+            if (accelBufferGravCont == naccelGrav) {
+                if (attitudeProvisional) {
+                    confirmMountProfile();
+                } else {
+                    estimateRollPitch();
+                }
+                notifyUpdate();
+            }
+        }
+
+        // Detecção de eventos e estimação de yaw
+        if (phiA != 1234 && thetaA != 1234) {
+            double accelDevMag = calculateAccelDeviation();
+
+            if (accelDevMag > ahigh) {
+                handleAccelEvent(accelDevMag);
+            } else {
+                if (event) {
+                    estimateYaw();
+                    if (gpsBufferCont > 0 && gpsBuffer.get(gpsBufferCont - 1, 2) == 1234) {
+                        gpsBufferCont = 0;
+                    }
+                    notifyUpdate();
+                }
+                event = false;
+                maxAccelDev = 0;
+                posMaxAccelDev = 1;
+            }
+        }
+
+        // Coleta dados GPS
+        // A linha 0 da linha de atraso é a amostra currentSample - gpsFilterDelaySamples
+        int m = currentSample - gpsFilterDelaySamples;
+        if (m >= 0) {
+            double[] delayed = gpsDelayLine.array();
+            int base = gpsDelayLine.offset(0);
+            processGpsData((int) delayed[base + DELAY_FIX], delayed[base + DELAY_SPEED],
+                    delayed[base + DELAY_DIRECTION], delayed[base + DELAY_ALT], delayed[base + DELAY_RTC]);
+        }
+
+        gpsNsamp++;
+        currentSample++;
+    }
+
+    /**
+     * Grava os campos GPS da amostra no final da linha de atraso
+     */
+    private void pushGpsDelayLine(int gpsFix, double gpsSpeed, double gpsDirection, double gpsAlt, double gpsRtc) {
+        gpsDelayLine.shift();
+        double[] delayed = gpsDelayLine.array();
+        int base = gpsDelayLine.offset(gpsDelayLine.rows() - 1);
+        delayed[base + DELAY_FIX] = gpsFix;
+        delayed[base + DELAY_SPEED] = gpsSpeed;
+        delayed[base + DELAY_DIRECTION] = gpsDirection;
+        delayed[base + DELAY_ALT] = gpsAlt;
+        delayed[base + DELAY_RTC] = gpsRtc;
+    }
+
+    /**
+     * Notifica o listener sobre atualização
+     */
+    private void notifyUpdate() {
+        updateCount++;
+        if (updateListener != null) {
+            updateListener.onAttitudeUpdate(getCurrentResult());
+        }
+    }
+
+    /**
+     * Saída do filtro passa-baixas para a última amostra, em accelF
+     * Visível no pacote para os benchmarks
+     */
+    void applyFilter() {
+        lowPassFilter.output(accelF);
+    }
+
+    /**
+     * Calcula desvio padrão da aceleração na janela do filtro
+     * Módulo dos desvios padrão por eixo, mantidos incrementalmente por filterStats
+     * Visível no pacote para os benchmarks
+     */
+    double calculateStdDev() {
+        return Math.sqrt(filterStats.variance(0) + filterStats.variance(1) + filterStats.variance(2));
+    }
+
+    /**
+     * Desvio padrão da janela na amostra atual, calculado uma única vez para o estimador e as variantes
+     */
+    private double windowStdDev() {
+        if (Double.isNaN(windowStdDev)) {
+            windowStdDev = calculateStdDev();
+        }
+        return windowStdDev;
+    }
+
+    /**
+     * Libera variantes que deixaram de seguir este front-end (EstimatorFanOut.close)
+     */
+    void releaseFollowers(int count) {
+        followers -= count;
+    }
+
+    private void requireOwnFrontEnd() {
+        if (frontEnd != this) {
+            throw new IllegalStateException("Variante de EstimatorFanOut: as amostras entram pelo primário");
+        }
+    }
+
+    /**
+     * Calcula o módulo do desvio da aceleração filtrada em relação à gravidade
+     */
+    private double calculateAccelDeviation() {
+        double devX = accelF[0] - gA[0];
+        double devY = accelF[1] - gA[1];
+        double devZ = accelF[2] - gA[2];
+        return Math.sqrt(devX * devX + devY * devY + devZ * devZ);
+    }
+
+    /**
+     * Trata evento de aceleração
+     */
+    private void handleAccelEvent(double accelDevMag) {
+        if (!event) {
+            event = true;
+            accelBufferCont = 1;
+        } else {
+            accelBufferCont++;
+
+            // TODO Isso está diferente do MATLAB
+            if (accelBufferCont > accelBuffer.rows()) {
+                accelBufferCont = accelBuffer.rows();
+            }
+        }
+
+        accelBuffer.push(accelF[0], accelF[1], accelF[2]);
+        storeBodyAccel(accelBuffer.offset(accelBuffer.rows() - 1));
+
+        if (accelDevMag > maxAccelDev) {
+            maxAccelDev = accelDevMag;
+            posMaxAccelDev = accelBufferCont;
+        }
+    }
+
+    /**
+     * Estima roll e pitch
+     */
+    private void estimateRollPitch() {
+        double meanX = 0, meanY = 0, meanZ = 0;
+        for (int i = 0; i < accelBufferGrav.length; i++) {
+            meanX += accelBufferGrav[i][0];
+            meanY += accelBufferGrav[i][1];
+            meanZ += accelBufferGrav[i][2];
+        }
+        meanX /= accelBufferGrav.length;
+        meanY /= accelBufferGrav.length;
+        meanZ /= accelBufferGrav.length;
+
+        double norm = Math.sqrt(meanX * meanX + meanY * meanY + meanZ * meanZ);
+        gA[0] = meanX / norm;
+        gA[1] = meanY / norm;
+        gA[2] = meanZ / norm;
+
+        phiA = Math.atan2(-gA[1], -gA[2]);
+        thetaA = Math.asin(gA[0]);
+
+        updateRollPitchTerms();
+
+        if (logger != null) {
+            log(String.format("Roll (Phi) estimado: %.2f°, Pitch (Theta) estimado: %.2f°",
+                    Math.toDegrees(phiA), Math.toDegrees(thetaA)));
+        }
+    }
+
+    /**
+     * Atualiza senos e cossenos de roll/pitch e, como gA também mudou, os termos de yaw
+     * já calculados para as amostras do accelBuffer
+     */
+    private void updateRollPitchTerms() {
+        cosPhi = Math.cos(phiA);
+        sinPhi = Math.sin(phiA);
+        cosTheta = Math.cos(thetaA);
+        sinTheta = Math.sin(thetaA);
+        for (int i = 0; i < accelBuffer.rows(); i++) {
+            storeBodyAccel(accelBuffer.offset(i));
+        }
+    }
+
+    /**
+     * Calcula w = Rtheta' * (Rphi' * (am - gA)) para a amostra do accelBuffer na posição indicada
+     * O "+ 0.0" converte -0.0 em 0.0 como o acumulador do produto matricial,
+     * pois atan2 distingue o sinal de zero
+     */
+    private void storeBodyAccel(int base) {
+        double[] am = accelBuffer.array();
+        double dx = am[base] - gA[0];
+        double dy = am[base + 1] - gA[1];
+        double dz = am[base + 2] - gA[2];
+        double uy = cosPhi * dy - sinPhi * dz;
+        double uz = sinPhi * dy + cosPhi * dz;
+        am[base + ACCEL_W_X] = cosTheta * dx + sinTheta * uz + 0.0;
+        am[base + ACCEL_W_Y] = uy + 0.0;
+    }
+
+    /**
+     * Reestima roll e pitch com as amostras em repouso e confere o perfil de montagem usado no início
+     * Se a gravidade medida se afastou do perfil (suporte mexido), o yaw do perfil é descartado
+     */
+    private void confirmMountProfile() {
+        double profileX = gA[0], profileY = gA[1], profileZ = gA[2];
+        estimateRollPitch();
+        attitudeProvisional = false;
+
+        double dot = profileX * gA[0] + profileY * gA[1] + profileZ * gA[2];
+        double angle = Math.acos(Math.max(-1.0, Math.min(1.0, dot)));
+        if (angle > MOUNT_PROFILE_TOLERANCE) {
+            psiA = 1234;
+            if (logger != null) {
+                log(String.format("Montagem diferente do perfil (%.2f°), yaw descartado", Math.toDegrees(angle)));
+            }
+        }
+    }
+
+    /**
+     * Estima yaw
+     * As matrizes de rotação do MATLAB foram expandidas em produtos escalares:
+     * w = Rtheta' * Rphi' * (am - gA) e v = Rpsi * aGps
+     * v é calculado quando o ponto GPS entra (storeGpsPoint) e w quando a amostra entra no
+     * accelBuffer (storeBodyAccel); aqui resta, por par de pontos GPS, o ângulo entre os dois
+     * e o resíduo. O par de cada ponto só é conhecido no fim do evento (o índice da amostra
+     * depende da posição da janela e de qual ponto ocupa cada linha do gpsBuffer), por isso o
+     * laço continua, limitado ao tamanho do gpsBuffer e sem depender da duração do evento
+     * Visível no pacote para os benchmarks (só altera psiA)
+     */
+    void estimateYaw() {
+        if (gpsBufferCont == 0) {
+            return;
+        }
+
+        // Prepara dados GPS válidos
+        int endGps = gpsBufferCont;
+        int startGps = 0;
+
+        /*for (int k = endGps - 1; k >= 0; k--) {
+            if (gpsBuffer[k][2] != 1234) {
+                startGps = k;
+                break;
+            }
+        }
+
+        if (endGps - startGps < 2) {
+            return;
+        }*/
+
+        double[] am = accelBuffer.array();
+        double[] gps = gpsBuffer.array();
+        int accelGpsCount = 0;
+        int psiACount = 0;
+        double psiASum = 0;
+        double residuoSum = 0;
+
+        for (int i = startGps; i < endGps - 1; i++) {
+            // Aceleração via GPS do par (i, i + 1), guardada na linha i + 1
+            int next = gpsBuffer.offset(i + 1);
+            double dt = gps[next] - gps[gpsBuffer.offset(i)];
+            if (dt == 0) continue;
+            double vx = gps[next + GPS_ACCEL_X];
+            double vy = gps[next + GPS_ACCEL_Y];
+
+            // O k-ésimo ponto válido usa o deslocamento de amostras da linha startGps + k
+            int k = accelGpsCount++;
+            int bufferIdx = accelBuffer.rows() - accelBufferCont + (int) gpsBuffer.get(startGps + k, 4);
+            if (bufferIdx < 0 || bufferIdx >= accelBuffer.rows()) continue;
+
+            int amBase = accelBuffer.offset(bufferIdx);
+            double wx = am[amBase + ACCEL_W_X];
+            double wy = am[amBase + ACCEL_W_Y];
+
+            double sinArg = vy * wx - vx * wy;
+            double cosArg = vx * wx + vy * wy;
+            double psiAEst = Math.atan2(sinArg, cosArg);
+            psiASum += psiAEst;
+            psiACount++;
+
+            // Seno e cosseno de psiAEst a partir dos argumentos do atan2
+            double norm = Math.sqrt(sinArg * sinArg + cosArg * cosArg);
+            double cosPsiA, sinPsiA;
+            if (norm > 0) {
+                cosPsiA = cosArg / norm;
+                sinPsiA = sinArg / norm;
+            } else {
+                cosPsiA = Math.cos(psiAEst);
+                sinPsiA = Math.sin(psiAEst);
+            }
+
+            // predicted = Rphi * Rtheta * RpsiA * v
+            double px = cosPsiA * vx + sinPsiA * vy;
+            double py = -sinPsiA * vx + cosPsiA * vy;
+            double qx = cosTheta * px;
+            double qz = sinTheta * px;
+            double predX = qx;
+            double predY = cosPhi * py + sinPhi * qz;
+            double predZ = -sinPhi * py + cosPhi * qz;
+
+            double rx = am[amBase] - gA[0] - predX;
+            double ry = am[amBase + 1] - gA[1] - predY;
+            double rz = am[amBase + 2] - gA[2] - predZ;
+            residuoSum += Math.sqrt(rx * rx + ry * ry + rz * rz);
+        }
+
+        if (psiACount == 0) {
+            return;
+        }
+
+        double meanResiduo = residuoSum / psiACount;
+        double meanPsiA = psiASum / psiACount;
+
+        if (accelGpsCount > 2 && meanResiduo < 0.2) {
+            psiA = meanPsiA;
+            if (logger != null) {
+                log(String.format("Yaw (Psi) estimado: %.2f° (Resíduo: %.4f, GPS pts: %d)",
+                        Math.toDegrees(psiA), meanResiduo, accelGpsCount));
+            }
+        }
+    }
+
+    /**
+     * Processa dados GPS
+     */
+    private void processGpsData(int gpsFix, double gpsSpeed, double gpsDirection,
+                                double gpsAlt, double gpsRtc) {
+        if (gpsFix == 3 && gpsSpeed >= vlow) {
+            if (gpsBufferCont == 0) {
+                storeGpsPoint(0, gpsRtc, gpsSpeed, gpsDirection, gpsAlt, 0);
+                gpsNsamp = 0;
+                gpsBufferCont = 1;
+            } else if (gpsRtc != gpsBuffer.get(gpsBufferCont - 1, 0)) {
+                if (gpsBufferCont == gpsBuffer.rows()) {
+                    gpsBuffer.shift();
+                    gpsBufferCont--;
+                }
+                storeGpsPoint(gpsBufferCont, gpsRtc, gpsSpeed, gpsDirection, gpsAlt, gpsNsamp);
+                gpsNsamp = 0;
+                gpsBufferCont++;
+            }
+        } else {
+            if (!event) {
+                gpsBufferCont = 0;
+            } else if (gpsBufferCont > 0 && gpsRtc != gpsBuffer.get(gpsBufferCont - 1, 0)) {
+                if (gpsBufferCont == gpsBuffer.rows()) {
+                    gpsBuffer.shift();
+                    gpsBufferCont--;
+                }
+                storeGpsPoint(gpsBufferCont, gpsRtc, 0, 1234, 1234, gpsNsamp);
+                gpsNsamp = 0;
+                gpsBufferCont++;
+            }
+        }
+    }
+
+    /**
+     * Grava um ponto GPS na linha lógica indicada do gpsBuffer, com a velocidade no plano
+     * e a aceleração do par formado com o ponto da linha anterior (termos de estimateYaw)
+     */
+    private void storeGpsPoint(int row, double rtc, double speed, double direction, double alt, int nsamp) {
+        double[] buffer = gpsBuffer.array();
+        int base = gpsBuffer.offset(row);
+        buffer[base] = rtc;
+        buffer[base + 1] = speed;
+        buffer[base + 2] = direction;
+        buffer[base + 3] = alt;
+        buffer[base + 4] = nsamp;
+        buffer[base + GPS_VEL_X] = speed * 1000.0 / 3600.0 * Math.cos(Math.toRadians(direction));
+        buffer[base + GPS_VEL_Y] = speed * 1000.0 / 3600.0 * Math.sin(Math.toRadians(direction));
+        buffer[base + GPS_ACCEL_X] = 0;
+        buffer[base + GPS_ACCEL_Y] = 0;
+        if (row == 0) {
+            return;
+        }
+
+        int prev = gpsBuffer.offset(row - 1);
+        double dt = rtc - buffer[prev];
+        if (dt == 0) {
+            return;
+        }
+        double v1x = buffer[prev + GPS_VEL_X];
+        double v1y = buffer[prev + GPS_VEL_Y];
+        double ax = (buffer[base + GPS_VEL_X] - v1x) / dt / G_EARTH;
+        double ay = (buffer[base + GPS_VEL_Y] - v1y) / dt / G_EARTH;
+        double psi = Math.atan2(v1y, v1x);
+
+        // v = Rpsi * aGps
+        double cosPsi = Math.cos(psi);
+        double sinPsi = Math.sin(psi);
+        buffer[base + GPS_ACCEL_X] = cosPsi * ax + sinPsi * ay + 0.0;
+        buffer[base + GPS_ACCEL_Y] = -sinPsi * ax + cosPsi * ay + 0.0;
+    }
+
+    /**
+     * Obtém o resultado atual
+     */
+    public AttitudeResult getCurrentResult() {
+        return new AttitudeResult(phiA, thetaA, psiA);
+    }
+
+    /**
+     * Reseta o estimador
+     */
+    public void reset() {
+        phiA = 1234;
+        thetaA = 1234;
+        psiA = 1234;
+        accelBufferGravCont = 0;
+        accelBufferCont = 0;
+        gpsBufferCont = 0;
+        gpsNsamp = 0;
+        currentSample = 0;
+        event = false;
+        maxAccelDev = 0;
+        posMaxAccelDev = 1;
+        attitudeProvisional = false;
+        gA[0] = 0;
+        gA[1] = 0;
+        gA[2] = 1;
+        // O front-end de uma variante pertence ao primário
+        if (frontEnd == this) {
+            lowPassFilter.reset();
+            filterStats.clear();
+            gpsDelayLine.clear();
+            windowStdDev = Double.NaN;
+        }
+        accelBuffer.clear();
+        gpsBuffer.clear();
+        for (double[] row : accelBufferGrav) {
+            Arrays.fill(row, 0);
+        }
+        log("AttitudeEstimator resetado");
+    }
+
+    /**
+     * Início rápido a partir de um perfil de montagem (atitude de uma gravação anterior no mesmo suporte)
+     * Reseta o estimador e já parte com os ângulos do perfil; roll e pitch continuam sendo estimados
+     * nas primeiras naccelGrav amostras em repouso e, se a montagem mudou, o yaw do perfil é descartado
+     * @param phi roll (rad)
+     * @param theta pitch (rad)
+     * @param psi yaw (rad), 1234 se o perfil não tem yaw
+     */
+    public void warmStart(double phi, double theta, double psi) {
+        reset();
+        phiA = phi;
+        thetaA = theta;
+        psiA = psi;
+        double cosThetaProfile = Math.cos(theta);
+        gA[0] = Math.sin(theta);
+        gA[1] = -Math.sin(phi) * cosThetaProfile;
+        gA[2] = -Math.cos(phi) * cosThetaProfile;
+        updateRollPitchTerms();
+        attitudeProvisional = true;
+        log("AttitudeEstimator iniciado com perfil de montagem");
+        notifyUpdate();
+    }
+
+    /**
+     * Indica se a atitude atual veio de um perfil de montagem ainda não confirmado
+     */
+    public boolean isAttitudeProvisional() {
+        return attitudeProvisional;
+    }
+
+    /**
+     * Salva o estado completo do estimador (atitude, janelas, buffer GPS e contadores)
+     * Little-endian: identificação e versão, parâmetros do algoritmo, estado e CRC32 dos bytes anteriores
+     * Das amostras de gravidade só entram as já acumuladas (nenhuma depois que roll e pitch são estimados)
+     * Numa variante de EstimatorFanOut o front-end gravado é o do primário: o estado restaura num
+     * estimador isolado com a configuração da variante
+     */
+    public byte[] saveState() {
+        int gravRows = collectingGravity() ? Math.min(accelBufferGravCont, naccelGrav) : 0;
+        int size = 8 + CONFIG_SIZE
+                + 10 * 8 + 6 * 4 + 2
+                + lowPassFilter.serializedSize() + filterStats.serializedSize() + accelBuffer.serializedSize()
+                + gpsBuffer.serializedSize() + gpsDelayLine.serializedSize()
+                + 4 + gravRows * 3 * 8 + 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(STATE_MAGIC);
+        buffer.putInt(STATE_VERSION);
+        writeConfig(buffer);
+
+        buffer.putDouble(phiA);
+        buffer.putDouble(thetaA);
+        buffer.putDouble(psiA);
+        for (double value : gA) {
+            buffer.putDouble(value);
+        }
+        for (double value : accelF) {
+            buffer.putDouble(value);
+        }
+        buffer.putDouble(maxAccelDev);
+        buffer.putInt(accelBufferGravCont);
+        buffer.putInt(accelBufferCont);
+        buffer.putInt(gpsBufferCont);
+        buffer.putInt(gpsNsamp);
+        buffer.putInt(currentSample);
+        buffer.putInt(posMaxAccelDev);
+        buffer.put((byte) (event ? 1 : 0));
+        buffer.put((byte) (attitudeProvisional ? 1 : 0));
+
+        lowPassFilter.writeTo(buffer);
+        filterStats.writeTo(buffer);
+        accelBuffer.writeTo(buffer);
+        gpsBuffer.writeTo(buffer);
+        gpsDelayLine.writeTo(buffer);
+
+        buffer.putInt(gravRows);
+        for (int i = 0; i < gravRows; i++) {
+            for (int j = 0; j < 3; j++) {
+                buffer.putDouble(accelBufferGrav[i][j]);
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Restaura um estado salvo por saveState; as próximas amostras produzem exatamente
+     * o mesmo resultado que produziriam no estimador original
+     * @throws IllegalArgumentException se o estado estiver corrompido, for de outra versão
+     * ou tiver sido salvo com outros parâmetros (o estimador não é alterado)
+     * @throws IllegalStateException numa variante de EstimatorFanOut (o front-end é do primário)
+     */
+    public void restoreState(byte[] state) {
+        requireOwnFrontEnd();
+        if (state.length < 12) {
+            throw new IllegalArgumentException("Estado truncado: " + state.length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(state).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        crc.update(state, 0, state.length - 4);
+        if ((int) crc.getValue() != buffer.getInt(state.length - 4)) {
+            throw new IllegalArgumentException("Estado corrompido (CRC inválido)");
+        }
+        if (buffer.getInt() != STATE_MAGIC) {
+            throw new IllegalArgumentException("Não é um estado do AttitudeEstimator");
+        }
+        int version = buffer.getInt();
+        if (version != STATE_VERSION) {
+            throw new IllegalArgumentException("Versão de estado não suportada: " + version);
+        }
+        ByteBuffer expected = ByteBuffer.allocate(CONFIG_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        writeConfig(expected);
+        for (int i = 0; i < expected.capacity(); i++) {
+            if (buffer.get() != expected.get(i)) {
+                throw new IllegalArgumentException("Estado salvo com outros parâmetros do algoritmo");
+            }
+        }
+
+        reset();
+        try {
+            phiA = buffer.getDouble();
+            thetaA = buffer.getDouble();
+            psiA = buffer.getDouble();
+            for (int i = 0; i < 3; i++) {
+                gA[i] = buffer.getDouble();
+            }
+            for (int i = 0; i < 3; i++) {
+                accelF[i] = buffer.getDouble();
+            }
+            maxAccelDev = buffer.getDouble();
+            accelBufferGravCont = buffer.getInt();
+            accelBufferCont = buffer.getInt();
+            gpsBufferCont = buffer.getInt();
+            gpsNsamp = buffer.getInt();
+            currentSample = buffer.getInt();
+            posMaxAccelDev = buffer.getInt();
+            event = buffer.get() != 0;
+            attitudeProvisional = buffer.get() != 0;
+
+            lowPassFilter.readFrom(buffer);
+            filterStats.readFrom(buffer);
+            accelBuffer.readFrom(buffer);
+            gpsBuffer.readFrom(buffer);
+            gpsDelayLine.readFrom(buffer);
+
+            int gravRows = buffer.getInt();
+            if (gravRows < 0 || gravRows > naccelGrav) {
+                throw new IllegalArgumentException("Amostras de gravidade inválidas: " + gravRows);
+            }
+            for (int i = 0; i < gravRows; i++) {
+                for (int j = 0; j < 3; j++) {
+                    accelBufferGrav[i][j] = buffer.getDouble();
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            reset();
+            throw new IllegalArgumentException("Estado inválido: " + e.getMessage(), e);
+        }
+        if (phiA != 1234 && thetaA != 1234) {
+            updateRollPitchTerms();
+        }
+        log("AttitudeEstimator restaurado (amostra " + currentSample + ")");
+        if (phiA != 1234 || thetaA != 1234 || psiA != 1234) {
+            notifyUpdate();
+        }
+    }
+
+    private boolean collectingGravity() {
+        return phiA == 1234 || thetaA == 1234 || attitudeProvisional;
+    }
+
+    /**
+     * Parâmetros que determinam o formato do estado (tamanho das janelas) e o significado dos valores
+     */
+    private static final int CONFIG_SIZE = 6 * 8 + 4 * 4;
+
+    private void writeConfig(ByteBuffer buffer) {
+        buffer.putDouble(vlow);
+        buffer.putDouble(ahigh);
+        buffer.putDouble(alow);
+        buffer.putDouble(fc);
+        buffer.putDouble(gpsFilterDelay);
+        buffer.putDouble(FS);
+        buffer.putInt(filterOrder);
+        buffer.putInt(naccelGrav);
+        buffer.putInt(config.getFilterType().ordinal());
+        buffer.putInt(config.getButterworthOrder());
+    }
+
+    /**
+     * Indica um evento em andamento com a janela de aceleração cheia e pontos GPS suficientes
+     * para estimar yaw (usado pelos benchmarks para preparar o estado)
+     */
+    boolean isEventWindowFull() {
+        return event && accelBufferCont == accelBuffer.rows() && gpsBufferCont > 2;
+    }
+
+    private void log(String message) {
+        if (logger != null) {
+            logger.log(TAG, message);
+        }
+    }
+}
\ No newline at end of file
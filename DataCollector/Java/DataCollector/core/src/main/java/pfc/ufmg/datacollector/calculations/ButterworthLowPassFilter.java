@@ -0,0 +1,149 @@
+package pfc.ufmg.datacollector.calculations;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Filtro IIR passa-baixas Butterworth como cascata de biquads (forma direta II transposta)
+ * Projeto pela transformação bilinear com pré-distorção da frequência de corte, feito no construtor
+ * Custo: 3 multiplicações e 4 somas por seção de segunda ordem e por eixo, contra ordem + 1
+ * multiplicações e somas do FIR; em compensação a fase não é linear e o atraso de grupo
+ * (informado em baixas frequências) varia com a frequência
+ */
+public final class ButterworthLowPassFilter implements LowPassFilter {
+
+    public static final int MAX_ORDER = 8;
+
+    private final int order;
+    private final int sections;
+
+    // Coeficientes de cada seção: b = b0 * {1, 2, 1}, a = {1, a1, a2}
+    private final double[] b0;
+    private final double[] a1;
+    private final double[] a2;
+
+    // Estado [seção][eixo][s1, s2]
+    private final double[] state;
+    // O estado é iniciado em regime com a primeira amostra, evitando o transitório de 0 a 1 g
+    private boolean primed = false;
+
+    private final double groupDelaySamples;
+    private double outX, outY, outZ;
+
+    /**
+     * @param order ordem do filtro (par, de 2 a MAX_ORDER)
+     * @param fc frequência de corte (Hz), -3 dB
+     * @param fs frequência de amostragem (Hz)
+     */
+    public ButterworthLowPassFilter(int order, double fc, double fs) {
+        if (order < 2 || order > MAX_ORDER || order % 2 != 0 || !(fc > 0 && fc < fs / 2)) {
+            throw new IllegalArgumentException("Parâmetros inválidos: order=" + order + ", fc=" + fc + ", fs=" + fs);
+        }
+        this.order = order;
+        this.sections = order / 2;
+        this.b0 = new double[sections];
+        this.a1 = new double[sections];
+        this.a2 = new double[sections];
+        this.state = new double[sections * 6];
+
+        double k = Math.tan(Math.PI * fc / fs);
+        double delay = 0;
+        for (int s = 0; s < sections; s++) {
+            // Par de polos s² + 2ζs + 1 do protótipo analógico, ζ = sen(π(2s + 1) / 2N)
+            double zeta = Math.sin(Math.PI * (2 * s + 1) / (2.0 * order));
+            double norm = 1.0 / (1 + 2 * zeta * k + k * k);
+            b0[s] = k * k * norm;
+            a1[s] = 2 * (k * k - 1) * norm;
+            a2[s] = (1 - 2 * zeta * k + k * k) * norm;
+            // Atraso de grupo em DC: Σn·b[n]/Σb[n] - Σn·a[n]/Σa[n], sendo 1 o do numerador
+            delay += 1 - (a1[s] + 2 * a2[s]) / (1 + a1[s] + a2[s]);
+        }
+        this.groupDelaySamples = delay;
+    }
+
+    @Override
+    public void add(double x, double y, double z) {
+        if (!primed) {
+            prime(0, x);
+            prime(1, y);
+            prime(2, z);
+            primed = true;
+        }
+        outX = filterAxis(0, x);
+        outY = filterAxis(1, y);
+        outZ = filterAxis(2, z);
+    }
+
+    private double filterAxis(int axis, double value) {
+        for (int s = 0; s < sections; s++) {
+            int i = s * 6 + axis * 2;
+            double bx = b0[s] * value;
+            double y = bx + state[i];
+            state[i] = 2 * bx - a1[s] * y + state[i + 1];
+            state[i + 1] = bx - a2[s] * y;
+            value = y;
+        }
+        return value;
+    }
+
+    /**
+     * Estado de regime para entrada constante (ganho unitário em DC em todas as seções)
+     */
+    private void prime(int axis, double value) {
+        for (int s = 0; s < sections; s++) {
+            int i = s * 6 + axis * 2;
+            state[i + 1] = (b0[s] - a2[s]) * value;
+            state[i] = (2 * b0[s] - a1[s]) * value + state[i + 1];
+        }
+    }
+
+    @Override
+    public void output(double[] out) {
+        out[0] = outX;
+        out[1] = outY;
+        out[2] = outZ;
+    }
+
+    @Override
+    public double getGroupDelaySamples() {
+        return groupDelaySamples;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(state, 0);
+        primed = false;
+        outX = outY = outZ = 0;
+    }
+
+    @Override
+    public int serializedSize() {
+        return 1 + (state.length + 3) * 8;
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) (primed ? 1 : 0));
+        for (double value : state) {
+            buffer.putDouble(value);
+        }
+        buffer.putDouble(outX);
+        buffer.putDouble(outY);
+        buffer.putDouble(outZ);
+    }
+
+    @Override
+    public void readFrom(ByteBuffer buffer) {
+        primed = buffer.get() != 0;
+        for (int i = 0; i < state.length; i++) {
+            state[i] = buffer.getDouble();
+        }
+        outX = buffer.getDouble();
+        outY = buffer.getDouble();
+        outZ = buffer.getDouble();
+    }
+}
@@ -0,0 +1,167 @@
+package pfc.ufmg.datacollector.calculations;
+
+import java.util.Arrays;
+
+/**
+ * Filtro FIR passa-baixas com decimação para três eixos
+ * Recebe o fluxo na taxa do sensor e só calcula as saídas que são mantidas
+ * (uma a cada "decimation" entradas), servindo de anti-aliasing antes da
+ * redução para a taxa do estimador
+ */
+public final class DecimatingFirFilter {
+
+    // Corte padrão como fração da frequência de Nyquist da saída
+    public static final double DEFAULT_CUTOFF_FRACTION = 0.8;
+
+    private final int taps;
+    private final int decimation;
+    private final double[] coeff;
+
+    // Histórico duplicado: cada amostra é gravada em i e i + taps,
+    // de forma que a janela mais recente é sempre contígua
+    private final double[] historyX;
+    private final double[] historyY;
+    private final double[] historyZ;
+    private int writeIndex = 0;
+
+    private long inputCount = 0;
+    private int phase = 0;
+
+    // Última saída calculada
+    private double outX, outY, outZ;
+
+    /**
+     * @param taps número de coeficientes
+     * @param decimation fator de decimação (entradas por saída)
+     * @param cutoff frequência de corte normalizada pela Nyquist da entrada (0 a 1)
+     */
+    public DecimatingFirFilter(int taps, int decimation, double cutoff) {
+        if (taps < 1 || decimation < 1 || cutoff <= 0 || cutoff > 1) {
+            throw new IllegalArgumentException("Parâmetros inválidos: taps=" + taps
+                    + ", decimation=" + decimation + ", cutoff=" + cutoff);
+        }
+        this.taps = taps;
+        this.decimation = decimation;
+        this.coeff = generateCoefficients(taps, cutoff);
+        this.historyX = new double[2 * taps];
+        this.historyY = new double[2 * taps];
+        this.historyZ = new double[2 * taps];
+    }
+
+    /**
+     * Filtro com corte em DEFAULT_CUTOFF_FRACTION da Nyquist da taxa de saída
+     */
+    public static DecimatingFirFilter forDecimation(int taps, int decimation) {
+        return new DecimatingFirFilter(taps, decimation, DEFAULT_CUTOFF_FRACTION / decimation);
+    }
+
+    /**
+     * Fator de decimação inteiro mais próximo para converter inputRate em outputRate
+     */
+    public static int decimationFor(double inputRate, double outputRate) {
+        return Math.max(1, (int) Math.round(inputRate / outputRate));
+    }
+
+    /**
+     * Sinc janelado por Hamming, normalizado para ganho unitário em DC
+     */
+    static double[] generateCoefficients(int taps, double cutoff) {
+        double[] h = new double[taps];
+        double center = (taps - 1) / 2.0;
+        double sum = 0;
+        for (int i = 0; i < taps; i++) {
+            double n = i - center;
+            h[i] = n == 0 ? cutoff : Math.sin(Math.PI * cutoff * n) / (Math.PI * n);
+            if (taps > 1) {
+                h[i] *= 0.54 - 0.46 * Math.cos(2.0 * Math.PI * i / (taps - 1));
+            }
+            sum += h[i];
+        }
+        for (int i = 0; i < taps; i++) {
+            h[i] /= sum;
+        }
+        return h;
+    }
+
+    /**
+     * Adiciona uma amostra na taxa de entrada
+     * @return true se uma nova saída decimada foi calculada (ver x(), y(), z())
+     */
+    public boolean add(double x, double y, double z) {
+        historyX[writeIndex] = x;
+        historyX[writeIndex + taps] = x;
+        historyY[writeIndex] = y;
+        historyY[writeIndex + taps] = y;
+        historyZ[writeIndex] = z;
+        historyZ[writeIndex + taps] = z;
+        writeIndex++;
+        if (writeIndex == taps) {
+            writeIndex = 0;
+        }
+        inputCount++;
+
+        if (++phase < decimation) {
+            return false;
+        }
+        phase = 0;
+
+        // Aguarda o histórico encher para não emitir o transitório inicial
+        if (inputCount < taps) {
+            return false;
+        }
+
+        // Janela mais antiga -> mais recente começa em writeIndex
+        double sx = 0, sy = 0, sz = 0;
+        int start = writeIndex;
+        for (int i = 0; i < taps; i++) {
+            double c = coeff[i];
+            sx += c * historyX[start + i];
+            sy += c * historyY[start + i];
+            sz += c * historyZ[start + i];
+        }
+        outX = sx;
+        outY = sy;
+        outZ = sz;
+        return true;
+    }
+
+    public double x() {
+        return outX;
+    }
+
+    public double y() {
+        return outY;
+    }
+
+    public double z() {
+        return outZ;
+    }
+
+    public int getTaps() {
+        return taps;
+    }
+
+    public int getDecimation() {
+        return decimation;
+    }
+
+    /**
+     * Atraso de grupo em amostras de entrada (fase linear)
+     */
+    public double getGroupDelaySamples() {
+        return (taps - 1) / 2.0;
+    }
+
+    /**
+     * Descarta o histórico
+     */
+    public void reset() {
+        Arrays.fill(historyX, 0);
+        Arrays.fill(historyY, 0);
+        Arrays.fill(historyZ, 0);
+        writeIndex = 0;
+        inputCount = 0;
+        phase = 0;
+        outX = outY = outZ = 0;
+    }
+}
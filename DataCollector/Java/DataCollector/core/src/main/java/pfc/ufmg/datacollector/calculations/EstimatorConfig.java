@@ -0,0 +1,295 @@
+package pfc.ufmg.datacollector.calculations;
+
+import java.util.Locale;
+
+/**
+ * Parâmetros ajustáveis do AttitudeEstimator (imutável)
+ * Os valores padrão são os do algoritmo original; instâncias novas são criadas pelo Builder
+ */
+public final class EstimatorConfig {
+
+    public static final double DEFAULT_VLOW = 15.0;
+    public static final double DEFAULT_AHIGH = 0.12;
+    public static final double DEFAULT_ALOW = 0.08;
+    public static final double DEFAULT_FC = 0.3;
+    public static final int DEFAULT_FILTER_ORDER = 63;
+    public static final int DEFAULT_NACCEL_GRAV = 200;
+    // Ajustado para o FIR padrão; os demais filtros usam AUTO_GPS_FILTER_DELAY por padrão
+    public static final double DEFAULT_GPS_FILTER_DELAY = 1.5;
+    public static final FilterType DEFAULT_FILTER_TYPE = FilterType.FIR;
+    public static final int DEFAULT_BUTTERWORTH_ORDER = 4;
+    // Atraso GPS derivado do atraso de grupo do filtro (ver getEffectiveGpsFilterDelay)
+    public static final double AUTO_GPS_FILTER_DELAY = Double.NaN;
+
+    public static final EstimatorConfig DEFAULT = new Builder().build();
+
+    /**
+     * Filtro passa-baixas da aceleração
+     */
+    public enum FilterType {
+        /** FIR janelado de ordem filterOrder (algoritmo original) */
+        FIR,
+        /** IIR Butterworth de ordem butterworthOrder, em seções biquad */
+        BUTTERWORTH
+    }
+
+    private final double vlow;
+    private final double ahigh;
+    private final double alow;
+    private final double fc;
+    private final int filterOrder;
+    private final int naccelGrav;
+    private final double gpsFilterDelay;
+    private final FilterType filterType;
+    private final int butterworthOrder;
+    private final double effectiveGpsFilterDelay;
+
+    private EstimatorConfig(Builder builder) {
+        this.vlow = builder.vlow;
+        this.ahigh = builder.ahigh;
+        this.alow = builder.alow;
+        this.fc = builder.fc;
+        this.filterOrder = builder.filterOrder;
+        this.naccelGrav = builder.naccelGrav;
+        this.gpsFilterDelay = builder.resolveGpsFilterDelay();
+        this.filterType = builder.filterType;
+        this.butterworthOrder = builder.butterworthOrder;
+        this.effectiveGpsFilterDelay = Double.isNaN(gpsFilterDelay)
+                ? createFilter().getGroupDelaySamples() / AttitudeEstimator.FS
+                : gpsFilterDelay;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder iniciado com os valores desta configuração
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder()
+                .setVlow(vlow)
+                .setAhigh(ahigh)
+                .setAlow(alow)
+                .setFc(fc)
+                .setFilterOrder(filterOrder)
+                .setNaccelGrav(naccelGrav)
+                .setFilterType(filterType)
+                .setButterworthOrder(butterworthOrder);
+        // Atraso padrão do filtro fica implícito, para acompanhar uma troca de filterType
+        if (Double.compare(gpsFilterDelay, defaultGpsFilterDelay(filterType)) != 0) {
+            builder.setGpsFilterDelay(gpsFilterDelay);
+        }
+        return builder;
+    }
+
+    /**
+     * Atraso GPS usado quando não definido no Builder: o de calibração para o FIR,
+     * o atraso de grupo para os demais filtros
+     */
+    public static double defaultGpsFilterDelay(FilterType filterType) {
+        return filterType == FilterType.FIR ? DEFAULT_GPS_FILTER_DELAY : AUTO_GPS_FILTER_DELAY;
+    }
+
+    /** Velocidade mínima GPS (km/h) */
+    public double getVlow() {
+        return vlow;
+    }
+
+    /** Limite do desvio da aceleração em relação à gravidade que caracteriza um evento (g) */
+    public double getAhigh() {
+        return ahigh;
+    }
+
+    /** Limite do desvio padrão para considerar o veículo parado (g) */
+    public double getAlow() {
+        return alow;
+    }
+
+    /** Frequência de corte do filtro passa-baixas (Hz) */
+    public double getFc() {
+        return fc;
+    }
+
+    /** Ordem do filtro FIR (coeficientes = ordem + 1); também é a janela do desvio padrão menos 1 */
+    public int getFilterOrder() {
+        return filterOrder;
+    }
+
+    /** Amostras paradas usadas na estimação de roll/pitch */
+    public int getNaccelGrav() {
+        return naccelGrav;
+    }
+
+    /** Atraso aplicado aos dados GPS (s), AUTO_GPS_FILTER_DELAY se derivado do filtro */
+    public double getGpsFilterDelay() {
+        return gpsFilterDelay;
+    }
+
+    /** Atraso aplicado aos dados GPS (s), já resolvido quando automático */
+    public double getEffectiveGpsFilterDelay() {
+        return effectiveGpsFilterDelay;
+    }
+
+    public FilterType getFilterType() {
+        return filterType;
+    }
+
+    /** Ordem do filtro Butterworth (par), usada quando filterType = BUTTERWORTH */
+    public int getButterworthOrder() {
+        return butterworthOrder;
+    }
+
+    /**
+     * Novo filtro passa-baixas (sem histórico) com o projeto desta configuração
+     */
+    public LowPassFilter createFilter() {
+        if (filterType == FilterType.BUTTERWORTH) {
+            return new ButterworthLowPassFilter(butterworthOrder, fc, AttitudeEstimator.FS);
+        }
+        return new FirLowPassFilter(filterOrder, fc, AttitudeEstimator.FS);
+    }
+
+    /**
+     * Indica se as duas configurações têm o mesmo pré-processamento (filtro, janela do desvio
+     * padrão e atraso GPS) e podem compartilhar o front-end em EstimatorFanOut
+     */
+    public boolean sharesFrontEnd(EstimatorConfig other) {
+        return Double.compare(fc, other.fc) == 0
+                && filterOrder == other.filterOrder
+                && filterType == other.filterType
+                && (filterType != FilterType.BUTTERWORTH || butterworthOrder == other.butterworthOrder)
+                && Double.compare(effectiveGpsFilterDelay, other.effectiveGpsFilterDelay) == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EstimatorConfig)) return false;
+        EstimatorConfig other = (EstimatorConfig) o;
+        return Double.compare(vlow, other.vlow) == 0
+                && Double.compare(ahigh, other.ahigh) == 0
+                && Double.compare(alow, other.alow) == 0
+                && Double.compare(fc, other.fc) == 0
+                && filterOrder == other.filterOrder
+                && naccelGrav == other.naccelGrav
+                && Double.compare(gpsFilterDelay, other.gpsFilterDelay) == 0
+                && filterType == other.filterType
+                && butterworthOrder == other.butterworthOrder;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Double.hashCode(vlow);
+        result = 31 * result + Double.hashCode(ahigh);
+        result = 31 * result + Double.hashCode(alow);
+        result = 31 * result + Double.hashCode(fc);
+        result = 31 * result + filterOrder;
+        result = 31 * result + naccelGrav;
+        result = 31 * result + Double.hashCode(gpsFilterDelay);
+        result = 31 * result + filterType.hashCode();
+        result = 31 * result + butterworthOrder;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "vlow=%.2f, ahigh=%.3f, alow=%.3f, fc=%.3f, filterOrder=%d, naccelGrav=%d, gpsFilterDelay=%.2f%s",
+                vlow, ahigh, alow, fc, filterOrder, naccelGrav, effectiveGpsFilterDelay,
+                (Double.isNaN(gpsFilterDelay) ? " (auto)" : "")
+                        + (filterType == FilterType.BUTTERWORTH ? ", butterworthOrder=" + butterworthOrder : ""));
+    }
+
+    public static final class Builder {
+        private double vlow = DEFAULT_VLOW;
+        private double ahigh = DEFAULT_AHIGH;
+        private double alow = DEFAULT_ALOW;
+        private double fc = DEFAULT_FC;
+        private int filterOrder = DEFAULT_FILTER_ORDER;
+        private int naccelGrav = DEFAULT_NACCEL_GRAV;
+        private double gpsFilterDelay = DEFAULT_GPS_FILTER_DELAY;
+        private boolean gpsFilterDelaySet = false;
+        private FilterType filterType = DEFAULT_FILTER_TYPE;
+        private int butterworthOrder = DEFAULT_BUTTERWORTH_ORDER;
+
+        private Builder() {
+        }
+
+        public Builder setVlow(double vlow) {
+            this.vlow = vlow;
+            return this;
+        }
+
+        public Builder setAhigh(double ahigh) {
+            this.ahigh = ahigh;
+            return this;
+        }
+
+        public Builder setAlow(double alow) {
+            this.alow = alow;
+            return this;
+        }
+
+        public Builder setFc(double fc) {
+            this.fc = fc;
+            return this;
+        }
+
+        public Builder setFilterOrder(int filterOrder) {
+            this.filterOrder = filterOrder;
+            return this;
+        }
+
+        public Builder setNaccelGrav(int naccelGrav) {
+            this.naccelGrav = naccelGrav;
+            return this;
+        }
+
+        /**
+         * @param gpsFilterDelay atraso (s) ou AUTO_GPS_FILTER_DELAY para usar o atraso de grupo do filtro
+         */
+        public Builder setGpsFilterDelay(double gpsFilterDelay) {
+            this.gpsFilterDelay = gpsFilterDelay;
+            this.gpsFilterDelaySet = true;
+            return this;
+        }
+
+        /**
+         * Sem setGpsFilterDelay, o atraso GPS segue defaultGpsFilterDelay(filterType)
+         */
+        public Builder setFilterType(FilterType filterType) {
+            this.filterType = filterType;
+            return this;
+        }
+
+        public Builder setButterworthOrder(int butterworthOrder) {
+            this.butterworthOrder = butterworthOrder;
+            return this;
+        }
+
+        private double resolveGpsFilterDelay() {
+            return gpsFilterDelaySet ? gpsFilterDelay : defaultGpsFilterDelay(filterType);
+        }
+
+        /**
+         * @throws IllegalArgumentException se algum parâmetro estiver fora da faixa válida
+         */
+        public EstimatorConfig build() {
+            double gpsFilterDelay = resolveGpsFilterDelay();
+            if (!(vlow >= 0) || !(ahigh > 0) || !(alow > 0)
+                    || !(fc > 0 && fc < AttitudeEstimator.FS / 2)
+                    || filterOrder < 1 || naccelGrav < 1
+                    || !(gpsFilterDelay >= 0 || Double.isNaN(gpsFilterDelay)) || filterType == null
+                    || butterworthOrder < 2 || butterworthOrder > ButterworthLowPassFilter.MAX_ORDER
+                    || butterworthOrder % 2 != 0) {
+                throw new IllegalArgumentException("Parâmetros inválidos: vlow=" + vlow
+                        + ", ahigh=" + ahigh + ", alow=" + alow + ", fc=" + fc
+                        + ", filterOrder=" + filterOrder + ", naccelGrav=" + naccelGrav
+                        + ", gpsFilterDelay=" + gpsFilterDelay + ", filterType=" + filterType
+                        + ", butterworthOrder=" + butterworthOrder);
+            }
+            return new EstimatorConfig(this);
+        }
+    }
+}
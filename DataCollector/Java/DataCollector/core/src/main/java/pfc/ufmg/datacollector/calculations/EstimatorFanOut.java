@@ -0,0 +1,116 @@
+package pfc.ufmg.datacollector.calculations;
+
+import java.util.List;
+
+/**
+ * Várias configurações do estimador sobre as mesmas amostras, com um único pré-processamento
+ * O estimador primário filtra, mantém as estatísticas da janela e a linha de atraso GPS; cada
+ * variante reaproveita esse front-end e roda só as etapas seguintes (repouso, eventos e yaw,
+ * coleta GPS) com os próprios limiares: AHIGH, ALOW, VLOW e NACCEL_GRAV
+ * Cada variante produz exatamente o resultado de um AttitudeEstimator isolado com a sua
+ * configuração; o custo por variante é o dessas etapas, sem o filtro
+ */
+public final class EstimatorFanOut {
+
+    private final AttitudeEstimator primary;
+    private final AttitudeEstimator[] variants;
+    private boolean closed = false;
+
+    /**
+     * Interface para notificar as atualizações de atitude das variantes
+     */
+    public interface VariantUpdateListener {
+        void onVariantUpdate(int variant, AttitudeEstimator.AttitudeResult result);
+    }
+
+    /**
+     * @param primary estimador que recebe as amostras (e também produz a própria atitude)
+     * @param variantConfigs configurações das variantes, com o mesmo pré-processamento do primário
+     * @throws IllegalArgumentException se alguma configuração não compartilha o front-end
+     * (EstimatorConfig.sharesFrontEnd)
+     */
+    public EstimatorFanOut(AttitudeEstimator primary, List<EstimatorConfig> variantConfigs) {
+        this.primary = primary;
+        this.variants = new AttitudeEstimator[variantConfigs.size()];
+        for (int i = 0; i < variants.length; i++) {
+            try {
+                variants[i] = new AttitudeEstimator(variantConfigs.get(i), null, primary);
+            } catch (IllegalArgumentException e) {
+                // Configuração recusada: as variantes já criadas não seguem o primário
+                primary.releaseFollowers(i);
+                throw e;
+            }
+        }
+    }
+
+    public AttitudeEstimator getPrimary() {
+        return primary;
+    }
+
+    public int getVariantCount() {
+        return variants.length;
+    }
+
+    /**
+     * Variante i (na ordem das configurações); aceita listener, getCurrentResult e saveState,
+     * mas não recebe amostras diretamente
+     */
+    public AttitudeEstimator getVariant(int i) {
+        return variants[i];
+    }
+
+    /**
+     * Define o listener das variantes (o do primário é definido nele); null remove
+     */
+    public void setVariantUpdateListener(VariantUpdateListener listener) {
+        for (int i = 0; i < variants.length; i++) {
+            int variant = i;
+            variants[i].setUpdateListener(listener == null ? null
+                    : result -> listener.onVariantUpdate(variant, result));
+        }
+    }
+
+    /**
+     * Processa uma amostra no primário e em seguida em todas as variantes
+     * Não há caminho em colunas: processSamples no primário é recusado até close()
+     * @throws IllegalStateException se o fan-out já foi encerrado
+     */
+    public void processSample(AttitudeEstimator.SensorData data) {
+        if (closed) {
+            throw new IllegalStateException("EstimatorFanOut encerrado");
+        }
+        primary.processSample(data);
+        for (AttitudeEstimator variant : variants) {
+            variant.followFrontEnd();
+        }
+    }
+
+    /**
+     * Reseta o primário e as variantes
+     */
+    public void reset() {
+        primary.reset();
+        resetVariants();
+    }
+
+    /**
+     * Reseta só as variantes (ex.: depois de restaurar o primário ou iniciá-lo por perfil de
+     * montagem); elas seguem o front-end já inicializado, sem esperar o filtro de novo
+     */
+    public void resetVariants() {
+        for (AttitudeEstimator variant : variants) {
+            variant.reset();
+        }
+    }
+
+    /**
+     * Desliga as variantes do primário, que volta a aceitar processSamples
+     * Necessário antes de criar outro fan-out sobre o mesmo primário; chamadas repetidas não têm efeito
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            primary.releaseFollowers(variants.length);
+        }
+    }
+}
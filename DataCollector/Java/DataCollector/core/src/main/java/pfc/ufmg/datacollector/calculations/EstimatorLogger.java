@@ -0,0 +1,10 @@
+package pfc.ufmg.datacollector.calculations;
+
+/**
+ * Destino das mensagens de log do módulo core
+ * O core não depende do Android: o app passa Log::i, testes e ferramentas de desktop
+ * podem usar System.out ou nenhum log
+ */
+public interface EstimatorLogger {
+    void log(String tag, String message);
+}
@@ -0,0 +1,119 @@
+package pfc.ufmg.datacollector.calculations;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Filtro FIR passa-baixas do algoritmo original (sinc janelado por Hamming, ganho unitário em DC)
+ * A convolução só é calculada em output, de modo que as amostras da inicialização custam apenas a cópia
+ * Custo: (ordem + 1) multiplicações e somas por eixo
+ */
+public final class FirLowPassFilter implements LowPassFilter {
+
+    private final int order;
+    private final double[] coeff;
+    private final RingBuffer buffer;
+    private final double groupDelaySamples;
+
+    /**
+     * @param order ordem do filtro (coeficientes = ordem + 1)
+     * @param fc frequência de corte (Hz)
+     * @param fs frequência de amostragem (Hz)
+     */
+    public FirLowPassFilter(int order, double fc, double fs) {
+        if (order < 1 || !(fc > 0 && fc < fs / 2)) {
+            throw new IllegalArgumentException("Parâmetros inválidos: order=" + order + ", fc=" + fc + ", fs=" + fs);
+        }
+        this.order = order;
+        this.coeff = generateCoefficients(order, fc / (fs / 2.0));
+        this.buffer = new RingBuffer(order + 1, 3);
+
+        // Centro de massa dos coeficientes (soma 1), contado a partir da amostra mais recente
+        double centroid = 0;
+        for (int i = 0; i <= order; i++) {
+            centroid += (order - i) * coeff[i];
+        }
+        this.groupDelaySamples = centroid;
+    }
+
+    /**
+     * Sinc janelado por Hamming do algoritmo original, normalizado pela soma
+     */
+    static double[] generateCoefficients(int order, double wc) {
+        double[] h = new double[order + 1];
+        for (int i = 0; i <= order; i++) {
+            int n = i - order / 2;
+            if (n == 0) {
+                h[i] = wc;
+            } else {
+                h[i] = Math.sin(Math.PI * wc * n) / (Math.PI * n);
+            }
+
+            // Janela de Hamming
+            h[i] *= 0.54 - 0.46 * Math.cos(2.0 * Math.PI * i / order);
+        }
+
+        // Normaliza
+        double sum = 0;
+        for (double value : h) {
+            sum += value;
+        }
+        for (int i = 0; i < h.length; i++) {
+            h[i] /= sum;
+        }
+        return h;
+    }
+
+    @Override
+    public void add(double x, double y, double z) {
+        buffer.push(x, y, z);
+    }
+
+    @Override
+    public void output(double[] out) {
+        double x = 0, y = 0, z = 0;
+        double[] data = buffer.array();
+        for (int i = 0; i < buffer.rows(); i++) {
+            int base = buffer.offset(i);
+            x += coeff[i] * data[base];
+            y += coeff[i] * data[base + 1];
+            z += coeff[i] * data[base + 2];
+        }
+        out[0] = x;
+        out[1] = y;
+        out[2] = z;
+    }
+
+    /**
+     * Atraso de grupo em DC
+     * Não é exatamente ordem / 2: o sinc é centrado na divisão inteira ordem / 2 e a janela
+     * no meio exato, de modo que com ordem ímpar (o padrão, 63) a fase não é linear
+     */
+    @Override
+    public double getGroupDelaySamples() {
+        return groupDelaySamples;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public void reset() {
+        buffer.clear();
+    }
+
+    @Override
+    public int serializedSize() {
+        return buffer.serializedSize();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer out) {
+        buffer.writeTo(out);
+    }
+
+    @Override
+    public void readFrom(ByteBuffer in) {
+        buffer.readFrom(in);
+    }
+}
@@ -0,0 +1,48 @@
+package pfc.ufmg.datacollector.calculations;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Filtro passa-baixas de três eixos usado pelo AttitudeEstimator
+ * Implementações: FirLowPassFilter (algoritmo original) e ButterworthLowPassFilter (IIR);
+ * a escolha é feita em EstimatorConfig.getFilterType
+ */
+public interface LowPassFilter {
+
+    /**
+     * Adiciona uma amostra (chamado em toda amostra, inclusive durante a inicialização)
+     */
+    void add(double x, double y, double z);
+
+    /**
+     * Saída filtrada correspondente à última amostra adicionada, em out[0..2]
+     */
+    void output(double[] out);
+
+    /**
+     * Atraso de grupo em baixas frequências, em amostras
+     * Usado para alinhar os dados GPS quando o atraso não é fixado na configuração
+     */
+    double getGroupDelaySamples();
+
+    /**
+     * Descarta o histórico
+     */
+    void reset();
+
+    /**
+     * Bytes gravados por writeTo
+     */
+    int serializedSize();
+
+    /**
+     * Grava o histórico do filtro (estado do estimador)
+     */
+    void writeTo(ByteBuffer buffer);
+
+    /**
+     * Restaura o que writeTo gravou num filtro com o mesmo projeto
+     * @throws IllegalArgumentException se o conteúdo for inválido
+     */
+    void readFrom(ByteBuffer buffer);
+}
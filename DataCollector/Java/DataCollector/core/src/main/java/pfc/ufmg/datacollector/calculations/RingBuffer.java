@@ -0,0 +1,123 @@
+package pfc.ufmg.datacollector.calculations;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Janela deslizante de tamanho fixo armazenada em um vetor primitivo contínuo
+ * A linha lógica 0 é a mais antiga e a linha rows() - 1 a mais recente,
+ * exatamente como nas matrizes double[][] deslocadas por shiftBuffer
+ */
+public final class RingBuffer {
+
+    private final double[] data;
+    private final int rows;
+    private final int cols;
+
+    // Índice físico da linha lógica 0 (mais antiga)
+    private int head = 0;
+
+    public RingBuffer(int rows, int cols) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Dimensões inválidas: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.data = new double[rows * cols];
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Vetor interno, para laços que percorrem a janela sem chamadas por elemento
+     */
+    public double[] array() {
+        return data;
+    }
+
+    /**
+     * Posição no vetor interno do primeiro elemento da linha lógica indicada
+     */
+    public int offset(int row) {
+        int physical = head + row;
+        if (physical >= rows) {
+            physical -= rows;
+        }
+        return physical * cols;
+    }
+
+    public double get(int row, int col) {
+        return data[offset(row) + col];
+    }
+
+    public void set(int row, int col, double value) {
+        data[offset(row) + col] = value;
+    }
+
+    /**
+     * Descarta a linha mais antiga em O(1)
+     * A última linha passa a ser a antiga linha 0 e deve ser sobrescrita pelo chamador
+     */
+    public void shift() {
+        head++;
+        if (head == rows) {
+            head = 0;
+        }
+    }
+
+    /**
+     * Desloca a janela e grava uma nova linha de três colunas no final
+     */
+    public void push(double c0, double c1, double c2) {
+        shift();
+        int base = offset(rows - 1);
+        data[base] = c0;
+        data[base + 1] = c1;
+        data[base + 2] = c2;
+    }
+
+    /**
+     * Bytes gravados por writeTo
+     */
+    int serializedSize() {
+        return 4 + data.length * 8;
+    }
+
+    /**
+     * Grava a posição da linha 0 e o vetor interno (estado do estimador)
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(head);
+        for (double value : data) {
+            buffer.putDouble(value);
+        }
+    }
+
+    /**
+     * Restaura o que writeTo gravou numa janela de mesmas dimensões
+     */
+    void readFrom(ByteBuffer buffer) {
+        int savedHead = buffer.getInt();
+        if (savedHead < 0 || savedHead >= rows) {
+            throw new IllegalArgumentException("Posição inválida na janela: " + savedHead);
+        }
+        head = savedHead;
+        for (int i = 0; i < data.length; i++) {
+            data[i] = buffer.getDouble();
+        }
+    }
+
+    /**
+     * Zera o conteúdo e volta ao estado inicial
+     */
+    public void clear() {
+        Arrays.fill(data, 0);
+        head = 0;
+    }
+}
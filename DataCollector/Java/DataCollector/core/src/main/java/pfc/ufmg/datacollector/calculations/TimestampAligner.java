@@ -0,0 +1,278 @@
+package pfc.ufmg.datacollector.calculations;
+
+/**
+ * Fusão do acelerômetro e do GNSS pelos timestamps de hardware (mesmo relógio, em ns)
+ * O acelerômetro é reamostrado por interpolação linear numa grade uniforme de outputRateHz
+ * e cada fix GNSS é anexado à amostra da grade mais próxima do seu instante de medição
+ * A amostra k (instante t0 + k / outputRateHz) só é emitida quando o acelerômetro passou de
+ * t_k + gnssLatency, para que os fixes desse instante, que chegam atrasados, já tenham entrado
+ * Não é thread-safe: add* e o listener rodam na mesma thread
+ */
+public final class TimestampAligner {
+
+    // Atraso padrão aguardado pelos fixes GNSS
+    public static final long DEFAULT_GNSS_LATENCY_NANOS = 1_000_000_000L;
+
+    // Lacunas do acelerômetro maiores que este número de períodos da grade são contadas
+    private static final int MAX_GAP_PERIODS = 4;
+
+    private static final int GNSS_CAPACITY = 64;
+
+    /**
+     * Recebe as amostras alinhadas, em ordem
+     * A SensorData é reutilizada entre chamadas; gpsRtc é o instante do último fix
+     * em segundos a partir do início da grade
+     * timestampNanos é o instante da amostra no relógio dos sensores (monotônico, em ns)
+     */
+    public interface AlignedSampleListener {
+        void onAlignedSample(long index, long timestampNanos, double timeSeconds,
+                             AttitudeEstimator.SensorData sample, boolean hasGnss);
+    }
+
+    private final double periodNanos;
+    private final long gnssLatencyNanos;
+    private AlignedSampleListener listener;
+
+    // Acelerômetro pendente (fila circular de primitivos)
+    private final long[] accelTime;
+    private final double[] accelX;
+    private final double[] accelY;
+    private final double[] accelZ;
+    private int accelHead = 0;
+    private int accelSize = 0;
+
+    // Fixes GNSS pendentes
+    private final long[] gnssTime = new long[GNSS_CAPACITY];
+    private final int[] gnssFix = new int[GNSS_CAPACITY];
+    private final double[] gnssSpeed = new double[GNSS_CAPACITY];
+    private final double[] gnssDirection = new double[GNSS_CAPACITY];
+    private final double[] gnssAlt = new double[GNSS_CAPACITY];
+    private int gnssHead = 0;
+    private int gnssSize = 0;
+
+    // Último fix aplicado à grade
+    private boolean hasGnss = false;
+    private long lastGnssTime;
+    private long lastQueuedGnssTime = Long.MIN_VALUE;
+
+    // Grade
+    private boolean started = false;
+    private long origin;
+    private long nextIndex = 0;
+
+    private final AttitudeEstimator.SensorData sample =
+            new AttitudeEstimator.SensorData(0, 0, 0, 0, 0, 0, 0, 0);
+
+    // Contadores para diagnóstico
+    private long droppedAccel = 0;
+    private long duplicateAccel = 0;
+    private long droppedGnss = 0;
+    private long duplicateGnss = 0;
+    private long lateGnss = 0;
+    private long gapSamples = 0;
+
+    /**
+     * @param outputRateHz taxa da grade (a do estimador)
+     * @param gnssLatencyNanos atraso máximo esperado entre a medição e a entrega de um fix
+     * @param accelCapacity amostras do acelerômetro mantidas em espera (cobrir a latência na taxa do sensor)
+     */
+    public TimestampAligner(double outputRateHz, long gnssLatencyNanos, int accelCapacity) {
+        if (outputRateHz <= 0 || gnssLatencyNanos < 0 || accelCapacity < 2) {
+            throw new IllegalArgumentException("Parâmetros inválidos: outputRateHz=" + outputRateHz
+                    + ", gnssLatencyNanos=" + gnssLatencyNanos + ", accelCapacity=" + accelCapacity);
+        }
+        this.periodNanos = 1e9 / outputRateHz;
+        this.gnssLatencyNanos = gnssLatencyNanos;
+        this.accelTime = new long[accelCapacity];
+        this.accelX = new double[accelCapacity];
+        this.accelY = new double[accelCapacity];
+        this.accelZ = new double[accelCapacity];
+    }
+
+    public void setListener(AlignedSampleListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Adiciona uma leitura do acelerômetro e emite as amostras da grade que ficaram prontas
+     * Leituras fora de ordem são descartadas
+     */
+    public void addAccel(long timestampNanos, double x, double y, double z) {
+        if (accelSize > 0 && timestampNanos <= accelTime[accelIndex(accelSize - 1)]) {
+            if (timestampNanos == accelTime[accelIndex(accelSize - 1)]) {
+                duplicateAccel++;
+            }
+            droppedAccel++;
+            return;
+        }
+        if (accelSize == accelTime.length) {
+            // Fila cheia: a mais antiga é perdida
+            accelHead = accelIndex(1);
+            accelSize--;
+            droppedAccel++;
+        }
+        int i = accelIndex(accelSize);
+        accelTime[i] = timestampNanos;
+        accelX[i] = x;
+        accelY[i] = y;
+        accelZ[i] = z;
+        accelSize++;
+
+        if (!started) {
+            started = true;
+            origin = timestampNanos;
+        }
+        emitReady();
+    }
+
+    /**
+     * Adiciona um fix GNSS com o instante da medição
+     * Fixes fora de ordem são descartados
+     */
+    public void addGnss(long timestampNanos, int fix, double speed, double direction, double altitude) {
+        if (timestampNanos <= lastQueuedGnssTime) {
+            if (timestampNanos == lastQueuedGnssTime) {
+                duplicateGnss++;
+            }
+            droppedGnss++;
+            return;
+        }
+        lastQueuedGnssTime = timestampNanos;
+        if (gnssSize == GNSS_CAPACITY) {
+            // Não deve ocorrer com a latência configurada; aplica o mais antigo direto
+            applyOldestGnss();
+            droppedGnss++;
+        }
+        int i = (gnssHead + gnssSize) % GNSS_CAPACITY;
+        gnssTime[i] = timestampNanos;
+        gnssFix[i] = fix;
+        gnssSpeed[i] = speed;
+        gnssDirection[i] = direction;
+        gnssAlt[i] = altitude;
+        gnssSize++;
+    }
+
+    /**
+     * Descarta o estado: a próxima leitura do acelerômetro inicia uma nova grade
+     */
+    public void reset() {
+        accelHead = 0;
+        accelSize = 0;
+        gnssHead = 0;
+        gnssSize = 0;
+        hasGnss = false;
+        sample.gpsFix = 0;
+        sample.gpsSpeed = 0;
+        sample.gpsDirection = 0;
+        sample.gpsAlt = 0;
+        sample.gpsRtc = 0;
+        lastQueuedGnssTime = Long.MIN_VALUE;
+        started = false;
+        nextIndex = 0;
+    }
+
+    private void emitReady() {
+        long newest = accelTime[accelIndex(accelSize - 1)];
+        while (true) {
+            long target = gridTime(nextIndex);
+            if (newest < target + gnssLatencyNanos) {
+                return;
+            }
+
+            // Mantém apenas a última leitura anterior (ou igual) a target e as seguintes
+            while (accelSize > 1 && accelTime[accelIndex(1)] <= target) {
+                accelHead = accelIndex(1);
+                accelSize--;
+            }
+
+            int a = accelIndex(0);
+            if (accelTime[a] >= target || accelSize == 1) {
+                // Sem leitura anterior (início ou fila estourada): usa a mais próxima
+                sample.accelX = accelX[a];
+                sample.accelY = accelY[a];
+                sample.accelZ = accelZ[a];
+            } else {
+                int b = accelIndex(1);
+                long span = accelTime[b] - accelTime[a];
+                if (span > MAX_GAP_PERIODS * periodNanos) {
+                    gapSamples++;
+                }
+                double w = (double) (target - accelTime[a]) / span;
+                sample.accelX = accelX[a] + w * (accelX[b] - accelX[a]);
+                sample.accelY = accelY[a] + w * (accelY[b] - accelY[a]);
+                sample.accelZ = accelZ[a] + w * (accelZ[b] - accelZ[a]);
+            }
+
+            // Fixes cujo instante mais próximo da grade é esta amostra (ou anteriores, se atrasados)
+            while (gnssSize > 0 && gnssTime[gnssHead] <= target + periodNanos / 2) {
+                if (nextIndex > 0 && gnssTime[gnssHead] <= target - periodNanos / 2) {
+                    lateGnss++;
+                }
+                applyOldestGnss();
+            }
+            if (hasGnss) {
+                sample.gpsRtc = (lastGnssTime - origin) / 1e9;
+            }
+
+            if (listener != null) {
+                listener.onAlignedSample(nextIndex, target, (target - origin) / 1e9, sample, hasGnss);
+            }
+            nextIndex++;
+        }
+    }
+
+    private void applyOldestGnss() {
+        int i = gnssHead;
+        hasGnss = true;
+        lastGnssTime = gnssTime[i];
+        sample.gpsFix = gnssFix[i];
+        sample.gpsSpeed = gnssSpeed[i];
+        sample.gpsDirection = gnssDirection[i];
+        sample.gpsAlt = gnssAlt[i];
+        gnssHead = (gnssHead + 1) % GNSS_CAPACITY;
+        gnssSize--;
+    }
+
+    private long gridTime(long index) {
+        return origin + Math.round(index * periodNanos);
+    }
+
+    private int accelIndex(int offset) {
+        return (accelHead + offset) % accelTime.length;
+    }
+
+    /** Amostras emitidas até agora */
+    public long getSampleCount() {
+        return nextIndex;
+    }
+
+    /** Leituras do acelerômetro descartadas (fora de ordem ou fila cheia) */
+    public long getDroppedAccelCount() {
+        return droppedAccel;
+    }
+
+    /** Das leituras descartadas, as com o mesmo timestamp da anterior */
+    public long getDuplicateAccelCount() {
+        return duplicateAccel;
+    }
+
+    /** Fixes descartados por estarem fora de ordem ou aplicados antes da hora por fila cheia */
+    public long getDroppedGnssCount() {
+        return droppedGnss;
+    }
+
+    /** Dos fixes descartados, os repetidos (mesmo instante de medição) */
+    public long getDuplicateGnssCount() {
+        return duplicateGnss;
+    }
+
+    /** Fixes que chegaram depois da latência configurada e foram anexados a uma amostra posterior */
+    public long getLateGnssCount() {
+        return lateGnss;
+    }
+
+    /** Amostras interpoladas sobre uma lacuna longa do acelerômetro */
+    public long getGapSampleCount() {
+        return gapSamples;
+    }
+}
@@ -0,0 +1,192 @@
+package pfc.ufmg.datacollector.calculations;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Média e variância por eixo sobre uma janela deslizante de tamanho fixo, atualizadas em O(1)
+ * Usa a atualização de Welford para janelas (entrada e saída de uma amostra) e
+ * recalcula a janela inteira periodicamente para eliminar o erro acumulado
+ */
+public final class WindowedStatistics {
+
+    // Recalcula a cada RESYNC_PERIOD janelas completas (custo amortizado O(1))
+    private static final int RESYNC_PERIOD = 16;
+
+    private final RingBuffer window;
+    private final int size;
+    private final int dims;
+    private final double[] mean;
+    private final double[] m2;
+    private final double[] scratch;
+
+    private int count = 0;
+    private int updatesSinceResync = 0;
+
+    public WindowedStatistics(int size, int dims) {
+        this.window = new RingBuffer(size, dims);
+        this.size = size;
+        this.dims = dims;
+        this.mean = new double[dims];
+        this.m2 = new double[dims];
+        this.scratch = new double[dims];
+    }
+
+    /**
+     * Adiciona uma amostra de três eixos
+     * @throws IllegalStateException se a janela não tiver exatamente três dimensões
+     */
+    public void add(double x, double y, double z) {
+        if (dims != 3) {
+            throw new IllegalStateException("Amostra de três eixos numa janela de " + dims + " dimensões");
+        }
+        scratch[0] = x;
+        scratch[1] = y;
+        scratch[2] = z;
+        add(scratch);
+    }
+
+    /**
+     * Adiciona uma amostra, descartando a mais antiga se a janela estiver cheia
+     */
+    public void add(double[] sample) {
+        double[] data = window.array();
+
+        if (count < size) {
+            window.shift();
+            int base = window.offset(size - 1);
+            count++;
+            for (int d = 0; d < dims; d++) {
+                double x = sample[d];
+                data[base + d] = x;
+                double delta = x - mean[d];
+                mean[d] += delta / count;
+                m2[d] += delta * (x - mean[d]);
+            }
+            return;
+        }
+
+        // A linha mais antiga é reaproveitada para a nova amostra
+        int base = window.offset(0);
+        window.shift();
+        for (int d = 0; d < dims; d++) {
+            double x = sample[d];
+            double old = data[base + d];
+            data[base + d] = x;
+            double oldMean = mean[d];
+            double delta = x - old;
+            mean[d] += delta / size;
+            m2[d] += delta * (x - mean[d] + old - oldMean);
+        }
+
+        if (++updatesSinceResync >= RESYNC_PERIOD * size) {
+            resync();
+        }
+    }
+
+    /**
+     * Recalcula média e soma dos quadrados dos desvios em duas passadas sobre a janela
+     */
+    private void resync() {
+        double[] data = window.array();
+        int first = size - count;
+        for (int d = 0; d < dims; d++) {
+            double sum = 0;
+            for (int i = first; i < size; i++) {
+                sum += data[window.offset(i) + d];
+            }
+            double m = sum / count;
+            double acc = 0;
+            for (int i = first; i < size; i++) {
+                double dev = data[window.offset(i) + d] - m;
+                acc += dev * dev;
+            }
+            mean[d] = m;
+            m2[d] = acc;
+        }
+        updatesSinceResync = 0;
+    }
+
+    /**
+     * Número de amostras na janela
+     */
+    public int count() {
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return count == size;
+    }
+
+    public double mean(int dim) {
+        return mean[dim];
+    }
+
+    /**
+     * Variância populacional (divide pelo número de amostras)
+     */
+    public double variance(int dim) {
+        if (count == 0) {
+            return 0;
+        }
+        double value = m2[dim] / count;
+        return value > 0 ? value : 0;
+    }
+
+    public double stdDev(int dim) {
+        return Math.sqrt(variance(dim));
+    }
+
+    /**
+     * Bytes gravados por writeTo
+     */
+    int serializedSize() {
+        return window.serializedSize() + dims * 16 + 8;
+    }
+
+    /**
+     * Grava a janela e os acumuladores, para continuar exatamente do mesmo ponto
+     */
+    void writeTo(ByteBuffer buffer) {
+        window.writeTo(buffer);
+        for (int d = 0; d < dims; d++) {
+            buffer.putDouble(mean[d]);
+            buffer.putDouble(m2[d]);
+        }
+        buffer.putInt(count);
+        buffer.putInt(updatesSinceResync);
+    }
+
+    /**
+     * Restaura o que writeTo gravou numa janela de mesmas dimensões
+     */
+    void readFrom(ByteBuffer buffer) {
+        window.readFrom(buffer);
+        for (int d = 0; d < dims; d++) {
+            mean[d] = buffer.getDouble();
+            m2[d] = buffer.getDouble();
+        }
+        int savedCount = buffer.getInt();
+        if (savedCount < 0 || savedCount > size) {
+            throw new IllegalArgumentException("Contagem inválida na janela: " + savedCount);
+        }
+        count = savedCount;
+        updatesSinceResync = buffer.getInt();
+    }
+
+    /**
+     * Esvazia a janela
+     */
+    public void clear() {
+        window.clear();
+        for (int d = 0; d < dims; d++) {
+            mean[d] = 0;
+            m2[d] = 0;
+        }
+        count = 0;
+        updatesSinceResync = 0;
+    }
+}
@@ -0,0 +1,242 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Escritor de CSV com buffer reutilizável e gravação em lotes
+ * Os registros são acumulados em memória e enviados ao arquivo a cada
+ * maxRecords registros ou maxDelayMs milissegundos, o que ocorrer primeiro
+ * Números são formatados direto no buffer, sem alocar Strings
+ */
+public class BatchedCsvWriter {
+
+    // Espaço para o maior número formatado (sinal, 19 dígitos, ponto e casas decimais)
+    public static final int MIN_BUFFER_SIZE = 32;
+    public static final int MAX_DECIMALS = 9;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L,
+            100_000_000L, 1_000_000_000L
+    };
+
+    // Acima deste valor escalado o arredondamento para long perde precisão
+    private static final double MAX_SCALED = 1e17;
+
+    /**
+     * Política de fsync (durabilidade em caso de queda de energia ou kill do processo)
+     */
+    public enum SyncPolicy {
+        NONE,       // só o sistema de arquivos decide quando gravar no disco
+        PER_BATCH,  // fsync após cada lote
+        ON_STOP     // fsync apenas ao fechar o arquivo
+    }
+
+    private final FileOutputStream output;
+    private final int maxRecords;
+    private final long maxDelayNanos;
+    private final SyncPolicy syncPolicy;
+
+    private final byte[] buffer;
+    private int position = 0;
+
+    private int pendingRecords = 0;
+    private long lastFlushNanos;
+    private boolean closed = false;
+
+    // Contadores para diagnóstico
+    private long writeCount = 0;
+    private long syncCount = 0;
+    private long bytesWritten = 0;
+
+    public BatchedCsvWriter(File file, int bufferSize, int maxRecords, long maxDelayMs,
+                            SyncPolicy syncPolicy) throws IOException {
+        if (bufferSize < MIN_BUFFER_SIZE || maxRecords <= 0 || maxDelayMs < 0) {
+            throw new IllegalArgumentException("Parâmetros inválidos: bufferSize=" + bufferSize
+                    + ", maxRecords=" + maxRecords + ", maxDelayMs=" + maxDelayMs);
+        }
+        this.output = new FileOutputStream(file, true);
+        this.buffer = new byte[bufferSize];
+        this.maxRecords = maxRecords;
+        this.maxDelayNanos = maxDelayMs * 1_000_000L;
+        this.syncPolicy = syncPolicy;
+        this.lastFlushNanos = System.nanoTime();
+    }
+
+    /**
+     * Acrescenta texto ASCII ao registro corrente
+     */
+    public void append(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            append(text.charAt(i));
+        }
+    }
+
+    /**
+     * Acrescenta um caractere ASCII (outros caracteres viram '?')
+     */
+    public void append(char c) throws IOException {
+        if (position == buffer.length) {
+            writeBuffer();
+        }
+        buffer[position++] = c < 0x80 ? (byte) c : (byte) '?';
+    }
+
+    /**
+     * Acrescenta um inteiro em decimal
+     */
+    public void appendLong(long value) throws IOException {
+        ensureCapacity(20);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                append("-9223372036854775808");
+                return;
+            }
+            buffer[position++] = '-';
+            value = -value;
+        }
+        writeDigits(value, 0);
+    }
+
+    /**
+     * Acrescenta um número com quantidade fixa de casas decimais (arredondamento meio para cima)
+     * Valores muito grandes, NaN e infinitos usam Double.toString
+     */
+    public void appendFixed(double value, int decimals) throws IOException {
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("Casas decimais inválidas: " + decimals);
+        }
+
+        long scale = POW10[decimals];
+        double magnitude = Math.abs(value) * scale;
+        if (!(magnitude < MAX_SCALED)) {
+            append(Double.toString(value));
+            return;
+        }
+
+        long scaled = Math.round(magnitude);
+        ensureCapacity(21 + decimals);
+        // Não escreve "-0.000" para valores que arredondam para zero
+        if (value < 0 && scaled != 0) {
+            buffer[position++] = '-';
+        }
+        writeDigits(scaled / scale, 0);
+        if (decimals > 0) {
+            buffer[position++] = '.';
+            writeDigits(scaled % scale, decimals);
+        }
+    }
+
+    /**
+     * Escreve um inteiro não negativo com pelo menos minDigits dígitos (zeros à esquerda)
+     */
+    private void writeDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        if (digits < minDigits) {
+            digits = minDigits;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Marca o fim de um registro e grava o lote se o limite de registros ou de tempo foi atingido
+     */
+    public void endRecord() throws IOException {
+        pendingRecords++;
+        if (pendingRecords >= maxRecords || System.nanoTime() - lastFlushNanos >= maxDelayNanos) {
+            flush();
+        }
+    }
+
+    /**
+     * Grava o lote pendente no arquivo, com fsync se a política for PER_BATCH
+     */
+    public void flush() throws IOException {
+        writeBuffer();
+        pendingRecords = 0;
+        lastFlushNanos = System.nanoTime();
+        if (syncPolicy == SyncPolicy.PER_BATCH) {
+            sync();
+        }
+    }
+
+    /**
+     * Grava o pendente e faz fsync independente da política (checkpoint do journal)
+     */
+    public void flushAndSync() throws IOException {
+        flush();
+        if (syncPolicy != SyncPolicy.PER_BATCH) {
+            sync();
+        }
+    }
+
+    /**
+     * Grava o que estiver pendente e fecha o arquivo
+     * Exceto com SyncPolicy.NONE, faz fsync antes de fechar
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBuffer();
+            if (syncPolicy != SyncPolicy.NONE) {
+                sync();
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (position == 0) {
+            return;
+        }
+        output.write(buffer, 0, position);
+        bytesWritten += position;
+        position = 0;
+        writeCount++;
+    }
+
+    private void sync() throws IOException {
+        output.getFD().sync();
+        syncCount++;
+    }
+
+    /**
+     * Número de chamadas de escrita no arquivo
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * Número de chamadas de fsync
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Bytes acrescentados desde a abertura (gravados e pendentes no buffer)
+     */
+    public long getByteCount() {
+        return bytesWritten + position;
+    }
+}
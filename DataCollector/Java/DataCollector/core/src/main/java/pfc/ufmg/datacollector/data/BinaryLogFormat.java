@@ -0,0 +1,200 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binário das gravações (little-endian, versão 2; a versão 1 continua legível)
+ *
+ * Cabeçalho:
+ *   int32 magic "PFCL", int16 versão, int16 tamanho do cabeçalho,
+ *   int16 tamanho do registro, int16 registros por bloco,
+ *   float64 taxa de amostragem (Hz), int16 + bytes com as unidades das colunas,
+ *   int32 CRC32 dos bytes anteriores
+ *
+ * Blocos:
+ *   int32 número de registros, int32 CRC32 dos registros, registros
+ *
+ * Registro (72 bytes, mesmas colunas do CSV):
+ *   int32 contreg, int16 flags, int16 gps_fix, int64 t_mono_ns,
+ *   float64 eixox, eixoy, eixoz, gps_speed, gps_direction, gps_alt, gps_rtc
+ * Na versão 1 o registro tem 64 bytes, sem t_mono_ns
+ */
+public final class BinaryLogFormat {
+
+    public static final int MAGIC = 0x4C434650; // "PFCL" em little-endian
+    public static final int VERSION = 2;
+    public static final int RECORD_SIZE = 72;
+    // Versão 1: sem o timestamp monotônico
+    static final int VERSION_1 = 1;
+    static final int RECORD_SIZE_V1 = 64;
+    public static final int BLOCK_HEADER_SIZE = 8;
+    public static final String FILE_EXTENSION = ".pfcl";
+
+    // Unidades na ordem das colunas do CSV
+    public static final String UNITS = "contreg=1;eixox=m/s2;eixoy=m/s2;eixoz=m/s2;gps_fix=1;"
+            + "gps_speed=km/h;gps_direction=deg;gps_alt=m;gps_rtc=s;t_mono_ns=ns";
+
+    // Bits de flags
+    public static final int FLAG_ACCEL = 1;
+    public static final int FLAG_GNSS = 1 << 1;
+
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    // Cabeçalho sem as unidades e sem o CRC
+    static final int FIXED_HEADER_SIZE = 22;
+    static final int HEADER_SIZE_OFFSET = 6;
+
+    private BinaryLogFormat() {
+    }
+
+    /**
+     * Registro mutável, reutilizado na escrita e na leitura
+     */
+    public static final class Record {
+        public int contreg;
+        public boolean hasAccel;
+        public boolean hasGnss;
+        public double accelX, accelY, accelZ;
+        public int gpsFix;
+        public double gpsSpeed, gpsDirection, gpsAlt;
+        public double gpsRtc;
+        // Instante da amostra no relógio monotônico do aparelho (elapsedRealtimeNanos); 0 = desconhecido
+        public long monotonicNanos;
+
+        void writeTo(ByteBuffer out) {
+            out.putInt(contreg);
+            out.putShort((short) ((hasAccel ? FLAG_ACCEL : 0) | (hasGnss ? FLAG_GNSS : 0)));
+            out.putShort((short) gpsFix);
+            out.putLong(monotonicNanos);
+            out.putDouble(accelX);
+            out.putDouble(accelY);
+            out.putDouble(accelZ);
+            out.putDouble(gpsSpeed);
+            out.putDouble(gpsDirection);
+            out.putDouble(gpsAlt);
+            out.putDouble(gpsRtc);
+        }
+
+        /**
+         * Lê um registro no layout da versão do arquivo
+         */
+        void readFrom(ByteBuffer in, int version) {
+            contreg = in.getInt();
+            int flags = in.getShort();
+            hasAccel = (flags & FLAG_ACCEL) != 0;
+            hasGnss = (flags & FLAG_GNSS) != 0;
+            gpsFix = in.getShort();
+            monotonicNanos = version == VERSION_1 ? 0 : in.getLong();
+            accelX = in.getDouble();
+            accelY = in.getDouble();
+            accelZ = in.getDouble();
+            gpsSpeed = in.getDouble();
+            gpsDirection = in.getDouble();
+            gpsAlt = in.getDouble();
+            gpsRtc = in.getDouble();
+        }
+    }
+
+    /**
+     * Informações do cabeçalho de um arquivo
+     */
+    public static final class Header {
+        public final int version;
+        public final int blockRecords;
+        public final double sampleRateHz;
+        public final String units;
+
+        Header(int version, int blockRecords, double sampleRateHz, String units) {
+            this.version = version;
+            this.blockRecords = blockRecords;
+            this.sampleRateHz = sampleRateHz;
+            this.units = units;
+        }
+
+        /**
+         * Tamanho do cabeçalho em bytes
+         */
+        public int size() {
+            return FIXED_HEADER_SIZE + units.getBytes(StandardCharsets.UTF_8).length + 4;
+        }
+
+        /**
+         * Tamanho de um registro nesta versão do formato
+         */
+        public int recordSize() {
+            return version == VERSION_1 ? RECORD_SIZE_V1 : RECORD_SIZE;
+        }
+
+        /**
+         * Tamanho máximo de um bloco em bytes
+         */
+        public int blockSize() {
+            return BLOCK_HEADER_SIZE + blockRecords * recordSize();
+        }
+    }
+
+    static ByteBuffer encodeHeader(Header header) {
+        byte[] units = header.units.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(header.size()).order(ORDER);
+        buffer.putInt(MAGIC);
+        buffer.putShort((short) header.version);
+        buffer.putShort((short) header.size());
+        buffer.putShort((short) header.recordSize());
+        buffer.putShort((short) header.blockRecords);
+        buffer.putDouble(header.sampleRateHz);
+        buffer.putShort((short) units.length);
+        buffer.put(units);
+        buffer.putInt(crc(buffer.array(), 0, buffer.position()));
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Lê o cabeçalho a partir do início do buffer (que deve conter o cabeçalho inteiro)
+     */
+    static Header decodeHeader(ByteBuffer buffer) throws IOException {
+        buffer.order(ORDER);
+        int start = buffer.position();
+        if (buffer.remaining() < FIXED_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Arquivo não é uma gravação binária");
+        }
+        int version = buffer.getShort();
+        int headerSize = buffer.getShort();
+        int recordSize = buffer.getShort();
+        int blockRecords = buffer.getShort() & 0xFFFF;
+        double sampleRateHz = buffer.getDouble();
+        int unitsLength = buffer.getShort() & 0xFFFF;
+        if (version != VERSION && version != VERSION_1) {
+            throw new IOException("Versão não suportada: " + version);
+        }
+        if (recordSize != (version == VERSION_1 ? RECORD_SIZE_V1 : RECORD_SIZE) || blockRecords == 0
+                || headerSize != FIXED_HEADER_SIZE + unitsLength + 4
+                || buffer.remaining() < unitsLength + 4) {
+            throw new IOException("Cabeçalho inválido");
+        }
+        byte[] units = new byte[unitsLength];
+        buffer.get(units);
+        int expectedCrc = buffer.getInt();
+
+        // Cópia para calcular o CRC também em buffers diretos ou mapeados
+        byte[] raw = new byte[headerSize - 4];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = buffer.get(start + i);
+        }
+        if (crc(raw, 0, raw.length) != expectedCrc) {
+            throw new IOException("Checksum do cabeçalho inválido");
+        }
+        return new Header(version, blockRecords, sampleRateHz,
+                new String(units, StandardCharsets.UTF_8));
+    }
+
+    static int crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,139 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Leitor sequencial de gravações no formato binário (ver BinaryLogFormat)
+ * Valida o checksum de cada bloco; um bloco final incompleto (gravação interrompida)
+ * encerra a leitura sem erro e é indicado por isTruncated()
+ * Segmentos comprimidos (.gz) são descomprimidos durante a leitura
+ */
+public class BinaryLogReader implements AutoCloseable {
+
+    private final ReadableByteChannel channel;
+    private final BinaryLogFormat.Header header;
+    private final ByteBuffer block;
+    private final CRC32 crc = new CRC32();
+
+    private int remainingInBlock = 0;
+    private long blockIndex = 0;
+    private boolean truncated = false;
+
+    public BinaryLogReader(File file) throws IOException {
+        this(SegmentCompression.isCompressed(file)
+                ? Channels.newChannel(SegmentCompression.open(file))
+                : FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    /**
+     * Lê a gravação do canal, que passa a pertencer ao leitor (fechado em close())
+     */
+    public BinaryLogReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        try {
+            ByteBuffer fixed = ByteBuffer.allocate(BinaryLogFormat.FIXED_HEADER_SIZE)
+                    .order(BinaryLogFormat.ORDER);
+            if (!readFully(fixed)) {
+                throw new IOException("Arquivo não é uma gravação binária");
+            }
+            int headerSize = fixed.getShort(BinaryLogFormat.HEADER_SIZE_OFFSET) & 0xFFFF;
+            ByteBuffer raw = ByteBuffer.allocate(Math.max(headerSize, BinaryLogFormat.FIXED_HEADER_SIZE));
+            fixed.flip();
+            raw.put(fixed);
+            if (!readFully(raw)) {
+                throw new IOException("Cabeçalho incompleto");
+            }
+            raw.flip();
+            this.header = BinaryLogFormat.decodeHeader(raw);
+            this.block = ByteBuffer.allocate(header.blockSize()).order(BinaryLogFormat.ORDER);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public BinaryLogFormat.Header getHeader() {
+        return header;
+    }
+
+    /**
+     * Lê o próximo registro
+     * @return false no fim do arquivo
+     * @throws IOException se o checksum de um bloco não confere
+     */
+    public boolean next(BinaryLogFormat.Record record) throws IOException {
+        if (remainingInBlock == 0 && !readBlock()) {
+            return false;
+        }
+        record.readFrom(block, header.version);
+        remainingInBlock--;
+        return true;
+    }
+
+    private boolean readBlock() throws IOException {
+        if (truncated) {
+            return false;
+        }
+        block.clear();
+        block.limit(BinaryLogFormat.BLOCK_HEADER_SIZE);
+        if (!readFully(block)) {
+            return false;
+        }
+        int count = block.getInt(0);
+        int expectedCrc = block.getInt(4);
+        if (count <= 0 || count > header.blockRecords) {
+            throw new IOException("Bloco " + blockIndex + " com número de registros inválido: " + count);
+        }
+
+        int payloadSize = count * header.recordSize();
+        block.limit(BinaryLogFormat.BLOCK_HEADER_SIZE + payloadSize);
+        if (!readFully(block)) {
+            truncated = true;
+            return false;
+        }
+        crc.reset();
+        crc.update(block.array(), block.arrayOffset() + BinaryLogFormat.BLOCK_HEADER_SIZE, payloadSize);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Checksum inválido no bloco " + blockIndex);
+        }
+
+        block.position(BinaryLogFormat.BLOCK_HEADER_SIZE);
+        remainingInBlock = count;
+        blockIndex++;
+        return true;
+    }
+
+    /**
+     * Preenche o buffer até o limite
+     * @return false se o arquivo terminou antes (marcando a gravação como truncada se havia dados parciais)
+     */
+    private boolean readFully(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                truncated = buffer.position() > start;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indica se a gravação termina com um bloco incompleto
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
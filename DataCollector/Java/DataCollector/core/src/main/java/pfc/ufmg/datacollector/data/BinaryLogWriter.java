@@ -0,0 +1,156 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Escritor de gravações no formato binário (ver BinaryLogFormat)
+ * Os registros são montados num bloco em memória e gravados via FileChannel
+ * a cada blockRecords registros ou maxDelayMs milissegundos, o que ocorrer primeiro
+ */
+public class BinaryLogWriter {
+
+    private final FileChannel channel;
+    private final int blockRecords;
+    private final long maxDelayNanos;
+    private final BatchedCsvWriter.SyncPolicy syncPolicy;
+
+    private final ByteBuffer block;
+    private final CRC32 crc = new CRC32();
+    private int pendingRecords = 0;
+    private long lastFlushNanos;
+    private boolean closed = false;
+
+    // Contadores para diagnóstico
+    private long writeCount = 0;
+    private long syncCount = 0;
+    private long bytesWritten = 0;
+
+    public BinaryLogWriter(File file, double sampleRateHz, int blockRecords, long maxDelayMs,
+                           BatchedCsvWriter.SyncPolicy syncPolicy) throws IOException {
+        if (blockRecords <= 0 || blockRecords > 0xFFFF || maxDelayMs < 0 || !(sampleRateHz > 0)) {
+            throw new IllegalArgumentException("Parâmetros inválidos: blockRecords=" + blockRecords
+                    + ", maxDelayMs=" + maxDelayMs + ", sampleRateHz=" + sampleRateHz);
+        }
+        BinaryLogFormat.Header header = new BinaryLogFormat.Header(BinaryLogFormat.VERSION,
+                blockRecords, sampleRateHz, BinaryLogFormat.UNITS);
+
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.blockRecords = blockRecords;
+        this.maxDelayNanos = maxDelayMs * 1_000_000L;
+        this.syncPolicy = syncPolicy;
+        this.block = ByteBuffer.allocate(header.blockSize()).order(BinaryLogFormat.ORDER);
+        this.block.position(BinaryLogFormat.BLOCK_HEADER_SIZE);
+
+        writeFully(BinaryLogFormat.encodeHeader(header));
+        this.lastFlushNanos = System.nanoTime();
+    }
+
+    /**
+     * Acrescenta um registro e grava o bloco se o limite de registros ou de tempo foi atingido
+     */
+    public void write(BinaryLogFormat.Record record) throws IOException {
+        record.writeTo(block);
+        pendingRecords++;
+        if (pendingRecords >= blockRecords || System.nanoTime() - lastFlushNanos >= maxDelayNanos) {
+            flush();
+        }
+    }
+
+    /**
+     * Grava o bloco pendente, com fsync se a política for PER_BATCH
+     */
+    public void flush() throws IOException {
+        writeBlock();
+        lastFlushNanos = System.nanoTime();
+        if (syncPolicy == BatchedCsvWriter.SyncPolicy.PER_BATCH) {
+            sync();
+        }
+    }
+
+    /**
+     * Grava o pendente e faz fsync independente da política (checkpoint do journal)
+     */
+    public void flushAndSync() throws IOException {
+        flush();
+        if (syncPolicy != BatchedCsvWriter.SyncPolicy.PER_BATCH) {
+            sync();
+        }
+    }
+
+    /**
+     * Grava o que estiver pendente e fecha o arquivo
+     * Exceto com SyncPolicy.NONE, faz fsync antes de fechar
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBlock();
+            if (syncPolicy != BatchedCsvWriter.SyncPolicy.NONE) {
+                sync();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (pendingRecords == 0) {
+            return;
+        }
+        int payloadSize = pendingRecords * BinaryLogFormat.RECORD_SIZE;
+        crc.reset();
+        crc.update(block.array(), block.arrayOffset() + BinaryLogFormat.BLOCK_HEADER_SIZE, payloadSize);
+        block.putInt(0, pendingRecords);
+        block.putInt(4, (int) crc.getValue());
+
+        block.flip();
+        writeFully(block);
+        block.clear();
+        block.position(BinaryLogFormat.BLOCK_HEADER_SIZE);
+        pendingRecords = 0;
+        writeCount++;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+    }
+
+    private void sync() throws IOException {
+        channel.force(false);
+        syncCount++;
+    }
+
+    /**
+     * Número de blocos gravados
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * Número de chamadas de fsync
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Tamanho do arquivo incluindo o bloco pendente
+     */
+    public long getByteCount() {
+        long pending = pendingRecords == 0 ? 0
+                : BinaryLogFormat.BLOCK_HEADER_SIZE + (long) pendingRecords * BinaryLogFormat.RECORD_SIZE;
+        return bytesWritten + pending;
+    }
+}
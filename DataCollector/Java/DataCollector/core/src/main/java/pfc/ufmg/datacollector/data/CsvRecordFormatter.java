@@ -0,0 +1,79 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.IOException;
+
+/**
+ * Formatação de um registro no layout CSV das gravações (ver RecordingConverter.CSV_HEADER)
+ * Cada coluna tem uma quantidade fixa de casas decimais; os números vão direto
+ * para o buffer do BatchedCsvWriter
+ */
+public final class CsvRecordFormatter {
+
+    // Casas decimais padrão por coluna
+    public static final int DEFAULT_ACCEL_DECIMALS = 4;    // m/s²
+    public static final int DEFAULT_SPEED_DECIMALS = 2;    // km/h
+    public static final int DEFAULT_HEADING_DECIMALS = 2;  // graus
+    public static final int DEFAULT_ALTITUDE_DECIMALS = 2; // m
+    public static final int DEFAULT_RTC_DECIMALS = 3;      // s
+
+    private int accelDecimals = DEFAULT_ACCEL_DECIMALS;
+    private int speedDecimals = DEFAULT_SPEED_DECIMALS;
+    private int headingDecimals = DEFAULT_HEADING_DECIMALS;
+    private int altitudeDecimals = DEFAULT_ALTITUDE_DECIMALS;
+    private int rtcDecimals = DEFAULT_RTC_DECIMALS;
+
+    /**
+     * Configura as casas decimais de cada coluna
+     */
+    public void setPrecision(int accelDecimals, int speedDecimals, int headingDecimals,
+                             int altitudeDecimals, int rtcDecimals) {
+        this.accelDecimals = accelDecimals;
+        this.speedDecimals = speedDecimals;
+        this.headingDecimals = headingDecimals;
+        this.altitudeDecimals = altitudeDecimals;
+        this.rtcDecimals = rtcDecimals;
+    }
+
+    /**
+     * Escreve um registro completo e o encerra (endRecord)
+     * Sem acelerômetro as três colunas ficam vazias; sem GNSS as quatro colunas ficam com " "
+     * @param monotonicNanos instante da amostra no relógio monotônico (elapsedRealtimeNanos)
+     */
+    public void write(BatchedCsvWriter writer, int contreg,
+                      boolean hasAccel, double accelX, double accelY, double accelZ,
+                      boolean hasGnss, int gpsFix, double gpsSpeed, double gpsDirection,
+                      double gpsAlt, double rtcTime, long monotonicNanos) throws IOException {
+        writer.appendLong(contreg);
+        writer.append(',');
+
+        if (hasAccel) {
+            writer.appendFixed(accelX, accelDecimals);
+            writer.append(',');
+            writer.appendFixed(accelY, accelDecimals);
+            writer.append(',');
+            writer.appendFixed(accelZ, accelDecimals);
+            writer.append(',');
+        } else {
+            writer.append(",,,");
+        }
+
+        if (hasGnss) {
+            writer.appendLong(gpsFix);
+            writer.append(',');
+            writer.appendFixed(gpsSpeed, speedDecimals);
+            writer.append(',');
+            writer.appendFixed(gpsDirection, headingDecimals);
+            writer.append(',');
+            writer.appendFixed(gpsAlt, altitudeDecimals);
+            writer.append(',');
+        } else {
+            writer.append(" , , , ,");
+        }
+        writer.appendFixed(rtcTime, rtcDecimals);
+        writer.append(',');
+        writer.appendLong(monotonicNanos);
+
+        writer.append('\n');
+        writer.endRecord();
+    }
+}
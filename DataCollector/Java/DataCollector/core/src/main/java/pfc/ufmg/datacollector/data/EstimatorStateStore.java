@@ -0,0 +1,171 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+
+/**
+ * Estado do estimador de atitude guardado entre gravações, numa pasta privada do app
+ * - "base.estimator": estado completo de uma sessão (AttitudeEstimator.saveState), para retomar
+ *   a sessão interrompida sem esperar nova convergência; apagado quando a sessão é encerrada
+ * - "chave.mount": perfil de montagem por aparelho/veículo, só com a atitude (roll, pitch e yaw),
+ *   para uma nova sessão no mesmo suporte já começar com os ângulos (AttitudeEstimator.warmStart)
+ * Os arquivos são substituídos de forma atômica (temporário + rename)
+ */
+public final class EstimatorStateStore {
+
+    public static final String STATE_EXTENSION = ".estimator";
+    public static final String PROFILE_EXTENSION = ".mount";
+
+    static final String PROFILE_HEADER = "phi,theta,psi\n";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+
+    public EstimatorStateStore(File directory) {
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Salva o estado completo do estimador para a sessão
+     */
+    public void saveSession(String baseName, AttitudeEstimator estimator) throws IOException {
+        writeAtomically(sessionFile(baseName), estimator.saveState());
+    }
+
+    /**
+     * Restaura no estimador o estado salvo para a sessão
+     * @return false se não há estado salvo
+     * @throws IOException se o estado estiver corrompido ou for de outros parâmetros (estimador não alterado)
+     */
+    public boolean restoreSession(String baseName, AttitudeEstimator estimator) throws IOException {
+        File file = sessionFile(baseName);
+        if (!file.exists()) {
+            return false;
+        }
+        try {
+            estimator.restoreState(Files.readAllBytes(file.toPath()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Estado inválido em " + file + ": " + e.getMessage(), e);
+        }
+        return true;
+    }
+
+    public void deleteSession(String baseName) {
+        sessionFile(baseName).delete();
+    }
+
+    /**
+     * Grava o perfil de montagem com a atitude atual
+     * @return false se roll e pitch ainda não foram estimados (nada é gravado)
+     */
+    public boolean saveProfile(String key, AttitudeEstimator.AttitudeResult attitude) throws IOException {
+        if (!attitude.phiAvailable || !attitude.thetaAvailable) {
+            return false;
+        }
+        String text = PROFILE_HEADER + attitude.phiRadians + ',' + attitude.thetaRadians + ','
+                + attitude.psiRadians + '\n';
+        writeAtomically(profileFile(key), text.getBytes(StandardCharsets.US_ASCII));
+        return true;
+    }
+
+    /**
+     * Inicia o estimador com o perfil de montagem da chave
+     * @return false se não há perfil para a chave
+     */
+    public boolean warmStart(String key, AttitudeEstimator estimator) throws IOException {
+        double[] angles = readProfile(key);
+        if (angles == null) {
+            return false;
+        }
+        estimator.warmStart(angles[0], angles[1], angles[2]);
+        return true;
+    }
+
+    /**
+     * Ângulos do perfil (rad): {phi, theta, psi}, psi = 1234 se o perfil não tem yaw
+     * @return null se não há perfil para a chave
+     */
+    public double[] readProfile(String key) throws IOException {
+        File file = profileFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            String header = reader.readLine();
+            String line = reader.readLine();
+            if (header == null || !PROFILE_HEADER.trim().equals(header.trim()) || line == null) {
+                throw new IOException("Perfil de montagem inválido: " + file);
+            }
+            String[] fields = line.split(",", -1);
+            if (fields.length != 3) {
+                throw new IOException("Perfil de montagem inválido: " + file);
+            }
+            double[] angles = new double[3];
+            for (int i = 0; i < 3; i++) {
+                angles[i] = Double.parseDouble(fields[i].trim());
+                if (Double.isNaN(angles[i]) || Double.isInfinite(angles[i])) {
+                    throw new IOException("Perfil de montagem inválido: " + file);
+                }
+            }
+            return angles;
+        } catch (NumberFormatException e) {
+            throw new IOException("Perfil de montagem inválido: " + file, e);
+        }
+    }
+
+    public void deleteProfile(String key) {
+        profileFile(key).delete();
+    }
+
+    File sessionFile(String baseName) {
+        return new File(directory, baseName + STATE_EXTENSION);
+    }
+
+    File profileFile(String key) {
+        return new File(directory, sanitize(key) + PROFILE_EXTENSION);
+    }
+
+    /**
+     * Chave como nome de arquivo (modelo do aparelho e veículo podem ter espaços e símbolos)
+     */
+    static String sanitize(String key) {
+        StringBuilder name = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            boolean plain = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_';
+            name.append(plain ? c : '_');
+        }
+        return name.length() > 0 ? name.toString() : "_";
+    }
+
+    /**
+     * Temporário + rename, sem fsync: um arquivo estragado por queda de energia é recusado
+     * pelo CRC (estado) ou pela leitura (perfil) e o estimador começa do zero
+     */
+    private void writeAtomically(File file, byte[] content) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Falha ao criar " + directory);
+        }
+        File temp = new File(directory, file.getName() + TEMP_SUFFIX);
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            output.write(content);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Falha ao renomear " + temp + " para " + file);
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.EstimatorConfig;
+
+/**
+ * Calibração dos parâmetros do AttitudeEstimator por varredura (grade ou busca aleatória)
+ * Cada configuração é avaliada em todas as gravações com atitude conhecida; as configurações
+ * são distribuídas num ForkJoinPool e as gravações, carregadas uma vez em colunas, são
+ * compartilhadas entre as threads
+ *
+ * Uso: java ... ParameterSweep <diretório> [configurações] [semente]
+ */
+public class ParameterSweep {
+
+    /**
+     * Atitude de montagem conhecida das gravações do diretório:
+     * arquivo,phi,theta,psi (graus; campo vazio = ângulo desconhecido)
+     */
+    public static final String GROUND_TRUTH_FILE = "ground_truth.csv";
+
+    public static final double DEFAULT_TOLERANCE_DEGREES = 2.0;
+
+    // Erro atribuído a um ângulo que não chegou a ser estimado
+    public static final double MISSING_ERROR_DEGREES = 180.0;
+
+    private static final int TOP_RESULTS = 10;
+
+    /**
+     * Gravação com a atitude esperada (graus, NaN = desconhecido)
+     */
+    public static final class Recording {
+        public final SampleColumns columns;
+        public final double phi;
+        public final double theta;
+        public final double psi;
+
+        public Recording(SampleColumns columns, double phi, double theta, double psi) {
+            if (Double.isNaN(phi) && Double.isNaN(theta) && Double.isNaN(psi)) {
+                throw new IllegalArgumentException("Nenhum ângulo conhecido para " + columns.getName());
+            }
+            this.columns = columns;
+            this.phi = phi;
+            this.theta = theta;
+            this.psi = psi;
+        }
+    }
+
+    /**
+     * Desempenho de uma configuração no conjunto de gravações
+     * Ordenação: mais gravações convergidas, menor tempo médio de convergência, menor erro médio
+     */
+    public static final class Result implements Comparable<Result> {
+        public final EstimatorConfig config;
+        public final int recordings;
+        // Gravações cujo erro final ficou dentro da tolerância
+        public final int convergedRecordings;
+        // Tempo até o erro entrar (e permanecer) na tolerância; sem convergência conta a duração inteira
+        public final double meanConvergenceSeconds;
+        // Erro final do pior ângulo de cada gravação
+        public final double meanErrorDegrees;
+        public final double maxErrorDegrees;
+
+        Result(EstimatorConfig config, int recordings, int convergedRecordings,
+               double meanConvergenceSeconds, double meanErrorDegrees, double maxErrorDegrees) {
+            this.config = config;
+            this.recordings = recordings;
+            this.convergedRecordings = convergedRecordings;
+            this.meanConvergenceSeconds = meanConvergenceSeconds;
+            this.meanErrorDegrees = meanErrorDegrees;
+            this.maxErrorDegrees = maxErrorDegrees;
+        }
+
+        @Override
+        public int compareTo(Result other) {
+            if (convergedRecordings != other.convergedRecordings) {
+                return Integer.compare(other.convergedRecordings, convergedRecordings);
+            }
+            int byTime = Double.compare(meanConvergenceSeconds, other.meanConvergenceSeconds);
+            return byTime != 0 ? byTime : Double.compare(meanErrorDegrees, other.meanErrorDegrees);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d/%d convergidas, %.1f s, erro médio %.2f°, máx %.2f° [%s]",
+                    convergedRecordings, recordings, meanConvergenceSeconds,
+                    meanErrorDegrees, maxErrorDegrees, config);
+        }
+    }
+
+    private final List<Recording> recordings;
+    // Amostras da maior gravação (tamanho da saída de processSamples)
+    private final int maxLength;
+    private double toleranceDegrees = DEFAULT_TOLERANCE_DEGREES;
+
+    public ParameterSweep(List<Recording> recordings) {
+        if (recordings.isEmpty()) {
+            throw new IllegalArgumentException("Nenhuma gravação para avaliar");
+        }
+        this.recordings = new ArrayList<>(recordings);
+        int longest = 0;
+        for (Recording recording : recordings) {
+            longest = Math.max(longest, recording.columns.length());
+        }
+        this.maxLength = longest;
+    }
+
+    /**
+     * Erro máximo (graus) para considerar um ângulo convergido
+     */
+    public void setTolerance(double degrees) {
+        this.toleranceDegrees = degrees;
+    }
+
+    /**
+     * Carrega as gravações listadas no GROUND_TRUTH_FILE do diretório
+     * Arquivos do diretório que não constam no gabarito são ignorados
+     */
+    public static List<Recording> loadDirectory(File directory) throws IOException {
+        File truthFile = new File(directory, GROUND_TRUTH_FILE);
+        List<Recording> recordings = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(truthFile), StandardCharsets.UTF_8))) {
+            // Ignora o cabeçalho
+            String line = reader.readLine();
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) continue;
+                String[] fields = line.split(",", -1);
+                if (fields.length != 4) {
+                    throw new IOException(GROUND_TRUTH_FILE + ": linha " + lineNumber + " não tem 4 colunas");
+                }
+                try {
+                    recordings.add(new Recording(
+                            SampleColumns.load(new File(directory, fields[0].trim())),
+                            parseAngle(fields[1]), parseAngle(fields[2]), parseAngle(fields[3])));
+                } catch (NumberFormatException e) {
+                    throw new IOException(GROUND_TRUTH_FILE + ": valor inválido na linha " + lineNumber, e);
+                }
+            }
+        }
+        return recordings;
+    }
+
+    private static double parseAngle(String field) {
+        return field.trim().isEmpty() ? Double.NaN : Double.parseDouble(field.trim());
+    }
+
+    /**
+     * Avalia as configurações no pool comum
+     */
+    public List<Result> run(List<EstimatorConfig> configs) {
+        return run(configs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Avalia as configurações em paralelo
+     * @return resultados do melhor para o pior
+     */
+    public List<Result> run(List<EstimatorConfig> configs, ForkJoinPool pool) {
+        Result[] results = new Result[configs.size()];
+        if (results.length > 0) {
+            pool.invoke(new SweepTask(configs, results, 0, results.length));
+        }
+        Arrays.sort(results);
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Divide o intervalo de configurações até uma por tarefa
+     * Nunca é serializada (ForkJoinTask é Serializable só por herança)
+     */
+    @SuppressWarnings("serial")
+    private final class SweepTask extends RecursiveAction {
+        private final List<EstimatorConfig> configs;
+        private final Result[] results;
+        private final int from;
+        private final int to;
+
+        SweepTask(List<EstimatorConfig> configs, Result[] results, int from, int to) {
+            this.configs = configs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = evaluate(configs.get(from));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SweepTask(configs, results, from, mid),
+                    new SweepTask(configs, results, mid, to));
+        }
+    }
+
+    /**
+     * Avalia uma configuração em todas as gravações, na thread atual
+     * O mesmo estimador e a mesma saída por amostra são reutilizados entre gravações
+     */
+    public Result evaluate(EstimatorConfig config) {
+        AttitudeEstimator estimator = new AttitudeEstimator(config);
+        AttitudeEstimator.AttitudeTrace trace = new AttitudeEstimator.AttitudeTrace(maxLength);
+
+        int converged = 0;
+        double convergenceSum = 0;
+        double errorSum = 0;
+        double maxError = 0;
+        for (Recording recording : recordings) {
+            SampleColumns columns = recording.columns;
+            estimator.reset();
+            columns.process(estimator, trace);
+
+            int convergedAt = convergedAt(recording, trace, columns.length());
+            double error = error(recording, estimator.getCurrentResult());
+            if (convergedAt >= 0) {
+                converged++;
+                convergenceSum += (convergedAt + 1) / AttitudeEstimator.FS;
+            } else {
+                convergenceSum += columns.length() / AttitudeEstimator.FS;
+            }
+            errorSum += error;
+            maxError = Math.max(maxError, error);
+        }
+        int n = recordings.size();
+        return new Result(config, n, converged, convergenceSum / n, errorSum / n, maxError);
+    }
+
+    /**
+     * Amostra a partir da qual o erro entrou na tolerância sem voltar a sair, conferido
+     * em cada atualização do estimador
+     * @return -1 se o erro terminou fora da tolerância
+     */
+    private int convergedAt(Recording recording, AttitudeEstimator.AttitudeTrace trace, int length) {
+        int convergedAt = -1;
+        for (int i = 0; i < length; i++) {
+            if ((trace.flags[i] & AttitudeEstimator.AttitudeTrace.FLAG_UPDATE) == 0) {
+                continue;
+            }
+            if (error(recording, trace.get(i)) <= toleranceDegrees) {
+                if (convergedAt < 0) {
+                    convergedAt = i;
+                }
+            } else {
+                convergedAt = -1;
+            }
+        }
+        return convergedAt;
+    }
+
+    /**
+     * Maior erro entre os ângulos conhecidos da gravação
+     */
+    static double error(Recording recording, AttitudeEstimator.AttitudeResult result) {
+        double error = 0;
+        if (!Double.isNaN(recording.phi)) {
+            error = Math.max(error, angleError(result.phiAvailable, result.phiDegrees, recording.phi));
+        }
+        if (!Double.isNaN(recording.theta)) {
+            error = Math.max(error, angleError(result.thetaAvailable, result.thetaDegrees, recording.theta));
+        }
+        if (!Double.isNaN(recording.psi)) {
+            error = Math.max(error, angleError(result.psiAvailable, result.psiDegrees, recording.psi));
+        }
+        return error;
+    }
+
+    /**
+     * Diferença angular em graus, no intervalo [0, 180]
+     */
+    static double angleError(boolean available, double estimate, double expected) {
+        if (!available) {
+            return MISSING_ERROR_DEGREES;
+        }
+        double diff = Math.abs(estimate - expected) % 360.0;
+        return diff > 180.0 ? 360.0 - diff : diff;
+    }
+
+    /**
+     * Espaço de busca: valores candidatos de cada parâmetro
+     * Parâmetros sem valores ficam com o valor da configuração base
+     */
+    public static final class Space {
+        private final EstimatorConfig base;
+        private double[] vlow;
+        private double[] ahigh;
+        private double[] alow;
+        private double[] fc;
+        private int[] filterOrder;
+        private int[] naccelGrav;
+        private double[] gpsFilterDelay;
+
+        public Space(EstimatorConfig base) {
+            this.base = base;
+            this.vlow = new double[]{base.getVlow()};
+            this.ahigh = new double[]{base.getAhigh()};
+            this.alow = new double[]{base.getAlow()};
+            this.fc = new double[]{base.getFc()};
+            this.filterOrder = new int[]{base.getFilterOrder()};
+            this.naccelGrav = new int[]{base.getNaccelGrav()};
+            this.gpsFilterDelay = new double[]{base.getGpsFilterDelay()};
+        }
+
+        public Space setVlow(double... values) {
+            vlow = checked(values);
+            return this;
+        }
+
+        public Space setAhigh(double... values) {
+            ahigh = checked(values);
+            return this;
+        }
+
+        public Space setAlow(double... values) {
+            alow = checked(values);
+            return this;
+        }
+
+        public Space setFc(double... values) {
+            fc = checked(values);
+            return this;
+        }
+
+        public Space setFilterOrder(int... values) {
+            if (values.length == 0) {
+                throw new IllegalArgumentException("Lista de valores vazia");
+            }
+            filterOrder = values.clone();
+            return this;
+        }
+
+        public Space setNaccelGrav(int... values) {
+            if (values.length == 0) {
+                throw new IllegalArgumentException("Lista de valores vazia");
+            }
+            naccelGrav = values.clone();
+            return this;
+        }
+
+        public Space setGpsFilterDelay(double... values) {
+            gpsFilterDelay = checked(values);
+            return this;
+        }
+
+        private static double[] checked(double[] values) {
+            if (values.length == 0) {
+                throw new IllegalArgumentException("Lista de valores vazia");
+            }
+            return values.clone();
+        }
+
+        /**
+         * Produto cartesiano de todos os valores
+         */
+        public List<EstimatorConfig> grid() {
+            int[] sizes = {vlow.length, ahigh.length, alow.length, fc.length,
+                    filterOrder.length, naccelGrav.length, gpsFilterDelay.length};
+            long total = 1;
+            for (int size : sizes) {
+                total *= size;
+            }
+            if (total > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Grade grande demais: " + total + " configurações");
+            }
+
+            List<EstimatorConfig> configs = new ArrayList<>((int) total);
+            int[] index = new int[sizes.length];
+            for (int n = 0; n < total; n++) {
+                configs.add(base.toBuilder()
+                        .setVlow(vlow[index[0]])
+                        .setAhigh(ahigh[index[1]])
+                        .setAlow(alow[index[2]])
+                        .setFc(fc[index[3]])
+                        .setFilterOrder(filterOrder[index[4]])
+                        .setNaccelGrav(naccelGrav[index[5]])
+                        .setGpsFilterDelay(gpsFilterDelay[index[6]])
+                        .build());
+                // Incrementa o índice em base mista, último parâmetro variando mais rápido
+                for (int k = sizes.length - 1; k >= 0 && ++index[k] == sizes[k]; k--) {
+                    index[k] = 0;
+                }
+            }
+            return configs;
+        }
+
+        /**
+         * Busca aleatória: cada parâmetro é sorteado uniformemente entre o menor
+         * e o maior dos seus valores (inteiros inclusive)
+         */
+        public List<EstimatorConfig> random(int count, long seed) {
+            Random random = new Random(seed);
+            List<EstimatorConfig> configs = new ArrayList<>(count);
+            for (int n = 0; n < count; n++) {
+                configs.add(base.toBuilder()
+                        .setVlow(uniform(random, vlow))
+                        .setAhigh(uniform(random, ahigh))
+                        .setAlow(uniform(random, alow))
+                        .setFc(uniform(random, fc))
+                        .setFilterOrder(uniform(random, filterOrder))
+                        .setNaccelGrav(uniform(random, naccelGrav))
+                        .setGpsFilterDelay(uniform(random, gpsFilterDelay))
+                        .build());
+            }
+            return configs;
+        }
+
+        private static double uniform(Random random, double[] values) {
+            double min = Arrays.stream(values).min().getAsDouble();
+            double max = Arrays.stream(values).max().getAsDouble();
+            return min + random.nextDouble() * (max - min);
+        }
+
+        private static int uniform(Random random, int[] values) {
+            int min = Arrays.stream(values).min().getAsInt();
+            int max = Arrays.stream(values).max().getAsInt();
+            return min + random.nextInt(max - min + 1);
+        }
+    }
+
+    /**
+     * Busca aleatória em torno dos valores padrão sobre as gravações de um diretório
+     * Argumentos: diretório com GROUND_TRUTH_FILE, número de configurações (1000), semente (1)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: ParameterSweep <diretório> [configurações] [semente]");
+            System.exit(2);
+        }
+        File directory = new File(args[0]);
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        long start = System.nanoTime();
+        ParameterSweep sweep = new ParameterSweep(loadDirectory(directory));
+        long loaded = System.nanoTime();
+
+        List<EstimatorConfig> configs = new ArrayList<>();
+        configs.add(EstimatorConfig.DEFAULT);
+        configs.addAll(new Space(EstimatorConfig.DEFAULT)
+                .setVlow(5, 25)
+                .setAhigh(0.05, 0.3)
+                .setAlow(0.03, 0.15)
+                .setFc(0.1, 1.0)
+                .setFilterOrder(31, 127)
+                .setNaccelGrav(100, 300)
+                .setGpsFilterDelay(0.5, 2.5)
+                .random(count, seed));
+        List<Result> results = sweep.run(configs);
+        long done = System.nanoTime();
+
+        System.out.printf(Locale.US, "%d gravações carregadas em %.0f ms; %d configurações avaliadas em %.0f ms (%d threads)%n",
+                sweep.recordings.size(), (loaded - start) / 1e6, configs.size(), (done - loaded) / 1e6,
+                ForkJoinPool.commonPool().getParallelism());
+        for (int i = 0; i < Math.min(TOP_RESULTS, results.size()); i++) {
+            System.out.println((i + 1) + ". " + results.get(i));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).config.equals(EstimatorConfig.DEFAULT)) {
+                System.out.println("Padrão: " + (i + 1) + ". " + results.get(i));
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Conversão entre gravações CSV (layout do LogDataManager) e o formato binário
+ * e exportação de sessões segmentadas para um único CSV
+ * Todas as conversões processam um registro por vez, sem carregar o arquivo em memória
+ */
+public final class RecordingConverter {
+
+    // t_mono_ns: instante da amostra no relógio monotônico do aparelho (vazio se desconhecido)
+    public static final String CSV_HEADER =
+            "contreg,eixox,eixoy,eixoz,gps_fix,gps_speed,gps_direction,gps_alt,gps_rtc,t_mono_ns\n";
+
+    private static final int COLUMNS = 10;
+    // Gravações anteriores ao timestamp monotônico
+    private static final int LEGACY_COLUMNS = 9;
+    private static final int BLOCK_RECORDS = 1024;
+    private static final int CSV_BUFFER_SIZE = 64 * 1024;
+
+    private RecordingConverter() {
+    }
+
+    /**
+     * Converte um CSV para o formato binário
+     * Campos de acelerômetro ou GNSS vazios viram registros sem a flag correspondente;
+     * CSVs sem a coluna t_mono_ns (ou com ela vazia) ficam com timestamp 0 (desconhecido)
+     * @return número de registros convertidos
+     */
+    public static int csvToBinary(File csv, File binary, double sampleRateHz) throws IOException {
+        BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+        int[] starts = new int[COLUMNS];
+        int[] ends = new int[COLUMNS];
+        int count = 0;
+
+        BinaryLogWriter writer = new BinaryLogWriter(binary, sampleRateHz, BLOCK_RECORDS,
+                Long.MAX_VALUE / 1_000_000L, BatchedCsvWriter.SyncPolicy.ON_STOP);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(csv), StandardCharsets.UTF_8))) {
+            // Ignora o cabeçalho
+            String line = reader.readLine();
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                int columns = splitFields(line, starts, ends);
+                if (columns != COLUMNS && columns != LEGACY_COLUMNS) {
+                    throw new IOException("Linha " + lineNumber + " não tem " + COLUMNS + " colunas");
+                }
+                try {
+                    record.contreg = (int) parseDouble(line, starts[0], ends[0]);
+                    record.hasAccel = !isBlank(line, starts[1], ends[1]);
+                    record.accelX = record.hasAccel ? parseDouble(line, starts[1], ends[1]) : 0;
+                    record.accelY = record.hasAccel ? parseDouble(line, starts[2], ends[2]) : 0;
+                    record.accelZ = record.hasAccel ? parseDouble(line, starts[3], ends[3]) : 0;
+                    record.hasGnss = !isBlank(line, starts[4], ends[4]);
+                    record.gpsFix = record.hasGnss ? (int) parseDouble(line, starts[4], ends[4]) : 0;
+                    record.gpsSpeed = record.hasGnss ? parseDouble(line, starts[5], ends[5]) : 0;
+                    record.gpsDirection = record.hasGnss ? parseDouble(line, starts[6], ends[6]) : 0;
+                    record.gpsAlt = record.hasGnss ? parseDouble(line, starts[7], ends[7]) : 0;
+                    record.gpsRtc = parseDouble(line, starts[8], ends[8]);
+                    record.monotonicNanos = columns == COLUMNS && !isBlank(line, starts[9], ends[9])
+                            ? Long.parseLong(line.substring(starts[9], ends[9]).trim()) : 0;
+                } catch (NumberFormatException e) {
+                    throw new IOException("Valor inválido na linha " + lineNumber, e);
+                }
+                writer.write(record);
+                count++;
+            }
+        } finally {
+            writer.close();
+        }
+        return count;
+    }
+
+    /**
+     * Converte uma gravação binária para CSV, no mesmo layout gravado pelo LogDataManager
+     * Os valores são escritos com precisão total (Double.toString)
+     * @return número de registros convertidos
+     */
+    public static int binaryToCsv(File binary, File csv) throws IOException {
+        return toCsv(binary, csv);
+    }
+
+    /**
+     * Exporta uma gravação para um único CSV
+     * Aceita gravação CSV ou binária, segmento comprimido (.gz) ou manifesto de sessão (.session);
+     * os segmentos da sessão são concatenados com um só cabeçalho
+     * @return número de registros exportados
+     */
+    public static int toCsv(File recording, File csv) throws IOException {
+        List<File> sources = SessionManifest.isManifest(recording)
+                ? SessionManifest.segmentFiles(recording)
+                : Collections.singletonList(recording);
+        BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+        int count = 0;
+
+        BatchedCsvWriter writer = new BatchedCsvWriter(csv, CSV_BUFFER_SIZE, Integer.MAX_VALUE,
+                Long.MAX_VALUE / 1_000_000L, BatchedCsvWriter.SyncPolicy.NONE);
+        try {
+            writer.append(CSV_HEADER);
+            for (File source : sources) {
+                try (BufferedInputStream input = new BufferedInputStream(SegmentCompression.open(source))) {
+                    if (isBinary(input)) {
+                        BinaryLogReader reader = new BinaryLogReader(Channels.newChannel(input));
+                        while (reader.next(record)) {
+                            writeCsvRecord(writer, record);
+                            count++;
+                        }
+                    } else {
+                        count += copyCsvRecords(input, writer);
+                    }
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        return count;
+    }
+
+    /**
+     * Identifica o formato binário pelo número mágico, sem consumir o stream
+     */
+    private static boolean isBinary(BufferedInputStream input) throws IOException {
+        byte[] magic = new byte[4];
+        input.mark(magic.length);
+        int read = 0;
+        int n;
+        while (read < magic.length && (n = input.read(magic, read, magic.length - read)) > 0) {
+            read += n;
+        }
+        input.reset();
+        return read == magic.length
+                && ByteBuffer.wrap(magic).order(BinaryLogFormat.ORDER).getInt() == BinaryLogFormat.MAGIC;
+    }
+
+    /**
+     * Copia as linhas de um CSV gravado, sem o cabeçalho e sem linhas vazias
+     * Linhas sem a coluna t_mono_ns ganham a coluna vazia, para o CSV exportado ter um só layout
+     * @return número de registros copiados
+     */
+    private static int copyCsvRecords(InputStream input, BatchedCsvWriter writer) throws IOException {
+        int count = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        // Ignora o cabeçalho (o formato de cada linha é identificado pelo número de colunas)
+        String line = reader.readLine();
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            writer.append(line);
+            if (countFields(line) == LEGACY_COLUMNS) {
+                writer.append(',');
+            }
+            writer.append('\n');
+            writer.endRecord();
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeCsvRecord(BatchedCsvWriter writer, BinaryLogFormat.Record record)
+            throws IOException {
+        writer.appendLong(record.contreg);
+        writer.append(',');
+        if (record.hasAccel) {
+            writer.append(Double.toString(record.accelX));
+            writer.append(',');
+            writer.append(Double.toString(record.accelY));
+            writer.append(',');
+            writer.append(Double.toString(record.accelZ));
+            writer.append(',');
+        } else {
+            writer.append(",,,");
+        }
+        if (record.hasGnss) {
+            writer.appendLong(record.gpsFix);
+            writer.append(',');
+            writer.append(Double.toString(record.gpsSpeed));
+            writer.append(',');
+            writer.append(Double.toString(record.gpsDirection));
+            writer.append(',');
+            writer.append(Double.toString(record.gpsAlt));
+            writer.append(',');
+        } else {
+            writer.append(" , , , ,");
+        }
+        writer.append(Double.toString(record.gpsRtc));
+        writer.append(',');
+        if (record.monotonicNanos != 0) {
+            writer.appendLong(record.monotonicNanos);
+        }
+        writer.append('\n');
+        writer.endRecord();
+    }
+
+    /**
+     * Localiza os campos separados por vírgula sem criar substrings
+     * @return número de campos encontrados
+     */
+    private static int splitFields(String line, int[] starts, int[] ends) {
+        int field = 0;
+        int start = 0;
+        for (int i = 0; i <= line.length(); i++) {
+            if (i == line.length() || line.charAt(i) == ',') {
+                if (field < starts.length) {
+                    starts[field] = start;
+                    ends[field] = i;
+                }
+                field++;
+                start = i + 1;
+            }
+        }
+        return field;
+    }
+
+    private static int countFields(String line) {
+        int fields = 1;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == ',') {
+                fields++;
+            }
+        }
+        return fields;
+    }
+
+    private static boolean isBlank(String line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double parseDouble(String line, int start, int end) {
+        return Double.parseDouble(line.substring(start, end).trim());
+    }
+}
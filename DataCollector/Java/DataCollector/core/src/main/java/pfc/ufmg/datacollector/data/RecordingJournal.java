@@ -0,0 +1,142 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Journal de uma sessão em gravação: checkpoints periódicos do que já está durável no disco
+ * Arquivo "base.journal" com dois slots de tamanho fixo gravados alternadamente, cada um com
+ * número de sequência e CRC32; uma escrita interrompida estraga no máximo um slot e o outro
+ * continua válido. Ler o último checkpoint custa duas leituras, independente da duração da sessão
+ * O journal só existe enquanto a sessão está aberta: fechar a gravação normalmente o apaga
+ *
+ * Slot (little-endian):
+ *   int64 sequência, int32 índice do segmento, int32 registros no segmento,
+ *   int32 registros na sessão, int64 bytes do segmento, int64 relógio monotônico (ns),
+ *   float64 tempo da sessão (s), int32 CRC32 dos bytes anteriores
+ */
+public class RecordingJournal implements AutoCloseable {
+
+    public static final String EXTENSION = ".journal";
+
+    static final int SLOT_SIZE = 64;
+    // Bytes do slot cobertos pelo CRC
+    private static final int PAYLOAD_SIZE = 8 + 4 + 4 + 4 + 8 + 8 + 8;
+
+    /**
+     * Estado durável da sessão num instante
+     */
+    public static final class Checkpoint {
+        public final long sequence;
+        public final int segmentIndex;
+        // Registros completos no segmento e na sessão (inclui segmentos anteriores)
+        public final int segmentRecords;
+        public final int totalRecords;
+        // Tamanho do segmento até o último registro completo (gravado com fsync)
+        public final long segmentBytes;
+        // Relógio monotônico do aparelho no checkpoint (elapsedRealtimeNanos)
+        public final long monotonicNanos;
+        // Tempo do último registro desde o início da sessão (mesma base de gps_rtc)
+        public final double sessionSeconds;
+
+        public Checkpoint(long sequence, int segmentIndex, int segmentRecords, int totalRecords,
+                          long segmentBytes, long monotonicNanos, double sessionSeconds) {
+            this.sequence = sequence;
+            this.segmentIndex = segmentIndex;
+            this.segmentRecords = segmentRecords;
+            this.totalRecords = totalRecords;
+            this.segmentBytes = segmentBytes;
+            this.monotonicNanos = monotonicNanos;
+            this.sessionSeconds = sessionSeconds;
+        }
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE).order(BinaryLogFormat.ORDER);
+    private final CRC32 crc = new CRC32();
+    private long sequence;
+
+    /**
+     * Abre (ou cria) o journal; a sequência continua a partir do último checkpoint válido
+     */
+    public RecordingJournal(File file) throws IOException {
+        Checkpoint latest = file.exists() ? readLatest(file) : null;
+        this.sequence = latest != null ? latest.sequence : 0;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Grava um checkpoint no slot mais antigo, com fsync
+     * Os dados descritos devem estar no disco antes (fsync do segmento)
+     */
+    public void write(int segmentIndex, int segmentRecords, int totalRecords, long segmentBytes,
+                      long monotonicNanos, double sessionSeconds) throws IOException {
+        sequence++;
+        slot.clear();
+        slot.putLong(sequence);
+        slot.putInt(segmentIndex);
+        slot.putInt(segmentRecords);
+        slot.putInt(totalRecords);
+        slot.putLong(segmentBytes);
+        slot.putLong(monotonicNanos);
+        slot.putDouble(sessionSeconds);
+        crc.reset();
+        crc.update(slot.array(), 0, PAYLOAD_SIZE);
+        slot.putInt((int) crc.getValue());
+        slot.clear();
+
+        long position = (sequence & 1) * SLOT_SIZE;
+        while (slot.hasRemaining()) {
+            position += channel.write(slot, position);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Último checkpoint válido do journal
+     * @return null se nenhum slot for válido (journal vazio ou corrompido)
+     */
+    public static Checkpoint readLatest(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE).order(BinaryLogFormat.ORDER);
+            Checkpoint latest = null;
+            for (int i = 0; i < 2; i++) {
+                Checkpoint checkpoint = readSlot(channel, i * SLOT_SIZE, buffer);
+                if (checkpoint != null && (latest == null || checkpoint.sequence > latest.sequence)) {
+                    latest = checkpoint;
+                }
+            }
+            return latest;
+        }
+    }
+
+    private static Checkpoint readSlot(FileChannel channel, long position, ByteBuffer buffer)
+            throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return null;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, PAYLOAD_SIZE);
+        if ((int) crc.getValue() != buffer.getInt(PAYLOAD_SIZE)) {
+            return null;
+        }
+        buffer.flip();
+        Checkpoint checkpoint = new Checkpoint(buffer.getLong(), buffer.getInt(), buffer.getInt(),
+                buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getDouble());
+        return checkpoint.sequence > 0 ? checkpoint : null;
+    }
+}
@@ -0,0 +1,266 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reparo de sessões interrompidas (app morto no meio da gravação), a partir do journal
+ * A leitura vai direto para o último checkpoint e examina só o que foi gravado depois dele
+ * (no máximo um intervalo de checkpoint), sem reler o arquivo: o fim do segmento é cortado
+ * no último registro completo e o manifesto passa a refletir os registros válidos
+ * Depois do reparo a sessão pode ser retomada (SegmentedRecordingWriter.resume) ou encerrada (close)
+ */
+public final class RecordingRecovery {
+
+    private static final int CSV_HEADER_SIZE =
+            RecordingConverter.CSV_HEADER.getBytes(StandardCharsets.US_ASCII).length;
+
+    private RecordingRecovery() {
+    }
+
+    /**
+     * Sessão reparada
+     */
+    public static final class Result {
+        public final File manifestFile;
+        public final File journalFile;
+        public final String baseName;
+        public final SegmentedRecordingWriter.Format format;
+        // Registros válidos na sessão, depois do reparo
+        public final int totalRecords;
+        // Registros completos encontrados depois do último checkpoint
+        public final int tailRecords;
+        // Bytes descartados do fim do segmento (registro incompleto ou lixo)
+        public final long truncatedBytes;
+        // Relógio monotônico e tempo da sessão no último checkpoint
+        public final long checkpointMonotonicNanos;
+        public final double sessionSeconds;
+
+        Result(File manifestFile, File journalFile, String baseName, SegmentedRecordingWriter.Format format,
+               int totalRecords, int tailRecords, long truncatedBytes,
+               long checkpointMonotonicNanos, double sessionSeconds) {
+            this.manifestFile = manifestFile;
+            this.journalFile = journalFile;
+            this.baseName = baseName;
+            this.format = format;
+            this.totalRecords = totalRecords;
+            this.tailRecords = tailRecords;
+            this.truncatedBytes = truncatedBytes;
+            this.checkpointMonotonicNanos = checkpointMonotonicNanos;
+            this.sessionSeconds = sessionSeconds;
+        }
+
+        /**
+         * Tempo da sessão para continuar a gravação agora
+         * No mesmo boot o intervalo parado é medido pelo relógio monotônico; depois de um reboot
+         * (relógio menor que o do checkpoint) continua logo após o último checkpoint
+         * @param monotonicNanos relógio monotônico atual (elapsedRealtimeNanos)
+         */
+        public double sessionSecondsAt(long monotonicNanos) {
+            if (monotonicNanos >= checkpointMonotonicNanos) {
+                return sessionSeconds + (monotonicNanos - checkpointMonotonicNanos) / 1e9;
+            }
+            return sessionSeconds;
+        }
+    }
+
+    /**
+     * Journals de sessões não encerradas na pasta, em ordem de nome (mais antigas primeiro)
+     */
+    public static List<File> findInterrupted(File directory) {
+        File[] journals = directory.listFiles((dir, name) -> name.endsWith(RecordingJournal.EXTENSION));
+        if (journals == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(journals);
+        return new ArrayList<>(Arrays.asList(journals));
+    }
+
+    /**
+     * Repara a sessão do journal: corta o último segmento no último registro completo
+     * e atualiza o manifesto; o journal é mantido até a sessão ser retomada ou encerrada
+     */
+    public static Result recover(File journalFile) throws IOException {
+        String name = journalFile.getName();
+        String baseName = name.substring(0, name.length() - RecordingJournal.EXTENSION.length());
+        File directory = journalFile.getAbsoluteFile().getParentFile();
+        File manifestFile = new File(directory, baseName + SessionManifest.EXTENSION);
+
+        SessionManifest manifest = SessionManifest.read(manifestFile);
+        List<SessionManifest.Segment> segments = manifest.getSegments();
+        if (segments.isEmpty()) {
+            throw new IOException("Sessão sem segmentos: " + manifestFile);
+        }
+        SegmentedRecordingWriter.Format format = formatOf(segments.get(0).fileName);
+
+        RecordingJournal.Checkpoint checkpoint = RecordingJournal.readLatest(journalFile);
+        if (checkpoint != null && checkpoint.segmentIndex >= segments.size()) {
+            // Journal à frente do manifesto: não dá para confiar na posição
+            checkpoint = null;
+        }
+        int index = checkpoint != null ? checkpoint.segmentIndex : segments.size() - 1;
+
+        // Segmentos listados depois do checkpoint foram abertos mas não receberam registros
+        for (int i = segments.size() - 1; i > index; i--) {
+            String fileName = segments.get(i).fileName;
+            new File(directory, fileName).delete();
+            new File(directory, fileName + SegmentCompression.EXTENSION).delete();
+        }
+        manifest.truncate(index + 1);
+
+        SessionManifest.Segment segment = segments.get(index);
+        File file = new File(directory, segment.fileName);
+        int tailRecords = 0;
+        long truncatedBytes = 0;
+        if (!SegmentCompression.isCompressed(file) && file.exists()) {
+            long offset = checkpoint != null ? checkpoint.segmentBytes : 0;
+            int checkpointRecords = checkpoint != null ? checkpoint.segmentRecords : 0;
+            try (FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long length = channel.size();
+                BinaryLogFormat.Header header = format == SegmentedRecordingWriter.Format.BINARY
+                        ? readBinaryHeader(file) : null;
+                long dataStart = header != null ? header.size() : CSV_HEADER_SIZE;
+                if (offset < dataStart || offset > length) {
+                    // Sem checkpoint utilizável no segmento: examina o segmento inteiro
+                    offset = dataStart;
+                    checkpointRecords = 0;
+                }
+                long[] tail = header != null
+                        ? scanBinaryTail(channel, header, offset, length)
+                        : scanCsvTail(channel, offset, length);
+                tailRecords = (int) tail[0];
+                long validEnd = tail[1];
+                if (validEnd < length) {
+                    channel.truncate(validEnd);
+                    channel.force(true);
+                    truncatedBytes = length - validEnd;
+                }
+            }
+            manifest.setSegment(index, segment.fileName, checkpointRecords + tailRecords);
+        }
+        manifest.write(manifestFile);
+
+        return new Result(manifestFile, journalFile, baseName, format, manifest.getTotalRecords(),
+                tailRecords, truncatedBytes,
+                checkpoint != null ? checkpoint.monotonicNanos : 0,
+                checkpoint != null ? checkpoint.sessionSeconds : 0);
+    }
+
+    /**
+     * Encerra uma sessão reparada: comprime os segmentos que ficaram sem compressão e apaga o journal
+     * Roda na thread que chamar (fora da thread de UI)
+     */
+    public static void close(Result recovered) throws IOException {
+        File directory = recovered.manifestFile.getAbsoluteFile().getParentFile();
+        SessionManifest manifest = SessionManifest.read(recovered.manifestFile);
+        List<SessionManifest.Segment> segments = manifest.getSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            SessionManifest.Segment segment = segments.get(i);
+            File file = new File(directory, segment.fileName);
+            if (SegmentCompression.isCompressed(file) || !file.exists()) {
+                continue;
+            }
+            File compressed = SegmentCompression.compress(file, SegmentCompression.DEFAULT_LEVEL);
+            manifest.setSegment(i, compressed.getName(), segment.records);
+            manifest.write(recovered.manifestFile);
+            if (!file.delete()) {
+                throw new IOException("Falha ao apagar " + file);
+            }
+        }
+        if (!recovered.journalFile.delete()) {
+            throw new IOException("Falha ao apagar " + recovered.journalFile);
+        }
+    }
+
+    private static SegmentedRecordingWriter.Format formatOf(String fileName) {
+        String plain = fileName.endsWith(SegmentCompression.EXTENSION)
+                ? fileName.substring(0, fileName.length() - SegmentCompression.EXTENSION.length())
+                : fileName;
+        return plain.endsWith(BinaryLogFormat.FILE_EXTENSION)
+                ? SegmentedRecordingWriter.Format.BINARY : SegmentedRecordingWriter.Format.CSV;
+    }
+
+    private static BinaryLogFormat.Header readBinaryHeader(File file) throws IOException {
+        try (BinaryLogReader reader = new BinaryLogReader(file)) {
+            return reader.getHeader();
+        }
+    }
+
+    /**
+     * Lê o trecho [offset, length) do segmento
+     */
+    private static ByteBuffer readTail(FileChannel channel, long offset, long length) throws IOException {
+        if (length - offset > Integer.MAX_VALUE) {
+            throw new IOException("Trecho final grande demais: " + (length - offset) + " bytes");
+        }
+        ByteBuffer tail = ByteBuffer.allocate((int) (length - offset)).order(BinaryLogFormat.ORDER);
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, offset + tail.position()) < 0) {
+                break;
+            }
+        }
+        tail.flip();
+        return tail;
+    }
+
+    /**
+     * Conta as linhas completas depois do offset
+     * Para no primeiro byte nulo (sistemas de arquivos podem deixar o fim preenchido com zeros)
+     * @return {registros, fim do último registro completo}
+     */
+    private static long[] scanCsvTail(FileChannel channel, long offset, long length) throws IOException {
+        ByteBuffer tail = readTail(channel, offset, length);
+        long records = 0;
+        int validEnd = 0;
+        boolean blankLine = true;
+        for (int i = 0; i < tail.limit(); i++) {
+            byte b = tail.get(i);
+            if (b == 0) {
+                break;
+            }
+            if (b == '\n') {
+                if (!blankLine) {
+                    records++;
+                }
+                validEnd = i + 1;
+                blankLine = true;
+            } else if (b > ' ') {
+                blankLine = false;
+            }
+        }
+        return new long[]{records, offset + validEnd};
+    }
+
+    /**
+     * Percorre os blocos depois do offset, parando no primeiro incompleto ou com checksum inválido
+     * @return {registros, fim do último bloco válido}
+     */
+    private static long[] scanBinaryTail(FileChannel channel, BinaryLogFormat.Header header,
+                                         long offset, long length) throws IOException {
+        ByteBuffer tail = readTail(channel, offset, length);
+        long records = 0;
+        int position = 0;
+        while (position + BinaryLogFormat.BLOCK_HEADER_SIZE <= tail.limit()) {
+            int count = tail.getInt(position);
+            int expectedCrc = tail.getInt(position + 4);
+            int payloadSize = count * header.recordSize();
+            if (count <= 0 || count > header.blockRecords
+                    || position + BinaryLogFormat.BLOCK_HEADER_SIZE + payloadSize > tail.limit()
+                    || BinaryLogFormat.crc(tail.array(), position + BinaryLogFormat.BLOCK_HEADER_SIZE,
+                    payloadSize) != expectedCrc) {
+                break;
+            }
+            records += count;
+            position += BinaryLogFormat.BLOCK_HEADER_SIZE + payloadSize;
+        }
+        return new long[]{records, offset + position};
+    }
+}
@@ -0,0 +1,471 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+
+/**
+ * Reprodução de gravações (CSV ou binária) no AttitudeEstimator
+ * Aceita também sessões segmentadas (manifesto .session) e segmentos comprimidos (.gz)
+ * O arquivo é mapeado em memória (segmentos .gz são descomprimidos para a memória) e os campos são lidos direto dos bytes mapeados,
+ * sem Strings intermediárias; a mesma SensorData é reutilizada para todas as amostras
+ * Roda na thread que chamar run(); cancel() pode ser chamado de qualquer thread
+ */
+public class RecordingReplayer {
+
+    // Progresso é reportado a cada ~1% do arquivo
+    private static final int PROGRESS_STEPS = 100;
+
+    private static final int CSV_COLUMNS = 10;
+
+    // Potências de 10 exatas em double (caminho rápido de conversão)
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    /**
+     * Progresso da reprodução, chamado na thread da reprodução
+     */
+    public interface ProgressListener {
+        void onProgress(int records, double fraction);
+    }
+
+    private final AttitudeEstimator estimator;
+    private final AttitudeEstimator.SensorData sample =
+            new AttitudeEstimator.SensorData(0, 0, 0, 0, 0, 0, 0, 0);
+    private ProgressListener progressListener;
+    private volatile boolean cancelled = false;
+
+    // Posição do cursor de leitura do CSV
+    private int cursor;
+
+    // Progresso do arquivo corrente dentro da sessão: fração = base + escala * posição relativa
+    private double progressBase = 0;
+    private double progressScale = 1;
+    private int recordOffset = 0;
+
+    public RecordingReplayer(AttitudeEstimator estimator) {
+        this.estimator = estimator;
+    }
+
+    public void setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+    }
+
+    /**
+     * Interrompe a reprodução em andamento na próxima amostra
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Reproduz o arquivo: gravação CSV ou binária, segmento .gz ou manifesto de sessão
+     * @return número de amostras processadas
+     */
+    public int run(File file) throws IOException {
+        int records = SessionManifest.isManifest(file) ? replaySession(file) : replayFile(file);
+        reportFinish(records);
+        return records;
+    }
+
+    /**
+     * Reproduz o conteúdo do canal (por exemplo de um ParcelFileDescriptor)
+     * O formato é identificado pelos primeiros bytes
+     * @return número de amostras processadas
+     */
+    public int run(FileChannel channel) throws IOException {
+        int records = replay(map(channel));
+        reportFinish(records);
+        return records;
+    }
+
+    /**
+     * Reproduz uma gravação lida de um stream (por exemplo um GZIPInputStream),
+     * carregando o conteúdo em memória
+     * @return número de amostras processadas
+     */
+    public int run(InputStream input) throws IOException {
+        int records = replay(SegmentCompression.readFully(input));
+        reportFinish(records);
+        return records;
+    }
+
+    /**
+     * Reproduz os segmentos do manifesto em sequência, como uma única gravação
+     */
+    private int replaySession(File manifestFile) throws IOException {
+        List<File> segments = SessionManifest.segmentFiles(manifestFile);
+        int records = 0;
+        try {
+            for (int i = 0; i < segments.size() && !cancelled; i++) {
+                progressBase = (double) i / segments.size();
+                progressScale = 1.0 / segments.size();
+                recordOffset = records;
+                records += replayFile(segments.get(i));
+            }
+        } finally {
+            progressBase = 0;
+            progressScale = 1;
+            recordOffset = 0;
+        }
+        return records;
+    }
+
+    private int replayFile(File file) throws IOException {
+        if (SegmentCompression.isCompressed(file)) {
+            try (InputStream input = SegmentCompression.open(file)) {
+                return replay(SegmentCompression.readFully(input));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return replay(map(channel));
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Arquivo grande demais para mapear: " + size + " bytes");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        buffer.order(BinaryLogFormat.ORDER);
+        return buffer;
+    }
+
+    /**
+     * Reproduz uma gravação em memória, identificando o formato pelos primeiros bytes
+     */
+    private int replay(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() >= 4 && buffer.getInt(0) == BinaryLogFormat.MAGIC) {
+            return replayBinary(buffer);
+        }
+        return replayCsv(buffer);
+    }
+
+    private int replayBinary(ByteBuffer buffer) throws IOException {
+        BinaryLogFormat.Header header = BinaryLogFormat.decodeHeader(buffer);
+        BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+        CRC32 crc = new CRC32();
+        ProgressTracker progress = new ProgressTracker(buffer.limit());
+        int records = 0;
+        int blockIndex = 0;
+
+        int position = header.size();
+        int end = buffer.limit();
+        while (position + BinaryLogFormat.BLOCK_HEADER_SIZE <= end && !cancelled) {
+            int count = buffer.getInt(position);
+            int expectedCrc = buffer.getInt(position + 4);
+            if (count <= 0 || count > header.blockRecords) {
+                throw new IOException("Bloco " + blockIndex + " com número de registros inválido: " + count);
+            }
+            int payloadStart = position + BinaryLogFormat.BLOCK_HEADER_SIZE;
+            int payloadEnd = payloadStart + count * header.recordSize();
+            if (payloadEnd > end) {
+                // Bloco final incompleto: gravação interrompida
+                break;
+            }
+
+            ByteBuffer payload = buffer.duplicate();
+            payload.limit(payloadEnd).position(payloadStart);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("Checksum inválido no bloco " + blockIndex);
+            }
+
+            buffer.position(payloadStart);
+            for (int i = 0; i < count && !cancelled; i++) {
+                record.readFrom(buffer, header.version);
+                sample.accelX = record.hasAccel ? record.accelX : 0;
+                sample.accelY = record.hasAccel ? record.accelY : 0;
+                sample.accelZ = record.hasAccel ? record.accelZ : 0;
+                sample.gpsFix = record.hasGnss ? record.gpsFix : 0;
+                sample.gpsSpeed = record.hasGnss ? record.gpsSpeed : 0;
+                sample.gpsDirection = record.hasGnss ? record.gpsDirection : 0;
+                sample.gpsAlt = record.hasGnss ? record.gpsAlt : 0;
+                sample.gpsRtc = record.gpsRtc;
+                estimator.processSample(sample);
+                records++;
+            }
+            position = payloadEnd;
+            blockIndex++;
+            progress.update(position, records);
+        }
+        return records;
+    }
+
+    private int replayCsv(ByteBuffer buffer) throws IOException {
+        int end = buffer.limit();
+        ProgressTracker progress = new ProgressTracker(end);
+        int records = 0;
+        int line = 1;
+
+        // Ignora o cabeçalho
+        cursor = 0;
+        skipLine(buffer, end);
+
+        while (cursor < end && !cancelled) {
+            line++;
+            if (isBlankLine(buffer, end)) {
+                skipLine(buffer, end);
+                continue;
+            }
+
+            try {
+                skipField(buffer, end); // contreg
+                boolean hasAccel = !isBlankField(buffer, end);
+                sample.accelX = hasAccel ? parseField(buffer, end) : skipFieldZero(buffer, end);
+                sample.accelY = hasAccel ? parseField(buffer, end) : skipFieldZero(buffer, end);
+                sample.accelZ = hasAccel ? parseField(buffer, end) : skipFieldZero(buffer, end);
+                boolean hasGnss = !isBlankField(buffer, end);
+                sample.gpsFix = hasGnss ? (int) parseField(buffer, end) : (int) skipFieldZero(buffer, end);
+                sample.gpsSpeed = hasGnss ? parseField(buffer, end) : skipFieldZero(buffer, end);
+                sample.gpsDirection = hasGnss ? parseField(buffer, end) : skipFieldZero(buffer, end);
+                sample.gpsAlt = hasGnss ? parseField(buffer, end) : skipFieldZero(buffer, end);
+                sample.gpsRtc = parseField(buffer, end);
+                if (buffer.get(cursor - 1) == ',') {
+                    skipValue(buffer, end); // t_mono_ns (ausente nas gravações antigas)
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Valor inválido na linha " + line, e);
+            }
+            if (!atLineEnd(buffer, end)) {
+                throw new IOException("Linha " + line + " não tem " + CSV_COLUMNS + " colunas");
+            }
+            skipLine(buffer, end);
+
+            estimator.processSample(sample);
+            records++;
+            progress.update(cursor, records);
+        }
+        return records;
+    }
+
+    // ---- Leitura de campos CSV direto do buffer ----
+
+    private void skipLine(ByteBuffer buffer, int end) {
+        while (cursor < end && buffer.get(cursor) != '\n') {
+            cursor++;
+        }
+        cursor++;
+    }
+
+    private boolean isBlankLine(ByteBuffer buffer, int end) {
+        for (int i = cursor; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                return true;
+            }
+            if (b > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean atLineEnd(ByteBuffer buffer, int end) {
+        while (cursor < end && buffer.get(cursor) == ' ') {
+            cursor++;
+        }
+        return cursor >= end || buffer.get(cursor) == '\n' || buffer.get(cursor) == '\r';
+    }
+
+    private boolean isBlankField(ByteBuffer buffer, int end) {
+        for (int i = cursor; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == ',' || b == '\n' || b == '\r') {
+                return true;
+            }
+            if (b != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Avança até depois da próxima vírgula
+     */
+    private void skipField(ByteBuffer buffer, int end) {
+        while (cursor < end) {
+            byte b = buffer.get(cursor);
+            if (b == '\n' || b == '\r') {
+                throw new NumberFormatException("Fim de linha antes do campo esperado");
+            }
+            cursor++;
+            if (b == ',') {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Avança até o fim do campo (vírgula ou fim de linha), sem consumir o separador
+     */
+    private void skipValue(ByteBuffer buffer, int end) {
+        while (cursor < end) {
+            byte b = buffer.get(cursor);
+            if (b == ',' || b == '\n' || b == '\r') {
+                return;
+            }
+            cursor++;
+        }
+    }
+
+    private double skipFieldZero(ByteBuffer buffer, int end) {
+        skipField(buffer, end);
+        return 0;
+    }
+
+    /**
+     * Converte o campo na posição do cursor e avança além da vírgula seguinte
+     * Usa o caminho exato mantissa * 10^e quando possível (mesmo resultado de Double.parseDouble);
+     * caso contrário cai para Double.parseDouble
+     */
+    private double parseField(ByteBuffer buffer, int end) {
+        while (cursor < end && buffer.get(cursor) == ' ') {
+            cursor++;
+        }
+        int start = cursor;
+
+        boolean negative = false;
+        if (cursor < end && (buffer.get(cursor) == '-' || buffer.get(cursor) == '+')) {
+            negative = buffer.get(cursor) == '-';
+            cursor++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;        // dígitos significativos acumulados
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean exact = true;
+        boolean fraction = false;
+        while (cursor < end) {
+            byte b = buffer.get(cursor);
+            if (b >= '0' && b <= '9') {
+                anyDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    if (digits < MAX_MANTISSA_DIGITS) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        digits++;
+                        if (fraction) {
+                            exponent--;
+                        }
+                    } else {
+                        exact = false;
+                        if (!fraction) {
+                            exponent++;
+                        }
+                    }
+                } else if (fraction) {
+                    exponent--;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+            cursor++;
+        }
+
+        if (cursor < end && (buffer.get(cursor) == 'e' || buffer.get(cursor) == 'E')) {
+            cursor++;
+            boolean negativeExp = false;
+            if (cursor < end && (buffer.get(cursor) == '-' || buffer.get(cursor) == '+')) {
+                negativeExp = buffer.get(cursor) == '-';
+                cursor++;
+            }
+            int exp = 0;
+            boolean expDigit = false;
+            while (cursor < end && buffer.get(cursor) >= '0' && buffer.get(cursor) <= '9') {
+                if (exp < 10_000) {
+                    exp = exp * 10 + (buffer.get(cursor) - '0');
+                }
+                expDigit = true;
+                cursor++;
+            }
+            if (!expDigit) {
+                anyDigit = false;
+            }
+            exponent += negativeExp ? -exp : exp;
+        }
+
+        while (cursor < end && buffer.get(cursor) == ' ') {
+            cursor++;
+        }
+        byte next = cursor < end ? buffer.get(cursor) : (byte) '\n';
+        boolean endsField = next == ',' || next == '\n' || next == '\r';
+
+        double value;
+        if (anyDigit && endsField && exact && mantissa < MAX_EXACT_MANTISSA
+                && exponent >= -22 && exponent <= 22) {
+            value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+            if (negative) {
+                value = -value;
+            }
+        } else {
+            // Caso raro: texto fora do caminho rápido (NaN, muitos dígitos, expoentes grandes)
+            while (cursor < end && buffer.get(cursor) != ',' && buffer.get(cursor) != '\n'
+                    && buffer.get(cursor) != '\r') {
+                cursor++;
+            }
+            byte[] text = new byte[cursor - start];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = buffer.get(start + i);
+            }
+            value = Double.parseDouble(new String(text, StandardCharsets.US_ASCII).trim());
+        }
+
+        if (cursor < end && buffer.get(cursor) == ',') {
+            cursor++;
+        }
+        return value;
+    }
+
+    private void reportFinish(int records) {
+        if (progressListener != null && !cancelled) {
+            progressListener.onProgress(records, 1.0);
+        }
+    }
+
+    /**
+     * Reporta progresso em passos de ~1% do arquivo
+     * O fim do arquivo não é reportado aqui: 100% vem só de reportFinish, no fim da reprodução
+     */
+    private final class ProgressTracker {
+        private final int total;
+        private final int step;
+        private int nextReport;
+
+        ProgressTracker(int total) {
+            this.total = Math.max(total, 1);
+            this.step = Math.max(this.total / PROGRESS_STEPS, 1);
+            this.nextReport = step;
+        }
+
+        void update(int position, int records) {
+            if (position >= nextReport && position < total && progressListener != null) {
+                nextReport = position + step;
+                double fraction = Math.min(1.0, (double) position / total);
+                progressListener.onProgress(recordOffset + records, progressBase + progressScale * fraction);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+
+/**
+ * Gravação carregada em colunas (um array por campo), lida uma única vez
+ * e compartilhada entre threads: os arrays não são modificados após a carga
+ */
+public final class SampleColumns {
+
+    private final String name;
+    private final int length;
+    private final double[] accelX;
+    private final double[] accelY;
+    private final double[] accelZ;
+    private final int[] gpsFix;
+    private final double[] gpsSpeed;
+    private final double[] gpsDirection;
+    private final double[] gpsAlt;
+    private final double[] gpsRtc;
+
+    private SampleColumns(String name, Collector collector) {
+        this.name = name;
+        this.length = collector.length;
+        this.accelX = Arrays.copyOf(collector.accelX, length);
+        this.accelY = Arrays.copyOf(collector.accelY, length);
+        this.accelZ = Arrays.copyOf(collector.accelZ, length);
+        this.gpsFix = Arrays.copyOf(collector.gpsFix, length);
+        this.gpsSpeed = Arrays.copyOf(collector.gpsSpeed, length);
+        this.gpsDirection = Arrays.copyOf(collector.gpsDirection, length);
+        this.gpsAlt = Arrays.copyOf(collector.gpsAlt, length);
+        this.gpsRtc = Arrays.copyOf(collector.gpsRtc, length);
+    }
+
+    /**
+     * Lê uma gravação CSV ou binária (mesma leitura do RecordingReplayer)
+     */
+    public static SampleColumns load(File file) throws IOException {
+        Collector collector = new Collector();
+        new RecordingReplayer(collector).run(file);
+        return new SampleColumns(file.getName(), collector);
+    }
+
+    public static SampleColumns of(String name, List<AttitudeEstimator.SensorData> samples) {
+        Collector collector = new Collector();
+        for (AttitudeEstimator.SensorData sample : samples) {
+            collector.processSample(sample);
+        }
+        return new SampleColumns(name, collector);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Copia a amostra i para out (permite reutilizar a mesma SensorData)
+     */
+    public void copyTo(int i, AttitudeEstimator.SensorData out) {
+        out.accelX = accelX[i];
+        out.accelY = accelY[i];
+        out.accelZ = accelZ[i];
+        out.gpsFix = gpsFix[i];
+        out.gpsSpeed = gpsSpeed[i];
+        out.gpsDirection = gpsDirection[i];
+        out.gpsAlt = gpsAlt[i];
+        out.gpsRtc = gpsRtc[i];
+    }
+
+    /**
+     * Processa a gravação inteira no estimador (AttitudeEstimator.processSamples)
+     * @param out atitude após cada amostra; capacidade mínima length()
+     */
+    public void process(AttitudeEstimator estimator, AttitudeEstimator.AttitudeTrace out) {
+        estimator.processSamples(accelX, accelY, accelZ, gpsFix, gpsSpeed, gpsDirection, gpsAlt, gpsRtc,
+                0, length, out, 0);
+    }
+
+    /**
+     * Acumula as amostras recebidas do RecordingReplayer em arrays que crescem por duplicação
+     */
+    private static final class Collector extends AttitudeEstimator {
+        int length;
+        double[] accelX = new double[1024];
+        double[] accelY = new double[1024];
+        double[] accelZ = new double[1024];
+        int[] gpsFix = new int[1024];
+        double[] gpsSpeed = new double[1024];
+        double[] gpsDirection = new double[1024];
+        double[] gpsAlt = new double[1024];
+        double[] gpsRtc = new double[1024];
+
+        @Override
+        public void processSample(SensorData data) {
+            if (length == accelX.length) {
+                int capacity = length * 2;
+                accelX = Arrays.copyOf(accelX, capacity);
+                accelY = Arrays.copyOf(accelY, capacity);
+                accelZ = Arrays.copyOf(accelZ, capacity);
+                gpsFix = Arrays.copyOf(gpsFix, capacity);
+                gpsSpeed = Arrays.copyOf(gpsSpeed, capacity);
+                gpsDirection = Arrays.copyOf(gpsDirection, capacity);
+                gpsAlt = Arrays.copyOf(gpsAlt, capacity);
+                gpsRtc = Arrays.copyOf(gpsRtc, capacity);
+            }
+            accelX[length] = data.accelX;
+            accelY[length] = data.accelY;
+            accelZ[length] = data.accelZ;
+            gpsFix[length] = data.gpsFix;
+            gpsSpeed[length] = data.gpsSpeed;
+            gpsDirection[length] = data.gpsDirection;
+            gpsAlt[length] = data.gpsAlt;
+            gpsRtc[length] = data.gpsRtc;
+            length++;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressão GZIP dos segmentos fechados de uma gravação
+ * Um segmento "x.csv" comprimido vira "x.csv.gz"; a leitura descomprime de forma transparente
+ */
+public final class SegmentCompression {
+
+    public static final String EXTENSION = ".gz";
+    // Compressão rápida, para gastar pouca CPU no aparelho
+    public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private SegmentCompression() {
+    }
+
+    public static boolean isCompressed(File file) {
+        return file.getName().endsWith(EXTENSION);
+    }
+
+    /**
+     * Comprime source em source + ".gz" (via arquivo temporário e rename, com fsync)
+     * O original não é apagado: quem chama remove depois de atualizar o manifesto
+     * @return o arquivo comprimido
+     */
+    public static File compress(File source, int level) throws IOException {
+        File target = new File(source.getParentFile(), source.getName() + EXTENSION);
+        File temp = new File(source.getParentFile(), target.getName() + TEMP_SUFFIX);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (FileInputStream input = new FileInputStream(source);
+             FileOutputStream file = new FileOutputStream(temp)) {
+            GZIPOutputStream output = new LeveledGzipOutputStream(file, level);
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                output.write(buffer, 0, read);
+            }
+            output.finish();
+            output.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Falha ao renomear " + temp + " para " + target);
+        }
+        return target;
+    }
+
+    /**
+     * Abre o arquivo para leitura, descomprimindo se for .gz
+     */
+    public static InputStream open(File file) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            return isCompressed(file)
+                    ? new GZIPInputStream(input, BUFFER_SIZE)
+                    : new BufferedInputStream(input, BUFFER_SIZE);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lê o conteúdo (descomprimido) de um stream inteiro para um buffer em memória
+     * Os segmentos têm tamanho limitado pela rotação, então cabem em memória
+     */
+    public static ByteBuffer readFully(InputStream input) throws IOException {
+        byte[] data = new byte[BUFFER_SIZE];
+        int size = 0;
+        int read;
+        while ((read = input.read(data, size, data.length - size)) >= 0) {
+            size += read;
+            if (size == data.length) {
+                if (data.length > Integer.MAX_VALUE / 2) {
+                    throw new IOException("Segmento grande demais para a memória");
+                }
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+        }
+        return ByteBuffer.wrap(data, 0, size).order(BinaryLogFormat.ORDER);
+    }
+
+    /**
+     * Executor de uma thread de baixa prioridade para comprimir fora da thread de gravação
+     */
+    public static ExecutorService newBackgroundExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SegmentCompression");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * GZIPOutputStream com nível de compressão configurável
+     */
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+        LeveledGzipOutputStream(FileOutputStream output, int level) throws IOException {
+            super(output, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+}
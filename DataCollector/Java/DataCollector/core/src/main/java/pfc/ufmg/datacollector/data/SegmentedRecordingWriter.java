@@ -0,0 +1,350 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gravação dividida em segmentos: ao atingir maxSegmentBytes ou maxSegmentSeconds o segmento
+ * corrente é fechado e o próximo registro abre um novo arquivo
+ * Os segmentos ("base_001.csv", "base_002.csv", ...) são listados no manifesto "base.session";
+ * cada segmento CSV tem seu próprio cabeçalho, então também pode ser aberto sozinho
+ * Segmentos fechados são comprimidos (GZIP) no executor informado, fora da thread de gravação
+ * Enquanto a sessão está aberta, checkpoint() registra no journal "base.journal" até onde a gravação
+ * está durável; depois de uma queda, RecordingRecovery usa o journal para reparar a sessão
+ * Não é thread-safe: gravar sempre na mesma thread
+ */
+public class SegmentedRecordingWriter {
+
+    /**
+     * Formato dos segmentos
+     */
+    public enum Format {
+        CSV(".csv"),
+        BINARY(BinaryLogFormat.FILE_EXTENSION);
+
+        public final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private static final int CSV_BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final String baseName;
+    private final Format format;
+    private final double sampleRateHz;
+    private final long maxSegmentBytes;
+    private final long maxSegmentRecords;
+    private final int batchRecords;
+    private final long batchDelayMs;
+    private final BatchedCsvWriter.SyncPolicy syncPolicy;
+    private final Executor compressionExecutor;
+
+    private final File manifestFile;
+    private final File journalFile;
+    private final RecordingJournal journal;
+    // Compartilhado com a thread de compressão (acesso sincronizado)
+    private final SessionManifest manifest = new SessionManifest();
+
+    private BatchedCsvWriter csvWriter;
+    private BinaryLogWriter binaryWriter;
+    private File segmentFile;
+    private int segmentIndex = -1;
+    private int segmentRecords = 0;
+    private int totalRecords = 0;
+    private boolean closed = false;
+    // Tamanho final do último segmento fechado (checkpoint entre o fechamento e o próximo segmento)
+    private long closedSegmentBytes = 0;
+    // Relógio e tempo da sessão do último checkpoint
+    private long lastMonotonicNanos = 0;
+    private double lastSessionSeconds = 0;
+
+    private final AtomicInteger compressionFailures = new AtomicInteger();
+
+    /**
+     * Cria o manifesto e o journal e abre o primeiro segmento
+     * @param maxSegmentBytes tamanho a partir do qual o segmento é fechado (0 = sem limite)
+     * @param maxSegmentSeconds duração de um segmento, em amostras de sampleRateHz (0 = sem limite)
+     * @param compressionExecutor onde comprimir os segmentos fechados (null = sem compressão)
+     */
+    public SegmentedRecordingWriter(File directory, String baseName, Format format, double sampleRateHz,
+                                    long maxSegmentBytes, double maxSegmentSeconds,
+                                    int batchRecords, long batchDelayMs,
+                                    BatchedCsvWriter.SyncPolicy syncPolicy,
+                                    Executor compressionExecutor) throws IOException {
+        this(directory, baseName, format, sampleRateHz, maxSegmentBytes, maxSegmentSeconds,
+                batchRecords, batchDelayMs, syncPolicy, compressionExecutor, null);
+    }
+
+    /**
+     * Retoma uma sessão reparada por RecordingRecovery, a partir de um novo segmento
+     * A contagem de registros continua de onde a sessão parou
+     */
+    public static SegmentedRecordingWriter resume(RecordingRecovery.Result recovered,
+                                                  double sampleRateHz, long maxSegmentBytes,
+                                                  double maxSegmentSeconds, int batchRecords,
+                                                  long batchDelayMs, BatchedCsvWriter.SyncPolicy syncPolicy,
+                                                  Executor compressionExecutor) throws IOException {
+        return new SegmentedRecordingWriter(recovered.manifestFile.getAbsoluteFile().getParentFile(),
+                recovered.baseName, recovered.format, sampleRateHz, maxSegmentBytes, maxSegmentSeconds,
+                batchRecords, batchDelayMs, syncPolicy, compressionExecutor, recovered);
+    }
+
+    private SegmentedRecordingWriter(File directory, String baseName, Format format, double sampleRateHz,
+                                     long maxSegmentBytes, double maxSegmentSeconds,
+                                     int batchRecords, long batchDelayMs,
+                                     BatchedCsvWriter.SyncPolicy syncPolicy,
+                                     Executor compressionExecutor,
+                                     RecordingRecovery.Result recovered) throws IOException {
+        if (maxSegmentBytes < 0 || !(maxSegmentSeconds >= 0) || !(sampleRateHz > 0)) {
+            throw new IllegalArgumentException("Parâmetros inválidos: maxSegmentBytes=" + maxSegmentBytes
+                    + ", maxSegmentSeconds=" + maxSegmentSeconds + ", sampleRateHz=" + sampleRateHz);
+        }
+        this.directory = directory;
+        this.baseName = baseName;
+        this.format = format;
+        this.sampleRateHz = sampleRateHz;
+        this.maxSegmentBytes = maxSegmentBytes == 0 ? Long.MAX_VALUE : maxSegmentBytes;
+        this.maxSegmentRecords = maxSegmentSeconds == 0 ? Long.MAX_VALUE
+                : Math.max(1, Math.round(maxSegmentSeconds * sampleRateHz));
+        this.batchRecords = batchRecords;
+        this.batchDelayMs = batchDelayMs;
+        this.syncPolicy = syncPolicy;
+        this.compressionExecutor = compressionExecutor;
+        this.manifestFile = new File(directory, baseName + SessionManifest.EXTENSION);
+        this.journalFile = new File(directory, baseName + RecordingJournal.EXTENSION);
+
+        SessionManifest previous = null;
+        if (recovered != null) {
+            previous = SessionManifest.read(manifestFile);
+            for (SessionManifest.Segment segment : previous.getSegments()) {
+                manifest.setSegment(manifest.getSegments().size(), segment.fileName, segment.records);
+            }
+            segmentIndex = previous.getSegments().size() - 1;
+            totalRecords = previous.getTotalRecords();
+            lastMonotonicNanos = recovered.checkpointMonotonicNanos;
+            lastSessionSeconds = recovered.sessionSeconds;
+        }
+        this.journal = new RecordingJournal(journalFile);
+        try {
+            openSegment();
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+        if (previous != null && compressionExecutor != null) {
+            // Segmentos da sessão interrompida que ficaram sem compressão
+            for (int i = 0; i < previous.getSegments().size(); i++) {
+                SessionManifest.Segment segment = previous.getSegments().get(i);
+                File file = new File(directory, segment.fileName);
+                if (!SegmentCompression.isCompressed(file) && file.exists()) {
+                    int index = i;
+                    compressionExecutor.execute(() -> compressSegment(file, index, segment.records));
+                }
+            }
+        }
+    }
+
+    /**
+     * Escritor do segmento corrente (formato CSV); encerrar o registro com endRecord()
+     */
+    public BatchedCsvWriter csv() throws IOException {
+        if (format != Format.CSV) {
+            throw new IllegalStateException("Gravação no formato " + format);
+        }
+        ensureSegment();
+        return csvWriter;
+    }
+
+    /**
+     * Escritor do segmento corrente (formato binário); encerrar o registro com endRecord()
+     */
+    public BinaryLogWriter binary() throws IOException {
+        if (format != Format.BINARY) {
+            throw new IllegalStateException("Gravação no formato " + format);
+        }
+        ensureSegment();
+        return binaryWriter;
+    }
+
+    /**
+     * Conta o registro escrito e fecha o segmento se algum limite foi atingido
+     */
+    public void endRecord() throws IOException {
+        segmentRecords++;
+        totalRecords++;
+        long bytes = csvWriter != null ? csvWriter.getByteCount() : binaryWriter.getByteCount();
+        if (segmentRecords >= maxSegmentRecords || bytes >= maxSegmentBytes) {
+            closeSegment();
+        }
+    }
+
+    /**
+     * Torna durável tudo o que foi escrito (fsync) e registra um checkpoint no journal
+     * @param monotonicNanos relógio monotônico do aparelho (elapsedRealtimeNanos)
+     * @param sessionSeconds tempo do último registro desde o início da sessão
+     */
+    public void checkpoint(long monotonicNanos, double sessionSeconds) throws IOException {
+        if (closed) {
+            throw new IOException("Gravação já encerrada");
+        }
+        lastMonotonicNanos = monotonicNanos;
+        lastSessionSeconds = sessionSeconds;
+        long bytes = closedSegmentBytes;
+        if (csvWriter != null) {
+            csvWriter.flushAndSync();
+            bytes = csvWriter.getByteCount();
+        } else if (binaryWriter != null) {
+            binaryWriter.flushAndSync();
+            bytes = binaryWriter.getByteCount();
+        }
+        journal.write(segmentIndex, segmentRecords, totalRecords, bytes, monotonicNanos, sessionSeconds);
+    }
+
+    /**
+     * Fecha o segmento corrente (com fsync conforme a política), atualiza o manifesto
+     * e apaga o journal: a sessão foi encerrada normalmente
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            closeSegment();
+        } finally {
+            journal.close();
+        }
+        if (!journalFile.delete()) {
+            throw new IOException("Falha ao apagar " + journalFile);
+        }
+    }
+
+    private void ensureSegment() throws IOException {
+        if (closed) {
+            throw new IOException("Gravação já encerrada");
+        }
+        if (segmentFile == null) {
+            openSegment();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentIndex++;
+        segmentRecords = 0;
+        segmentFile = new File(directory, String.format(Locale.US, "%s_%03d%s",
+                baseName, segmentIndex + 1, format.extension));
+        if (format == Format.BINARY) {
+            binaryWriter = new BinaryLogWriter(segmentFile, sampleRateHz, batchRecords, batchDelayMs, syncPolicy);
+        } else {
+            csvWriter = new BatchedCsvWriter(segmentFile, CSV_BUFFER_SIZE, batchRecords, batchDelayMs, syncPolicy);
+            csvWriter.append(RecordingConverter.CSV_HEADER);
+            csvWriter.flush();
+        }
+        // O segmento aberto já entra no manifesto: uma sessão interrompida continua legível
+        updateManifest(segmentIndex, segmentFile.getName(), 0);
+        long bytes;
+        if (csvWriter != null) {
+            csvWriter.flushAndSync();
+            bytes = csvWriter.getByteCount();
+        } else {
+            binaryWriter.flushAndSync();
+            bytes = binaryWriter.getByteCount();
+        }
+        journal.write(segmentIndex, 0, totalRecords, bytes, lastMonotonicNanos, lastSessionSeconds);
+    }
+
+    private void closeSegment() throws IOException {
+        if (segmentFile == null) {
+            return;
+        }
+        File file = segmentFile;
+        int index = segmentIndex;
+        int records = segmentRecords;
+        segmentFile = null;
+        try {
+            if (csvWriter != null) {
+                csvWriter.close();
+                closedSegmentBytes = csvWriter.getByteCount();
+            } else {
+                binaryWriter.close();
+                closedSegmentBytes = binaryWriter.getByteCount();
+            }
+        } finally {
+            csvWriter = null;
+            binaryWriter = null;
+        }
+        updateManifest(index, file.getName(), records);
+        if (compressionExecutor != null) {
+            compressionExecutor.execute(() -> compressSegment(file, index, records));
+        }
+    }
+
+    /**
+     * Comprime um segmento fechado; o original só é apagado depois que o manifesto aponta para o .gz
+     * Em caso de falha o segmento continua sem compressão (e listado no manifesto)
+     */
+    private void compressSegment(File file, int index, int records) {
+        try {
+            File compressed = SegmentCompression.compress(file, SegmentCompression.DEFAULT_LEVEL);
+            updateManifest(index, compressed.getName(), records);
+            if (!file.delete()) {
+                throw new IOException("Falha ao apagar " + file);
+            }
+        } catch (IOException e) {
+            compressionFailures.incrementAndGet();
+        }
+    }
+
+    private void updateManifest(int index, String fileName, int records) throws IOException {
+        synchronized (manifest) {
+            manifest.setSegment(index, fileName, records);
+            manifest.write(manifestFile);
+        }
+    }
+
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Nome base da sessão (segmentos, manifesto e journal derivam dele)
+     */
+    public String getBaseName() {
+        return baseName;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Manifesto da sessão (arquivo a abrir para reproduzir ou exportar a gravação inteira)
+     */
+    public File getManifestFile() {
+        return manifestFile;
+    }
+
+    /**
+     * Número de segmentos abertos até agora
+     */
+    public int getSegmentCount() {
+        return segmentIndex + 1;
+    }
+
+    public int getRecordCount() {
+        return totalRecords;
+    }
+
+    /**
+     * Segmentos que não puderam ser comprimidos (ficam sem compressão)
+     */
+    public int getCompressionFailures() {
+        return compressionFailures.get();
+    }
+}
@@ -0,0 +1,148 @@
+package pfc.ufmg.datacollector.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Manifesto de uma gravação segmentada: lista, em ordem, os arquivos de segmento da sessão
+ * Arquivo CSV "arquivo,registros" com extensão .session, na mesma pasta dos segmentos
+ * É reescrito por inteiro (arquivo temporário e rename) a cada mudança, então sempre
+ * descreve uma sessão legível mesmo se o app morrer no meio da gravação
+ */
+public final class SessionManifest {
+
+    public static final String EXTENSION = ".session";
+    static final String HEADER = "arquivo,registros\n";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Um segmento da sessão
+     */
+    public static final class Segment {
+        public final String fileName;
+        // Registros no segmento (no último salvamento do manifesto, se ainda aberto)
+        public final int records;
+
+        public Segment(String fileName, int records) {
+            this.fileName = fileName;
+            this.records = records;
+        }
+    }
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    public static boolean isManifest(File file) {
+        return file.getName().endsWith(EXTENSION);
+    }
+
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Acrescenta ou atualiza (pelo índice) um segmento
+     */
+    public void setSegment(int index, String fileName, int records) {
+        Segment segment = new Segment(fileName, records);
+        if (index == segments.size()) {
+            segments.add(segment);
+        } else {
+            segments.set(index, segment);
+        }
+    }
+
+    /**
+     * Remove os segmentos a partir do índice
+     */
+    public void truncate(int segmentCount) {
+        while (segments.size() > segmentCount) {
+            segments.remove(segments.size() - 1);
+        }
+    }
+
+    public int getTotalRecords() {
+        int total = 0;
+        for (Segment segment : segments) {
+            total += segment.records;
+        }
+        return total;
+    }
+
+    public static SessionManifest read(File file) throws IOException {
+        SessionManifest manifest = new SessionManifest();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (line == null || !HEADER.trim().equals(line.trim())) {
+                throw new IOException("Manifesto sem cabeçalho: " + file);
+            }
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length != 2 || fields[0].trim().isEmpty()) {
+                    throw new IOException("Linha " + lineNumber + " inválida no manifesto " + file);
+                }
+                try {
+                    manifest.segments.add(new Segment(fields[0].trim(), Integer.parseInt(fields[1].trim())));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Linha " + lineNumber + " inválida no manifesto " + file, e);
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Grava o manifesto de forma atômica (temporário + rename)
+     */
+    public void write(File file) throws IOException {
+        StringBuilder text = new StringBuilder(HEADER);
+        for (Segment segment : segments) {
+            text.append(segment.fileName).append(',').append(segment.records).append('\n');
+        }
+        File temp = new File(file.getParentFile(), file.getName() + TEMP_SUFFIX);
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            output.write(text.toString().getBytes(StandardCharsets.UTF_8));
+            output.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Falha ao renomear " + temp + " para " + file);
+        }
+    }
+
+    /**
+     * Arquivos dos segmentos do manifesto, em ordem
+     * Um segmento listado sem compressão que já foi comprimido (o app parou entre a compressão
+     * e a atualização do manifesto) é encontrado pelo nome com .gz
+     */
+    public static List<File> segmentFiles(File manifestFile) throws IOException {
+        File directory = manifestFile.getAbsoluteFile().getParentFile();
+        List<File> files = new ArrayList<>();
+        for (Segment segment : read(manifestFile).segments) {
+            File file = new File(directory, segment.fileName);
+            if (!file.exists()) {
+                File compressed = new File(directory, segment.fileName + SegmentCompression.EXTENSION);
+                if (!compressed.exists()) {
+                    throw new IOException("Segmento não encontrado: " + file);
+                }
+                file = compressed;
+            }
+            files.add(file);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,140 @@
+package pfc.ufmg.datacollector.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Histograma log-linear de latências em ns
+ * Cada potência de 2 é dividida em SUB_BUCKETS faixas lineares: erro relativo de no máximo
+ * 1/SUB_BUCKETS nos percentis. Valores acima de MAX_VALUE_NANOS caem na última faixa
+ * record não aloca; não é thread-safe (gravar e resumir na mesma thread)
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    public static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Maior potência de 2 com faixas próprias (2^40 ns ~ 18 min)
+    private static final int MAX_MAGNITUDE = 40;
+    public static final long MAX_VALUE_NANOS = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    private final long[] counts = new long[bucketIndex(MAX_VALUE_NANOS) + 1];
+    private long count = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    /**
+     * Registra uma latência; valores negativos contam como 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE_NANOS));
+        counts[bucketIndex(value)]++;
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /** Menor valor registrado (0 se vazio) */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Valor no percentil (0 a 100): limite superior da faixa, limitado ao máximo registrado
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100.0 * count);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(getMin(), Math.min(max, bucketUpperBound(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Resumo imutável (count, percentis e máximo)
+     */
+    public Summary summary() {
+        return new Summary(count, getMean(), getValueAtPercentile(50), getValueAtPercentile(90),
+                getValueAtPercentile(99), max);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        return (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        return bucketLowerBound(index) + (1L << shift) - 1;
+    }
+
+    /**
+     * Resumo de um intervalo, em ns
+     */
+    public static final class Summary {
+        public final long count;
+        public final double mean;
+        public final long p50;
+        public final long p90;
+        public final long p99;
+        public final long max;
+
+        Summary(long count, double mean, long p50, long p90, long p99, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package pfc.ufmg.datacollector.metrics;
+
+import java.util.Locale;
+
+/**
+ * Métricas do pipeline de coleta: histograma de latência por etapa, contadores de amostras
+ * perdidas/duplicadas e tempo de CPU por thread
+ * Os histogramas valem para o intervalo desde o último snapshot(); contadores e CPU são acumulados
+ * Não é thread-safe: gravar e tirar snapshots na thread do pipeline
+ */
+public final class PipelineMetrics {
+
+    /**
+     * Etapas com latência medida
+     */
+    public enum Stage {
+        // Drenagem de um lote da fila do acelerômetro (inclui alinhamento, escrita e estimação)
+        BATCH("batch"),
+        // Escrita de uma amostra no arquivo
+        WRITE("write"),
+        // processSample do estimador
+        ESTIMATE("estimate"),
+        // Atraso de cada tick do pipeline em relação ao agendado
+        TICK_JITTER("tick_jitter");
+
+        public final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Contadores acumulados
+     */
+    public enum Counter {
+        // Leituras descartadas com a fila sensor -> pipeline cheia
+        RING_OVERFLOW("ring_overflow"),
+        // Leituras do acelerômetro descartadas no alinhamento (fora de ordem ou fila cheia)
+        ACCEL_DROPPED("accel_dropped"),
+        // Das descartadas, as com timestamp repetido
+        ACCEL_DUPLICATE("accel_duplicate"),
+        GNSS_DROPPED("gnss_dropped"),
+        GNSS_DUPLICATE("gnss_duplicate"),
+        // Fixes anexados depois da latência configurada
+        GNSS_LATE("gnss_late"),
+        // Amostras da grade interpoladas sobre uma lacuna do acelerômetro
+        GAP_SAMPLES("gap_samples"),
+        // Ticks do pipeline que não rodaram no período (atraso maior que o intervalo)
+        MISSED_TICKS("missed_ticks");
+
+        public final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Threads com tempo de CPU acompanhado
+     */
+    public enum CpuThread {
+        PIPELINE("pipeline"),
+        SENSOR("sensor");
+
+        public final String key;
+
+        CpuThread(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final CpuThread[] CPU_THREADS = CpuThread.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private final long[] counters = new long[COUNTERS.length];
+    private final long[] cpuTimeNanos = new long[CPU_THREADS.length];
+    private final long[] lastCpuTimeNanos = new long[CPU_THREADS.length];
+    private double lastSnapshotTime = Double.NaN;
+
+    public PipelineMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    public void increment(Counter counter) {
+        counters[counter.ordinal()]++;
+    }
+
+    public void add(Counter counter, long delta) {
+        counters[counter.ordinal()] += delta;
+    }
+
+    /**
+     * Atualiza um contador mantido por outro componente (valor acumulado)
+     */
+    public void set(Counter counter, long value) {
+        counters[counter.ordinal()] = value;
+    }
+
+    public long get(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+
+    /**
+     * Tempo de CPU acumulado da thread (lido na própria thread, p.ex. Debug.threadCpuTimeNanos)
+     */
+    public void setCpuTimeNanos(CpuThread thread, long nanos) {
+        cpuTimeNanos[thread.ordinal()] = nanos;
+    }
+
+    /**
+     * Resume o intervalo desde o snapshot anterior e zera os histogramas
+     * @param timeSeconds instante do snapshot (mesmo relógio a cada chamada)
+     */
+    public Snapshot snapshot(double timeSeconds) {
+        double interval = Double.isNaN(lastSnapshotTime) ? 0 : timeSeconds - lastSnapshotTime;
+        lastSnapshotTime = timeSeconds;
+
+        LatencyHistogram.Summary[] summaries = new LatencyHistogram.Summary[histograms.length];
+        for (int i = 0; i < histograms.length; i++) {
+            summaries[i] = histograms[i].summary();
+            histograms[i].reset();
+        }
+        double[] cpuLoad = new double[cpuTimeNanos.length];
+        for (int i = 0; i < cpuTimeNanos.length; i++) {
+            if (interval > 0) {
+                cpuLoad[i] = (cpuTimeNanos[i] - lastCpuTimeNanos[i]) / (interval * 1e9);
+            }
+            lastCpuTimeNanos[i] = cpuTimeNanos[i];
+        }
+        return new Snapshot(timeSeconds, interval, summaries, counters.clone(), cpuTimeNanos.clone(), cpuLoad);
+    }
+
+    /**
+     * Estado imutável das métricas num instante
+     */
+    public static final class Snapshot {
+        public final double timeSeconds;
+        public final double intervalSeconds;
+        private final LatencyHistogram.Summary[] stages;
+        private final long[] counters;
+        private final long[] cpuTimeNanos;
+        private final double[] cpuLoad;
+
+        Snapshot(double timeSeconds, double intervalSeconds, LatencyHistogram.Summary[] stages,
+                 long[] counters, long[] cpuTimeNanos, double[] cpuLoad) {
+            this.timeSeconds = timeSeconds;
+            this.intervalSeconds = intervalSeconds;
+            this.stages = stages;
+            this.counters = counters;
+            this.cpuTimeNanos = cpuTimeNanos;
+            this.cpuLoad = cpuLoad;
+        }
+
+        public LatencyHistogram.Summary stage(Stage stage) {
+            return stages[stage.ordinal()];
+        }
+
+        public long counter(Counter counter) {
+            return counters[counter.ordinal()];
+        }
+
+        public long cpuTimeNanos(CpuThread thread) {
+            return cpuTimeNanos[thread.ordinal()];
+        }
+
+        /** Fração do intervalo que a thread passou em CPU (0 no primeiro snapshot) */
+        public double cpuLoad(CpuThread thread) {
+            return cpuLoad[thread.ordinal()];
+        }
+
+        /**
+         * Cabeçalho do arquivo de métricas (latências em us, CPU em ms e %)
+         */
+        public static String csvHeader() {
+            StringBuilder header = new StringBuilder("t");
+            for (Stage stage : STAGES) {
+                header.append(',').append(stage.key).append("_n")
+                        .append(',').append(stage.key).append("_p50_us")
+                        .append(',').append(stage.key).append("_p99_us")
+                        .append(',').append(stage.key).append("_max_us");
+            }
+            for (Counter counter : COUNTERS) {
+                header.append(',').append(counter.key);
+            }
+            for (CpuThread thread : CPU_THREADS) {
+                header.append(",cpu_").append(thread.key).append("_ms")
+                        .append(",cpu_").append(thread.key).append("_pct");
+            }
+            return header.append('\n').toString();
+        }
+
+        public String toCsvRow() {
+            StringBuilder row = new StringBuilder(String.format(Locale.US, "%.3f", timeSeconds));
+            for (LatencyHistogram.Summary summary : stages) {
+                row.append(',').append(summary.count)
+                        .append(',').append(summary.p50 / 1000)
+                        .append(',').append(summary.p99 / 1000)
+                        .append(',').append(summary.max / 1000);
+            }
+            for (long counter : counters) {
+                row.append(',').append(counter);
+            }
+            for (int i = 0; i < cpuTimeNanos.length; i++) {
+                row.append(',').append(cpuTimeNanos[i] / 1_000_000)
+                        .append(',').append(String.format(Locale.US, "%.2f", 100 * cpuLoad[i]));
+            }
+            return row.append('\n').toString();
+        }
+
+        /**
+         * Texto do painel de diagnóstico
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (Stage stage : STAGES) {
+                LatencyHistogram.Summary s = stages[stage.ordinal()];
+                text.append(String.format(Locale.US, "%-11s n=%-4d p50=%.2f p99=%.2f max=%.2f ms%n",
+                        stage.key, s.count, s.p50 / 1e6, s.p99 / 1e6, s.max / 1e6));
+            }
+            for (Counter counter : COUNTERS) {
+                text.append(String.format(Locale.US, "%-15s %d%n", counter.key, counters[counter.ordinal()]));
+            }
+            for (CpuThread thread : CPU_THREADS) {
+                text.append(String.format(Locale.US, "cpu %-9s %d ms (%.1f%%)%n", thread.key,
+                        cpuTimeNanos[thread.ordinal()] / 1_000_000, 100 * cpuLoad[thread.ordinal()]));
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package pfc.ufmg.datacollector.sensors;
+
+/**
+ * Agenda de ticks periódicos em prazos absolutos (deadline_k = início + k * período)
+ * O tempo gasto em cada tick não se soma ao período, como acontece ao reagendar com um
+ * atraso fixo depois do trabalho; um tick atrasado mais de um período pula os prazos
+ * perdidos (contados em getMissedCount) em vez de rodar vários ticks seguidos
+ * O relógio é do chamador (no app, SystemClock.elapsedRealtimeNanos); não é thread-safe
+ */
+public final class DeadlineScheduler {
+
+    private long periodNanos;
+    private long nextDeadlineNanos;
+    private boolean started = false;
+
+    private long tickCount = 0;
+    private long missedCount = 0;
+
+    public DeadlineScheduler(long periodNanos) {
+        setPeriodValue(periodNanos);
+    }
+
+    /**
+     * Primeiro prazo um período depois de nowNanos
+     */
+    public void start(long nowNanos) {
+        nextDeadlineNanos = nowNanos + periodNanos;
+        started = true;
+    }
+
+    /**
+     * Volta ao estado inicial: o próximo start define uma nova grade (contadores mantidos)
+     */
+    public void stop() {
+        started = false;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Troca o período; o próximo prazo passa a ser um período depois de nowNanos
+     */
+    public void setPeriod(long periodNanos, long nowNanos) {
+        setPeriodValue(periodNanos);
+        if (started) {
+            start(nowNanos);
+        }
+    }
+
+    private void setPeriodValue(long periodNanos) {
+        if (periodNanos <= 0) {
+            throw new IllegalArgumentException("Período inválido: " + periodNanos);
+        }
+        this.periodNanos = periodNanos;
+    }
+
+    /**
+     * Registra a execução do tick e avança para o próximo prazo ainda não vencido
+     * @return atraso do tick em relação ao seu prazo (negativo se rodou adiantado)
+     */
+    public long onTick(long nowNanos) {
+        long late = nowNanos - nextDeadlineNanos;
+        tickCount++;
+        if (late >= periodNanos) {
+            long missed = late / periodNanos;
+            missedCount += missed;
+            nextDeadlineNanos += (missed + 1) * periodNanos;
+        } else {
+            nextDeadlineNanos += periodNanos;
+        }
+        return late;
+    }
+
+    /**
+     * Espera até o próximo prazo (0 se já venceu)
+     */
+    public long delayNanos(long nowNanos) {
+        return Math.max(0, nextDeadlineNanos - nowNanos);
+    }
+
+    /**
+     * Espera até o próximo prazo em milissegundos, arredondada para cima (Handler.postDelayed)
+     * Arredondar para baixo faria o tick rodar antes do prazo
+     */
+    public long delayMillis(long nowNanos) {
+        return (delayNanos(nowNanos) + 999_999) / 1_000_000;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    public long getNextDeadlineNanos() {
+        return nextDeadlineNanos;
+    }
+
+    /** Ticks executados */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /** Prazos pulados porque o tick anterior atrasou mais de um período */
+    public long getMissedCount() {
+        return missedCount;
+    }
+}
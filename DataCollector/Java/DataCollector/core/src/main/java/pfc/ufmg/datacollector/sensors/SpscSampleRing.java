@@ -0,0 +1,127 @@
+package pfc.ufmg.datacollector.sensors;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fila circular de amostras (x, y, z, timestamp) entre uma única thread produtora
+ * (callback do sensor) e uma única thread consumidora (pipeline)
+ * Os slots são arrays de primitivos pré-alocados: offer e drain não alocam nem bloqueiam
+ * Com a fila cheia a amostra nova é descartada e contada em getOverflowCount()
+ */
+public final class SpscSampleRing {
+
+    /**
+     * Recebe as amostras retiradas por drain, na thread consumidora
+     */
+    public interface SampleConsumer {
+        void onSample(long timestampNanos, float x, float y, float z);
+    }
+
+    private final int mask;
+    private final long[] timestamps;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] zs;
+
+    // Próxima posição a escrever (publicada pela produtora) e a ler (publicada pela consumidora)
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final AtomicLong readSequence = new AtomicLong();
+
+    // Cópias locais de cada lado, para evitar ler o contador atômico do outro lado a cada amostra
+    private long producerWrite = 0;
+    private long producerReadCache = 0;
+    private long consumerRead = 0;
+
+    // Escritos só pela produtora
+    private volatile long overflowCount = 0;
+    private volatile long offeredCount = 0;
+
+    /**
+     * @param capacity número de slots (arredondado para a próxima potência de 2)
+     */
+    public SpscSampleRing(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacidade inválida: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        timestamps = new long[size];
+        xs = new float[size];
+        ys = new float[size];
+        zs = new float[size];
+    }
+
+    /**
+     * Grava uma amostra; chamado apenas pela thread produtora
+     * @return false se a fila estava cheia e a amostra foi descartada
+     */
+    public boolean offer(long timestampNanos, float x, float y, float z) {
+        offeredCount++;
+        long write = producerWrite;
+        if (write - producerReadCache > mask) {
+            producerReadCache = readSequence.get();
+            if (write - producerReadCache > mask) {
+                overflowCount++;
+                return false;
+            }
+        }
+        int slot = (int) write & mask;
+        timestamps[slot] = timestampNanos;
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+        producerWrite = write + 1;
+        // Publica o slot depois de escrito (ordem garantida pelo lazySet)
+        writeSequence.lazySet(write + 1);
+        return true;
+    }
+
+    /**
+     * Retira até maxSamples amostras em lote; chamado apenas pela thread consumidora
+     * @return número de amostras entregues
+     */
+    public int drain(SampleConsumer consumer, int maxSamples) {
+        long read = consumerRead;
+        long available = writeSequence.get() - read;
+        int count = (int) Math.min(available, maxSamples);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (read + i) & mask;
+            consumer.onSample(timestamps[slot], xs[slot], ys[slot], zs[slot]);
+        }
+        if (count > 0) {
+            consumerRead = read + count;
+            // Libera os slots para a produtora só depois de lidos
+            readSequence.lazySet(consumerRead);
+        }
+        return count;
+    }
+
+    /**
+     * Retira todas as amostras disponíveis
+     */
+    public int drain(SampleConsumer consumer) {
+        return drain(consumer, Integer.MAX_VALUE);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Amostras aguardando a consumidora (aproximado se lido de outra thread) */
+    public int size() {
+        return (int) (writeSequence.get() - readSequence.get());
+    }
+
+    /** Amostras descartadas com a fila cheia */
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+
+    /** Amostras oferecidas pela produtora, incluindo as descartadas */
+    public long getOfferedCount() {
+        return offeredCount;
+    }
+}
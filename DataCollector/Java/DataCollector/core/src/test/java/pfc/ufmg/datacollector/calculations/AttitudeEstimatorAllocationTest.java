@@ -0,0 +1,70 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifica que o processamento de amostras não aloca memória no heap
+ * Amostras que publicam um novo resultado (listener) podem alocar o AttitudeResult
+ */
+public class AttitudeEstimatorAllocationTest {
+
+    @Test
+    public void processSample_doesNotAllocate() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        List<AttitudeEstimator.SensorData> samples = Recordings.syntheticDrive(20 * 60 * 10);
+
+        // Aquecimento: carrega classes e dá tempo ao JIT
+        for (int round = 0; round < 3; round++) {
+            AttitudeEstimator warmup = new AttitudeEstimator();
+            for (AttitudeEstimator.SensorData sample : samples) {
+                warmup.processSample(sample);
+            }
+        }
+
+        // Repete a medição: alocações esporádicas da própria JVM não se repetem
+        // na mesma amostra, enquanto uma alocação do estimador aparece em todas
+        final boolean[] published = new boolean[1];
+        long[] minBytes = new long[samples.size()];
+        Arrays.fill(minBytes, Long.MAX_VALUE);
+        long id = Thread.currentThread().getId();
+        AttitudeEstimator estimator = null;
+        for (int round = 0; round < 3; round++) {
+            estimator = new AttitudeEstimator();
+            estimator.setUpdateListener(result -> published[0] = true);
+            for (int i = 0; i < samples.size(); i++) {
+                AttitudeEstimator.SensorData sample = samples.get(i);
+                published[0] = false;
+                long before = threads.getThreadAllocatedBytes(id);
+                estimator.processSample(sample);
+                long after = threads.getThreadAllocatedBytes(id);
+                if (!published[0]) {
+                    minBytes[i] = Math.min(minBytes[i], after - before);
+                }
+            }
+        }
+
+        int measured = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            if (minBytes[i] != Long.MAX_VALUE) {
+                assertEquals("Bytes alocados na amostra " + i, 0, minBytes[i]);
+                measured++;
+            }
+        }
+
+        assertTrue(estimator.getCurrentResult().psiAvailable);
+        assertTrue(measured > samples.size() * 9 / 10);
+    }
+}
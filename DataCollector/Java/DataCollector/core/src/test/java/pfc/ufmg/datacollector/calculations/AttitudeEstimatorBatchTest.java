@@ -0,0 +1,127 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AttitudeEstimatorBatchTest {
+
+    @Test
+    public void recordings_matchPerSamplePath() throws IOException {
+        for (File file : Recordings.files()) {
+            assertBatchMatches(file.getName(), EstimatorConfig.DEFAULT, Recordings.load(file), 1000);
+        }
+    }
+
+    @Test
+    public void drives_matchPerSamplePath() {
+        EstimatorConfig butterworth = EstimatorConfig.builder()
+                .setFilterType(EstimatorConfig.FilterType.BUTTERWORTH)
+                .setGpsFilterDelay(EstimatorConfig.AUTO_GPS_FILTER_DELAY)
+                .build();
+        List<AttitudeEstimator.SensorData> synthetic = Recordings.syntheticDrive(20 * 60 * 5);
+        List<AttitudeEstimator.SensorData> mounted = Recordings.mountedDrive(20 * 200, -10, 12, -40, 200);
+        // Blocos que começam no meio da inicialização do filtro e de eventos
+        for (int block : new int[]{1, 7, 63, 64, 300, 100_000}) {
+            assertBatchMatches("sintético, bloco " + block, EstimatorConfig.DEFAULT, synthetic, block);
+            assertBatchMatches("montagem, bloco " + block, butterworth, mounted, block);
+        }
+    }
+
+    @Test
+    public void traceFlags_markEventsAndUpdates() {
+        List<AttitudeEstimator.SensorData> drive = Recordings.mountedDrive(20 * 200, 8, -4, 25, 60);
+        AttitudeEstimator reference = new AttitudeEstimator();
+        List<Integer> updates = new ArrayList<>();
+        int[] sample = {0};
+        reference.setUpdateListener(result -> updates.add(sample[0]));
+        for (AttitudeEstimator.SensorData data : drive) {
+            reference.processSample(data);
+            sample[0]++;
+        }
+
+        AttitudeEstimator estimator = new AttitudeEstimator();
+        AttitudeEstimator.AttitudeTrace trace = process(estimator, drive, 0, drive.size(), 500);
+        List<Integer> flagged = new ArrayList<>();
+        int eventSamples = 0;
+        for (int i = 0; i < drive.size(); i++) {
+            if ((trace.flags[i] & AttitudeEstimator.AttitudeTrace.FLAG_UPDATE) != 0) {
+                flagged.add(i);
+            }
+            if ((trace.flags[i] & AttitudeEstimator.AttitudeTrace.FLAG_EVENT) != 0) {
+                eventSamples++;
+            }
+        }
+        assertEquals(updates, flagged);
+        assertTrue(eventSamples > 0);
+        assertTrue(trace.get(drive.size() - 1).psiAvailable);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outputTooSmall_isRejected() {
+        double[] column = new double[10];
+        new AttitudeEstimator().processSamples(column, column, column, new int[10], column, column, column,
+                column, 0, 10, new AttitudeEstimator.AttitudeTrace(9), 0);
+    }
+
+    /**
+     * Processa metade das amostras uma a uma e o resto em blocos, comparando cada amostra
+     * com o caminho por amostra
+     */
+    private static void assertBatchMatches(String name, EstimatorConfig config,
+                                           List<AttitudeEstimator.SensorData> samples, int block) {
+        AttitudeEstimator reference = new AttitudeEstimator(config);
+        double[][] expected = new double[samples.size()][];
+        for (int i = 0; i < samples.size(); i++) {
+            reference.processSample(samples.get(i));
+            AttitudeEstimator.AttitudeResult result = reference.getCurrentResult();
+            expected[i] = new double[]{result.phiRadians, result.thetaRadians, result.psiRadians};
+        }
+
+        AttitudeEstimator estimator = new AttitudeEstimator(config);
+        int half = samples.size() / 2;
+        for (int i = 0; i < half; i++) {
+            estimator.processSample(samples.get(i));
+        }
+        AttitudeEstimator.AttitudeTrace trace = process(estimator, samples, half, samples.size() - half, block);
+        for (int i = half; i < samples.size(); i++) {
+            int o = i - half;
+            assertEquals(name + ", amostra " + i, expected[i][0], trace.phi[o], 0);
+            assertEquals(name + ", amostra " + i, expected[i][1], trace.theta[o], 0);
+            assertEquals(name + ", amostra " + i, expected[i][2], trace.psi[o], 0);
+        }
+        assertArrayEquals(reference.saveState(), estimator.saveState());
+    }
+
+    private static AttitudeEstimator.AttitudeTrace process(AttitudeEstimator estimator,
+                                                           List<AttitudeEstimator.SensorData> samples,
+                                                           int from, int length, int block) {
+        int n = samples.size();
+        double[] ax = new double[n], ay = new double[n], az = new double[n];
+        double[] speed = new double[n], direction = new double[n], alt = new double[n], rtc = new double[n];
+        int[] fix = new int[n];
+        for (int i = 0; i < n; i++) {
+            AttitudeEstimator.SensorData data = samples.get(i);
+            ax[i] = data.accelX;
+            ay[i] = data.accelY;
+            az[i] = data.accelZ;
+            fix[i] = data.gpsFix;
+            speed[i] = data.gpsSpeed;
+            direction[i] = data.gpsDirection;
+            alt[i] = data.gpsAlt;
+            rtc[i] = data.gpsRtc;
+        }
+        AttitudeEstimator.AttitudeTrace trace = new AttitudeEstimator.AttitudeTrace(length);
+        for (int start = 0; start < length; start += block) {
+            int count = Math.min(block, length - start);
+            estimator.processSamples(ax, ay, az, fix, speed, direction, alt, rtc,
+                    from + start, count, trace, start);
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,77 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compara o AttitudeEstimator com a implementação original amostra a amostra
+ */
+public class AttitudeEstimatorParityTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    @Test
+    public void recordings_matchReference() throws IOException {
+        int converged = 0;
+        for (File file : Recordings.files()) {
+            if (replay(file.getName(), Recordings.load(file))) {
+                converged++;
+            }
+        }
+        assertTrue("Nenhuma gravação estimou roll/pitch", converged > 0);
+    }
+
+    @Test
+    public void longSyntheticDrive_matchesReference() {
+        assertTrue(replay("sintético", Recordings.syntheticDrive(20 * 60 * 20)));
+    }
+
+    @Test
+    public void reset_matchesFreshReference() throws IOException {
+        AttitudeEstimator estimator = new AttitudeEstimator();
+        for (AttitudeEstimator.SensorData sample : Recordings.syntheticDrive(2000)) {
+            estimator.processSample(sample);
+        }
+        estimator.reset();
+
+        ReferenceAttitudeEstimator reference = new ReferenceAttitudeEstimator();
+        List<AttitudeEstimator.SensorData> samples = Recordings.load(Recordings.files().get(0));
+        for (int i = 0; i < samples.size(); i++) {
+            estimator.processSample(samples.get(i));
+            reference.processSample(samples.get(i));
+            assertSame("reset", i, reference.getCurrentResult(), estimator.getCurrentResult());
+        }
+    }
+
+    /**
+     * Reprocessa as amostras nos dois estimadores
+     * @return true se o roll/pitch chegou a ser estimado
+     */
+    private static boolean replay(String name, List<AttitudeEstimator.SensorData> samples) {
+        AttitudeEstimator estimator = new AttitudeEstimator();
+        ReferenceAttitudeEstimator reference = new ReferenceAttitudeEstimator();
+
+        AttitudeEstimator.AttitudeResult actual = null;
+        for (int i = 0; i < samples.size(); i++) {
+            estimator.processSample(samples.get(i));
+            reference.processSample(samples.get(i));
+            actual = estimator.getCurrentResult();
+            assertSame(name, i, reference.getCurrentResult(), actual);
+        }
+        return actual != null && actual.phiAvailable;
+    }
+
+    private static void assertSame(String name, int sample,
+                                   AttitudeEstimator.AttitudeResult expected,
+                                   AttitudeEstimator.AttitudeResult actual) {
+        String where = name + " amostra " + sample;
+        assertEquals(where + " phi", expected.phiRadians, actual.phiRadians, TOLERANCE);
+        assertEquals(where + " theta", expected.thetaRadians, actual.thetaRadians, TOLERANCE);
+        assertEquals(where + " psi", expected.psiRadians, actual.psiRadians, TOLERANCE);
+    }
+}
@@ -0,0 +1,145 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AttitudeEstimatorStateTest {
+
+    @Test
+    public void restoredEstimator_continuesIdentically() {
+        List<AttitudeEstimator.SensorData> samples = Recordings.mountedDrive(20 * 200, 8, -4, 25, 60);
+        // Antes do filtro encher, acumulando gravidade, durante e depois de eventos
+        int[] cuts = {30, 150, 500, 20 * 35, 20 * 60 + 7, 20 * 130};
+        for (int cut : cuts) {
+            AttitudeEstimator original = new AttitudeEstimator();
+            for (int i = 0; i < cut; i++) {
+                original.processSample(samples.get(i));
+            }
+            AttitudeEstimator restored = new AttitudeEstimator();
+            restored.restoreState(original.saveState());
+
+            for (int i = cut; i < samples.size(); i++) {
+                original.processSample(samples.get(i));
+                restored.processSample(samples.get(i));
+                assertSameResult("corte " + cut + ", amostra " + i,
+                        original.getCurrentResult(), restored.getCurrentResult());
+            }
+            assertTrue(restored.getCurrentResult().psiAvailable);
+        }
+    }
+
+    @Test
+    public void butterworthState_continuesIdentically() {
+        EstimatorConfig config = EstimatorConfig.builder()
+                .setFilterType(EstimatorConfig.FilterType.BUTTERWORTH)
+                .setGpsFilterDelay(EstimatorConfig.AUTO_GPS_FILTER_DELAY)
+                .build();
+        List<AttitudeEstimator.SensorData> samples = Recordings.mountedDrive(20 * 120, 8, -4, 25, 60);
+        AttitudeEstimator original = new AttitudeEstimator(config);
+        for (int i = 0; i < 20 * 35; i++) {
+            original.processSample(samples.get(i));
+        }
+        byte[] state = original.saveState();
+        assertRejected(new AttitudeEstimator(), state);
+
+        AttitudeEstimator restored = new AttitudeEstimator(config);
+        restored.restoreState(state);
+        for (int i = 20 * 35; i < samples.size(); i++) {
+            original.processSample(samples.get(i));
+            restored.processSample(samples.get(i));
+            assertSameResult("amostra " + i, original.getCurrentResult(), restored.getCurrentResult());
+        }
+    }
+
+    @Test
+    public void stateAfterConvergence_omitsGravitySamples() {
+        AttitudeEstimator estimator = new AttitudeEstimator();
+        int empty = estimator.saveState().length;
+        for (AttitudeEstimator.SensorData sample : Recordings.mountedDrive(20 * 30, 8, -4, 25, 60)) {
+            estimator.processSample(sample);
+        }
+        assertTrue(estimator.getCurrentResult().phiAvailable);
+        assertEquals(empty, estimator.saveState().length);
+    }
+
+    @Test
+    public void invalidState_isRejectedWithoutChangingEstimator() {
+        AttitudeEstimator estimator = new AttitudeEstimator();
+        for (AttitudeEstimator.SensorData sample : Recordings.mountedDrive(20 * 30, 8, -4, 25, 60)) {
+            estimator.processSample(sample);
+        }
+        byte[] state = estimator.saveState();
+        AttitudeEstimator.AttitudeResult before = estimator.getCurrentResult();
+
+        byte[] corrupted = state.clone();
+        corrupted[100] ^= 1;
+        assertRejected(estimator, corrupted);
+
+        byte[] truncated = new byte[state.length / 2];
+        System.arraycopy(state, 0, truncated, 0, truncated.length);
+        assertRejected(estimator, truncated);
+
+        AttitudeEstimator other = new AttitudeEstimator(
+                EstimatorConfig.builder().setNaccelGrav(100).build());
+        assertRejected(other, state);
+
+        assertSameResult("rejeitado", before, estimator.getCurrentResult());
+    }
+
+    @Test
+    public void warmStart_givesAttitudeImmediately() {
+        AttitudeEstimator previous = new AttitudeEstimator();
+        for (AttitudeEstimator.SensorData sample : Recordings.mountedDrive(20 * 200, 8, -4, 25, 60)) {
+            previous.processSample(sample);
+        }
+        AttitudeEstimator.AttitudeResult profile = previous.getCurrentResult();
+        assertTrue(profile.psiAvailable);
+
+        AttitudeEstimator estimator = new AttitudeEstimator();
+        estimator.warmStart(profile.phiRadians, profile.thetaRadians, profile.psiRadians);
+        assertTrue(estimator.isAttitudeProvisional());
+        assertEquals(profile.phiRadians, estimator.getCurrentResult().phiRadians, 1e-12);
+        assertEquals(profile.thetaRadians, estimator.getCurrentResult().thetaRadians, 1e-12);
+
+        // Mesmo suporte: roll/pitch confirmados nas amostras em repouso e o yaw é mantido
+        for (AttitudeEstimator.SensorData sample : Recordings.mountedDrive(20 * 18, 8, -4, 25, 60)) {
+            estimator.processSample(sample);
+        }
+        assertFalse(estimator.isAttitudeProvisional());
+        assertTrue(estimator.getCurrentResult().psiAvailable);
+        assertEquals(profile.psiRadians, estimator.getCurrentResult().psiRadians, 0);
+        assertEquals(8, estimator.getCurrentResult().phiDegrees, 1.0);
+    }
+
+    @Test
+    public void warmStart_discardsYawWhenMountChanged() {
+        AttitudeEstimator estimator = new AttitudeEstimator();
+        estimator.warmStart(Math.toRadians(8), Math.toRadians(-4), Math.toRadians(25));
+        for (AttitudeEstimator.SensorData sample : Recordings.mountedDrive(20 * 18, -10, 12, 25, 60)) {
+            estimator.processSample(sample);
+        }
+        assertFalse(estimator.isAttitudeProvisional());
+        assertFalse(estimator.getCurrentResult().psiAvailable);
+        assertEquals(-10, estimator.getCurrentResult().phiDegrees, 1.0);
+        assertEquals(12, estimator.getCurrentResult().thetaDegrees, 1.0);
+    }
+
+    private static void assertRejected(AttitudeEstimator estimator, byte[] state) {
+        try {
+            estimator.restoreState(state);
+            fail("Estado inválido aceito");
+        } catch (IllegalArgumentException expected) {
+            // esperado
+        }
+    }
+
+    private static void assertSameResult(String message, AttitudeEstimator.AttitudeResult expected,
+                                         AttitudeEstimator.AttitudeResult actual) {
+        assertEquals(message, expected.phiRadians, actual.phiRadians, 0);
+        assertEquals(message, expected.thetaRadians, actual.thetaRadians, 0);
+        assertEquals(message, expected.psiRadians, actual.psiRadians, 0);
+    }
+}
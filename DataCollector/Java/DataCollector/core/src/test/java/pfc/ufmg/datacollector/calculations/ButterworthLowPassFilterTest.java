@@ -0,0 +1,106 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class ButterworthLowPassFilterTest {
+
+    private static final double FS = AttitudeEstimator.FS;
+    private static final double FC = EstimatorConfig.DEFAULT_FC;
+
+    @Test
+    public void constantInput_hasUnitGainFromFirstSample() {
+        ButterworthLowPassFilter filter = new ButterworthLowPassFilter(4, FC, FS);
+        double[] out = new double[3];
+        for (int i = 0; i < 500; i++) {
+            filter.add(0.1, -0.2, -1.0);
+            filter.output(out);
+            assertEquals(0.1, out[0], 1e-12);
+            assertEquals(-0.2, out[1], 1e-12);
+            assertEquals(-1.0, out[2], 1e-12);
+        }
+    }
+
+    @Test
+    public void cutoffFrequency_isAttenuatedBy3dB() {
+        // Resposta do protótipo analógico na frequência pré-distorcida pela transformação bilinear
+        double ratio = Math.tan(Math.PI * 4 * FC / FS) / Math.tan(Math.PI * FC / FS);
+        for (int order = 2; order <= ButterworthLowPassFilter.MAX_ORDER; order += 2) {
+            assertEquals("ordem " + order, Math.sqrt(0.5), steadyStateGain(order, FC), 1e-3);
+            double expected = 1 / Math.sqrt(1 + Math.pow(ratio, 2 * order));
+            assertEquals("ordem " + order, expected, steadyStateGain(order, 4 * FC), expected * 0.01);
+        }
+    }
+
+    @Test
+    public void groupDelay_matchesRampLag() {
+        // Rampa lenta: em regime a saída é a entrada atrasada pelo atraso de grupo em DC
+        assertRampLag(new ButterworthLowPassFilter(2, FC, FS));
+        assertRampLag(new ButterworthLowPassFilter(4, FC, FS));
+        assertRampLag(new FirLowPassFilter(EstimatorConfig.DEFAULT_FILTER_ORDER, FC, FS));
+
+        // Segunda ordem analógica: √2 / (2π fc) segundos
+        assertEquals(Math.sqrt(2) / (2 * Math.PI * FC) * FS,
+                new ButterworthLowPassFilter(2, FC, FS).getGroupDelaySamples(), 0.05);
+        // FIR com ordem par tem fase linear; com ímpar o sinc fica meia amostra fora do centro
+        assertEquals(32, new FirLowPassFilter(64, FC, FS).getGroupDelaySamples(), 1e-9);
+        assertEquals(31.5, new FirLowPassFilter(63, FC, FS).getGroupDelaySamples(), 0.5);
+    }
+
+    @Test
+    public void state_roundTrip() {
+        ButterworthLowPassFilter original = new ButterworthLowPassFilter(6, FC, FS);
+        for (int i = 0; i < 137; i++) {
+            original.add(Math.sin(i * 0.1), Math.cos(i * 0.07), i % 5);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(original.serializedSize());
+        original.writeTo(buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+        buffer.flip();
+        ButterworthLowPassFilter restored = new ButterworthLowPassFilter(6, FC, FS);
+        restored.readFrom(buffer);
+
+        double[] expected = new double[3];
+        double[] actual = new double[3];
+        for (int i = 137; i < 300; i++) {
+            original.add(Math.sin(i * 0.1), Math.cos(i * 0.07), i % 5);
+            restored.add(Math.sin(i * 0.1), Math.cos(i * 0.07), i % 5);
+            original.output(expected);
+            restored.output(actual);
+            assertArrayEquals(expected, actual, 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oddOrder_isRejected() {
+        new ButterworthLowPassFilter(3, FC, FS);
+    }
+
+    private static double steadyStateGain(int order, double frequency) {
+        ButterworthLowPassFilter filter = new ButterworthLowPassFilter(order, FC, FS);
+        double[] out = new double[3];
+        double peak = 0;
+        for (int i = 0; i < 4000; i++) {
+            filter.add(Math.sin(2 * Math.PI * frequency * i / FS), 0, 0);
+            filter.output(out);
+            if (i >= 2000) {
+                peak = Math.max(peak, Math.abs(out[0]));
+            }
+        }
+        return peak;
+    }
+
+    private static void assertRampLag(LowPassFilter filter) {
+        double slope = 0.001;
+        double[] out = new double[3];
+        for (int i = 0; i < 1000; i++) {
+            filter.add(slope * i, -slope * i, 0);
+            filter.output(out);
+        }
+        assertEquals(filter.getGroupDelaySamples(), (slope * 999 - out[0]) / slope, 1e-6);
+        assertEquals(filter.getGroupDelaySamples(), (out[1] + slope * 999) / slope, 1e-6);
+    }
+}
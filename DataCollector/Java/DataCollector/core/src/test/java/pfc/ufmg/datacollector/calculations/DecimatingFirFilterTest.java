@@ -0,0 +1,75 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DecimatingFirFilterTest {
+
+    private static final double INPUT_RATE = 200.0;
+    private static final int TAPS = 64;
+    private static final int DECIMATION = 10;
+
+    @Test
+    public void matchesFullRateFilterThenDownsample() {
+        double cutoff = DecimatingFirFilter.DEFAULT_CUTOFF_FRACTION / DECIMATION;
+        double[] coeff = DecimatingFirFilter.generateCoefficients(TAPS, cutoff);
+        DecimatingFirFilter filter = new DecimatingFirFilter(TAPS, DECIMATION, cutoff);
+
+        int n = 5000;
+        double[] input = new double[n];
+        for (int i = 0; i < n; i++) {
+            input[i] = Math.sin(i * 0.013) + 0.3 * Math.cos(i * 1.1) + (i % 7) * 0.01;
+        }
+
+        int outputs = 0;
+        for (int i = 0; i < n; i++) {
+            if (filter.add(input[i], -input[i], 2 * input[i])) {
+                outputs++;
+                // Filtragem direta na taxa cheia, mantendo só a amostra i
+                double expected = 0;
+                for (int k = 0; k < TAPS; k++) {
+                    expected += coeff[k] * input[i - TAPS + 1 + k];
+                }
+                assertEquals(expected, filter.x(), 1e-12);
+                assertEquals(-expected, filter.y(), 1e-12);
+                assertEquals(2 * expected, filter.z(), 1e-12);
+                assertEquals(DECIMATION - 1, i % DECIMATION);
+            }
+        }
+        assertEquals(n / DECIMATION - (TAPS - 1) / DECIMATION, outputs);
+    }
+
+    @Test
+    public void constantInput_hasUnitGain() {
+        DecimatingFirFilter filter = DecimatingFirFilter.forDecimation(TAPS, DECIMATION);
+        for (int i = 0; i < 1000; i++) {
+            if (filter.add(0.1, -0.2, -9.8)) {
+                assertEquals(0.1, filter.x(), 1e-12);
+                assertEquals(-0.2, filter.y(), 1e-12);
+                assertEquals(-9.8, filter.z(), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void toneAboveOutputNyquist_isAttenuated() {
+        // 45 Hz a 200 Hz cairia em 5 Hz após decimação simples para 20 Hz
+        DecimatingFirFilter filter = DecimatingFirFilter.forDecimation(TAPS, DECIMATION);
+        double peak = 0;
+        for (int i = 0; i < 20000; i++) {
+            double tone = Math.sin(2 * Math.PI * 45.0 * i / INPUT_RATE);
+            if (filter.add(tone, 0, 0)) {
+                peak = Math.max(peak, Math.abs(filter.x()));
+            }
+        }
+        assertTrue("Pico após filtragem: " + peak, peak < 0.01);
+    }
+
+    @Test
+    public void decimationFor_roundsToNearestFactor() {
+        assertEquals(10, DecimatingFirFilter.decimationFor(200, 20));
+        assertEquals(21, DecimatingFirFilter.decimationFor(416, 20));
+        assertEquals(1, DecimatingFirFilter.decimationFor(15, 20));
+    }
+}
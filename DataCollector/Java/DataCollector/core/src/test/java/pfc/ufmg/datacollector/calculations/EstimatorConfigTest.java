@@ -0,0 +1,144 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EstimatorConfigTest {
+
+    @Test
+    public void builtDefaults_matchReference() {
+        EstimatorConfig config = EstimatorConfig.builder().build();
+        assertEquals(EstimatorConfig.DEFAULT, config);
+
+        AttitudeEstimator estimator = new AttitudeEstimator(config);
+        ReferenceAttitudeEstimator reference = new ReferenceAttitudeEstimator();
+        for (AttitudeEstimator.SensorData sample : Recordings.syntheticDrive(20 * 60 * 5)) {
+            estimator.processSample(sample);
+            reference.processSample(sample);
+            AttitudeEstimator.AttitudeResult expected = reference.getCurrentResult();
+            AttitudeEstimator.AttitudeResult actual = estimator.getCurrentResult();
+            assertEquals(expected.phiRadians, actual.phiRadians, 1e-12);
+            assertEquals(expected.thetaRadians, actual.thetaRadians, 1e-12);
+            assertEquals(expected.psiRadians, actual.psiRadians, 1e-12);
+        }
+    }
+
+    @Test
+    public void toBuilder_copiesAllParameters() {
+        EstimatorConfig config = EstimatorConfig.builder()
+                .setVlow(10)
+                .setAhigh(0.2)
+                .setAlow(0.05)
+                .setFc(0.5)
+                .setFilterOrder(31)
+                .setNaccelGrav(120)
+                .setGpsFilterDelay(1.0)
+                .build();
+
+        assertEquals(config, config.toBuilder().build());
+        assertEquals(config.hashCode(), config.toBuilder().build().hashCode());
+        assertNotEquals(config, config.toBuilder().setFc(0.4).build());
+    }
+
+    @Test
+    public void naccelGrav_controlsRollPitchStart() {
+        List<AttitudeEstimator.SensorData> drive = Recordings.mountedDrive(20 * 30, 5, -3, 20, 30);
+        int defaultStart = rollPitchSample(new AttitudeEstimator(), drive);
+        int shortStart = rollPitchSample(new AttitudeEstimator(
+                EstimatorConfig.builder().setNaccelGrav(100).build()), drive);
+
+        // Sem variação na parte parada: o primeiro roll/pitch sai após filterOrder + naccelGrav amostras
+        assertEquals(EstimatorConfig.DEFAULT_FILTER_ORDER + EstimatorConfig.DEFAULT_NACCEL_GRAV, defaultStart);
+        assertEquals(EstimatorConfig.DEFAULT_FILTER_ORDER + 100, shortStart);
+    }
+
+    @Test
+    public void autoGpsFilterDelay_followsFilterGroupDelay() {
+        assertEquals(EstimatorConfig.DEFAULT_GPS_FILTER_DELAY, EstimatorConfig.DEFAULT.getEffectiveGpsFilterDelay(), 0);
+
+        EstimatorConfig butterworth = EstimatorConfig.builder()
+                .setFilterType(EstimatorConfig.FilterType.BUTTERWORTH)
+                .setGpsFilterDelay(EstimatorConfig.AUTO_GPS_FILTER_DELAY)
+                .build();
+        assertTrue(Double.isNaN(butterworth.getGpsFilterDelay()));
+        assertEquals(butterworth.createFilter().getGroupDelaySamples() / AttitudeEstimator.FS,
+                butterworth.getEffectiveGpsFilterDelay(), 1e-12);
+        assertEquals(butterworth, butterworth.toBuilder().build());
+
+        // Automático continua automático ao trocar o corte
+        EstimatorConfig slower = butterworth.toBuilder().setFc(0.15).build();
+        assertEquals(2 * butterworth.getEffectiveGpsFilterDelay(), slower.getEffectiveGpsFilterDelay(), 0.05);
+    }
+
+    @Test
+    public void butterworthWithoutDelay_usesFilterGroupDelay() {
+        EstimatorConfig butterworth = EstimatorConfig.builder()
+                .setFilterType(EstimatorConfig.FilterType.BUTTERWORTH)
+                .build();
+        assertTrue(Double.isNaN(butterworth.getGpsFilterDelay()));
+        assertEquals(butterworth.createFilter().getGroupDelaySamples() / AttitudeEstimator.FS,
+                butterworth.getEffectiveGpsFilterDelay(), 1e-12);
+        assertEquals(EstimatorConfig.builder()
+                .setFilterType(EstimatorConfig.FilterType.BUTTERWORTH)
+                .setGpsFilterDelay(EstimatorConfig.AUTO_GPS_FILTER_DELAY)
+                .build(), butterworth);
+
+        // Atraso explícito prevalece; o FIR mantém o atraso de calibração
+        EstimatorConfig fixed = butterworth.toBuilder()
+                .setGpsFilterDelay(EstimatorConfig.DEFAULT_GPS_FILTER_DELAY)
+                .build();
+        assertEquals(EstimatorConfig.DEFAULT_GPS_FILTER_DELAY, fixed.getEffectiveGpsFilterDelay(), 0);
+        assertEquals(fixed, fixed.toBuilder().build());
+        assertEquals(EstimatorConfig.DEFAULT,
+                butterworth.toBuilder().setFilterType(EstimatorConfig.FilterType.FIR).build());
+        assertEquals(butterworth, EstimatorConfig.DEFAULT.toBuilder()
+                .setFilterType(EstimatorConfig.FilterType.BUTTERWORTH).build());
+    }
+
+    @Test
+    public void butterworthFilter_matchesFirAngles() {
+        EstimatorConfig butterworth = EstimatorConfig.builder()
+                .setFilterType(EstimatorConfig.FilterType.BUTTERWORTH)
+                .build();
+        AttitudeEstimator fir = new AttitudeEstimator();
+        AttitudeEstimator iir = new AttitudeEstimator(butterworth);
+        for (AttitudeEstimator.SensorData sample : Recordings.mountedDrive(20 * 400, -10, 12, -40, 200)) {
+            fir.processSample(sample);
+            iir.processSample(sample);
+        }
+        AttitudeEstimator.AttitudeResult expected = fir.getCurrentResult();
+        AttitudeEstimator.AttitudeResult actual = iir.getCurrentResult();
+        assertTrue(actual.psiAvailable);
+        assertEquals(expected.phiDegrees, actual.phiDegrees, 0.01);
+        assertEquals(expected.thetaDegrees, actual.thetaDegrees, 0.01);
+        assertEquals(expected.psiDegrees, actual.psiDegrees, 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oddButterworthOrder_isRejected() {
+        EstimatorConfig.builder().setButterworthOrder(5).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cutoffAboveNyquist_isRejected() {
+        EstimatorConfig.builder().setFc(AttitudeEstimator.FS / 2).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyFilter_isRejected() {
+        EstimatorConfig.builder().setFilterOrder(0).build();
+    }
+
+    private static int rollPitchSample(AttitudeEstimator estimator, List<AttitudeEstimator.SensorData> drive) {
+        for (int i = 0; i < drive.size(); i++) {
+            estimator.processSample(drive.get(i));
+            if (estimator.getCurrentResult().phiAvailable) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,247 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EstimatorFanOutTest {
+
+    private static final List<EstimatorConfig> THRESHOLDS = Arrays.asList(
+            EstimatorConfig.builder().setAhigh(0.08).build(),
+            EstimatorConfig.builder().setAhigh(0.2).build(),
+            EstimatorConfig.builder().setAlow(0.05).build(),
+            EstimatorConfig.builder().setAlow(0.12).build(),
+            EstimatorConfig.builder().setVlow(5).build(),
+            EstimatorConfig.builder().setVlow(30).build(),
+            EstimatorConfig.builder().setNaccelGrav(100).build(),
+            EstimatorConfig.builder().setNaccelGrav(300).setAhigh(0.15).setAlow(0.06).build());
+
+    @Test
+    public void variants_matchStandaloneEstimators() throws IOException {
+        assertVariantsMatch("sintético", EstimatorConfig.DEFAULT, THRESHOLDS, Recordings.syntheticDrive(20 * 60 * 5));
+        assertVariantsMatch("montagem", EstimatorConfig.DEFAULT, THRESHOLDS,
+                Recordings.mountedDrive(20 * 200, -10, 12, -40, 200));
+        for (File file : Recordings.files()) {
+            assertVariantsMatch(file.getName(), EstimatorConfig.DEFAULT, THRESHOLDS, Recordings.load(file));
+        }
+    }
+
+    @Test
+    public void butterworthFrontEnd_isShared() {
+        EstimatorConfig.Builder butterworth = EstimatorConfig.builder()
+                .setFilterType(EstimatorConfig.FilterType.BUTTERWORTH)
+                .setGpsFilterDelay(EstimatorConfig.AUTO_GPS_FILTER_DELAY);
+        List<EstimatorConfig> variants = Arrays.asList(
+                butterworth.setAhigh(0.1).build(),
+                butterworth.setAhigh(0.12).setAlow(0.1).build());
+        assertVariantsMatch("butterworth", butterworth.setAhigh(0.15).build(), variants,
+                Recordings.mountedDrive(20 * 200, 8, -4, 25, 60));
+    }
+
+    @Test
+    public void reset_restartsPrimaryAndVariants() {
+        List<AttitudeEstimator.SensorData> drive = Recordings.mountedDrive(20 * 120, 8, -4, 25, 60);
+        EstimatorFanOut fanOut = new EstimatorFanOut(new AttitudeEstimator(), THRESHOLDS);
+        for (int i = 0; i < 20 * 50; i++) {
+            fanOut.processSample(drive.get(i));
+        }
+        fanOut.reset();
+        assertVariantsMatch("após reset", fanOut, THRESHOLDS, drive);
+    }
+
+    @Test
+    public void resetVariants_followsWarmFrontEnd() {
+        List<AttitudeEstimator.SensorData> drive = Recordings.mountedDrive(20 * 120, 8, -4, 25, 60);
+        int cut = 150;
+        EstimatorFanOut fanOut = new EstimatorFanOut(new AttitudeEstimator(), THRESHOLDS);
+        for (int i = 0; i < cut; i++) {
+            fanOut.processSample(drive.get(i));
+        }
+        byte[] primaryState = fanOut.getPrimary().saveState();
+        fanOut.resetVariants();
+
+        // Mesmo resultado de variantes novas sobre um primário restaurado no mesmo ponto
+        EstimatorFanOut restored = new EstimatorFanOut(new AttitudeEstimator(), THRESHOLDS);
+        restored.getPrimary().restoreState(primaryState);
+
+        // Ainda parado: com NACCEL_GRAV = 100 roll e pitch saem na centésima amostra, sem nova
+        // inicialização do filtro
+        AttitudeEstimator variant = fanOut.getVariant(6);
+        assertEquals(100, variant.getConfig().getNaccelGrav());
+        for (int i = cut; i < drive.size(); i++) {
+            fanOut.processSample(drive.get(i));
+            restored.processSample(drive.get(i));
+            for (int v = 0; v < THRESHOLDS.size(); v++) {
+                assertSameResult("variante " + v + ", amostra " + i,
+                        restored.getVariant(v).getCurrentResult(), fanOut.getVariant(v).getCurrentResult());
+            }
+            assertEquals("amostra " + i, i >= cut + 99, variant.getCurrentResult().phiAvailable);
+            if (i == cut + 99) {
+                break;
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void batchInputOnPrimaryWithVariants_isRejected() {
+        EstimatorFanOut fanOut = new EstimatorFanOut(new AttitudeEstimator(), THRESHOLDS);
+        processColumns(fanOut.getPrimary(), Recordings.mountedDrive(200, 8, -4, 25, 60));
+    }
+
+    @Test
+    public void reconfiguredVariants_releasePrimary() {
+        List<AttitudeEstimator.SensorData> drive = Recordings.mountedDrive(20 * 60, 8, -4, 25, 60);
+        AttitudeEstimator primary = new AttitudeEstimator();
+
+        // Como LogDataManager.setEstimatorVariants: cada nova lista fecha o fan-out anterior
+        EstimatorFanOut fanOut = new EstimatorFanOut(primary, THRESHOLDS);
+        EstimatorFanOut reconfigured = new EstimatorFanOut(primary, THRESHOLDS.subList(0, 2));
+        fanOut.close();
+        reconfigured.close();
+        reconfigured.close();
+        try {
+            new EstimatorFanOut(primary, Arrays.asList(EstimatorConfig.DEFAULT,
+                    EstimatorConfig.builder().setFc(0.5).build()));
+            fail("Aceitou outro pré-processamento");
+        } catch (IllegalArgumentException expected) {
+            // esperado
+        }
+        new EstimatorFanOut(primary, new ArrayList<>());
+
+        AttitudeEstimator.AttitudeTrace trace = processColumns(primary, drive);
+        AttitudeEstimator reference = new AttitudeEstimator();
+        for (AttitudeEstimator.SensorData data : drive) {
+            reference.processSample(data);
+        }
+        assertSameResult("processSamples", reference.getCurrentResult(), primary.getCurrentResult());
+        assertSameResult("trace", reference.getCurrentResult(), trace.get(drive.size() - 1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedFanOut_rejectsSamples() {
+        EstimatorFanOut fanOut = new EstimatorFanOut(new AttitudeEstimator(), THRESHOLDS);
+        fanOut.close();
+        fanOut.processSample(new AttitudeEstimator.SensorData(0, 0, 9.8, 0, 0, 0, 0, 0));
+    }
+
+    @Test
+    public void variantListener_receivesUpdatesWithIndex() {
+        List<AttitudeEstimator.SensorData> drive = Recordings.mountedDrive(20 * 200, 8, -4, 25, 60);
+        EstimatorFanOut fanOut = new EstimatorFanOut(new AttitudeEstimator(), THRESHOLDS);
+        List<List<Double>> received = new ArrayList<>();
+        for (int v = 0; v < THRESHOLDS.size(); v++) {
+            received.add(new ArrayList<>());
+        }
+        fanOut.setVariantUpdateListener((variant, result) -> received.get(variant).add(result.psiRadians));
+
+        List<List<Double>> expected = new ArrayList<>();
+        List<AttitudeEstimator> standalone = new ArrayList<>();
+        for (EstimatorConfig config : THRESHOLDS) {
+            List<Double> updates = new ArrayList<>();
+            AttitudeEstimator estimator = new AttitudeEstimator(config);
+            estimator.setUpdateListener(result -> updates.add(result.psiRadians));
+            expected.add(updates);
+            standalone.add(estimator);
+        }
+        for (AttitudeEstimator.SensorData data : drive) {
+            fanOut.processSample(data);
+            for (AttitudeEstimator estimator : standalone) {
+                estimator.processSample(data);
+            }
+        }
+        assertEquals(expected, received);
+        assertFalse(received.get(0).isEmpty());
+    }
+
+    @Test
+    public void differentPreprocessing_isRejected() {
+        AttitudeEstimator primary = new AttitudeEstimator();
+        List<EstimatorConfig> rejected = Arrays.asList(
+                EstimatorConfig.builder().setFc(0.5).build(),
+                EstimatorConfig.builder().setFilterOrder(31).build(),
+                EstimatorConfig.builder().setGpsFilterDelay(1.0).build(),
+                EstimatorConfig.builder().setFilterType(EstimatorConfig.FilterType.BUTTERWORTH).build());
+        for (EstimatorConfig config : rejected) {
+            try {
+                new EstimatorFanOut(primary, Arrays.asList(EstimatorConfig.DEFAULT, config));
+                fail("Aceitou " + config);
+            } catch (IllegalArgumentException expected) {
+                // esperado
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void variant_rejectsSamples() {
+        EstimatorFanOut fanOut = new EstimatorFanOut(new AttitudeEstimator(), THRESHOLDS);
+        fanOut.getVariant(0).processSample(new AttitudeEstimator.SensorData(0, 0, 9.8, 0, 0, 0, 0, 0));
+    }
+
+    private static AttitudeEstimator.AttitudeTrace processColumns(AttitudeEstimator estimator,
+                                                                  List<AttitudeEstimator.SensorData> samples) {
+        int n = samples.size();
+        double[] ax = new double[n], ay = new double[n], az = new double[n];
+        double[] speed = new double[n], direction = new double[n], alt = new double[n], rtc = new double[n];
+        int[] fix = new int[n];
+        for (int i = 0; i < n; i++) {
+            AttitudeEstimator.SensorData data = samples.get(i);
+            ax[i] = data.accelX;
+            ay[i] = data.accelY;
+            az[i] = data.accelZ;
+            fix[i] = data.gpsFix;
+            speed[i] = data.gpsSpeed;
+            direction[i] = data.gpsDirection;
+            alt[i] = data.gpsAlt;
+            rtc[i] = data.gpsRtc;
+        }
+        AttitudeEstimator.AttitudeTrace trace = new AttitudeEstimator.AttitudeTrace(n);
+        estimator.processSamples(ax, ay, az, fix, speed, direction, alt, rtc, 0, n, trace, 0);
+        return trace;
+    }
+
+    private static void assertVariantsMatch(String name, EstimatorConfig primaryConfig, List<EstimatorConfig> configs,
+                                            List<AttitudeEstimator.SensorData> samples) {
+        assertVariantsMatch(name, new EstimatorFanOut(new AttitudeEstimator(primaryConfig), configs), configs, samples);
+    }
+
+    /**
+     * Compara, amostra a amostra, o primário e cada variante com estimadores isolados
+     */
+    private static void assertVariantsMatch(String name, EstimatorFanOut fanOut, List<EstimatorConfig> configs,
+                                            List<AttitudeEstimator.SensorData> samples) {
+        AttitudeEstimator primary = new AttitudeEstimator(fanOut.getPrimary().getConfig());
+        List<AttitudeEstimator> standalone = new ArrayList<>();
+        for (EstimatorConfig config : configs) {
+            standalone.add(new AttitudeEstimator(config));
+        }
+        assertEquals(configs.size(), fanOut.getVariantCount());
+
+        for (int i = 0; i < samples.size(); i++) {
+            fanOut.processSample(samples.get(i));
+            primary.processSample(samples.get(i));
+            assertSameResult(name + ", primário, amostra " + i,
+                    primary.getCurrentResult(), fanOut.getPrimary().getCurrentResult());
+            for (int v = 0; v < configs.size(); v++) {
+                standalone.get(v).processSample(samples.get(i));
+                assertSameResult(name + ", variante " + v + ", amostra " + i,
+                        standalone.get(v).getCurrentResult(), fanOut.getVariant(v).getCurrentResult());
+            }
+        }
+        for (int v = 0; v < configs.size(); v++) {
+            assertArrayEquals(name + ", variante " + v, standalone.get(v).saveState(), fanOut.getVariant(v).saveState());
+        }
+    }
+
+    private static void assertSameResult(String message, AttitudeEstimator.AttitudeResult expected,
+                                         AttitudeEstimator.AttitudeResult actual) {
+        assertEquals(message, expected.phiRadians, actual.phiRadians, 0);
+        assertEquals(message, expected.thetaRadians, actual.thetaRadians, 0);
+        assertEquals(message, expected.psiRadians, actual.psiRadians, 0);
+    }
+}
@@ -1,18 +1,13 @@
 package pfc.ufmg.datacollector.calculations;
 
-import android.app.AlertDialog;
-import android.util.Log;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Classe para estimação de atitude (phi, theta, psi) a partir de dados de acelerômetro e GPS
- * Conversão do algoritmo MATLAB attitude_estimation_v7_gimbal_lock
- * Versão com processamento em tempo real
+ * Implementação original do AttitudeEstimator (matrizes double[][] deslocadas a cada amostra)
+ * Mantida apenas como referência numérica para os testes de paridade
  */
-public class AttitudeEstimator {
-
-    private static final String TAG = "AttitudeEstimator";
+class ReferenceAttitudeEstimator {
 
     // Constantes
     private static final double G_EARTH = 9.8; // Aceleração da gravidade
@@ -53,105 +48,16 @@ public class AttitudeEstimator {
 
     // Histórico de dados GPS
     private int gpsFilterDelaySamples;
-    private List<SensorData> dataHistory;
-
-    // Listener para notificar mudanças
-    private AttitudeUpdateListener updateListener;
-
-    /**
-     * Interface para callback de atualização
-     */
-    public interface AttitudeUpdateListener {
-        void onAttitudeUpdate(AttitudeResult result);
-    }
-
-    /**
-     * Classe para armazenar dados dos sensores
-     */
-    public static class SensorData {
-        public double accelX;
-        public double accelY;
-        public double accelZ;
-        public int gpsFix;
-        public double gpsSpeed;
-        public double gpsDirection;
-        public double gpsAlt;
-        public double gpsRtc;
-
-        public SensorData(double accelX, double accelY, double accelZ,
-                          int gpsFix, double gpsSpeed, double gpsDirection,
-                          double gpsAlt, double gpsRtc) {
-            this.accelX = accelX;
-            this.accelY = accelY;
-            this.accelZ = accelZ;
-            this.gpsFix = gpsFix;
-            this.gpsSpeed = gpsSpeed;
-            this.gpsDirection = gpsDirection;
-            this.gpsAlt = gpsAlt;
-            this.gpsRtc = gpsRtc;
-        }
-    }
-
-    /**
-     * Classe para retornar resultados
-     */
-    public static class AttitudeResult {
-        public double phiDegrees;
-        public double thetaDegrees;
-        public double psiDegrees;
-        public double phiRadians;
-        public double thetaRadians;
-        public double psiRadians;
-        public boolean phiAvailable;
-        public boolean thetaAvailable;
-        public boolean psiAvailable;
-
-        AttitudeResult(double phi, double theta, double psi) {
-            this.phiRadians = phi;
-            this.thetaRadians = theta;
-            this.psiRadians = psi;
-            this.phiDegrees = phi != 1234 ? Math.toDegrees(phi) : 0;
-            this.thetaDegrees = theta != 1234 ? Math.toDegrees(theta) : 0;
-            this.psiDegrees = psi != 1234 ? Math.toDegrees(psi) : 0;
-            this.phiAvailable = phi != 1234;
-            this.thetaAvailable = theta != 1234;
-            this.psiAvailable = psi != 1234;
-        }
-
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder();
-            if (phiAvailable) {
-                sb.append(String.format("Phi: %.2f°", phiDegrees));
-            }
-            if (thetaAvailable) {
-                if (sb.length() > 0) sb.append(", ");
-                sb.append(String.format("Theta: %.2f°", thetaDegrees));
-            }
-            if (psiAvailable) {
-                if (sb.length() > 0) sb.append(", ");
-                sb.append(String.format("Psi: %.2f°", psiDegrees));
-            }
-            return sb.length() > 0 ? sb.toString() : "Nenhum ângulo disponível";
-        }
-    }
+    private List<AttitudeEstimator.SensorData> dataHistory;
 
     /**
      * Construtor
      */
-    public AttitudeEstimator() {
+    ReferenceAttitudeEstimator() {
         initializeBuffers();
         generateFilterCoefficients();
         gpsFilterDelaySamples = (int) Math.ceil(GPS_FILTER_DELAY / (1.0 / FS));
         dataHistory = new ArrayList<>();
-        Log.i(TAG, "AttitudeEstimator inicializado");
-    }
-
-    /**
-     * Define o listener para atualizações
-     */
-    public void setUpdateListener(AttitudeUpdateListener listener) {
-        this.updateListener = listener;
     }
 
     /**
@@ -201,7 +107,7 @@ public class AttitudeEstimator {
      * Processa uma nova amostra de dados dos sensores
      * Este método deve ser chamado toda vez que novos dados forem coletados
      */
-    public void processSample(SensorData data) {
+    void processSample(AttitudeEstimator.SensorData data) {
         // Adiciona ao histórico
         dataHistory.add(data);
 
@@ -235,7 +141,6 @@ public class AttitudeEstimator {
 
             if (accelBufferGravCont == NACCEL_GRAV) {
                 estimateRollPitch();
-                notifyUpdate();
             }
         }
 
@@ -254,8 +159,7 @@ public class AttitudeEstimator {
                     if (gpsBufferCont > 0 && gpsBuffer[gpsBufferCont - 1][2] == 1234) {
                         gpsBufferCont = 0;
                     }
-                    notifyUpdate();
-                }
+                    }
                 event = false;
                 maxAccelDev = 0;
                 posMaxAccelDev = 1;
@@ -272,15 +176,6 @@ public class AttitudeEstimator {
         currentSample++;
     }
 
-    /**
-     * Notifica o listener sobre atualização
-     */
-    private void notifyUpdate() {
-        if (updateListener != null) {
-            updateListener.onAttitudeUpdate(getCurrentResult());
-        }
-    }
-
     /**
      * Aplica filtro FIR
      */
@@ -378,9 +273,6 @@ public class AttitudeEstimator {
 
         phiA = Math.atan2(-gA[1], -gA[2]);
         thetaA = Math.asin(gA[0]);
-
-        Log.i(TAG, String.format("Roll (Phi) estimado: %.2f°, Pitch (Theta) estimado: %.2f°",
-                Math.toDegrees(phiA), Math.toDegrees(thetaA)));
     }
 
     /**
@@ -487,15 +379,13 @@ public class AttitudeEstimator {
 
         if (accelGps.size() > 2 && meanResiduo < 0.2) {
             psiA = meanPsiA;
-            Log.i(TAG, String.format("Yaw (Psi) estimado: %.2f° (Resíduo: %.4f, GPS pts: %d)",
-                    Math.toDegrees(psiA), meanResiduo, accelGps.size()));
         }
     }
 
     /**
      * Processa dados GPS
      */
-    private void processGpsData(SensorData data) {
+    private void processGpsData(AttitudeEstimator.SensorData data) {
         if (data.gpsFix == 3 && data.gpsSpeed >= VLOW) {
             if (gpsBufferCont == 0) {
                 gpsBuffer[0][0] = data.gpsRtc;
@@ -575,14 +465,14 @@ public class AttitudeEstimator {
     /**
      * Obtém o resultado atual
      */
-    public AttitudeResult getCurrentResult() {
-        return new AttitudeResult(phiA, thetaA, psiA);
+    AttitudeEstimator.AttitudeResult getCurrentResult() {
+        return new AttitudeEstimator.AttitudeResult(phiA, thetaA, psiA);
     }
 
     /**
      * Reseta o estimador
      */
-    public void reset() {
+    void reset() {
         phiA = 1234;
         thetaA = 1234;
         psiA = 1234;
@@ -597,6 +487,5 @@ public class AttitudeEstimator {
         gA = new double[]{0, 0, 1};
         dataHistory.clear();
         initializeBuffers();
-        Log.i(TAG, "AttitudeEstimator resetado");
     }
 }
\ No newline at end of file
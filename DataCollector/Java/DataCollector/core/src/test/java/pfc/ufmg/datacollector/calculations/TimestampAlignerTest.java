@@ -0,0 +1,122 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TimestampAlignerTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long START = 123_456_789_000L;
+
+    @Test
+    public void jitteredAccel_isInterpolatedOntoUniformGrid() {
+        TimestampAligner aligner = new TimestampAligner(20.0, 200 * MS, 256);
+        List<double[]> out = collect(aligner);
+
+        // ~50 Hz com jitter de +-4 ms; sinal linear no tempo, reproduzido exatamente pela interpolação
+        Random random = new Random(1);
+        long t = START;
+        for (int i = 0; i < 500; i++) {
+            double s = (t - START) / 1e9;
+            aligner.addAccel(t, 1 + 2 * s, -3 * s, -9.8);
+            t += 20 * MS + (random.nextInt(9) - 4) * MS;
+        }
+
+        assertTrue(out.size() > 180);
+        for (int k = 0; k < out.size(); k++) {
+            double[] row = out.get(k);
+            assertEquals(k, (long) row[0]);
+            assertEquals(k * 0.05, row[1], 1e-9);
+            assertEquals(1 + 2 * row[1], row[2], 1e-9);
+            assertEquals(-3 * row[1], row[3], 1e-9);
+            // Timestamp monotônico da grade: início + k períodos de 50 ms, sem deriva
+            assertEquals(START + k * 50 * MS, (long) row[10]);
+        }
+        // Só sai o que já passou da latência
+        double lastAccel = (t - 20 * MS - START) / 1e9;
+        assertTrue(out.get(out.size() - 1)[1] <= lastAccel - 0.2);
+        assertEquals(0, aligner.getDroppedAccelCount());
+    }
+
+    @Test
+    public void gnssFix_isAttachedToNearestGridSampleEvenWhenDeliveredLate() {
+        TimestampAligner aligner = new TimestampAligner(20.0, 500 * MS, 256);
+        List<double[]> out = collect(aligner);
+
+        long[] fixTimes = {START + 1012 * MS, START + 2038 * MS, START + 3001 * MS};
+        int delivered = 0;
+        for (long t = START; t < START + 5000 * MS; t += 10 * MS) {
+            // Cada fix é entregue 300 ms depois da medição
+            if (delivered < fixTimes.length && t >= fixTimes[delivered] + 300 * MS) {
+                aligner.addGnss(fixTimes[delivered], 3, 40 + delivered, 90, 800);
+                delivered++;
+            }
+            aligner.addAccel(t, 0, 0, -9.8);
+        }
+
+        // 1.012 s -> amostra 20, 2.038 s -> 41, 3.001 s -> 60
+        int[] expectedIndex = {20, 41, 60};
+        for (int f = 0; f < fixTimes.length; f++) {
+            int k = expectedIndex[f];
+            assertEquals(40 + f, out.get(k)[5], 0);
+            assertEquals((fixTimes[f] - START) / 1e9, out.get(k)[8], 1e-12);
+            assertNotEquals(40 + f, out.get(k - 1)[5], 0);
+        }
+        assertEquals(0, out.get(19)[9], 0);
+        assertEquals(1, out.get(20)[9], 0);
+        assertEquals(0, aligner.getLateGnssCount());
+    }
+
+    @Test
+    public void fixBeyondLatency_isCountedAndAttachedToNextSample() {
+        TimestampAligner aligner = new TimestampAligner(20.0, 100 * MS, 256);
+        List<double[]> out = collect(aligner);
+        for (long t = START; t <= START + 2000 * MS; t += 10 * MS) {
+            aligner.addAccel(t, 0, 0, -9.8);
+        }
+        int before = out.size();
+        aligner.addGnss(START + 500 * MS, 3, 50, 0, 0);
+        aligner.addAccel(START + 2100 * MS, 0, 0, -9.8);
+
+        assertEquals(1, aligner.getLateGnssCount());
+        assertEquals(0, out.get(before - 1)[9], 0);
+        assertEquals(50, out.get(before)[5], 0);
+        assertEquals(0.5, out.get(before)[8], 1e-12);
+    }
+
+    @Test
+    public void outOfOrderAndOverflow_areCounted() {
+        TimestampAligner aligner = new TimestampAligner(20.0, 10_000 * MS, 4);
+        aligner.addAccel(START, 0, 0, 0);
+        aligner.addAccel(START - MS, 0, 0, 0);
+        aligner.addAccel(START, 0, 0, 0);
+        for (int i = 1; i <= 5; i++) {
+            aligner.addAccel(START + i * MS, 0, 0, 0);
+        }
+        // 2 fora de ordem + 2 perdidas com a fila de 4 cheia
+        assertEquals(4, aligner.getDroppedAccelCount());
+        assertEquals(1, aligner.getDuplicateAccelCount());
+
+        aligner.addGnss(START, 3, 0, 0, 0);
+        aligner.addGnss(START, 3, 0, 0, 0);
+        aligner.addGnss(START - MS, 3, 0, 0, 0);
+        assertEquals(2, aligner.getDroppedGnssCount());
+        assertEquals(1, aligner.getDuplicateGnssCount());
+    }
+
+    /**
+     * Cada linha: índice, tempo, ax, ay, az, velocidade, direção, fix, rtc, hasGnss, timestamp (ns)
+     */
+    private static List<double[]> collect(TimestampAligner aligner) {
+        List<double[]> rows = new ArrayList<>();
+        aligner.setListener((index, timestampNanos, time, s, hasGnss) -> rows.add(new double[]{
+                index, time, s.accelX, s.accelY, s.accelZ, s.gpsSpeed, s.gpsDirection,
+                s.gpsFix, s.gpsRtc, hasGnss ? 1 : 0, timestampNanos}));
+        return rows;
+    }
+}
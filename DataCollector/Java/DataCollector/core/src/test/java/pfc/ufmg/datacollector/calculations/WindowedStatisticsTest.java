@@ -0,0 +1,100 @@
+package pfc.ufmg.datacollector.calculations;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WindowedStatisticsTest {
+
+    @Test
+    public void partialWindow_matchesTwoPass() {
+        WindowedStatistics stats = new WindowedStatistics(8, 1);
+        double[] values = {1.5, -2.0, 4.25};
+        for (double v : values) {
+            stats.add(new double[]{v});
+        }
+
+        assertEquals(3, stats.count());
+        assertFalse(stats.isFull());
+        assertEquals(mean(values, 0, 3), stats.mean(0), 1e-15);
+        assertEquals(variance(values, 0, 3), stats.variance(0), 1e-14);
+    }
+
+    @Test
+    public void longRun_staysCloseToTwoPass() {
+        int size = 64;
+        WindowedStatistics stats = new WindowedStatistics(size, 3);
+        Random random = new Random(42);
+
+        int total = 1_000_000;
+        double[][] history = new double[3][total];
+        for (int i = 0; i < total; i++) {
+            // Grande deslocamento com pouca variação: caso ruim para soma dos quadrados ingênua
+            double x = 1e4 + random.nextGaussian() * 1e-3;
+            double y = -0.5 + random.nextGaussian() * 0.2;
+            double z = Math.sin(i * 0.01) * 3;
+            history[0][i] = x;
+            history[1][i] = y;
+            history[2][i] = z;
+            stats.add(x, y, z);
+
+            if (i >= size && i % 9973 == 0) {
+                for (int d = 0; d < 3; d++) {
+                    double expectedMean = mean(history[d], i + 1 - size, i + 1);
+                    double expectedVar = variance(history[d], i + 1 - size, i + 1);
+                    assertEquals(expectedMean, stats.mean(d), Math.abs(expectedMean) * 1e-12 + 1e-12);
+                    assertEquals(expectedVar, stats.variance(d), expectedVar * 1e-6 + 1e-15);
+                }
+            }
+        }
+        assertTrue(stats.isFull());
+    }
+
+    @Test
+    public void clear_emptiesWindow() {
+        WindowedStatistics stats = new WindowedStatistics(4, 3);
+        for (int i = 0; i < 10; i++) {
+            stats.add(i, 2 * i, 3 * i);
+        }
+        stats.clear();
+
+        assertEquals(0, stats.count());
+        assertEquals(0, stats.variance(1), 0);
+
+        stats.add(5, 6, 7);
+        assertEquals(5, stats.mean(0), 0);
+        assertEquals(0, stats.variance(0), 0);
+    }
+
+    @Test
+    public void threeAxisAdd_requiresThreeDimensions() {
+        for (int dims : new int[]{1, 2, 4}) {
+            WindowedStatistics stats = new WindowedStatistics(4, dims);
+            try {
+                stats.add(1, 2, 3);
+                fail("Aceitou amostra de três eixos com " + dims + " dimensões");
+            } catch (IllegalStateException expected) {
+                assertEquals(0, stats.count());
+            }
+        }
+    }
+
+    private static double mean(double[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum / (to - from);
+    }
+
+    private static double variance(double[] values, int from, int to) {
+        double m = mean(values, from, to);
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += (values[i] - m) * (values[i] - m);
+        }
+        return sum / (to - from);
+    }
+}
@@ -0,0 +1,156 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BatchedCsvWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesOncePerBatch() throws IOException {
+        File file = folder.newFile("batch.csv");
+        BatchedCsvWriter writer = new BatchedCsvWriter(file, 64 * 1024, 100, 60_000,
+                BatchedCsvWriter.SyncPolicy.NONE);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            String line = i + ",0.5,-9.8\n";
+            writer.append(line);
+            writer.endRecord();
+            expected.append(line);
+        }
+
+        assertEquals(10, writer.getWriteCount());
+        assertEquals(0, writer.getSyncCount());
+        writer.close();
+        assertEquals(expected.toString(), read(file));
+    }
+
+    @Test
+    public void pendingRecordsAreWrittenOnClose() throws IOException {
+        File file = folder.newFile("close.csv");
+        BatchedCsvWriter writer = new BatchedCsvWriter(file, 1024, 100, 60_000,
+                BatchedCsvWriter.SyncPolicy.ON_STOP);
+
+        writer.append("a,b\n");
+        writer.endRecord();
+        assertEquals("", read(file));
+
+        writer.close();
+        assertEquals("a,b\n", read(file));
+        assertEquals(1, writer.getSyncCount());
+
+        // Fechar de novo não faz nada
+        writer.close();
+        assertEquals(1, writer.getWriteCount());
+    }
+
+    @Test
+    public void zeroDelayFlushesEveryRecordWithSync() throws IOException {
+        File file = folder.newFile("delay.csv");
+        BatchedCsvWriter writer = new BatchedCsvWriter(file, 1024, 100, 0,
+                BatchedCsvWriter.SyncPolicy.PER_BATCH);
+
+        for (int i = 0; i < 5; i++) {
+            writer.append("x\n");
+            writer.endRecord();
+        }
+
+        assertEquals(5, writer.getWriteCount());
+        assertEquals(5, writer.getSyncCount());
+        assertEquals("x\nx\nx\nx\nx\n", read(file));
+        writer.close();
+    }
+
+    @Test
+    public void recordLargerThanBufferIsWrittenInChunks() throws IOException {
+        File file = folder.newFile("chunks.csv");
+        BatchedCsvWriter writer = new BatchedCsvWriter(file, BatchedCsvWriter.MIN_BUFFER_SIZE,
+                100, 60_000, BatchedCsvWriter.SyncPolicy.NONE);
+
+        String record = "0123456789abcdefghij0123456789abcdefghij0123456789\n";
+        writer.append(record);
+        writer.endRecord();
+        writer.close();
+
+        assertEquals(record, read(file));
+    }
+
+    @Test
+    public void appendFixed_roundsAndPadsDecimals() throws IOException {
+        assertEquals("0.0500", formatFixed(0.05, 4));
+        assertEquals("-9.8066", formatFixed(-9.80664, 4));
+        assertEquals("1.00", formatFixed(0.999, 2));
+        assertEquals("12", formatFixed(11.5, 0));
+        assertEquals("123.457", formatFixed(123.4567, 3));
+        assertEquals("0.001000000", formatFixed(0.001, 9));
+    }
+
+    @Test
+    public void appendFixed_neverWritesNegativeZero() throws IOException {
+        assertEquals("0.000", formatFixed(-0.0001, 3));
+        assertEquals("0.000", formatFixed(-0.0, 3));
+        assertEquals("-0.001", formatFixed(-0.0006, 3));
+    }
+
+    @Test
+    public void appendFixed_fallsBackForLargeAndNonFiniteValues() throws IOException {
+        assertEquals("1.0E20", formatFixed(1e20, 2));
+        assertEquals("NaN", formatFixed(Double.NaN, 2));
+        assertEquals("-Infinity", formatFixed(Double.NEGATIVE_INFINITY, 2));
+    }
+
+    @Test
+    public void appendFixed_roundTripsWithinHalfUnit() throws IOException {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8));
+            int decimals = random.nextInt(BatchedCsvWriter.MAX_DECIMALS + 1);
+            double parsed = Double.parseDouble(formatFixed(value, decimals));
+            double halfUnit = 0.5 / Math.pow(10, decimals);
+            assertEquals("valor=" + value + ", casas=" + decimals, value, parsed,
+                    halfUnit + Math.ulp(value) * 4);
+        }
+    }
+
+    @Test
+    public void appendLong_writesFullRange() throws IOException {
+        File file = folder.newFile("long.csv");
+        BatchedCsvWriter writer = new BatchedCsvWriter(file, BatchedCsvWriter.MIN_BUFFER_SIZE,
+                100, 60_000, BatchedCsvWriter.SyncPolicy.NONE);
+        long[] values = {0, 7, -42, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE};
+        StringBuilder expected = new StringBuilder();
+        for (long v : values) {
+            writer.appendLong(v);
+            writer.append(',');
+            expected.append(v).append(',');
+        }
+        writer.close();
+
+        assertEquals(expected.toString(), read(file));
+    }
+
+    private String formatFixed(double value, int decimals) throws IOException {
+        File file = folder.newFile();
+        BatchedCsvWriter writer = new BatchedCsvWriter(file, 1024, 100, 60_000,
+                BatchedCsvWriter.SyncPolicy.NONE);
+        writer.appendFixed(value, decimals);
+        writer.close();
+        return read(file);
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,196 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class BinaryLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip_preservesRecordsAndHeader() throws IOException {
+        File file = folder.newFile("log.pfcl");
+        writeRecords(file, 1000, 64);
+
+        try (BinaryLogReader reader = new BinaryLogReader(file)) {
+            assertEquals(BinaryLogFormat.VERSION, reader.getHeader().version);
+            assertEquals(20.0, reader.getHeader().sampleRateHz, 0);
+            assertEquals(BinaryLogFormat.UNITS, reader.getHeader().units);
+
+            BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+            int count = 0;
+            while (reader.next(record)) {
+                assertRecord(count, record);
+                count++;
+            }
+            assertEquals(1000, count);
+            assertFalse(reader.isTruncated());
+        }
+    }
+
+    @Test
+    public void writesOneBlockPerBatch() throws IOException {
+        File file = folder.newFile("blocks.pfcl");
+        BinaryLogWriter writer = writeRecords(file, 1000, 100);
+
+        assertEquals(10, writer.getWriteCount());
+        assertEquals(1, writer.getSyncCount());
+        long expectedSize = BinaryLogFormat.UNITS.length() + 26
+                + 10 * BinaryLogFormat.BLOCK_HEADER_SIZE + 1000L * BinaryLogFormat.RECORD_SIZE;
+        assertEquals(expectedSize, file.length());
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptedBlock_failsChecksum() throws IOException {
+        File file = folder.newFile("corrupt.pfcl");
+        writeRecords(file, 300, 100);
+
+        // Altera um byte de um registro do segundo bloco
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long offset = file.length() - 150L * BinaryLogFormat.RECORD_SIZE;
+            raf.seek(offset);
+            int b = raf.read();
+            raf.seek(offset);
+            raf.write(b ^ 0x10);
+        }
+
+        try (BinaryLogReader reader = new BinaryLogReader(file)) {
+            BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+            while (reader.next(record)) {
+                // consome até o bloco corrompido
+            }
+        }
+    }
+
+    @Test
+    public void truncatedLastBlock_endsReadingCleanly() throws IOException {
+        File file = folder.newFile("truncated.pfcl");
+        writeRecords(file, 250, 100);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 10);
+        }
+
+        try (BinaryLogReader reader = new BinaryLogReader(file)) {
+            BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+            int count = 0;
+            while (reader.next(record)) {
+                assertRecord(count, record);
+                count++;
+            }
+            assertEquals(200, count);
+            assertTrue(reader.isTruncated());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void csvFile_isRejected() throws IOException {
+        File file = folder.newFile("data.csv");
+        Files.write(file.toPath(), RecordingConverter.CSV_HEADER.getBytes(StandardCharsets.US_ASCII));
+        new BinaryLogReader(file).close();
+    }
+
+    @Test
+    public void version1File_isReadWithoutTimestamp() throws IOException {
+        File file = folder.newFile("v1.pfcl");
+        BinaryLogFormat.Header header = new BinaryLogFormat.Header(BinaryLogFormat.VERSION_1, 10, 20.0,
+                "contreg=1;eixox=m/s2;eixoy=m/s2;eixoz=m/s2;gps_fix=1;"
+                        + "gps_speed=km/h;gps_direction=deg;gps_alt=m;gps_rtc=s");
+        ByteBuffer encodedHeader = BinaryLogFormat.encodeHeader(header);
+        ByteBuffer payload = ByteBuffer.allocate(3 * BinaryLogFormat.RECORD_SIZE_V1).order(BinaryLogFormat.ORDER);
+        BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+        for (int i = 0; i < 3; i++) {
+            // Layout da versão 1: sem t_mono_ns entre gps_fix e eixox
+            fill(i, record);
+            payload.putInt(record.contreg);
+            payload.putShort((short) ((record.hasAccel ? BinaryLogFormat.FLAG_ACCEL : 0)
+                    | (record.hasGnss ? BinaryLogFormat.FLAG_GNSS : 0)));
+            payload.putShort((short) record.gpsFix);
+            payload.putDouble(record.accelX);
+            payload.putDouble(record.accelY);
+            payload.putDouble(record.accelZ);
+            payload.putDouble(record.gpsSpeed);
+            payload.putDouble(record.gpsDirection);
+            payload.putDouble(record.gpsAlt);
+            payload.putDouble(record.gpsRtc);
+        }
+        ByteBuffer content = ByteBuffer.allocate(encodedHeader.remaining() + BinaryLogFormat.BLOCK_HEADER_SIZE
+                + payload.capacity()).order(BinaryLogFormat.ORDER);
+        content.put(encodedHeader);
+        content.putInt(3);
+        content.putInt(BinaryLogFormat.crc(payload.array(), 0, payload.capacity()));
+        content.put(payload.array());
+        Files.write(file.toPath(), content.array());
+
+        try (BinaryLogReader reader = new BinaryLogReader(file)) {
+            assertEquals(BinaryLogFormat.VERSION_1, reader.getHeader().version);
+            assertEquals(BinaryLogFormat.RECORD_SIZE_V1, reader.getHeader().recordSize());
+            int count = 0;
+            while (reader.next(record)) {
+                BinaryLogFormat.Record expected = new BinaryLogFormat.Record();
+                fill(count, expected);
+                assertEquals(expected.contreg, record.contreg);
+                assertEquals(expected.accelX, record.accelX, 0);
+                assertEquals(expected.gpsRtc, record.gpsRtc, 0);
+                assertEquals(0, record.monotonicNanos);
+                count++;
+            }
+            assertEquals(3, count);
+        }
+    }
+
+    private static BinaryLogWriter writeRecords(File file, int count, int blockRecords) throws IOException {
+        BinaryLogWriter writer = new BinaryLogWriter(file, 20.0, blockRecords, 60_000,
+                BatchedCsvWriter.SyncPolicy.ON_STOP);
+        BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+        for (int i = 0; i < count; i++) {
+            fill(i, record);
+            writer.write(record);
+        }
+        writer.close();
+        return writer;
+    }
+
+    private static void fill(int i, BinaryLogFormat.Record record) {
+        record.contreg = i;
+        record.hasAccel = i % 7 != 0;
+        record.accelX = record.hasAccel ? Math.sin(i) : 0;
+        record.accelY = record.hasAccel ? -0.01 * i : 0;
+        record.accelZ = record.hasAccel ? -9.81 : 0;
+        record.hasGnss = i % 5 != 0;
+        record.gpsFix = record.hasGnss ? 3 : 0;
+        record.gpsSpeed = record.hasGnss ? i * 0.1 : 0;
+        record.gpsDirection = record.hasGnss ? (i * 3) % 360 : 0;
+        record.gpsAlt = record.hasGnss ? 850.5 : 0;
+        record.gpsRtc = i * 0.05;
+        record.monotonicNanos = 123_456_789_000L + 50_000_000L * i;
+    }
+
+    private static void assertRecord(int i, BinaryLogFormat.Record actual) {
+        BinaryLogFormat.Record expected = new BinaryLogFormat.Record();
+        fill(i, expected);
+        assertEquals(expected.contreg, actual.contreg);
+        assertEquals(expected.hasAccel, actual.hasAccel);
+        assertEquals(expected.hasGnss, actual.hasGnss);
+        assertEquals(expected.accelX, actual.accelX, 0);
+        assertEquals(expected.accelY, actual.accelY, 0);
+        assertEquals(expected.accelZ, actual.accelZ, 0);
+        assertEquals(expected.gpsFix, actual.gpsFix);
+        assertEquals(expected.gpsSpeed, actual.gpsSpeed, 0);
+        assertEquals(expected.gpsDirection, actual.gpsDirection, 0);
+        assertEquals(expected.gpsAlt, actual.gpsAlt, 0);
+        assertEquals(expected.gpsRtc, actual.gpsRtc, 0);
+        assertEquals(expected.monotonicNanos, actual.monotonicNanos);
+    }
+}
@@ -0,0 +1,40 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class CsvRecordFormatterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void write_usesColumnPrecisionAndEmptyFields() throws IOException {
+        File file = folder.newFile("rows.csv");
+        BatchedCsvWriter writer = new BatchedCsvWriter(file, 1024, 100, 60_000,
+                BatchedCsvWriter.SyncPolicy.NONE);
+        CsvRecordFormatter formatter = new CsvRecordFormatter();
+
+        formatter.write(writer, 0, true, 0.05, -0.12345, -9.80664,
+                true, 3, 12.345, 181.2, 850.0, 0.05, 123_456_789_000L);
+        formatter.write(writer, 1, false, 0, 0, 0, true, 0, 0, 90, 0, 0.1, 123_506_789_000L);
+        formatter.write(writer, 2, true, 1, 2, 3, false, 0, 0, 0, 0, 0.15, 123_556_789_000L);
+        formatter.setPrecision(1, 0, 0, 0, 1);
+        formatter.write(writer, 3, true, 0.25, 0, -9.81, true, 3, 12.6, 181.5, 850.4, 0.2, 123_606_789_000L);
+        writer.close();
+
+        assertEquals("0,0.0500,-0.1235,-9.8066,3,12.35,181.20,850.00,0.050,123456789000\n"
+                        + "1,,,,0,0.00,90.00,0.00,0.100,123506789000\n"
+                        + "2,1.0000,2.0000,3.0000, , , , ,0.150,123556789000\n"
+                        + "3,0.3,0.0,-9.8,3,13,182,850,0.2,123606789000\n",
+                new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII));
+    }
+}
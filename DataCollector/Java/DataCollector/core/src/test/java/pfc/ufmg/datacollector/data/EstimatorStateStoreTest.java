@@ -0,0 +1,80 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.Recordings;
+
+import static org.junit.Assert.*;
+
+public class EstimatorStateStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void session_roundTrip() throws IOException {
+        EstimatorStateStore store = new EstimatorStateStore(new File(folder.getRoot(), "estimador"));
+        List<AttitudeEstimator.SensorData> samples = Recordings.mountedDrive(20 * 120, 8, -4, 25, 60);
+        AttitudeEstimator original = new AttitudeEstimator();
+        for (int i = 0; i < 20 * 70; i++) {
+            original.processSample(samples.get(i));
+        }
+        store.saveSession("data_1", original);
+
+        AttitudeEstimator restored = new AttitudeEstimator();
+        assertFalse(store.restoreSession("data_2", restored));
+        assertTrue(store.restoreSession("data_1", restored));
+        for (int i = 20 * 70; i < samples.size(); i++) {
+            original.processSample(samples.get(i));
+            restored.processSample(samples.get(i));
+        }
+        assertEquals(original.getCurrentResult().psiRadians, restored.getCurrentResult().psiRadians, 0);
+
+        store.deleteSession("data_1");
+        assertFalse(store.restoreSession("data_1", restored));
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptedSession_isRejected() throws IOException {
+        EstimatorStateStore store = new EstimatorStateStore(folder.getRoot());
+        store.saveSession("data_1", new AttitudeEstimator());
+        try (RandomAccessFile file = new RandomAccessFile(store.sessionFile("data_1"), "rw")) {
+            file.seek(40);
+            int value = file.read();
+            file.seek(40);
+            file.write(value ^ 0xff);
+        }
+        store.restoreSession("data_1", new AttitudeEstimator());
+    }
+
+    @Test
+    public void profile_warmStartsEstimator() throws IOException {
+        EstimatorStateStore store = new EstimatorStateStore(folder.getRoot());
+        AttitudeEstimator previous = new AttitudeEstimator();
+        assertFalse(store.saveProfile("Pixel 7/carro", previous.getCurrentResult()));
+        for (AttitudeEstimator.SensorData sample : Recordings.mountedDrive(20 * 200, 8, -4, 25, 60)) {
+            previous.processSample(sample);
+        }
+        assertTrue(store.saveProfile("Pixel 7/carro", previous.getCurrentResult()));
+        assertEquals("Pixel_7_carro" + EstimatorStateStore.PROFILE_EXTENSION,
+                store.profileFile("Pixel 7/carro").getName());
+
+        AttitudeEstimator estimator = new AttitudeEstimator();
+        assertFalse(store.warmStart("outro", estimator));
+        assertFalse(estimator.getCurrentResult().phiAvailable);
+        assertTrue(store.warmStart("Pixel 7/carro", estimator));
+        AttitudeEstimator.AttitudeResult result = estimator.getCurrentResult();
+        assertEquals(previous.getCurrentResult().phiRadians, result.phiRadians, 1e-12);
+        assertEquals(previous.getCurrentResult().thetaRadians, result.thetaRadians, 1e-12);
+        assertEquals(previous.getCurrentResult().psiRadians, result.psiRadians, 0);
+        assertTrue(estimator.isAttitudeProvisional());
+    }
+}
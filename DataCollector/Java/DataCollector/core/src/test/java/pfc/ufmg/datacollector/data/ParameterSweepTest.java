@@ -0,0 +1,182 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.EstimatorConfig;
+import pfc.ufmg.datacollector.calculations.Recordings;
+
+import static org.junit.Assert.*;
+
+public class ParameterSweepTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // phi, theta, psi de montagem e rumo do veículo (graus)
+    private static final double[][] MOUNTS = {
+            {5, -3, 20, 30},
+            {-10, 8, -45, 120},
+            {15, 5, 90, 200},
+    };
+
+    private static final int SAMPLES = 20 * 120;
+
+    @Test
+    public void loadDirectory_readsRecordingsListedInGroundTruth() throws IOException {
+        File dir = folder.newFolder("gravacoes");
+        List<AttitudeEstimator.SensorData> drive = Recordings.mountedDrive(SAMPLES, 5, -3, 20, 30);
+        writeCsv(new File(dir, "a.csv"), drive);
+        writeCsv(new File(dir, "sem_gabarito.csv"), drive);
+        RecordingConverter.csvToBinary(new File(dir, "a.csv"), new File(dir, "b.pfcl"), 20.0);
+        try (PrintWriter out = new PrintWriter(new File(dir, ParameterSweep.GROUND_TRUTH_FILE), "UTF-8")) {
+            out.print("arquivo,phi,theta,psi\n");
+            out.print("a.csv,5,-3,20\n");
+            out.print("b.pfcl,5,-3,\n");
+        }
+
+        List<ParameterSweep.Recording> recordings = ParameterSweep.loadDirectory(dir);
+
+        assertEquals(2, recordings.size());
+        assertEquals("a.csv", recordings.get(0).columns.getName());
+        assertEquals(20, recordings.get(0).psi, 0);
+        assertTrue(Double.isNaN(recordings.get(1).psi));
+        AttitudeEstimator.SensorData sample = new AttitudeEstimator.SensorData(0, 0, 0, 0, 0, 0, 0, 0);
+        for (ParameterSweep.Recording recording : recordings) {
+            assertEquals(SAMPLES, recording.columns.length());
+            for (int i = 0; i < SAMPLES; i++) {
+                recording.columns.copyTo(i, sample);
+                assertEquals(drive.get(i).accelZ, sample.accelZ, 0);
+                assertEquals(drive.get(i).gpsSpeed, sample.gpsSpeed, 0);
+                assertEquals(drive.get(i).gpsRtc, sample.gpsRtc, 0);
+            }
+        }
+    }
+
+    @Test
+    public void run_ranksFasterConvergenceFirst() {
+        ParameterSweep sweep = new ParameterSweep(mountedRecordings());
+        List<EstimatorConfig> configs = new ParameterSweep.Space(EstimatorConfig.DEFAULT)
+                .setAhigh(0.05, 0.12, 0.2)
+                .grid();
+
+        List<ParameterSweep.Result> results = sweep.run(configs);
+
+        assertEquals(3, results.size());
+        for (ParameterSweep.Result result : results) {
+            assertEquals(result.toString(), MOUNTS.length, result.convergedRecordings);
+            assertTrue(result.toString(), result.maxErrorDegrees < ParameterSweep.DEFAULT_TOLERANCE_DEGREES);
+        }
+        // Com ahigh acima da desaceleração da frenagem (0.2 g) só as acelerações viram evento,
+        // e o yaw não oscila entre estimativas de frenagem e de aceleração
+        assertEquals(0.2, results.get(0).config.getAhigh(), 0);
+        assertTrue(results.get(0).meanConvergenceSeconds < results.get(1).meanConvergenceSeconds);
+    }
+
+    @Test
+    public void run_parallelMatchesSequentialEvaluation() {
+        ParameterSweep sweep = new ParameterSweep(mountedRecordings());
+        List<EstimatorConfig> configs = new ParameterSweep.Space(EstimatorConfig.DEFAULT)
+                .setAhigh(0.08, 0.2)
+                .setAlow(0.05, 0.1)
+                .setFc(0.2, 0.5)
+                .setFilterOrder(31, 63)
+                .random(40, 7);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<ParameterSweep.Result> parallel;
+        try {
+            parallel = sweep.run(configs, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        List<ParameterSweep.Result> sequential = new ArrayList<>();
+        for (EstimatorConfig config : configs) {
+            sequential.add(sweep.evaluate(config));
+        }
+        sequential.sort(null);
+
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < parallel.size(); i++) {
+            assertEquals(sequential.get(i).config, parallel.get(i).config);
+            assertEquals(sequential.get(i).meanErrorDegrees, parallel.get(i).meanErrorDegrees, 0);
+            assertEquals(sequential.get(i).meanConvergenceSeconds, parallel.get(i).meanConvergenceSeconds, 0);
+        }
+    }
+
+    @Test
+    public void missingEstimate_countsAsNotConverged() {
+        // Gravação curta demais para juntar as amostras paradas
+        List<ParameterSweep.Recording> recordings = new ArrayList<>();
+        recordings.add(new ParameterSweep.Recording(
+                SampleColumns.of("curta", Recordings.mountedDrive(200, 5, -3, 20, 30)), 5, -3, Double.NaN));
+        ParameterSweep.Result result = new ParameterSweep(recordings).evaluate(EstimatorConfig.DEFAULT);
+
+        assertEquals(0, result.convergedRecordings);
+        assertEquals(ParameterSweep.MISSING_ERROR_DEGREES, result.meanErrorDegrees, 0);
+        assertEquals(200 / AttitudeEstimator.FS, result.meanConvergenceSeconds, 1e-12);
+    }
+
+    @Test
+    public void space_gridIsCartesianProductAndRandomIsReproducible() {
+        ParameterSweep.Space space = new ParameterSweep.Space(EstimatorConfig.DEFAULT)
+                .setVlow(10, 20)
+                .setFc(0.2, 0.3, 0.4)
+                .setNaccelGrav(100, 200);
+
+        List<EstimatorConfig> grid = space.grid();
+        assertEquals(12, grid.size());
+        assertEquals(12, new HashSet<>(grid).size());
+        assertEquals(EstimatorConfig.DEFAULT.getAhigh(), grid.get(5).getAhigh(), 0);
+        assertEquals(0.2, grid.get(0).getFc(), 0);
+        assertEquals(200, grid.get(1).getNaccelGrav());
+
+        List<EstimatorConfig> random = space.random(50, 3);
+        assertEquals(random, space.random(50, 3));
+        for (EstimatorConfig config : random) {
+            assertTrue(config.getVlow() >= 10 && config.getVlow() <= 20);
+            assertTrue(config.getFc() >= 0.2 && config.getFc() <= 0.4);
+            assertTrue(config.getNaccelGrav() >= 100 && config.getNaccelGrav() <= 200);
+            assertEquals(EstimatorConfig.DEFAULT.getFilterOrder(), config.getFilterOrder());
+        }
+    }
+
+    @Test
+    public void angleError_wrapsAround() {
+        assertEquals(2, ParameterSweep.angleError(true, 179, -179), 1e-12);
+        assertEquals(10, ParameterSweep.angleError(true, -5, 5), 1e-12);
+        assertEquals(ParameterSweep.MISSING_ERROR_DEGREES, ParameterSweep.angleError(false, 0, 0), 0);
+    }
+
+    private static List<ParameterSweep.Recording> mountedRecordings() {
+        List<ParameterSweep.Recording> recordings = new ArrayList<>();
+        for (double[] mount : MOUNTS) {
+            recordings.add(new ParameterSweep.Recording(
+                    SampleColumns.of("montagem", Recordings.mountedDrive(SAMPLES, mount[0], mount[1], mount[2], mount[3])),
+                    mount[0], mount[1], mount[2]));
+        }
+        return recordings;
+    }
+
+    private static void writeCsv(File file, List<AttitudeEstimator.SensorData> samples) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "US-ASCII")) {
+            out.print(RecordingConverter.CSV_HEADER);
+            for (int i = 0; i < samples.size(); i++) {
+                AttitudeEstimator.SensorData s = samples.get(i);
+                out.print(i + "," + s.accelX + "," + s.accelY + "," + s.accelZ + "," + s.gpsFix + ","
+                        + s.gpsSpeed + "," + s.gpsDirection + "," + s.gpsAlt + "," + s.gpsRtc + "\n");
+            }
+        }
+    }
+}
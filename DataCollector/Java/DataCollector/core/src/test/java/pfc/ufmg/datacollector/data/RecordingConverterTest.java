@@ -0,0 +1,105 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecordingConverterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String CSV = RecordingConverter.CSV_HEADER
+            + "0,-1.2335178125908e-07,-1.4555909952108e-07,-9.8100001920853,3,0.00063907622679052,90,0,00000000000.00,123456789000\n"
+            + "1,0.0500,-0.1250,-9.8066,3,12.50,181.25,850.00,0.050,123506789000\n"
+            + "2,,,,3,12.60,181.50,850.10,0.100,\n"
+            + "3,0.0400,-0.1200,-9.8000, , , , ,0.150,123606789000\n";
+
+    // Gravação anterior à coluna t_mono_ns
+    private static final String LEGACY_CSV =
+            "contreg,eixox,eixoy,eixoz,gps_fix,gps_speed,gps_direction,gps_alt,gps_rtc\n"
+            + "0,0.0500,-0.1250,-9.8066,3,12.50,181.25,850.00,0.050\n"
+            + "1,0.0400,-0.1200,-9.8000, , , , ,0.100\n";
+
+    @Test
+    public void csvToBinaryToCsv_preservesValuesAndEmptyFields() throws IOException {
+        File csv = folder.newFile("in.csv");
+        File binary = folder.newFile("out.pfcl");
+        File back = folder.newFile("back.csv");
+        Files.write(csv.toPath(), CSV.getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(4, RecordingConverter.csvToBinary(csv, binary, 20.0));
+        assertEquals(4, RecordingConverter.binaryToCsv(binary, back));
+
+        List<String> original = Files.readAllLines(csv.toPath(), StandardCharsets.US_ASCII);
+        List<String> converted = Files.readAllLines(back.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(original.size(), converted.size());
+        assertEquals(original.get(0), converted.get(0));
+        for (int i = 1; i < original.size(); i++) {
+            String[] expected = original.get(i).split(",", -1);
+            String[] actual = converted.get(i).split(",", -1);
+            assertEquals(expected.length, actual.length);
+            for (int c = 0; c < expected.length; c++) {
+                if (expected[c].trim().isEmpty()) {
+                    assertEquals("Linha " + i + ", coluna " + c, expected[c], actual[c]);
+                } else {
+                    assertEquals("Linha " + i + ", coluna " + c,
+                            Double.parseDouble(expected[c]), Double.parseDouble(actual[c]), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void binaryToCsvToBinary_isLossless() throws IOException {
+        File csv = folder.newFile("in.csv");
+        File first = folder.newFile("first.pfcl");
+        File exported = folder.newFile("exported.csv");
+        File second = folder.newFile("second.pfcl");
+        Files.write(csv.toPath(), CSV.getBytes(StandardCharsets.US_ASCII));
+
+        RecordingConverter.csvToBinary(csv, first, 20.0);
+        RecordingConverter.binaryToCsv(first, exported);
+        RecordingConverter.csvToBinary(exported, second, 20.0);
+
+        assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+    }
+
+    @Test
+    public void legacyCsv_isExportedWithEmptyTimestamp() throws IOException {
+        File csv = folder.newFile("legacy.csv");
+        File binary = folder.newFile("legacy.pfcl");
+        File exported = folder.newFile("exported.csv");
+        Files.write(csv.toPath(), LEGACY_CSV.getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(2, RecordingConverter.toCsv(csv, exported));
+        assertEquals(RecordingConverter.CSV_HEADER
+                        + "0,0.0500,-0.1250,-9.8066,3,12.50,181.25,850.00,0.050,\n"
+                        + "1,0.0400,-0.1200,-9.8000, , , , ,0.100,\n",
+                new String(Files.readAllBytes(exported.toPath()), StandardCharsets.US_ASCII));
+
+        assertEquals(2, RecordingConverter.csvToBinary(csv, binary, 20.0));
+        try (BinaryLogReader reader = new BinaryLogReader(binary)) {
+            BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+            while (reader.next(record)) {
+                assertEquals(0, record.monotonicNanos);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedLine_isReported() throws IOException {
+        File csv = folder.newFile("bad.csv");
+        Files.write(csv.toPath(), (RecordingConverter.CSV_HEADER + "0,1,2\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        RecordingConverter.csvToBinary(csv, folder.newFile("bad.pfcl"), 20.0);
+    }
+}
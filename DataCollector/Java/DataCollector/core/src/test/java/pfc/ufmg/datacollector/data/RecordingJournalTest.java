@@ -0,0 +1,68 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class RecordingJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readLatest_returnsNewestCheckpoint() throws IOException {
+        File file = new File(folder.getRoot(), "data" + RecordingJournal.EXTENSION);
+        try (RecordingJournal journal = new RecordingJournal(file)) {
+            for (int i = 1; i <= 5; i++) {
+                journal.write(i / 3, 10 * i, 100 * i, 1000L * i, 5_000_000_000L * i, 0.5 * i);
+            }
+        }
+
+        RecordingJournal.Checkpoint checkpoint = RecordingJournal.readLatest(file);
+        assertEquals(5, checkpoint.sequence);
+        assertEquals(1, checkpoint.segmentIndex);
+        assertEquals(50, checkpoint.segmentRecords);
+        assertEquals(500, checkpoint.totalRecords);
+        assertEquals(5000, checkpoint.segmentBytes);
+        assertEquals(25_000_000_000L, checkpoint.monotonicNanos);
+        assertEquals(2.5, checkpoint.sessionSeconds, 0);
+        // Dois slots: o tamanho não cresce com a sessão
+        assertEquals(2 * RecordingJournal.SLOT_SIZE, file.length());
+    }
+
+    @Test
+    public void tornSlot_fallsBackToPreviousCheckpoint() throws IOException {
+        File file = new File(folder.getRoot(), "data" + RecordingJournal.EXTENSION);
+        try (RecordingJournal journal = new RecordingJournal(file)) {
+            journal.write(0, 200, 200, 12_000, 1, 10);
+            journal.write(0, 400, 400, 24_000, 2, 20);
+        }
+        // Escrita interrompida no checkpoint 2 (sequências pares ficam no primeiro slot)
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(12);
+            raw.writeInt(0x7FFFFFFF);
+        }
+
+        RecordingJournal.Checkpoint checkpoint = RecordingJournal.readLatest(file);
+        assertEquals(1, checkpoint.sequence);
+        assertEquals(200, checkpoint.totalRecords);
+
+        // Reaberto, continua a sequência e sobrescreve o slot estragado
+        try (RecordingJournal journal = new RecordingJournal(file)) {
+            journal.write(0, 600, 600, 36_000, 3, 30);
+        }
+        assertEquals(600, RecordingJournal.readLatest(file).totalRecords);
+        assertEquals(2, RecordingJournal.readLatest(file).sequence);
+    }
+
+    @Test
+    public void emptyJournal_hasNoCheckpoint() throws IOException {
+        assertNull(RecordingJournal.readLatest(folder.newFile("data" + RecordingJournal.EXTENSION)));
+    }
+}
@@ -0,0 +1,199 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.Recordings;
+
+import static org.junit.Assert.*;
+
+public class RecordingRecoveryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int CHECKPOINT_INTERVAL = 200;
+
+    @Test
+    public void interruptedCsvSession_isTruncatedAndResumed() throws IOException {
+        File directory = folder.newFolder("sessao");
+        List<AttitudeEstimator.SensorData> drive = Recordings.syntheticDrive(2000);
+        // 30 s por segmento: a queda acontece no terceiro segmento
+        SegmentedRecordingWriter writer = newCsvWriter(directory, Runnable::run);
+        CsvRecordFormatter formatter = new CsvRecordFormatter();
+        for (int i = 0; i < 1500; i++) {
+            writeCsv(formatter, writer.csv(), i, drive.get(i));
+            writer.endRecord();
+            checkpointIfDue(writer, i);
+        }
+        // Queda: o lote em memória se perde e o último registro fica pela metade
+        File segment = new File(directory, "data_003.csv");
+        appendBytes(segment, "1500,0.0400,-0.12".getBytes(StandardCharsets.US_ASCII));
+
+        List<File> journals = RecordingRecovery.findInterrupted(directory);
+        assertEquals(1, journals.size());
+        RecordingRecovery.Result result = RecordingRecovery.recover(journals.get(0));
+
+        assertEquals("data", result.baseName);
+        assertEquals(SegmentedRecordingWriter.Format.CSV, result.format);
+        assertTrue("Registros: " + result.totalRecords, result.totalRecords >= 1400 && result.totalRecords <= 1500);
+        assertEquals(17, result.truncatedBytes);
+        assertTrue(new String(Files.readAllBytes(segment.toPath()), StandardCharsets.US_ASCII).endsWith("\n"));
+        assertEquals(result.totalRecords, SessionManifest.read(result.manifestFile).getTotalRecords());
+        assertEquals(result.totalRecords, new RecordingReplayer(new AttitudeEstimator()).run(result.manifestFile));
+
+        SegmentedRecordingWriter resumed = SegmentedRecordingWriter.resume(result, 20.0, 0, 30, 50,
+                Long.MAX_VALUE / 1_000_000L, BatchedCsvWriter.SyncPolicy.NONE, Runnable::run);
+        assertEquals(result.totalRecords, resumed.getRecordCount());
+        for (int i = result.totalRecords; i < drive.size(); i++) {
+            writeCsv(formatter, resumed.csv(), i, drive.get(i));
+            resumed.endRecord();
+        }
+        resumed.close();
+
+        assertFalse(result.journalFile.exists());
+        assertTrue(RecordingRecovery.findInterrupted(directory).isEmpty());
+        // A sessão continua no segmento seguinte e todos os segmentos antigos foram comprimidos
+        SessionManifest manifest = SessionManifest.read(result.manifestFile);
+        assertEquals("data_004.csv.gz", manifest.getSegments().get(3).fileName);
+        for (SessionManifest.Segment s : manifest.getSegments()) {
+            assertTrue(s.fileName, s.fileName.endsWith(SegmentCompression.EXTENSION));
+        }
+        File exported = new File(folder.getRoot(), "exported.csv");
+        assertEquals(drive.size(), RecordingConverter.toCsv(result.manifestFile, exported));
+        List<String> lines = Files.readAllLines(exported.toPath(), StandardCharsets.US_ASCII);
+        for (int i = 1; i < lines.size(); i++) {
+            assertEquals(Integer.toString(i - 1), lines.get(i).substring(0, lines.get(i).indexOf(',')));
+        }
+    }
+
+    @Test
+    public void recovery_readsOnlyTheTailAfterCheckpoint() throws IOException {
+        File directory = folder.newFolder("sessao");
+        List<AttitudeEstimator.SensorData> drive = Recordings.syntheticDrive(500);
+        SegmentedRecordingWriter writer = newCsvWriter(directory, null);
+        CsvRecordFormatter formatter = new CsvRecordFormatter();
+        for (int i = 0; i < 450; i++) {
+            writeCsv(formatter, writer.csv(), i, drive.get(i));
+            writer.endRecord();
+            checkpointIfDue(writer, i);
+        }
+        RecordingJournal.Checkpoint checkpoint = RecordingJournal.readLatest(
+                new File(directory, "data" + RecordingJournal.EXTENSION));
+        assertEquals(400, checkpoint.totalRecords);
+
+        // Um byte nulo antes do checkpoint faria uma releitura completa parar ali
+        File segment = new File(directory, "data_001.csv");
+        try (RandomAccessFile raw = new RandomAccessFile(segment, "rw")) {
+            raw.seek(checkpoint.segmentBytes / 2);
+            raw.write(0);
+        }
+        RecordingRecovery.Result result = RecordingRecovery.recover(
+                new File(directory, "data" + RecordingJournal.EXTENSION));
+
+        assertEquals(400 + result.tailRecords, result.totalRecords);
+        assertEquals(0, result.truncatedBytes);
+    }
+
+    @Test
+    public void interruptedBinarySession_dropsTornBlock() throws IOException {
+        File directory = folder.newFolder("sessao");
+        List<AttitudeEstimator.SensorData> drive = Recordings.syntheticDrive(1000);
+        SegmentedRecordingWriter writer = new SegmentedRecordingWriter(directory, "data",
+                SegmentedRecordingWriter.Format.BINARY, 20.0, 0, 0, 32, Long.MAX_VALUE / 1_000_000L,
+                BatchedCsvWriter.SyncPolicy.NONE, null);
+        BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+        for (int i = 0; i < 990; i++) {
+            record.contreg = i;
+            record.hasAccel = true;
+            record.accelZ = drive.get(i).accelZ;
+            writer.binary().write(record);
+            writer.endRecord();
+            checkpointIfDue(writer, i);
+        }
+        // Bloco final gravado pela metade
+        File segment = new File(directory, "data_001" + BinaryLogFormat.FILE_EXTENSION);
+        long intact = segment.length();
+        byte[] torn = new byte[BinaryLogFormat.BLOCK_HEADER_SIZE + 10 * BinaryLogFormat.RECORD_SIZE];
+        torn[0] = 32;
+        appendBytes(segment, torn);
+
+        RecordingRecovery.Result result = RecordingRecovery.recover(
+                new File(directory, "data" + RecordingJournal.EXTENSION));
+
+        // Depois do checkpoint de 800: 5 blocos de 32 completos (os 30 restantes estavam só em memória)
+        assertEquals(960, result.totalRecords);
+        assertEquals(160, result.tailRecords);
+        assertEquals(torn.length, result.truncatedBytes);
+        assertEquals(intact, segment.length());
+        assertEquals(960, new RecordingReplayer(new AttitudeEstimator()).run(result.manifestFile));
+    }
+
+    @Test
+    public void close_compressesSegmentsAndDeletesJournal() throws IOException {
+        File directory = folder.newFolder("sessao");
+        List<AttitudeEstimator.SensorData> drive = Recordings.syntheticDrive(1000);
+        SegmentedRecordingWriter writer = newCsvWriter(directory, null);
+        CsvRecordFormatter formatter = new CsvRecordFormatter();
+        for (int i = 0; i < 1000; i++) {
+            writeCsv(formatter, writer.csv(), i, drive.get(i));
+            writer.endRecord();
+            checkpointIfDue(writer, i);
+        }
+        RecordingRecovery.Result result = RecordingRecovery.recover(
+                new File(directory, "data" + RecordingJournal.EXTENSION));
+        RecordingRecovery.close(result);
+
+        assertFalse(result.journalFile.exists());
+        for (SessionManifest.Segment s : SessionManifest.read(result.manifestFile).getSegments()) {
+            assertTrue(s.fileName, s.fileName.endsWith(SegmentCompression.EXTENSION));
+            assertFalse(new File(directory, s.fileName.replace(SegmentCompression.EXTENSION, "")).exists());
+        }
+        assertEquals(result.totalRecords, new RecordingReplayer(new AttitudeEstimator()).run(result.manifestFile));
+    }
+
+    @Test
+    public void sessionSeconds_continueAfterTheStop() {
+        RecordingRecovery.Result result = new RecordingRecovery.Result(null, null, "data",
+                SegmentedRecordingWriter.Format.CSV, 0, 0, 0, 10_000_000_000L, 120.0);
+        assertEquals(125.0, result.sessionSecondsAt(15_000_000_000L), 1e-9);
+        // Reboot: relógio monotônico recomeçou
+        assertEquals(120.0, result.sessionSecondsAt(1_000_000_000L), 0);
+    }
+
+    private static SegmentedRecordingWriter newCsvWriter(File directory, Executor executor)
+            throws IOException {
+        return new SegmentedRecordingWriter(directory, "data", SegmentedRecordingWriter.Format.CSV,
+                20.0, 0, 30, 50, Long.MAX_VALUE / 1_000_000L, BatchedCsvWriter.SyncPolicy.NONE, executor);
+    }
+
+    private static void checkpointIfDue(SegmentedRecordingWriter writer, int index) throws IOException {
+        if ((index + 1) % CHECKPOINT_INTERVAL == 0) {
+            writer.checkpoint(1_000_000_000L * index, index / 20.0);
+        }
+    }
+
+    private static void writeCsv(CsvRecordFormatter formatter, BatchedCsvWriter writer, int contreg,
+                                 AttitudeEstimator.SensorData s) throws IOException {
+        boolean hasGnss = s.gpsFix != 0;
+        formatter.write(writer, contreg, true, s.accelX, s.accelY, s.accelZ,
+                hasGnss, s.gpsFix, s.gpsSpeed, s.gpsDirection, s.gpsAlt, s.gpsRtc, 50_000_000L * contreg);
+    }
+
+    private static void appendBytes(File file, byte[] bytes) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file, true)) {
+            output.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.Recordings;
+
+import static org.junit.Assert.*;
+
+public class RecordingReplayerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void csvReplay_matchesLineByLineParsing() throws IOException {
+        for (File file : Recordings.files()) {
+            List<double[]> expected = new ArrayList<>();
+            AttitudeEstimator reference = newEstimator(expected);
+            for (AttitudeEstimator.SensorData sample : Recordings.load(file)) {
+                reference.processSample(sample);
+            }
+
+            List<double[]> actual = new ArrayList<>();
+            AttitudeEstimator estimator = newEstimator(actual);
+            int records = new RecordingReplayer(estimator).run(file);
+
+            assertEquals(file.getName(), Recordings.load(file).size(), records);
+            assertResults(file.getName(), expected, actual);
+            assertResult(file.getName(), reference.getCurrentResult(), estimator.getCurrentResult());
+        }
+    }
+
+    @Test
+    public void binaryReplay_matchesCsvReplay() throws IOException {
+        for (File file : Recordings.files()) {
+            File binary = folder.newFile(file.getName() + BinaryLogFormat.FILE_EXTENSION);
+            RecordingConverter.csvToBinary(file, binary, 20.0);
+
+            List<double[]> expected = new ArrayList<>();
+            new RecordingReplayer(newEstimator(expected)).run(file);
+            List<double[]> actual = new ArrayList<>();
+            new RecordingReplayer(newEstimator(actual)).run(binary);
+
+            assertResults(file.getName(), expected, actual);
+        }
+    }
+
+    @Test
+    public void fieldParsing_matchesDoubleParseDouble() throws IOException {
+        Random random = new Random(3);
+        StringBuilder csv = new StringBuilder(RecordingConverter.CSV_HEADER);
+        List<double[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String[] fields = new String[8];
+            for (int c = 0; c < fields.length; c++) {
+                fields[c] = randomNumber(random, c == 3);
+            }
+            csv.append(i);
+            double[] row = new double[8];
+            for (int c = 0; c < fields.length; c++) {
+                csv.append(',').append(fields[c]);
+                row[c] = Double.parseDouble(fields[c].trim());
+            }
+            csv.append(i % 2 == 0 ? "\n" : "\r\n");
+            rows.add(row);
+        }
+        File file = write("numbers.csv", csv.toString());
+
+        List<AttitudeEstimator.SensorData> samples = new ArrayList<>();
+        new RecordingReplayer(capturing(samples)).run(file);
+
+        assertEquals(rows.size(), samples.size());
+        for (int i = 0; i < rows.size(); i++) {
+            double[] row = rows.get(i);
+            AttitudeEstimator.SensorData s = samples.get(i);
+            assertEquals(Double.doubleToRawLongBits(row[0]), Double.doubleToRawLongBits(s.accelX));
+            assertEquals(Double.doubleToRawLongBits(row[1]), Double.doubleToRawLongBits(s.accelY));
+            assertEquals(Double.doubleToRawLongBits(row[2]), Double.doubleToRawLongBits(s.accelZ));
+            assertEquals((int) row[3], s.gpsFix);
+            assertEquals(Double.doubleToRawLongBits(row[4]), Double.doubleToRawLongBits(s.gpsSpeed));
+            assertEquals(Double.doubleToRawLongBits(row[5]), Double.doubleToRawLongBits(s.gpsDirection));
+            assertEquals(Double.doubleToRawLongBits(row[6]), Double.doubleToRawLongBits(s.gpsAlt));
+            assertEquals(Double.doubleToRawLongBits(row[7]), Double.doubleToRawLongBits(s.gpsRtc));
+        }
+    }
+
+    @Test
+    public void missingFields_areReplayedAsZero() throws IOException {
+        File file = write("missing.csv", RecordingConverter.CSV_HEADER
+                + "0,,,,3,12.50,181.25,850.00,0.050\n"
+                + "\n"
+                + "1,0.0400,-0.1200,-9.8000, , , , ,0.100\n");
+
+        List<AttitudeEstimator.SensorData> samples = new ArrayList<>();
+        assertEquals(2, new RecordingReplayer(capturing(samples)).run(file));
+
+        assertEquals(0, samples.get(0).accelX, 0);
+        assertEquals(3, samples.get(0).gpsFix);
+        assertEquals(181.25, samples.get(0).gpsDirection, 0);
+        assertEquals(-9.8, samples.get(1).accelZ, 0);
+        assertEquals(0, samples.get(1).gpsFix);
+        assertEquals(0, samples.get(1).gpsAlt, 0);
+        assertEquals(0.1, samples.get(1).gpsRtc, 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedLine_isReported() throws IOException {
+        File file = write("bad.csv", RecordingConverter.CSV_HEADER
+                + "0,1,2,3,3,1,1,1,0.0\n"
+                + "1,1,2\n");
+        new RecordingReplayer(new AttitudeEstimator()).run(file);
+    }
+
+    @Test
+    public void cancel_stopsReplayAndReportsProgress() throws IOException {
+        File file = Recordings.files().get(0);
+        int total = Recordings.load(file).size();
+
+        RecordingReplayer replayer = new RecordingReplayer(new AttitudeEstimator());
+        List<Double> progress = new ArrayList<>();
+        replayer.setProgressListener((records, fraction) -> {
+            progress.add(fraction);
+            if (fraction > 0.5) {
+                replayer.cancel();
+            }
+        });
+        int records = replayer.run(file);
+
+        assertTrue(replayer.isCancelled());
+        assertTrue("Amostras: " + records, records > total / 2 && records < total);
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) > progress.get(i - 1));
+        }
+    }
+
+    @Test
+    public void fullReplay_reportsCompletionOnce() throws IOException {
+        File csv = Recordings.files().get(0);
+        // No binário o último bloco termina exatamente no fim do arquivo
+        File file = folder.newFile(csv.getName() + BinaryLogFormat.FILE_EXTENSION);
+        RecordingConverter.csvToBinary(csv, file, 20.0);
+
+        RecordingReplayer replayer = new RecordingReplayer(new AttitudeEstimator());
+        List<Double> progress = new ArrayList<>();
+        replayer.setProgressListener((records, fraction) -> progress.add(fraction));
+        int records = replayer.run(file);
+
+        assertEquals(Recordings.load(csv).size(), records);
+        assertEquals(1.0, progress.get(progress.size() - 1), 0);
+        for (int i = 0; i < progress.size() - 1; i++) {
+            assertTrue("Progresso " + i + ": " + progress.get(i), progress.get(i) < 1.0);
+        }
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    private static String randomNumber(Random random, boolean integer) {
+        if (integer) {
+            return Integer.toString(random.nextInt(4));
+        }
+        double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 8);
+        switch (random.nextInt(5)) {
+            case 0:
+                return Double.toString(value);
+            case 1:
+                return String.format(Locale.US, "%.4f", value);
+            case 2:
+                return String.format(Locale.US, "%.13e", value);
+            case 3:
+                return String.format(Locale.US, "%014.2f", Math.abs(value));
+            default:
+                // Muitos dígitos: cai para Double.parseDouble
+                return String.format(Locale.US, " %.20f ", value);
+        }
+    }
+
+    private static AttitudeEstimator newEstimator(List<double[]> results) {
+        AttitudeEstimator estimator = new AttitudeEstimator();
+        estimator.setUpdateListener(result -> results.add(
+                new double[]{result.phiRadians, result.thetaRadians, result.psiRadians}));
+        return estimator;
+    }
+
+    private static AttitudeEstimator capturing(List<AttitudeEstimator.SensorData> samples) {
+        return new AttitudeEstimator() {
+            @Override
+            public void processSample(SensorData data) {
+                samples.add(new SensorData(data.accelX, data.accelY, data.accelZ, data.gpsFix,
+                        data.gpsSpeed, data.gpsDirection, data.gpsAlt, data.gpsRtc));
+            }
+        };
+    }
+
+    private static void assertResults(String name, List<double[]> expected, List<double[]> actual) {
+        assertEquals(name, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(name + " resultado " + i, expected.get(i), actual.get(i), 0);
+        }
+    }
+
+    private static void assertResult(String name, AttitudeEstimator.AttitudeResult expected,
+                                     AttitudeEstimator.AttitudeResult actual) {
+        assertEquals(name, expected.phiRadians, actual.phiRadians, 0);
+        assertEquals(name, expected.thetaRadians, actual.thetaRadians, 0);
+        assertEquals(name, expected.psiRadians, actual.psiRadians, 0);
+    }
+}
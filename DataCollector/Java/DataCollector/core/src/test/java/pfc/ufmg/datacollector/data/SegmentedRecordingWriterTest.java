@@ -0,0 +1,199 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+import pfc.ufmg.datacollector.calculations.Recordings;
+
+import static org.junit.Assert.*;
+
+public class SegmentedRecordingWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int SAMPLES = 5000;
+
+    @Test
+    public void csvSession_rollsOverByDurationAndReplaysLikeSingleFile() throws IOException {
+        List<AttitudeEstimator.SensorData> drive = Recordings.syntheticDrive(SAMPLES);
+        File directory = folder.newFolder("sessao");
+        // 60 s a 20 Hz = 1200 registros por segmento; compressão na própria thread
+        SegmentedRecordingWriter writer = new SegmentedRecordingWriter(directory, "data",
+                SegmentedRecordingWriter.Format.CSV, 20.0, 0, 60, 200, 5000,
+                BatchedCsvWriter.SyncPolicy.NONE, Runnable::run);
+        CsvRecordFormatter formatter = new CsvRecordFormatter();
+        for (int i = 0; i < drive.size(); i++) {
+            writeCsv(formatter, writer.csv(), i, drive.get(i));
+            writer.endRecord();
+        }
+        writer.close();
+
+        File single = folder.newFile("single.csv");
+        BatchedCsvWriter singleWriter = new BatchedCsvWriter(single, 64 * 1024, 200, 5000,
+                BatchedCsvWriter.SyncPolicy.NONE);
+        singleWriter.append(RecordingConverter.CSV_HEADER);
+        for (int i = 0; i < drive.size(); i++) {
+            writeCsv(formatter, singleWriter, i, drive.get(i));
+        }
+        singleWriter.close();
+
+        assertEquals(5, writer.getSegmentCount());
+        assertEquals(0, writer.getCompressionFailures());
+        SessionManifest manifest = SessionManifest.read(writer.getManifestFile());
+        assertEquals(5, manifest.getSegments().size());
+        assertEquals(SAMPLES, manifest.getTotalRecords());
+        for (int i = 0; i < 5; i++) {
+            SessionManifest.Segment segment = manifest.getSegments().get(i);
+            assertEquals(String.format("data_%03d.csv.gz", i + 1), segment.fileName);
+            assertEquals(i < 4 ? 1200 : SAMPLES - 4 * 1200, segment.records);
+            // O original é apagado depois da compressão
+            assertFalse(new File(directory, String.format("data_%03d.csv", i + 1)).exists());
+        }
+
+        List<double[]> expected = new ArrayList<>();
+        assertEquals(SAMPLES, new RecordingReplayer(newEstimator(expected)).run(single));
+        List<double[]> actual = new ArrayList<>();
+        assertEquals(SAMPLES, new RecordingReplayer(newEstimator(actual)).run(writer.getManifestFile()));
+        assertResults(expected, actual);
+
+        // Exportação concatena os segmentos com um só cabeçalho
+        File exported = new File(folder.getRoot(), "exported.csv");
+        assertEquals(SAMPLES, RecordingConverter.toCsv(writer.getManifestFile(), exported));
+        assertArrayEquals(Files.readAllBytes(single.toPath()), Files.readAllBytes(exported.toPath()));
+    }
+
+    @Test
+    public void binarySession_rollsOverBySizeAndExportsLikeSingleFile() throws IOException {
+        List<AttitudeEstimator.SensorData> drive = Recordings.syntheticDrive(SAMPLES);
+        File directory = folder.newFolder("sessao");
+        long maxBytes = 16 * 1024;
+        // Sem compressão: os tamanhos dos segmentos podem ser conferidos
+        SegmentedRecordingWriter writer = new SegmentedRecordingWriter(directory, "data",
+                SegmentedRecordingWriter.Format.BINARY, 20.0, maxBytes, 0, 32, 5000,
+                BatchedCsvWriter.SyncPolicy.NONE, null);
+        File single = folder.newFile("single.pfcl");
+        BinaryLogWriter singleWriter = new BinaryLogWriter(single, 20.0, 32, 5000,
+                BatchedCsvWriter.SyncPolicy.NONE);
+        BinaryLogFormat.Record record = new BinaryLogFormat.Record();
+        for (int i = 0; i < drive.size(); i++) {
+            toRecord(i, drive.get(i), record);
+            writer.binary().write(record);
+            writer.endRecord();
+            singleWriter.write(record);
+        }
+        writer.close();
+        singleWriter.close();
+
+        List<File> segments = SessionManifest.segmentFiles(writer.getManifestFile());
+        assertTrue("Segmentos: " + segments.size(), segments.size() > 1);
+        assertEquals(writer.getSegmentCount(), segments.size());
+        for (File segment : segments) {
+            assertTrue(segment.getName().endsWith(BinaryLogFormat.FILE_EXTENSION));
+            assertTrue(segment.getName() + ": " + segment.length(),
+                    segment.length() < maxBytes + BinaryLogFormat.BLOCK_HEADER_SIZE + BinaryLogFormat.RECORD_SIZE);
+        }
+
+        File expected = new File(folder.getRoot(), "expected.csv");
+        File actual = new File(folder.getRoot(), "actual.csv");
+        assertEquals(SAMPLES, RecordingConverter.binaryToCsv(single, expected));
+        assertEquals(SAMPLES, RecordingConverter.toCsv(writer.getManifestFile(), actual));
+        assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+    }
+
+    @Test
+    public void sessionReplay_reportsMonotonicProgressAcrossSegments() throws IOException {
+        List<AttitudeEstimator.SensorData> drive = Recordings.syntheticDrive(SAMPLES);
+        File directory = folder.newFolder("sessao");
+        SegmentedRecordingWriter writer = new SegmentedRecordingWriter(directory, "data",
+                SegmentedRecordingWriter.Format.CSV, 20.0, 0, 30, 200, 5000,
+                BatchedCsvWriter.SyncPolicy.NONE, Runnable::run);
+        CsvRecordFormatter formatter = new CsvRecordFormatter();
+        for (int i = 0; i < drive.size(); i++) {
+            writeCsv(formatter, writer.csv(), i, drive.get(i));
+            writer.endRecord();
+        }
+        writer.close();
+
+        RecordingReplayer replayer = new RecordingReplayer(new AttitudeEstimator());
+        List<Double> fractions = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        replayer.setProgressListener((records, fraction) -> {
+            fractions.add(fraction);
+            counts.add(records);
+        });
+        assertEquals(SAMPLES, replayer.run(writer.getManifestFile()));
+
+        assertTrue(fractions.size() > writer.getSegmentCount());
+        for (int i = 1; i < fractions.size(); i++) {
+            assertTrue(fractions.get(i) >= fractions.get(i - 1));
+            assertTrue(counts.get(i) >= counts.get(i - 1));
+        }
+        assertEquals(1.0, fractions.get(fractions.size() - 1), 0);
+        assertEquals(SAMPLES, (int) counts.get(counts.size() - 1));
+        // Só o fim da sessão reporta 100%
+        assertEquals(1, fractions.stream().filter(f -> f == 1.0).count());
+    }
+
+    @Test
+    public void exactLimit_doesNotLeaveEmptySegment() throws IOException {
+        File directory = folder.newFolder("sessao");
+        SegmentedRecordingWriter writer = new SegmentedRecordingWriter(directory, "data",
+                SegmentedRecordingWriter.Format.CSV, 20.0, 0, 1, 200, 5000,
+                BatchedCsvWriter.SyncPolicy.NONE, null);
+        CsvRecordFormatter formatter = new CsvRecordFormatter();
+        List<AttitudeEstimator.SensorData> drive = Recordings.syntheticDrive(40);
+        for (int i = 0; i < drive.size(); i++) {
+            writeCsv(formatter, writer.csv(), i, drive.get(i));
+            writer.endRecord();
+        }
+        writer.close();
+
+        assertEquals(2, writer.getSegmentCount());
+        assertEquals(2, SessionManifest.read(writer.getManifestFile()).getSegments().size());
+        assertFalse(new File(directory, "data_003.csv").exists());
+    }
+
+    private static void writeCsv(CsvRecordFormatter formatter, BatchedCsvWriter writer, int contreg,
+                                 AttitudeEstimator.SensorData s) throws IOException {
+        boolean hasGnss = s.gpsFix != 0;
+        formatter.write(writer, contreg, true, s.accelX, s.accelY, s.accelZ,
+                hasGnss, s.gpsFix, s.gpsSpeed, s.gpsDirection, s.gpsAlt, s.gpsRtc, 50_000_000L * contreg);
+    }
+
+    private static void toRecord(int contreg, AttitudeEstimator.SensorData s, BinaryLogFormat.Record record) {
+        record.contreg = contreg;
+        record.hasAccel = true;
+        record.accelX = s.accelX;
+        record.accelY = s.accelY;
+        record.accelZ = s.accelZ;
+        record.hasGnss = s.gpsFix != 0;
+        record.gpsFix = s.gpsFix;
+        record.gpsSpeed = s.gpsSpeed;
+        record.gpsDirection = s.gpsDirection;
+        record.gpsAlt = s.gpsAlt;
+        record.gpsRtc = s.gpsRtc;
+    }
+
+    private static AttitudeEstimator newEstimator(List<double[]> results) {
+        AttitudeEstimator estimator = new AttitudeEstimator();
+        estimator.setUpdateListener(result -> results.add(
+                new double[]{result.phiRadians, result.thetaRadians, result.psiRadians}));
+        return estimator;
+    }
+
+    private static void assertResults(List<double[]> expected, List<double[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals("Resultado " + i, expected.get(i), actual.get(i), 0);
+        }
+    }
+}
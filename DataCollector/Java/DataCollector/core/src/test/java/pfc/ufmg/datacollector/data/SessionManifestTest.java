@@ -0,0 +1,73 @@
+package pfc.ufmg.datacollector.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import pfc.ufmg.datacollector.calculations.AttitudeEstimator;
+
+import static org.junit.Assert.*;
+
+public class SessionManifestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeAndRead_roundTrip() throws IOException {
+        File file = folder.newFile("data" + SessionManifest.EXTENSION);
+        SessionManifest manifest = new SessionManifest();
+        manifest.setSegment(0, "data_001.csv", 0);
+        manifest.setSegment(0, "data_001.csv.gz", 1200);
+        manifest.setSegment(1, "data_002.csv", 37);
+        manifest.write(file);
+
+        SessionManifest read = SessionManifest.read(file);
+        assertEquals(2, read.getSegments().size());
+        assertEquals("data_001.csv.gz", read.getSegments().get(0).fileName);
+        assertEquals(1200, read.getSegments().get(0).records);
+        assertEquals("data_002.csv", read.getSegments().get(1).fileName);
+        assertEquals(1237, read.getTotalRecords());
+        assertTrue(SessionManifest.isManifest(file));
+        assertFalse(new File(folder.getRoot(), file.getName() + ".tmp").exists());
+    }
+
+    @Test
+    public void segmentFiles_fallsBackToCompressedSegment() throws IOException {
+        File plain = write("data_001.csv", RecordingConverter.CSV_HEADER + "0,1,2,3,3,1,1,1,0.0\n");
+        // App parou entre a compressão e a atualização do manifesto: só o .gz sobrou
+        File compressed = SegmentCompression.compress(plain, SegmentCompression.DEFAULT_LEVEL);
+        assertTrue(plain.delete());
+        File file = write("data" + SessionManifest.EXTENSION,
+                SessionManifest.HEADER + "data_001.csv,1\n");
+
+        List<File> segments = SessionManifest.segmentFiles(file);
+        assertEquals(1, segments.size());
+        assertEquals(compressed, segments.get(0));
+        assertEquals(1, new RecordingReplayer(new AttitudeEstimator()).run(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void missingSegment_isReported() throws IOException {
+        File file = write("data" + SessionManifest.EXTENSION, SessionManifest.HEADER + "data_001.csv,1\n");
+        SessionManifest.segmentFiles(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedLine_isReported() throws IOException {
+        File file = write("data" + SessionManifest.EXTENSION, SessionManifest.HEADER + "data_001.csv\n");
+        SessionManifest.read(file);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
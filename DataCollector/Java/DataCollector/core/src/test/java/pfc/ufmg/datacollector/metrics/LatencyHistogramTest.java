@@ -0,0 +1,101 @@
+package pfc.ufmg.datacollector.metrics;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueContiguously() {
+        long expectedLower = 0;
+        for (int i = 0; i <= LatencyHistogram.bucketIndex(LatencyHistogram.MAX_VALUE_NANOS); i++) {
+            assertEquals(expectedLower, LatencyHistogram.bucketLowerBound(i));
+            long upper = LatencyHistogram.bucketUpperBound(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.bucketLowerBound(i)));
+            assertEquals(i, LatencyHistogram.bucketIndex(upper));
+            // Largura da faixa <= 1/SUB_BUCKETS do seu limite inferior
+            assertTrue(i < LatencyHistogram.SUB_BUCKETS
+                    || (upper - expectedLower + 1) * LatencyHistogram.SUB_BUCKETS <= expectedLower);
+            expectedLower = upper + 1;
+        }
+        assertEquals(LatencyHistogram.MAX_VALUE_NANOS + 1, expectedLower);
+    }
+
+    @Test
+    public void percentiles_matchExactValuesWithinBucketResolution() {
+        Random random = new Random(5);
+        long[] values = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal em torno de ~100 us
+            values[i] = (long) Math.exp(11.5 + 1.2 * random.nextGaussian());
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values[0], histogram.getMin());
+        for (double p : new double[]{1, 50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long estimate = histogram.getValueAtPercentile(p);
+            assertTrue(p + ": " + estimate + " < " + exact, estimate >= exact);
+            assertTrue(p + ": " + estimate + " >> " + exact,
+                    estimate <= exact + exact / LatencyHistogram.SUB_BUCKETS);
+        }
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void outOfRangeValues_areClampedAndResetClears() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getMin());
+        assertEquals(LatencyHistogram.MAX_VALUE_NANOS, histogram.getMax());
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        LatencyHistogram.Summary summary = histogram.summary();
+        assertEquals(0, summary.count);
+        assertEquals(0, summary.max);
+    }
+
+    @Test
+    public void record_doesNotAllocate() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        PipelineMetrics metrics = new PipelineMetrics();
+        long id = Thread.currentThread().getId();
+        // Repete a medição: alocações pontuais da JVM (compilação, OSR) não se repetem em todas as rodadas
+        long bytes = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long before = threads.getThreadAllocatedBytes(id);
+            recordMany(metrics);
+            bytes = Math.min(bytes, threads.getThreadAllocatedBytes(id) - before);
+        }
+
+        // Folga para alocações pontuais da JVM; uma alocação por chamada passaria de 16 B * 300000
+        assertTrue("Bytes alocados: " + bytes, bytes <= 256);
+    }
+
+    private static void recordMany(PipelineMetrics metrics) {
+        for (int i = 0; i < 100_000; i++) {
+            metrics.record(PipelineMetrics.Stage.WRITE, 1000L * i);
+            metrics.record(PipelineMetrics.Stage.ESTIMATE, i);
+            metrics.increment(PipelineMetrics.Counter.MISSED_TICKS);
+        }
+    }
+}
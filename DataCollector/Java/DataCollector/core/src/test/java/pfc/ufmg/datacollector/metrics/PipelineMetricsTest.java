@@ -0,0 +1,61 @@
+package pfc.ufmg.datacollector.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PipelineMetricsTest {
+
+    @Test
+    public void snapshot_summarizesIntervalAndKeepsCounters() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        for (int i = 1; i <= 100; i++) {
+            metrics.record(PipelineMetrics.Stage.WRITE, i * 1000L);
+        }
+        metrics.increment(PipelineMetrics.Counter.MISSED_TICKS);
+        metrics.set(PipelineMetrics.Counter.RING_OVERFLOW, 7);
+        metrics.setCpuTimeNanos(PipelineMetrics.CpuThread.PIPELINE, 2_000_000_000L);
+
+        PipelineMetrics.Snapshot first = metrics.snapshot(10.0);
+        LatencyHistogram.Summary write = first.stage(PipelineMetrics.Stage.WRITE);
+        assertEquals(100, write.count);
+        assertEquals(100_000, write.max);
+        assertEquals(50_500, write.mean, 1e-9);
+        assertTrue(write.p50 >= 50_000 && write.p50 <= 50_000 + 50_000 / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(0, first.stage(PipelineMetrics.Stage.ESTIMATE).count);
+        assertEquals(0, first.intervalSeconds, 0);
+        assertEquals(0, first.cpuLoad(PipelineMetrics.CpuThread.PIPELINE), 0);
+
+        // Histogramas por intervalo, contadores e CPU acumulados
+        metrics.increment(PipelineMetrics.Counter.MISSED_TICKS);
+        metrics.setCpuTimeNanos(PipelineMetrics.CpuThread.PIPELINE, 2_050_000_000L);
+        PipelineMetrics.Snapshot second = metrics.snapshot(11.0);
+        assertEquals(0, second.stage(PipelineMetrics.Stage.WRITE).count);
+        assertEquals(2, second.counter(PipelineMetrics.Counter.MISSED_TICKS));
+        assertEquals(7, second.counter(PipelineMetrics.Counter.RING_OVERFLOW));
+        assertEquals(1.0, second.intervalSeconds, 1e-12);
+        assertEquals(0.05, second.cpuLoad(PipelineMetrics.CpuThread.PIPELINE), 1e-12);
+        assertEquals(2_050_000_000L, second.cpuTimeNanos(PipelineMetrics.CpuThread.PIPELINE));
+
+        // Snapshot anterior não muda
+        assertEquals(1, first.counter(PipelineMetrics.Counter.MISSED_TICKS));
+    }
+
+    @Test
+    public void csvRow_matchesHeaderColumns() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.Stage.BATCH, 1_234_567);
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot(1.5);
+
+        String[] header = PipelineMetrics.Snapshot.csvHeader().trim().split(",");
+        String[] row = snapshot.toCsvRow().trim().split(",");
+        assertEquals(header.length, row.length);
+        assertEquals("t", header[0]);
+        assertEquals("1.500", row[0]);
+        assertEquals("batch_n", header[1]);
+        assertEquals("1", row[1]);
+        assertEquals("batch_max_us", header[4]);
+        assertEquals("1234", row[4]);
+        assertTrue(snapshot.toString().contains("batch"));
+    }
+}
@@ -0,0 +1,66 @@
+package pfc.ufmg.datacollector.sensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DeadlineSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long START = 987_654_321_000L;
+
+    @Test
+    public void processingTime_doesNotAccumulate() {
+        DeadlineScheduler scheduler = new DeadlineScheduler(50 * MS);
+        scheduler.start(START);
+
+        // Cada tick acorda 1 ms depois do prazo e trabalha 7 ms antes de reagendar
+        long now = START;
+        for (int k = 1; k <= 1000; k++) {
+            now += scheduler.delayNanos(now) + MS;
+            assertEquals(MS, scheduler.onTick(now));
+            now += 7 * MS;
+        }
+        // 1000 ticks em 1000 períodos: com atraso fixo seriam 1000 * 58 ms
+        assertEquals(START + 1001 * 50 * MS, scheduler.getNextDeadlineNanos());
+        assertEquals(1000, scheduler.getTickCount());
+        assertEquals(0, scheduler.getMissedCount());
+    }
+
+    @Test
+    public void lateTick_skipsMissedDeadlines() {
+        DeadlineScheduler scheduler = new DeadlineScheduler(20 * MS);
+        scheduler.start(START);
+
+        // Prazo em START + 20 ms; o tick só roda em START + 95 ms: perde os prazos de 40, 60 e 80 ms
+        assertEquals(75 * MS, scheduler.onTick(START + 95 * MS));
+        assertEquals(3, scheduler.getMissedCount());
+        assertEquals(START + 100 * MS, scheduler.getNextDeadlineNanos());
+        assertEquals(5 * MS, scheduler.delayNanos(START + 95 * MS));
+
+        // De volta à grade original
+        assertEquals(0, scheduler.onTick(START + 100 * MS));
+        assertEquals(START + 120 * MS, scheduler.getNextDeadlineNanos());
+        assertEquals(3, scheduler.getMissedCount());
+    }
+
+    @Test
+    public void delayMillis_roundsUp() {
+        DeadlineScheduler scheduler = new DeadlineScheduler(20 * MS);
+        scheduler.start(START);
+        assertEquals(20, scheduler.delayMillis(START));
+        assertEquals(1, scheduler.delayMillis(START + 19 * MS + 1));
+        assertEquals(0, scheduler.delayMillis(START + 25 * MS));
+    }
+
+    @Test
+    public void setPeriod_reanchorsNextDeadline() {
+        DeadlineScheduler scheduler = new DeadlineScheduler(20 * MS);
+        scheduler.start(START);
+        scheduler.onTick(START + 20 * MS);
+        scheduler.setPeriod(1000 * MS, START + 30 * MS);
+        assertEquals(START + 1030 * MS, scheduler.getNextDeadlineNanos());
+        assertEquals(0, scheduler.onTick(START + 1030 * MS));
+        assertEquals(START + 2030 * MS, scheduler.getNextDeadlineNanos());
+    }
+}
@@ -0,0 +1,165 @@
+package pfc.ufmg.datacollector.sensors;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+public class SpscSampleRingTest {
+
+    // Folga para alocações pontuais da própria JVM na thread (não dependem do número de amostras);
+    // uma alocação por amostra passaria de 16 B * 3000
+    private static final long ALLOCATION_SLACK_BYTES = 256;
+
+    @Test
+    public void offerAndDrain_keepOrderAndCountOverflow() {
+        SpscSampleRing ring = new SpscSampleRing(6);
+        assertEquals(8, ring.capacity());
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i < 8, ring.offer(i, i, -i, 0.5f * i));
+        }
+        assertEquals(2, ring.getOverflowCount());
+        assertEquals(10, ring.getOfferedCount());
+        assertEquals(8, ring.size());
+
+        SequenceChecker checker = new SequenceChecker();
+        assertEquals(3, ring.drain(checker, 3));
+        assertTrue(ring.offer(8, 8, -8, 4));
+        assertEquals(6, ring.drain(checker));
+        assertEquals(0, ring.drain(checker));
+        assertEquals(9, checker.received);
+        assertEquals(0, checker.errors);
+    }
+
+    /**
+     * Sensor sintético a 1 kHz por 3 s numa thread; o pipeline drena em lotes a cada 20 ms
+     * Nenhuma amostra pode ser perdida e nenhum dos lados pode alocar
+     */
+    @Test
+    public void stress1kHz_noLossAndNoAllocation() throws InterruptedException {
+        com.sun.management.ThreadMXBean threads = allocationBean();
+        final int rateHz = 1000;
+        final int samples = 3 * rateHz;
+        final long periodNanos = TimeUnit.SECONDS.toNanos(1) / rateHz;
+
+        SpscSampleRing ring = new SpscSampleRing(256);
+        SequenceChecker checker = new SequenceChecker();
+        AtomicBoolean done = new AtomicBoolean(false);
+        long[] producerBytes = new long[1];
+
+        // Aquecimento fora da medição (carga de classes e JIT)
+        for (int i = 0; i < 20_000; i++) {
+            ring.offer(i, i, -i, 0.5f * i);
+            ring.drain(new SequenceChecker(), 64);
+            ring.size();
+            done.get();
+        }
+        LockSupport.parkNanos(1000);
+        SpscSampleRing measured = new SpscSampleRing(256);
+
+        Thread producer = new Thread(() -> {
+            long id = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(id);
+            long next = System.nanoTime();
+            for (int i = 0; i < samples; i++) {
+                measured.offer(i, i, -i, 0.5f * i);
+                next += periodNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            producerBytes[0] = threads.getThreadAllocatedBytes(id) - before;
+            done.set(true);
+        }, "SensorSintetico");
+
+        long consumerBytes;
+        long id = Thread.currentThread().getId();
+        int batches = 0;
+        producer.start();
+        long before = threads.getThreadAllocatedBytes(id);
+        while (!done.get() || measured.size() > 0) {
+            if (measured.drain(checker, 64) > 0) {
+                batches++;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        consumerBytes = threads.getThreadAllocatedBytes(id) - before;
+        producer.join();
+
+        assertEquals(samples, checker.received);
+        assertEquals(0, checker.errors);
+        assertEquals(0, measured.getOverflowCount());
+        assertEquals(samples, measured.getOfferedCount());
+        assertTrue("Esperava drenagem em lotes, foram " + batches, batches < samples / 10);
+        assertTrue("Bytes alocados pela produtora: " + producerBytes[0],
+                producerBytes[0] <= ALLOCATION_SLACK_BYTES);
+        assertTrue("Bytes alocados pela consumidora: " + consumerBytes,
+                consumerBytes <= ALLOCATION_SLACK_BYTES);
+    }
+
+    /**
+     * Produtora sem pausa contra consumidora contínua: a ordem e os valores se mantêm
+     * e cada amostra recusada com a fila cheia entra no contador de estouro
+     */
+    @Test
+    public void unpacedProducer_deliversEverythingInOrder() throws InterruptedException {
+        final int samples = 2_000_000;
+        SpscSampleRing ring = new SpscSampleRing(1024);
+        SequenceChecker checker = new SequenceChecker();
+        long[] rejected = new long[1];
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < samples; i++) {
+                while (!ring.offer(i, i, -i, 0.5f * i)) {
+                    rejected[0]++;
+                    Thread.yield();
+                }
+            }
+        }, "Produtora");
+        producer.start();
+        while (checker.received < samples) {
+            if (ring.drain(checker, 128) == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join();
+
+        assertEquals(samples, checker.received);
+        assertEquals(0, checker.errors);
+        assertEquals(rejected[0], ring.getOverflowCount());
+        assertEquals(samples + rejected[0], ring.getOfferedCount());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    /**
+     * Confere que as amostras chegam em sequência (timestamp i, valores derivados de i)
+     */
+    private static final class SequenceChecker implements SpscSampleRing.SampleConsumer {
+        int received = 0;
+        int errors = 0;
+
+        @Override
+        public void onSample(long timestampNanos, float x, float y, float z) {
+            if (timestampNanos != received || x != received || y != -received || z != 0.5f * received) {
+                errors++;
+            }
+            received++;
+        }
+    }
+}
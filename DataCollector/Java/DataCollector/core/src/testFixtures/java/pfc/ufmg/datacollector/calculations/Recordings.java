@@ -0,0 +1,167 @@
+package pfc.ufmg.datacollector.calculations;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dados de entrada para testes e benchmarks: gravações da pasta "Casos de Teste"
+ * na raiz do repositório e um percurso sintético longo
+ */
+public final class Recordings {
+
+    private static final String DIRECTORY_NAME = "Casos de Teste";
+
+    private Recordings() {
+    }
+
+    /**
+     * Procura a pasta de casos de teste subindo a partir do diretório de trabalho
+     */
+    public static File directory() {
+        File dir = new File(System.getProperty("user.dir")).getAbsoluteFile();
+        while (dir != null) {
+            File candidate = new File(dir, DIRECTORY_NAME);
+            if (candidate.isDirectory()) {
+                return candidate;
+            }
+            dir = dir.getParentFile();
+        }
+        throw new IllegalStateException("Pasta '" + DIRECTORY_NAME + "' não encontrada");
+    }
+
+    /**
+     * Lista os arquivos CSV de casos de teste em ordem alfabética
+     */
+    public static List<File> files() {
+        File[] files = directory().listFiles((dir, name) -> name.endsWith(".csv"));
+        if (files == null || files.length == 0) {
+            throw new IllegalStateException("Nenhum CSV em " + directory());
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    /**
+     * Lê um CSV no formato do LogDataManager (contreg,eixox,...,gps_rtc)
+     */
+    public static List<AttitudeEstimator.SensorData> load(File file) throws IOException {
+        List<AttitudeEstimator.SensorData> samples = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            // Ignora o cabeçalho
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                String[] data = line.split(",");
+                samples.add(new AttitudeEstimator.SensorData(
+                        Double.parseDouble(data[1]),
+                        Double.parseDouble(data[2]),
+                        Double.parseDouble(data[3]),
+                        Integer.parseInt(data[4]),
+                        Double.parseDouble(data[5]),
+                        Double.parseDouble(data[6]),
+                        Double.parseDouble(data[7]),
+                        Double.parseDouble(data[8])
+                ));
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Percurso sintético a 20 Hz: parado, depois ciclos de aceleração/frenagem
+     * com GPS a 1 Hz, quedas de fix e eventos mais longos que as janelas
+     */
+    public static List<AttitudeEstimator.SensorData> syntheticDrive(int samples) {
+        List<AttitudeEstimator.SensorData> data = new ArrayList<>(samples);
+        double speed = 0;
+        double heading = 45;
+        double rtc = 0;
+        for (int i = 0; i < samples; i++) {
+            double t = i / 20.0;
+            double forward = 0;
+            if (t > 20) {
+                // Ciclos de 40 s: 15 s acelerando, 10 s parado, 15 s freando
+                double phase = (t - 20) % 40;
+                if (phase < 15) forward = 2.0;
+                else if (phase >= 25) forward = -2.0;
+            }
+            speed = Math.max(0, speed + forward * 3.6 / 20.0);
+            heading = (heading + 0.05 * Math.sin(t / 7.0)) % 360;
+
+            double noise = 0.02 * Math.sin(i * 1.7) + 0.015 * Math.cos(i * 0.9);
+            double ax = 0.6 + forward * 0.8 + noise;
+            double ay = -0.4 + forward * 0.5 - noise;
+            double az = -9.75 + noise;
+
+            int fix = (t % 97) < 5 ? 0 : 3;
+            if (i % 20 == 0) {
+                rtc = t;
+            }
+            data.add(new AttitudeEstimator.SensorData(ax, ay, az, fix, speed, heading, 800 + t * 0.01, rtc));
+        }
+        return data;
+    }
+
+    /**
+     * Percurso sintético em linha reta com o celular montado em atitude conhecida
+     * (convenção do estimador: am - gA = Rphi * Rtheta * RpsiA * Rpsi * aGps)
+     * 20 s parado, depois ciclos de 40 s com 15 s acelerando, 10 s em velocidade
+     * constante e 15 s freando; GPS a 1 Hz
+     * @param phi roll de montagem (graus)
+     * @param theta pitch de montagem (graus)
+     * @param psi yaw de montagem (graus)
+     * @param heading rumo do veículo (graus)
+     */
+    public static List<AttitudeEstimator.SensorData> mountedDrive(int samples, double phi, double theta,
+                                                                  double psi, double heading) {
+        double cp = Math.cos(Math.toRadians(phi)), sp = Math.sin(Math.toRadians(phi));
+        double ct = Math.cos(Math.toRadians(theta)), st = Math.sin(Math.toRadians(theta));
+        double cs = Math.cos(Math.toRadians(psi)), ss = Math.sin(Math.toRadians(psi));
+
+        // Gravidade no referencial do sensor: Rphi * Rtheta * (0, 0, -1)
+        double gx = st, gy = -sp * ct, gz = -cp * ct;
+        // Direção de avanço do veículo no sensor: Rphi * Rtheta * RpsiA * (1, 0, 0)
+        double fx = ct * cs;
+        double fy = -cp * ss + sp * st * cs;
+        double fz = sp * ss + cp * st * cs;
+
+        List<AttitudeEstimator.SensorData> data = new ArrayList<>(samples);
+        double speed = 0;
+        double gpsSpeed = 0;
+        double rtc = 0;
+        for (int i = 0; i < samples; i++) {
+            double t = i / 20.0;
+            double forward = 0;
+            if (t > 20) {
+                double phase = (t - 20) % 40;
+                if (phase < 15) forward = 2.0;
+                else if (phase >= 25) forward = -2.0;
+            }
+            if (forward < 0 && speed <= 0) {
+                forward = 0;
+            }
+            speed = Math.max(0, speed + forward * 3.6 / 20.0);
+            if (i % 20 == 0) {
+                rtc = t;
+                gpsSpeed = speed;
+            }
+
+            double a = forward / 9.8;
+            double noise = 0.02 * Math.sin(i * 1.7) + 0.015 * Math.cos(i * 0.9);
+            data.add(new AttitudeEstimator.SensorData(
+                    9.8 * (gx + a * fx) + noise,
+                    9.8 * (gy + a * fy) - noise,
+                    9.8 * (gz + a * fz) + noise,
+                    3, gpsSpeed, heading, 800, rtc));
+        }
+        return data;
+    }
+}
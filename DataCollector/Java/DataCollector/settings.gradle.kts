@@ -21,3 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "DataCollector"
 include(":app")
+include(":core")
+include(":benchmarks")